@@ -0,0 +1,25 @@
+package totolotek.benchmarki;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Punkt wejścia zestawu benchmarków JMH Totolotka.
+ * Uruchamia wszystkie benchmarki z pakietu (lub pasujące do wyrażenia podanego jako argument)
+ * w trybach przepustowości i średniego czasu, z profilerem GC raportującym tempo alokacji.
+ *
+ * Przykład: {@code java -cp <klasy>:<jmh> totolotek.benchmarki.Benchmarki Rozliczenie}
+ */
+public class Benchmarki {
+    public static void main(String[] args) throws RunnerException {
+        String wzorzec = args.length > 0 ? args[0] : Benchmarki.class.getPackageName() + ".*";
+        Options opcje = new OptionsBuilder()
+                .include(wzorzec)
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(opcje).run();
+    }
+}
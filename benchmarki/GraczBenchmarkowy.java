@@ -0,0 +1,29 @@
+package totolotek.benchmarki;
+
+import totolotek.gracz.Gracz;
+import totolotek.kupon.Kupon;
+
+/**
+ * Gracz używany w benchmarkach: ma praktycznie nieograniczone środki i nie zapamiętuje
+ * kupionych kuponów, aby długie pomiary sprzedaży nie wyczerpywały pamięci.
+ */
+class GraczBenchmarkowy extends Gracz {
+    /** Czy kupione kupony mają być zapamiętywane (potrzebne przy odbiorze wygranych) */
+    private final boolean zapamietujKupony;
+
+    GraczBenchmarkowy(boolean zapamietujKupony) {
+        super("Bench", "Mark", "00000000000", Long.MAX_VALUE / 2);
+        this.zapamietujKupony = zapamietujKupony;
+    }
+
+    @Override
+    public void kupKupon() {
+    }
+
+    @Override
+    public void dodajKupon(Kupon nowyKupon) {
+        if (zapamietujKupony) {
+            super.dodajKupon(nowyKupon);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package totolotek.benchmarki;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import totolotek.core.Centrala;
+import totolotek.core.Kolektura;
+import totolotek.finanse.BudzetPanstwa;
+import totolotek.kupon.Kupon;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Koszt zebrania kuponów kolektury na jedno losowanie. Połowa sprzedanych kuponów
+ * obowiązuje na inne losowanie, by pomiar pokazywał, czy koszt zależy od kuponów spoza losowania.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class KuponyNaLosowanieBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int liczbaKuponow;
+
+    private Kolektura kolektura;
+
+    @Setup(Level.Trial)
+    public void przygotuj() {
+        Centrala centrala = new Centrala(1_000_000_000L, new BudzetPanstwa());
+        kolektura = new Kolektura(1, centrala);
+        centrala.dodajKolekture(kolektura);
+        GraczBenchmarkowy gracz = new GraczBenchmarkowy(false);
+        for (int i = 0; i < liczbaKuponow / 2; i++) {
+            kolektura.sprzedajKuponChybilTraf(1, 1, gracz);
+        }
+        centrala.przeprowadzLosowanie();
+        for (int i = 0; i < liczbaKuponow / 2; i++) {
+            kolektura.sprzedajKuponChybilTraf(1, 1, gracz);
+        }
+    }
+
+    @Benchmark
+    public List<Kupon> kuponyNaLosowanie() {
+        return kolektura.kuponyNaLosowanie(2);
+    }
+
+    @Benchmark
+    public void kuponyNaLosowanieZPrzejsciem(Blackhole bh) {
+        for (Kupon kupon : kolektura.kuponyNaLosowanie(2)) {
+            bh.consume(kupon);
+        }
+    }
+}
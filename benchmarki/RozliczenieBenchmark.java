@@ -0,0 +1,60 @@
+package totolotek.benchmarki;
+
+import org.openjdk.jmh.annotations.*;
+import totolotek.core.Centrala;
+import totolotek.core.Kolektura;
+import totolotek.finanse.BudzetPanstwa;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Koszt {@link Centrala#przeprowadzLosowanie()} w zależności od liczby zakładów na losowanie.
+ *
+ * Zakłady sprzedawane są na 10 losowań, więc jeden stan wystarcza na 10 wywołań;
+ * po ich wyczerpaniu stan jest odtwarzany poza pomiarem. Największe rozmiary wymagają
+ * odpowiednio dużej sterty (opcja {@code -jvmArgsAppend}).
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx16g")
+@State(Scope.Benchmark)
+public class RozliczenieBenchmark {
+    private static final int LICZBA_KOLEKTUR = 10;
+    private static final int LOSOWANIA_NA_STAN = 10;
+
+    @Param({"10000", "100000", "1000000", "10000000", "100000000"})
+    public long liczbaZakladow;
+
+    @Param({"1", "8"})
+    public int poziomRownoleglosci;
+
+    private Centrala centrala;
+
+    @Setup(Level.Invocation)
+    public void przygotuj() {
+        if (centrala != null && centrala.getNajblizszeLosowanie() <= LOSOWANIA_NA_STAN) {
+            return;
+        }
+        centrala = null; // zwolnij poprzedni stan przed budową nowego
+        centrala = new Centrala(1_000_000_000_000L, new BudzetPanstwa());
+        centrala.setPoziomRownoleglosci(poziomRownoleglosci);
+        Kolektura[] kolektury = new Kolektura[LICZBA_KOLEKTUR];
+        for (int i = 0; i < LICZBA_KOLEKTUR; i++) {
+            kolektury[i] = new Kolektura(i + 1, centrala);
+            centrala.dodajKolekture(kolektury[i]);
+        }
+        GraczBenchmarkowy gracz = new GraczBenchmarkowy(false);
+        long kupony = liczbaZakladow / 8;
+        for (long i = 0; i < kupony; i++) {
+            kolektury[(int) (i % LICZBA_KOLEKTUR)].sprzedajKuponChybilTraf(8, LOSOWANIA_NA_STAN, gracz);
+        }
+    }
+
+    @Benchmark
+    public int przeprowadzLosowanie() {
+        centrala.przeprowadzLosowanie();
+        return centrala.getNajblizszeLosowanie();
+    }
+}
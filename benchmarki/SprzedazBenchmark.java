@@ -0,0 +1,82 @@
+package totolotek.benchmarki;
+
+import org.openjdk.jmh.annotations.*;
+import totolotek.core.Centrala;
+import totolotek.core.Kolektura;
+import totolotek.core.PotokSprzedazy;
+import totolotek.finanse.BudzetPanstwa;
+import totolotek.kupon.Blankiet;
+import totolotek.kupon.Kupon;
+import totolotek.kupon.PoleBlankietu;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Koszt sprzedaży kuponu w kolekturze: z blankietu, "chybił-trafił" oraz "chybił-trafił"
+ * przez potok sprzedaży (czas od zlecenia do otrzymania kuponu).
+ * Kolektura jest wspólna dla wszystkich wątków (opcja {@code -t} JMH mierzy sprzedaż
+ * na wielu terminalach), a stan odtwarzany jest przed każdą iteracją.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class SprzedazBenchmark {
+
+    @Param({"1", "8"})
+    public int liczbaZakladow;
+
+    @Param({"1", "10"})
+    public int liczbaLosowan;
+
+    private Kolektura kolektura;
+    private Blankiet blankiet;
+    private PotokSprzedazy potok;
+
+    @State(Scope.Thread)
+    public static class Terminal {
+        GraczBenchmarkowy gracz;
+
+        @Setup(Level.Iteration)
+        public void przygotuj() {
+            gracz = new GraczBenchmarkowy(false);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void przygotuj() {
+        Centrala centrala = new Centrala(1_000_000_000L, new BudzetPanstwa());
+        kolektura = new Kolektura(1, centrala);
+        centrala.dodajKolekture(kolektura);
+
+        blankiet = new Blankiet();
+        for (int i = 0; i < liczbaZakladow; i++) {
+            blankiet.ustawPole(i, new PoleBlankietu(Set.of(1 + i, 10 + i, 20 + i, 30 + i, 40 + i, 41 + i), false));
+        }
+        blankiet.zaznaczLiczbeLosowan(liczbaLosowan);
+        potok = new PotokSprzedazy(kolektura);
+    }
+
+    @TearDown(Level.Iteration)
+    public void zakoncz() {
+        potok.close();
+    }
+
+    @Benchmark
+    public Kupon sprzedajKupon(Terminal terminal) {
+        return kolektura.sprzedajKupon(blankiet, terminal.gracz);
+    }
+
+    @Benchmark
+    public Kupon sprzedajKuponChybilTraf(Terminal terminal) {
+        return kolektura.sprzedajKuponChybilTraf(liczbaZakladow, liczbaLosowan, terminal.gracz);
+    }
+
+    @Benchmark
+    public Kupon sprzedajKuponPotokiem(Terminal terminal) {
+        return potok.sprzedajKuponChybilTraf(liczbaZakladow, liczbaLosowan, terminal.gracz).join();
+    }
+}
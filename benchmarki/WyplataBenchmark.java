@@ -0,0 +1,75 @@
+package totolotek.benchmarki;
+
+import org.openjdk.jmh.annotations.*;
+import totolotek.core.Centrala;
+import totolotek.core.Kolektura;
+import totolotek.finanse.BudzetPanstwa;
+import totolotek.kupon.Kupon;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Koszt odbioru wygranych: pojedynczo przez {@link Kolektura#wyplacWygrane(totolotek.gracz.Gracz, Kupon)},
+ * hurtowo przez {@link Kolektura#wyplacWygrane(totolotek.gracz.Gracz, List)} oraz przez
+ * {@link totolotek.gracz.Gracz#odbierzWygrane()}. Przed każdym wywołaniem sprzedawana jest
+ * nowa partia kuponów i przeprowadzane losowanie; wynik podawany jest na jeden kupon.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Thread)
+public class WyplataBenchmark {
+    private static final int KUPONY_NA_WYWOLANIE = 1_000;
+
+    @Param({"1", "8"})
+    public int liczbaZakladow;
+
+    private Centrala centrala;
+    private Kolektura kolektura;
+    private GraczBenchmarkowy gracz;
+    private List<Kupon> kupony;
+
+    @Setup(Level.Iteration)
+    public void przygotujCentrale() {
+        centrala = new Centrala(1_000_000_000_000L, new BudzetPanstwa());
+        kolektura = new Kolektura(1, centrala);
+        centrala.dodajKolekture(kolektura);
+    }
+
+    @Setup(Level.Invocation)
+    public void przygotujKupony() {
+        gracz = new GraczBenchmarkowy(true);
+        kupony = new ArrayList<>(KUPONY_NA_WYWOLANIE);
+        for (int i = 0; i < KUPONY_NA_WYWOLANIE; i++) {
+            kupony.add(kolektura.sprzedajKuponChybilTraf(liczbaZakladow, 1, gracz));
+        }
+        centrala.przeprowadzLosowanie();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(KUPONY_NA_WYWOLANIE)
+    public long wyplacWygranePojedynczo() {
+        long wyplacone = 0;
+        for (Kupon kupon : kupony) {
+            if (kolektura.wyplacWygrane(gracz, kupon)) wyplacone++;
+        }
+        return wyplacone;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(KUPONY_NA_WYWOLANIE)
+    public long[] wyplacWygraneHurtowo() {
+        return kolektura.wyplacWygrane(gracz, kupony);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(KUPONY_NA_WYWOLANIE)
+    public long odbierzWygrane() {
+        gracz.odbierzWygrane();
+        return gracz.getSrodki();
+    }
+}
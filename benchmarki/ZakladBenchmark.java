@@ -0,0 +1,33 @@
+package totolotek.benchmarki;
+
+import org.openjdk.jmh.annotations.*;
+import totolotek.kupon.Zaklad;
+import totolotek.losowanie.ZrodloLosowosci;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Koszt wygenerowania zakładu "chybił-trafił": pojedynczo oraz hurtowo do tablicy masek.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ZakladBenchmark {
+    private final ZrodloLosowosci zrodlo = ZrodloLosowosci.zZiarnem(1);
+    private final long[] maski = new long[1024];
+
+    @Benchmark
+    public Zaklad chybilTraf() {
+        return Zaklad.chybilTraf();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(1024)
+    public long[] losujMaski() {
+        zrodlo.losujMaski(maski);
+        return maski;
+    }
+}
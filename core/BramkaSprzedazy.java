@@ -0,0 +1,78 @@
+package totolotek.core;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bramka, przez którą przechodzą operacje zmieniające stan (sprzedaż, wypłata, losowanie).
+ * Zamknięcie bramki wstrzymuje nowe operacje i czeka na zakończenie trwających, dając
+ * chwilę, w której stan i dziennik są ze sobą zgodne – np. do wykonania migawki.
+ *
+ * Liczniki trwających operacji są podzielone na paski (jak w księdze budżetu), więc
+ * przejście przez otwartą bramkę nie walczy o jedną linię pamięci.
+ */
+class BramkaSprzedazy {
+    /** Odstęp między licznikami w tablicy (w elementach), by każdy leżał w innej linii pamięci */
+    private static final int ODSTEP = 16;
+
+    private final AtomicLongArray trwajace;
+    private final int liczbaPaskow;
+    private volatile boolean zamknieta;
+
+    BramkaSprzedazy() {
+        liczbaPaskow = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1) << 1;
+        trwajace = new AtomicLongArray(liczbaPaskow * ODSTEP);
+    }
+
+    /**
+     * Rozpoczyna operację; czeka, jeśli bramka jest zamknięta.
+     * @return numer paska, który trzeba przekazać do {@link #wyjdz(int)}
+     */
+    int wejdz() {
+        int pasek = ((int) Thread.currentThread().threadId() & (liczbaPaskow - 1)) * ODSTEP;
+        while (true) {
+            trwajace.incrementAndGet(pasek);
+            if (!zamknieta) {
+                return pasek;
+            }
+            trwajace.decrementAndGet(pasek);
+            synchronized (this) {
+                while (zamknieta) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException("Przerwano oczekiwanie na otwarcie bramki", e);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Kończy operację rozpoczętą przez {@link #wejdz()}.
+     */
+    void wyjdz(int pasek) {
+        trwajace.decrementAndGet(pasek);
+    }
+
+    /**
+     * Zamyka bramkę i czeka, aż zakończą się wszystkie trwające operacje.
+     * Wątek, który sam jest w trakcie operacji, nie może zamykać bramki.
+     */
+    synchronized void zamknij() {
+        zamknieta = true;
+        for (int i = 0; i < liczbaPaskow; i++) {
+            while (trwajace.get(i * ODSTEP) != 0) {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    /**
+     * Otwiera bramkę i budzi wstrzymane operacje.
+     */
+    synchronized void otworz() {
+        zamknieta = false;
+        notifyAll();
+    }
+}
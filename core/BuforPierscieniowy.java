@@ -0,0 +1,116 @@
+package totolotek.core;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Ograniczony bufor pierścieniowy dla wielu wątków wstawiających i wielu pobierających, bez blokad.
+ *
+ * Każde miejsce ma numer sekwencji mówiący, na który obrót pierścienia czeka: miejsce o indeksie
+ * {@code i} jest wolne dla wstawienia numer {@code n}, gdy jego sekwencja równa się {@code n},
+ * a zajęte przez ten element, gdy równa się {@code n + 1}. Pozycje wstawiania i pobierania
+ * rezerwowane są przez CAS, a sekwencja zapisywana po elemencie publikuje go drugiej stronie.
+ * Pełny bufor nie czeka – wstawienie zwraca false.
+ *
+ * @param <T> typ elementów
+ */
+final class BuforPierscieniowy<T> {
+    private final AtomicReferenceArray<T> elementy;
+    private final AtomicLongArray sekwencje;
+    private final int maska;
+    private final AtomicLong wstawiane = new AtomicLong();
+    private final AtomicLong pobierane = new AtomicLong();
+
+    /**
+     * @param pojemnosc pojemność zaokrąglana w górę do potęgi dwójki
+     * @throws IllegalArgumentException jeśli pojemność jest mniejsza niż 1 lub większa niż 2^30
+     */
+    BuforPierscieniowy(int pojemnosc) {
+        if (pojemnosc < 1 || pojemnosc > 1 << 30) {
+            throw new IllegalArgumentException("Pojemność bufora spoza zakresu 1..2^30");
+        }
+        int rozmiar = pojemnosc == 1 ? 1 : Integer.highestOneBit(pojemnosc - 1) << 1;
+        elementy = new AtomicReferenceArray<>(rozmiar);
+        sekwencje = new AtomicLongArray(rozmiar);
+        for (int i = 0; i < rozmiar; i++) {
+            sekwencje.set(i, i);
+        }
+        maska = rozmiar - 1;
+    }
+
+    /** @return rzeczywista pojemność bufora */
+    int getPojemnosc() {
+        return maska + 1;
+    }
+
+    /**
+     * Wstawia element, o ile jest miejsce.
+     * @return false, jeśli bufor jest pełny
+     */
+    boolean wstaw(T element) {
+        long pozycja = wstawiane.get();
+        while (true) {
+            int indeks = (int) pozycja & maska;
+            long roznica = sekwencje.get(indeks) - pozycja;
+            if (roznica == 0) {
+                if (wstawiane.compareAndSet(pozycja, pozycja + 1)) {
+                    elementy.lazySet(indeks, element);
+                    sekwencje.set(indeks, pozycja + 1);
+                    return true;
+                }
+                pozycja = wstawiane.get();
+            } else if (roznica < 0) {
+                return false; // miejsce zajmuje jeszcze element sprzed obrotu pierścienia
+            } else {
+                pozycja = wstawiane.get();
+            }
+        }
+    }
+
+    /**
+     * Pobiera najstarszy element.
+     * @return element lub null, jeśli bufor jest pusty
+     */
+    T pobierz() {
+        long pozycja = pobierane.get();
+        while (true) {
+            int indeks = (int) pozycja & maska;
+            long roznica = sekwencje.get(indeks) - (pozycja + 1);
+            if (roznica == 0) {
+                if (pobierane.compareAndSet(pozycja, pozycja + 1)) {
+                    T element = elementy.get(indeks);
+                    elementy.lazySet(indeks, null);
+                    sekwencje.set(indeks, pozycja + maska + 1);
+                    return element;
+                }
+                pozycja = pobierane.get();
+            } else if (roznica < 0) {
+                return null;
+            } else {
+                pozycja = pobierane.get();
+            }
+        }
+    }
+
+    /**
+     * Pobiera do listy najwyżej {@code maksimum} elementów.
+     * @return liczba pobranych elementów
+     */
+    int pobierz(List<? super T> cel, int maksimum) {
+        int pobrane = 0;
+        T element;
+        while (pobrane < maksimum && (element = pobierz()) != null) {
+            cel.add(element);
+            pobrane++;
+        }
+        return pobrane;
+    }
+
+    /** @return przybliżona liczba elementów w buforze */
+    int getRozmiar() {
+        long rozmiar = wstawiane.get() - pobierane.get();
+        return (int) Math.max(0, Math.min(rozmiar, maska + 1));
+    }
+}
@@ -1,11 +1,23 @@
 package totolotek.core;
 
 import totolotek.losowanie.Losowanie;
+import totolotek.losowanie.ZrodloLosowosci;
+import totolotek.metryki.MetrykiCentrali;
+import totolotek.raport.RaportTekstowy;
+import totolotek.kupon.IdKuponu;
 import totolotek.kupon.Kupon;
 import totolotek.kupon.Zaklad;
 import totolotek.finanse.BudzetPanstwa;
+import totolotek.finanse.StanBudzetu;
+import totolotek.trwalosc.Dziennik;
+import totolotek.trwalosc.RekordDziennika;
 
+import java.io.IOException;
+import java.lang.ref.Cleaner;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Klasa Centrala zarządza główną logiką systemu Totolotka.
@@ -21,23 +33,109 @@ public class Centrala {
     private long srodkiFinansowe;
     private final BudzetPanstwa budzetPanstwa;
     private final List<Kolektura> kolektury;
-    private final TreeMap<Integer, Losowanie> losowania; // numer losowania -> losowanie
-    private final TreeMap<Integer, BazaWygranych> bazeWygranych;// numer losowania -> pula nagród
+    /** Wyniki i bazy wygranych losowań */
+    private HistoriaLosowan historia;
+    /** Tabele wygranych rozliczonych losowań; indeks = numer losowania - 1 */
+    private volatile TabelaWygranych[] tabeleWygranych = new TabelaWygranych[16];
     private long kumulacjaIstopnia;
     private StrategiaNagrod strategiaNagrod;
+    /** Liczba wątków rozliczających losowanie (1 – rozliczanie sekwencyjne) */
+    private int poziomRownoleglosci = 1;
+    /** Pula wątków rozliczania równoległego, istnieje tylko gdy poziomRownoleglosci > 1 */
+    private volatile ForkJoinPool pulaRozliczen;
+    /** Zamknięcie puli rozliczeń – przy zmianie poziomu albo gdy centrala przestanie być używana */
+    private Cleaner.Cleanable zamknieciePuli;
+    /** Sposób zliczania trafień przy rozliczaniu losowania; null – domyślne skanowanie kuponów, jeszcze nieutworzone */
+    private volatile SilnikRozliczen silnikRozliczen;
+    /** Czy w silniku rozliczeń zarejestrowano już jakiś kupon – wtedy silnika nie można zmienić */
+    private volatile boolean kuponyZarejestrowane;
+    /** Źródło losowości, z którego losowane są wyniki losowań */
+    private ZrodloLosowosci zrodloLosowosci = ZrodloLosowosci.domyslne();
+    /** Dziennik zmian stanu centrali i kolektur; null – bez dziennika */
+    private volatile Dziennik dziennik;
+    /** Epoki sprzedaży: losowanie, na które sprzedawane są kupony, i odcięcie sprzedaży przy losowaniu */
+    private final EpokiSprzedazy epoki = new EpokiSprzedazy();
+    /** Numer losowania przerwanego po odcięciu sprzedaży, którego wynik odrzucono; 0 – brak */
+    private final AtomicInteger przerwaneLosowanie = new AtomicInteger();
+    /** Bramka operacji zmieniających stan, zamykana na czas wykonania migawki */
+    private final BramkaSprzedazy bramka = new BramkaSprzedazy();
+    /** Szereguje wykonywanie migawek */
+    private final Object blokadaMigawki = new Object();
+    /** Zamyka pule rozliczeń porzuconych central */
+    private static final Cleaner SPRZATANIE_PUL = Cleaner.create();
+    /** Liczniki i czasy losowań oraz wypłat; tworzone przy pierwszym użyciu */
+    private volatile MetrykiCentrali metryki;
 
     public Centrala(long srodkiPoczatkowe, BudzetPanstwa budzetPanstwa) {
         this.srodkiFinansowe = srodkiPoczatkowe;
         this.budzetPanstwa = budzetPanstwa;
         this.kolektury = new ArrayList<>();
-        this.losowania = new TreeMap<>();
-        this.bazeWygranych = new TreeMap<>();
+        this.historia = new HistoriaLosowan();
         this.kumulacjaIstopnia = 0L;
         this.strategiaNagrod = new StandardowaStrategiaNagrod();
     }
 
+    /**
+     * Zwraca numer losowania, od którego obowiązują sprzedawane teraz kupony. W chwili rozpoczęcia
+     * losowania sprzedaż przechodzi na następne, więc w trakcie rozliczania jest on o 1 większy
+     * od numeru rozliczanego losowania.
+     * @return numer najbliższego losowania
+     */
     public int getNajblizszeLosowanie() {
-        return losowania.size() + 1;
+        return epoki.getBiezaca();
+    }
+
+    /**
+     * Zwraca numer kolejnego losowania do przeprowadzenia – o 1 większy od numeru ostatniego
+     * wylosowanego. Po przerwaniu losowania ({@link #przerwijLosowanie(int)}) jest to numer
+     * przerwanego losowania, choć sprzedaż trwa już na następne.
+     * @return numer kolejnego losowania
+     */
+    public int getKolejneLosowanie() {
+        return historia.getLiczbaLosowan() + 1;
+    }
+
+    /**
+     * Zwraca numer ostatniego rozliczonego losowania – z opublikowaną tabelą wygranych.
+     * Kupony obowiązujące najpóźniej na to losowanie można już realizować.
+     * @return numer ostatniego rozliczonego losowania (0, jeśli żadnego)
+     */
+    public int getOstatnieRozliczoneLosowanie() {
+        return historia.getLiczbaRozliczonych();
+    }
+
+    /**
+     * Zwraca historię losowań centrali: wyniki, bazy wygranych i statystyki wylosowanych liczb.
+     * @return historia losowań
+     */
+    public HistoriaLosowan getHistoriaLosowan() {
+        return historia;
+    }
+
+    /**
+     * Zastępuje historię losowań, np. historią zapisywaną w pliku ({@link HistoriaLosowan#otworz(Path)}).
+     * Historia może już zawierać losowania – np. plik ponownie otwarty po zamknięciu centrali.
+     * Stan finansowy i kumulację odtwarzają wtedy migawka i dziennik
+     * ({@link #wczytajMigawke(Path)}, {@link #odtworzZDziennika(Dziennik)}), a losowania zapisane
+     * już w historii są tylko porównywane z odtwarzanymi. Wyniki losowań przerwanych przed
+     * rozliczeniem są z historii usuwane – losowania te zostaną przeprowadzone ponownie.
+     * @param historia historia losowań
+     * @throws IllegalStateException jeśli centrala przeprowadziła już losowanie
+     */
+    public synchronized void setHistoriaLosowan(HistoriaLosowan historia) {
+        if (this.historia.getLiczbaLosowan() > 0) {
+            throw new IllegalStateException("Historię losowań można zastąpić tylko przed pierwszym losowaniem");
+        }
+        historia.odrzucNierozliczone();
+        this.historia = historia;
+    }
+
+    public synchronized long getSrodkiFinansowe() {
+        return srodkiFinansowe;
+    }
+
+    public synchronized long getKumulacjaIstopnia() {
+        return kumulacjaIstopnia;
     }
 
     public BudzetPanstwa getBudzetPanstwa() {
@@ -49,151 +147,603 @@ public class Centrala {
         this.strategiaNagrod = strategia;
     }
 
+    /**
+     * Ustawia liczbę wątków używanych do zliczania trafień w {@link #przeprowadzLosowanie()}.
+     * Dla wartości 1 losowanie rozliczane jest sekwencyjnie w wątku wywołującym.
+     * Pula wątków jest zamykana przy kolejnej zmianie poziomu, a także gdy centrala
+     * przestanie być osiągalna.
+     * @param poziom liczba wątków (co najmniej 1)
+     * @throws IllegalArgumentException jeśli poziom jest mniejszy niż 1
+     */
+    public synchronized void setPoziomRownoleglosci(int poziom) {
+        if (poziom < 1) {
+            throw new IllegalArgumentException("Poziom równoległości musi być dodatni");
+        }
+        if (zamknieciePuli != null) {
+            pulaRozliczen = null;
+            zamknieciePuli.clean();
+            zamknieciePuli = null;
+        }
+        this.poziomRownoleglosci = poziom;
+        if (poziom > 1) {
+            ForkJoinPool pula = new ForkJoinPool(poziom);
+            pulaRozliczen = pula;
+            // akcja odwołuje się tylko do puli, więc nie utrzymuje przy życiu samej centrali
+            zamknieciePuli = SPRZATANIE_PUL.register(this, pula::shutdown);
+        }
+    }
+
+    /**
+     * Ustawia sposób zliczania trafień przy rozliczaniu losowań. Należy go wybrać przed rozpoczęciem
+     * sprzedaży (i przed odtworzeniem stanu z migawki lub dziennika), bo liczniki kombinacji
+     * powstają w chwili rejestracji kuponów.
+     * @param rodzaj skanowanie kuponów lub liczniki kombinacji
+     * @throws IllegalStateException jeśli zarejestrowano już kupony – nowy silnik by ich nie znał
+     */
+    public synchronized void setRodzajRozliczen(RodzajRozliczen rodzaj) {
+        if (kuponyZarejestrowane) {
+            throw new IllegalStateException("Sposób rozliczeń trzeba wybrać przed sprzedażą kuponów");
+        }
+        this.silnikRozliczen = switch (rodzaj) {
+            case SKAN_KUPONOW -> new SkanowanieKuponow(this);
+            case LICZNIKI_KOMBINACJI -> new LicznikiKombinacji(this);
+            case INDEKS_LICZB -> new IndeksyLiczb(this);
+        };
+    }
+
+    /**
+     * Zwraca odwrócony indeks liczb zakładów losowania, np. do wyszukania zakładów z daną liczbą
+     * albo zwycięzców rozliczonego losowania ({@link IndeksLiczb#zakladyZTrafieniami(long, int)}).
+     * Indeksy istnieją tylko przy rozliczaniu {@link RodzajRozliczen#INDEKS_LICZB}, dla losowań
+     * jeszcze nierozliczonych i ostatniego rozliczonego.
+     * @param numerLosowania numer losowania
+     * @return indeks lub null, jeśli jest niedostępny
+     */
+    public IndeksLiczb getIndeksLiczb(int numerLosowania) {
+        return silnikRozliczen instanceof IndeksyLiczb indeksy ? indeksy.indeks(numerLosowania) : null;
+    }
+
+    /**
+     * Rejestruje sprzedany (lub odtwarzany) kupon w silniku rozliczeń.
+     * Od tej chwili sposobu rozliczeń nie można już zmienić.
+     */
+    void zarejestrujKupon(Kupon kupon) {
+        if (!kuponyZarejestrowane) {
+            kuponyZarejestrowane = true;
+        }
+        silnik().zarejestruj(kupon);
+    }
+
+    /**
+     * Zwraca silnik rozliczeń, przy pierwszym użyciu tworząc domyślne skanowanie kuponów.
+     */
+    private SilnikRozliczen silnik() {
+        SilnikRozliczen silnik = silnikRozliczen;
+        if (silnik == null) {
+            synchronized (this) {
+                silnik = silnikRozliczen;
+                if (silnik == null) {
+                    silnik = new SkanowanieKuponow(this);
+                    silnikRozliczen = silnik;
+                }
+            }
+        }
+        return silnik;
+    }
+
+    ForkJoinPool getPulaRozliczen() {
+        return pulaRozliczen;
+    }
+
+    /** Pozwala na podmianę źródła losowości, np. na źródło z ziarnem dla powtarzalnych symulacji */
+    public void setZrodloLosowosci(ZrodloLosowosci zrodlo) {
+        this.zrodloLosowosci = zrodlo;
+    }
+
+    public ZrodloLosowosci getZrodloLosowosci() {
+        return zrodloLosowosci;
+    }
+
+    /**
+     * Włącza zapisywanie zmian stanu (sprzedaży, losowań, wypłat, subwencji i podatków)
+     * w dzienniku. Operacje wracają dopiero po zatwierdzeniu swoich rekordów.
+     * @param dziennik dziennik lub null, by wyłączyć zapisywanie
+     */
+    public void setDziennik(Dziennik dziennik) {
+        this.dziennik = dziennik;
+    }
+
+    Dziennik getDziennik() {
+        return dziennik;
+    }
+
+    EpokiSprzedazy getEpoki() {
+        return epoki;
+    }
+
+    BramkaSprzedazy getBramka() {
+        return bramka;
+    }
+
+    public int getPoziomRownoleglosci() {
+        return poziomRownoleglosci;
+    }
+
     public void dodajKolekture(Kolektura kolektura) {
         kolektury.add(kolektura);
     }
 
+    /** @return niezmienna lista kolektur centrali */
+    public List<Kolektura> getKolektury() {
+        return Collections.unmodifiableList(kolektury);
+    }
+
+    /**
+     * Zwraca liczniki i czasy losowań oraz wypłat, udostępniane także przez JMX
+     * ({@link totolotek.metryki.RejestrMetryk}).
+     * @return metryki centrali
+     */
+    public MetrykiCentrali getMetryki() {
+        MetrykiCentrali metryki = this.metryki;
+        if (metryki == null) {
+            synchronized (this) {
+                metryki = this.metryki;
+                if (metryki == null) {
+                    metryki = new MetrykiCentrali(this::getSrodkiFinansowe, this::getKumulacjaIstopnia,
+                            budzetPanstwa::getPobranePodatki, budzetPanstwa::getPrzekazaneSubwencje);
+                    this.metryki = metryki;
+                }
+            }
+        }
+        return metryki;
+    }
+
     /**
      * Przeprowadza nowe losowanie:
      * - Generuje nowy numer losowania
+     * - Zamyka sprzedaż na to losowanie – kolejne kupony sprzedawane są już na następne,
+     *   bez wstrzymywania sprzedaży na czas rozliczenia
      * - Zbiera kupony ze wszystkich kolektur
      * - Oblicza wpływy i podatki
      * - Określa liczbę wygranych każdego stopnia
      * - Oblicza pule nagród poprzez strategię
      * - Aktualizuje stan kumulacji
-     * @throws IllegalStateException jeśli losowanie o tym numerze już istnieje
+     * @throws IllegalStateException jeśli równolegle trwa inne losowanie
      */
 
     public void przeprowadzLosowanie() {
-        int numerLosowania = losowania.size() + 1;
-        if (losowania.containsKey(numerLosowania)) {
-            throw new IllegalStateException("Losowanie o numerze " + numerLosowania + " już istnieje!");
+        long poczatek = System.nanoTime();
+        int numerLosowania = historia.getLiczbaLosowan() + 1;
+        Losowanie losowanie = new Losowanie(numerLosowania, zrodloLosowosci);
+        // Zliczanie trafień nie zmienia stanu objętego migawką, więc odbywa się poza bramką –
+        // migawka czeka najwyżej na zatwierdzenie, a nie na całe rozliczenie
+        WynikCzesciowy wynik = zliczLosowanie(numerLosowania, losowanie.getMaska());
+        BazaWygranych baza = ustalBaze(wynik);
+        int pasek = bramka.wejdz();
+        try {
+            zatwierdz(wynik, losowanie.getMaska(), baza, poczatek);
+        } finally {
+            bramka.wyjdz(pasek);
         }
-        Losowanie losowanie = new Losowanie(numerLosowania);
-        losowania.put(numerLosowania, losowanie);
+    }
 
-        // Zbierz kupony na to losowanie
-        List<Kupon> kupony = new ArrayList<>();
-        for (Kolektura kolektura : kolektury) {
-            kupony.addAll(kolektura.kuponyNaLosowanie(numerLosowania));
+    /**
+     * Pierwszy krok losowania rozliczanego wspólnie przez kilka central, z których każda
+     * obsługuje część kolektur ({@link totolotek.rozproszone.KoordynatorRozliczen}):
+     * zapisuje wynik losowania (kolejne kupony sprzedawane są już na następne losowanie)
+     * i zlicza trafienia zakładów tej centrali. Losowanie kończy
+     * {@link #zatwierdzLosowanie(WynikCzesciowy, BazaWygranych)} z bazą wygranych ustaloną
+     * z wyników wszystkich central.
+     * @param numerLosowania numer losowania; musi być numerem najbliższego losowania
+     * @param maskaWyniku maska wylosowanych liczb
+     * @return trafienia zakładów sprzedanych w kolekturach tej centrali
+     * @throws IllegalStateException jeśli numer nie jest numerem najbliższego losowania
+     */
+    public WynikCzesciowy rozpocznijLosowanie(int numerLosowania, long maskaWyniku) {
+        return zliczLosowanie(numerLosowania, maskaWyniku);
+    }
+
+    /**
+     * Ustala bazę wygranych strategią nagród centrali i jej bieżącą kumulacją,
+     * np. dla wyników częściowych scalonych ze wszystkich central.
+     * @param wynik trafienia wszystkich zakładów losowania
+     * @return baza wygranych
+     */
+    public BazaWygranych ustalBazeWygranych(WynikCzesciowy wynik) {
+        return ustalBaze(wynik);
+    }
+
+    /**
+     * Kończy losowanie rozpoczęte przez {@link #rozpocznijLosowanie(int, long)}: księguje wpłaty
+     * i podatek od zakładów tej centrali, publikuje tabelę wygranych ze wspólnej bazy
+     * i aktualizuje kumulację.
+     * @param wlasny wynik zwrócony przez {@link #rozpocznijLosowanie(int, long)}
+     * @param baza baza wygranych ustalona z wyników wszystkich central
+     * @throws IllegalStateException jeśli losowanie nie zostało rozpoczęte lub jest już zatwierdzone
+     */
+    public void zatwierdzLosowanie(WynikCzesciowy wlasny, BazaWygranych baza) {
+        long poczatek = System.nanoTime();
+        int pasek = bramka.wejdz();
+        try {
+            int numerLosowania = wlasny.getNumerLosowania();
+            if (numerLosowania > historia.getLiczbaLosowan() || numerLosowania <= historia.getLiczbaRozliczonych()) {
+                throw new IllegalStateException("Losowanie " + numerLosowania + " nie czeka na zatwierdzenie");
+            }
+            zatwierdz(wlasny, historia.getMaska(numerLosowania), baza, poczatek);
+        } finally {
+            bramka.wyjdz(pasek);
         }
+    }
 
-        long sumaWplat = kupony.stream().mapToLong(Kupon::getIleZakladow).sum() * 300L;
-        long sumaPodatku = sumaWplat / 5;
+    /**
+     * Przerywa losowanie rozpoczęte przez {@link #rozpocznijLosowanie(int, long)}, którego nie można
+     * zatwierdzić – np. gdy koordynator rozłączył się przed rozesłaniem bazy wygranych. Wynik jest
+     * usuwany z historii, a losowanie o tym samym numerze można rozpocząć ponownie. Sprzedaż na nie
+     * pozostaje odcięta: wynik mógł już zostać ujawniony, więc zbiór kuponów się nie zmienia.
+     * Nie może przebiegać równolegle z zatwierdzaniem tego losowania.
+     * @param numerLosowania numer przerywanego losowania
+     * @throws IllegalStateException jeśli losowanie nie czeka na zatwierdzenie
+     */
+    public void przerwijLosowanie(int numerLosowania) {
+        int pasek = bramka.wejdz();
+        try {
+            if (numerLosowania != historia.getLiczbaLosowan() || numerLosowania <= historia.getLiczbaRozliczonych()) {
+                throw new IllegalStateException("Losowanie " + numerLosowania + " nie czeka na zatwierdzenie");
+            }
+            historia.odrzucNierozliczone();
+            przerwaneLosowanie.set(numerLosowania);
+        } finally {
+            bramka.wyjdz(pasek);
+        }
+    }
 
-        srodkiFinansowe += (sumaWplat - sumaPodatku);
-        budzetPanstwa.pobierzPodatek(sumaPodatku);
+    private WynikCzesciowy zliczLosowanie(int numerLosowania, long maskaWyniku) {
+        int kolejne = historia.getLiczbaLosowan() + 1;
+        if (numerLosowania != kolejne) {
+            throw new IllegalStateException("Najbliższe losowanie ma numer " + kolejne + ", nie " + numerLosowania);
+        }
+        // Odcięcie: nowa sprzedaż trafia już na następne losowanie, a kupony tego się nie zmienią.
+        // Losowanie przerwane po odcięciu ma je już za sobą – CAS wybiera jedno ponowne rozpoczęcie
+        if (!przerwaneLosowanie.compareAndSet(numerLosowania, 0)) {
+            epoki.zamknij(numerLosowania);
+        }
+        try {
+            historia.dodajWynik(numerLosowania, maskaWyniku);
+        } catch (RuntimeException e) {
+            przerwaneLosowanie.set(numerLosowania);
+            throw e;
+        }
 
-        // Liczba trafień: stopień -> liczba
-        Map<Integer, Integer> liczbaWygranych = new HashMap<>();
-        for (int stopien = 3; stopien <= 6; stopien++) liczbaWygranych.put(stopien, 0);
+        // Zlicz trafienia kuponów na to losowanie (histogram: liczba trafień -> liczba zakładów)
+        return new WynikCzesciowy(numerLosowania, silnik().zliczTrafienia(numerLosowania, maskaWyniku));
+    }
 
-        Set<Integer> wylosowane = losowanie.getWynik();
+    private BazaWygranych ustalBaze(WynikCzesciowy wynik) {
+        // Oblicz pule nagród przez strategię
+        return strategiaNagrod.ustalBazeWygranych(
+                wynik.getSumaWplat(), wynik.getSumaPodatku(), getKumulacjaIstopnia(), wynik.liczbaWygranych()
+        );
+    }
 
+    private void zatwierdz(WynikCzesciowy wynik, long maskaWyniku, BazaWygranych bazaWygranych, long poczatek) {
+        int numerLosowania = wynik.getNumerLosowania();
+        long sumaWplat = wynik.getSumaWplat();
+        long sumaPodatku = wynik.getSumaPodatku();
 
-        for (Kupon kupon : kupony) {
-            for (Zaklad zaklad : kupon.getZaklady()) {
-                int trafienia = liczbaTrafien(zaklad, wylosowane);
-                if (trafienia >= 3 && trafienia <= 6) {
-                    liczbaWygranych.put(trafienia, liczbaWygranych.get(trafienia) + 1);
-                }
+        synchronized (this) {
+            srodkiFinansowe += (sumaWplat - sumaPodatku);
+        }
+        budzetPanstwa.pobierzPodatekOdSprzedazy(sumaPodatku, BudzetPanstwa.BEZ_PRZYPISANIA, numerLosowania);
+
+        // Tabela musi być widoczna, zanim losowanie zostanie uznane za rozliczone – od tej chwili
+        // kupony na nie można realizować (getOstatnieRozliczoneLosowanie)
+        opublikujTabele(new TabelaWygranych(numerLosowania, maskaWyniku, bazaWygranych));
+        historia.dodajBaze(numerLosowania, bazaWygranych);
+
+        // Zarządzanie kumulacją – według wspólnej bazy, bo I stopień mógł trafić kupon innej centrali
+        long kumulacja;
+        synchronized (this) {
+            kumulacjaIstopnia = bazaWygranych.getLiczbaI() == 0 ? bazaWygranych.getPulaI() : 0;
+            kumulacja = kumulacjaIstopnia;
+        }
+
+        Dziennik dziennik = this.dziennik;
+        if (dziennik != null) {
+            dziennik.zatwierdz(ZapisyDziennika.losowanie(dziennik, numerLosowania, maskaWyniku,
+                    sumaWplat, sumaPodatku, kumulacja, bazaWygranych));
+        }
+        // konta wcześniejszych losowań trafiają do bazy budżetu, by ich liczba nie rosła bez końca
+        budzetPanstwa.zamknijKonta(numerLosowania - 1);
+        getMetryki().losowanie(System.nanoTime() - poczatek, wynik.getLiczbaZakladow());
+    }
+
+    /**
+     * Odtwarza stan centrali, jej kolektur i budżetu państwa z rekordów dziennika,
+     * a następnie zaczyna dopisywać do niego kolejne zmiany.
+     * Centrala powinna być świeżo utworzona z tymi samymi środkami początkowymi
+     * i mieć dodane wszystkie kolektury, których dotyczy dziennik.
+     * Stan graczy nie jest częścią dziennika – odtworzone kupony można odebrać
+     * po identyfikatorze ({@link Kolektura#znajdzKupon(String)}).
+     * @param dziennik dziennik do odtworzenia
+     * @throws IllegalStateException jeśli dziennik odwołuje się do nieznanej kolektury, jego losowania
+     *                               różnią się od zapisanych w historii albo historia zawiera losowania,
+     *                               których nie ma ani w migawce, ani w dzienniku
+     */
+    public void odtworzZDziennika(Dziennik dziennik) {
+        odtworzZDziennika(dziennik, 0);
+    }
+
+    /**
+     * Odtwarza stan z rekordów dziennika o numerach od {@code odRekordu}, np. po wczytaniu migawki.
+     * @see #odtworzZDziennika(Dziennik)
+     */
+    public void odtworzZDziennika(Dziennik dziennik, long odRekordu) {
+        Map<Integer, Kolektura> wgNumerow = new HashMap<>();
+        for (Kolektura kolektura : kolektury) {
+            wgNumerow.put(kolektura.getNumerKoloktury(), kolektura);
+        }
+        dziennik.odczytaj(odRekordu, rekord -> odtworz(rekord, wgNumerow));
+        int rozliczone = historia.getLiczbaRozliczonych();
+        if (rozliczone > 0 && getTabelaWygranych(rozliczone) == null) {
+            throw new IllegalStateException("Historia zawiera losowania, których nie ma w migawce ani w dzienniku");
+        }
+        this.dziennik = dziennik;
+    }
+
+    private synchronized void odtworz(RekordDziennika rekord, Map<Integer, Kolektura> kolektury) {
+        int numerLosowania = rekord.getNumer();
+        switch (rekord.getTyp()) {
+            case ZapisyDziennika.SPRZEDAZ ->
+                    kolektura(kolektury, IdKuponu.getKolektura(rekord.getPole(0))).odtworzSprzedaz(rekord);
+            case ZapisyDziennika.REALIZACJA ->
+                    kolektura(kolektury, IdKuponu.getKolektura(rekord.getPole(0))).odtworzRealizacje(rekord.getPole(0));
+            case ZapisyDziennika.LOSOWANIE -> {
+                BazaWygranych baza = ZapisyDziennika.bazaWygranych(rekord);
+                historia.odtworzWynik(numerLosowania, rekord.getPole(0));
+                epoki.przesun(numerLosowania + 1);
+                srodkiFinansowe += rekord.getPole(1) - rekord.getPole(2);
+                budzetPanstwa.pobierzPodatekOdSprzedazy(rekord.getPole(2), BudzetPanstwa.BEZ_PRZYPISANIA, numerLosowania);
+                opublikujTabele(new TabelaWygranych(numerLosowania, rekord.getPole(0), baza));
+                historia.odtworzBaze(numerLosowania, baza);
+                kumulacjaIstopnia = rekord.getPole(3);
             }
+            case ZapisyDziennika.WYPLATA -> srodkiFinansowe -= rekord.getPole(0);
+            case ZapisyDziennika.SUBWENCJA -> {
+                budzetPanstwa.udzielSubwencji(rekord.getPole(0), numerLosowania);
+                srodkiFinansowe += rekord.getPole(0);
+            }
+            case ZapisyDziennika.PODATEK_WYGRANA ->
+                    budzetPanstwa.pobierzPodatekOdWygranej(rekord.getPole(0), rekord.getDodatkowa(), numerLosowania);
+            default -> throw new IllegalStateException("Nieznany typ rekordu dziennika: " + rekord.getTyp());
         }
+    }
 
-        // Oblicz pule nagród przez strategię
-        BazaWygranych bazaWygranych = strategiaNagrod.ustalBazeWygranych(
-                sumaWplat, sumaPodatku, kumulacjaIstopnia, liczbaWygranych
-        );
+    /**
+     * Zapisuje migawkę stanu centrali, kolektur i budżetu państwa do pliku.
+     * Sprzedaż, wypłaty i losowania wstrzymywane są tylko na czas dokończenia trwających
+     * operacji i skopiowania wyników losowań oraz sum; kupony eksportowane są już po wznowieniu
+     * sprzedaży – do migawki trafiają kupony o numerach przydzielonych przed wstrzymaniem.
+     * Losowanie w trakcie zliczania trafień nie jest na to czas wstrzymywane – migawka kończy się
+     * na ostatnim zatwierdzonym losowaniu.
+     * Stan graczy nie jest częścią migawki.
+     * @param plik plik migawki; zastępowany atomowo
+     * @return numer rekordu dziennika, od którego należy kontynuować odtwarzanie po wczytaniu migawki
+     * @throws IOException jeśli zapis się nie powiódł
+     */
+    public long zapiszMigawke(Path plik) throws IOException {
+        long numerRekordu;
+        long srodki;
+        long kumulacja;
+        List<Migawka.StanLosowania> stanLosowan = new ArrayList<>();
+        StanBudzetu stanBudzetu;
+        int[] nastepneNumery = new int[kolektury.size()];
+        synchronized (blokadaMigawki) {
+            bramka.zamknij();
+            try {
+                Dziennik dziennik = this.dziennik;
+                numerRekordu = dziennik == null ? 0 : dziennik.getLiczbaRekordow();
+                synchronized (this) {
+                    srodki = srodkiFinansowe;
+                    kumulacja = kumulacjaIstopnia;
+                }
+                // losowanie rozpoczęte, ale jeszcze niezatwierdzone przez koordynatora, jest pomijane
+                for (int numer = 1; numer <= historia.getLiczbaRozliczonych(); numer++) {
+                    stanLosowan.add(new Migawka.StanLosowania(numer, historia.getMaska(numer), historia.getBazaWygranych(numer)));
+                }
+                stanBudzetu = budzetPanstwa.getStan();
+                for (int i = 0; i < nastepneNumery.length; i++) {
+                    nastepneNumery[i] = kolektury.get(i).getNastepnyNrKuponu();
+                }
+            } finally {
+                bramka.otworz();
+            }
+        }
+        List<Migawka.StanKolektury> stanKolektur = new ArrayList<>(kolektury.size());
+        for (int i = 0; i < nastepneNumery.length; i++) {
+            Kolektura kolektura = kolektury.get(i);
+            KolumnyKuponow kupony = new KolumnyKuponow(1024, 1024);
+            kolektura.eksportujKupony(nastepneNumery[i], kupony);
+            stanKolektur.add(new Migawka.StanKolektury(kolektura.getNumerKoloktury(), nastepneNumery[i], kupony));
+        }
+        new Migawka(numerRekordu, srodki, kumulacja, stanLosowan, stanBudzetu, stanKolektur).zapisz(plik);
+        return numerRekordu;
+    }
 
-        bazeWygranych.put(numerLosowania, bazaWygranych);
+    /**
+     * Wczytuje migawkę zapisaną przez {@link #zapiszMigawke(Path)}. Centrala powinna być świeżo
+     * utworzona i mieć dodane wszystkie kolektury, których dotyczy migawka. Zmiany nowsze niż
+     * migawka odtwarza następnie {@link #odtworzZDziennika(Dziennik, long)} od zwróconego rekordu.
+     * @param plik plik migawki
+     * @return numer rekordu dziennika, od którego należy kontynuować odtwarzanie
+     * @throws IOException jeśli plik nie jest poprawną migawką
+     * @throws IllegalStateException jeśli migawka dotyczy nieznanej kolektury
+     */
+    public long wczytajMigawke(Path plik) throws IOException {
+        Migawka migawka = Migawka.wczytaj(plik);
+        Map<Integer, Kolektura> wgNumerow = new HashMap<>();
+        for (Kolektura kolektura : kolektury) {
+            wgNumerow.put(kolektura.getNumerKoloktury(), kolektura);
+        }
+        synchronized (this) {
+            srodkiFinansowe = migawka.srodki;
+            kumulacjaIstopnia = migawka.kumulacja;
+            for (Migawka.StanLosowania stan : migawka.losowania) {
+                historia.odtworzWynik(stan.numer(), stan.maska());
+                epoki.przesun(stan.numer() + 1);
+                opublikujTabele(new TabelaWygranych(stan.numer(), stan.maska(), stan.baza()));
+                historia.odtworzBaze(stan.numer(), stan.baza());
+            }
+        }
+        budzetPanstwa.dodajStan(migawka.budzet);
+        for (Migawka.StanKolektury stan : migawka.kolektury) {
+            Kolektura kolektura = wgNumerow.get(stan.numer());
+            if (kolektura == null) {
+                throw new IllegalStateException("Migawka dotyczy nieznanej kolektury " + stan.numer());
+            }
+            kolektura.importujKupony(stan.nastepnyNrKuponu(), stan.kupony());
+        }
+        return migawka.numerRekordu;
+    }
 
-        // Zarządzanie kumulacją
-        if (liczbaWygranych.get(6) == 0) {
-            kumulacjaIstopnia = bazaWygranych.getPulaI();
-        } else {
-            kumulacjaIstopnia = 0;
+    private static Kolektura kolektura(Map<Integer, Kolektura> kolektury, int numer) {
+        Kolektura kolektura = kolektury.get(numer);
+        if (kolektura == null) {
+            throw new IllegalStateException("Dziennik dotyczy nieznanej kolektury " + numer);
         }
+        return kolektura;
     }
 
     public int liczbaTrafien(Zaklad zaklad, Set<Integer> wylosowane) {
-        return (int) zaklad.getLiczby().stream().filter(wylosowane::contains).count();
+        return zaklad.liczbaTrafien(wylosowane);
+    }
+
+    public int liczbaTrafien(Zaklad zaklad, long maskaWyniku) {
+        return zaklad.liczbaTrafien(maskaWyniku);
     }
 
-    // Publiczny dostęp do losowań i pul nagród
+    /**
+     * Zwraca losowania z wynikiem jako mapę: numer losowania → losowanie. Mapa jest tworzona przy
+     * każdym wywołaniu; pojedyncze wyniki i statystyki udostępnia bez kopiowania {@link #getHistoriaLosowan()}.
+     * @return niezmienna mapa losowań
+     */
     public SortedMap<Integer, Losowanie> getLosowania() {
+        HistoriaLosowan historia = this.historia;
+        TreeMap<Integer, Losowanie> losowania = new TreeMap<>();
+        for (int numer = 1, liczba = historia.getLiczbaLosowan(); numer <= liczba; numer++) {
+            losowania.put(numer, new Losowanie(numer, historia.getMaska(numer)));
+        }
         return Collections.unmodifiableSortedMap(losowania);
     }
 
+    /**
+     * Wypisuje na standardowe wyjście wyniki i pule nagród wszystkich losowań
+     * w układzie {@link RaportTekstowy}. Losowanie bez opublikowanej tabeli wygranych
+     * wypisywane jest bez puli nagród. Raporty do pliku, w innych formatach lub tylko
+     * z nowych losowań tworzy {@code totolotek.raport.Raport}.
+     */
     public void wypiszWynikiLosowan() {
-        for (Map.Entry<Integer, Losowanie> wpis : losowania.entrySet()) {
-            int numerLosowania = wpis.getKey();
-            Losowanie daneLosowanie = wpis.getValue();
-            BazaWygranych nagrody = bazeWygranych.get(numerLosowania);
-
-            System.out.println("Losowanie nr " + numerLosowania);
-            System.out.print("Wyniki: ");
-            daneLosowanie.getWynik().forEach(liczba -> System.out.printf("%2d ", liczba));
-            System.out.println();
-
-            if (nagrody != null) {
-                System.out.println("PULA NAGRÓD:");
-                System.out.printf("I stopień:   %d x %s (łączna pula: %s)\n",
-                        nagrody.getLiczbaI(),
-                        nagrody.getLiczbaI() > 0 ? formatKwota(nagrody.getWygranaI()) : "---",
-                        formatKwota(nagrody.getPulaI()));
-                System.out.printf("II stopień:  %d x %s (łączna pula: %s)\n",
-                        nagrody.getLiczbaII(),
-                        nagrody.getLiczbaII() > 0 ? formatKwota(nagrody.getWygranaII()) : "---",
-                        formatKwota(nagrody.getPulaII()));
-                System.out.printf("III stopień: %d x %s (łączna pula: %s)\n",
-                        nagrody.getLiczbaIII(),
-                        nagrody.getLiczbaIII() > 0 ? formatKwota(nagrody.getWygranaIII()) : "---",
-                        formatKwota(nagrody.getPulaIII()));
-                System.out.printf("IV stopień:  %d x %s (łączna pula: %s)\n",
-                        nagrody.getLiczbaIV(),
-                        nagrody.getLiczbaIV() > 0 ? formatKwota(nagrody.getWygranaIV()) : "---",
-                        formatKwota(nagrody.getPulaIV()));
+        try (RaportTekstowy raport = RaportTekstowy.naStandardoweWyjscie()) {
+            for (Losowanie losowanie : getLosowania().values()) {
+                TabelaWygranych tabela = getTabelaWygranych(losowanie.getNumerLosowania());
+                raport.losowanie(losowanie.getNumerLosowania(), losowanie.getMaska(),
+                        tabela == null ? null : tabela.getBazaWygranych());
             }
-            System.out.println();
         }
     }
 
-
     public void wypiszStanFinansowy() {
-        System.out.println("Stan środków finansowych centrali: " + formatKwota(srodkiFinansowe));
+        try (RaportTekstowy raport = RaportTekstowy.naStandardoweWyjscie()) {
+            raport.stanFinansowy(getSrodkiFinansowe(), getKumulacjaIstopnia());
+        }
     }
 
     public void wyplacPieniadze(long kwota) {
-        if (srodkiFinansowe < kwota) {
-            pobierzSubwencje(kwota-srodkiFinansowe);
+        wyplacPieniadze(kwota, BudzetPanstwa.BEZ_PRZYPISANIA);
+    }
+
+    /**
+     * Wypłaca kwotę wygranej z danego losowania; brakujące środki pokrywa subwencja
+     * przypisana w budżecie państwa do tego losowania.
+     * Rekordy wypłaty rezerwowane są pod blokadą centrali, a zatwierdzane już po jej zwolnieniu,
+     * więc utrwalanie dziennika nie wstrzymuje innych operacji na centrali.
+     */
+    public void wyplacPieniadze(long kwota, int numerLosowania) {
+        zatwierdzKwote(zapiszWyplate(kwota, numerLosowania));
+    }
+
+    public void pobierzSubwencje(long kwota) {
+        pobierzSubwencje(kwota, BudzetPanstwa.BEZ_PRZYPISANIA);
+    }
+
+    public void pobierzSubwencje(long kwota, int numerLosowania) {
+        zatwierdzKwote(zapiszSubwencje(kwota, numerLosowania));
+    }
+
+    /**
+     * Wypłaca kwotę i dopisuje rekordy do dziennika bez ich zatwierdzania – kolektura wypłacająca
+     * hurtowo zatwierdza je raz, razem z rekordami realizacji kuponów.
+     * @return numer ostatniego dopisanego rekordu lub -1, jeśli centrala nie ma dziennika
+     */
+    synchronized long zapiszWyplate(long kwota, int numerLosowania) {
+        boolean zSubwencja = srodkiFinansowe < kwota;
+        if (zSubwencja) {
+            zapiszSubwencje(kwota - srodkiFinansowe, numerLosowania);
         }
         srodkiFinansowe -= kwota;
+        getMetryki().wyplata(kwota, zSubwencja);
+        return zapiszKwote(ZapisyDziennika.WYPLATA, numerLosowania, kwota);
     }
 
-    public void pobierzSubwencje(long kwota) {
-        budzetPanstwa.udzielSubwencji(kwota);
+    private synchronized long zapiszSubwencje(long kwota, int numerLosowania) {
+        budzetPanstwa.udzielSubwencji(kwota, numerLosowania);
         srodkiFinansowe += kwota;
+        return zapiszKwote(ZapisyDziennika.SUBWENCJA, numerLosowania, kwota);
     }
 
-    private String formatKwota(long grosze) {
-        return String.format("%d zł %02d gr", grosze / 100, grosze % 100);
+    private long zapiszKwote(int typ, int numerLosowania, long kwota) {
+        Dziennik dziennik = this.dziennik;
+        return dziennik == null ? -1
+                : ZapisyDziennika.kwota(dziennik, typ, numerLosowania, BudzetPanstwa.BEZ_PRZYPISANIA, kwota);
     }
 
-    public long getWygrana(Zaklad zaklad, int numerLosowania) {
-        if (!losowania.containsKey(numerLosowania)) return 0;
+    private void zatwierdzKwote(long lsn) {
+        Dziennik dziennik = this.dziennik;
+        if (dziennik != null && lsn >= 0) {
+            dziennik.zatwierdz(lsn);
+        }
+    }
 
-        BazaWygranych nagrody = bazeWygranych.get(numerLosowania);
-        if (nagrody == null) return 0;
+    /**
+     * Zwraca wygraną zakładu w danym losowaniu na podstawie tabeli wygranych.
+     * @return wygrana w groszach lub 0, jeśli losowanie nie zostało jeszcze rozliczone
+     */
+    public long getWygrana(Zaklad zaklad, int numerLosowania) {
+        TabelaWygranych tabela = getTabelaWygranych(numerLosowania);
+        return tabela == null ? 0 : tabela.getWygrana(zaklad.getMaska());
+    }
 
-        int trafienia = liczbaTrafien(zaklad, losowania.get(numerLosowania).getWynik());
+    /**
+     * Zwraca tabelę wygranych rozliczonego losowania.
+     * @param numerLosowania numer losowania
+     * @return tabela wygranych lub null, jeśli losowanie nie zostało jeszcze rozliczone
+     */
+    public TabelaWygranych getTabelaWygranych(int numerLosowania) {
+        TabelaWygranych[] tabele = tabeleWygranych;
+        if (numerLosowania < 1 || numerLosowania > tabele.length) return null;
+        return tabele[numerLosowania - 1];
+    }
 
-        return switch (trafienia) {
-            case 6 -> nagrody.getWygranaI();
-            case 5 -> nagrody.getWygranaII();
-            case 4 -> nagrody.getWygranaIII();
-            case 3 -> nagrody.getWygranaIV();
-            default -> 0;
-        };
+    /**
+     * Dopisuje tabelę wygranych; zapis do pola volatile publikuje ją czytelnikom.
+     */
+    private void opublikujTabele(TabelaWygranych tabela) {
+        TabelaWygranych[] tabele = tabeleWygranych;
+        int indeks = tabela.getNumerLosowania() - 1;
+        if (indeks >= tabele.length) {
+            tabele = Arrays.copyOf(tabele, Math.max(tabele.length * 2, indeks + 1));
+        }
+        tabele[indeks] = tabela;
+        tabeleWygranych = tabele;
     }
 
 }
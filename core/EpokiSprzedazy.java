@@ -0,0 +1,97 @@
+package totolotek.core;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Epoki sprzedaży: numer losowania, na które sprzedawane są teraz kupony, i liczniki sprzedaży
+ * trwających w każdej epoce.
+ *
+ * Sprzedaż wchodzi do bieżącej epoki ({@link #wejdz()}) i tworzy kupon od losowania o jej numerze.
+ * Losowanie zaczyna się od odcięcia ({@link #zamknij(int)}): jedna operacja CAS przesuwa bieżącą
+ * epokę na następne losowanie, więc nowa sprzedaż trafia już do niego, a odcięcie czeka tylko na
+ * sprzedaże rozpoczęte w zamykanej epoce. Potem zbiór kuponów zamkniętego losowania się nie zmienia
+ * i można go rozliczać równolegle z dalszą sprzedażą.
+ *
+ * Liczniki są podzielone na paski (jak w {@link BramkaSprzedazy}) i tworzą pierścień epok:
+ * sprzedaż, która weszła do epoki tuż przed jej zamknięciem, wycofuje się i wchodzi do następnej.
+ */
+class EpokiSprzedazy {
+    /** Liczba epok w pierścieniu liczników */
+    private static final int EPOK = 4;
+    /** Odstęp między licznikami w tablicy (w elementach), by każdy leżał w innej linii pamięci */
+    private static final int ODSTEP = 16;
+
+    private final AtomicLongArray trwajace;
+    private final int liczbaPaskow;
+    /** Numer losowania, na które sprzedawane są kupony */
+    private final AtomicInteger biezaca = new AtomicInteger(1);
+
+    EpokiSprzedazy() {
+        liczbaPaskow = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1) << 1;
+        trwajace = new AtomicLongArray(EPOK * liczbaPaskow * ODSTEP);
+    }
+
+    /** @return numer losowania, na które sprzedawane są teraz kupony */
+    int getBiezaca() {
+        return biezaca.get();
+    }
+
+    /**
+     * Rozpoczyna sprzedaż w bieżącej epoce.
+     * @return numer epoki (losowania, od którego obowiązuje sprzedawany kupon) do przekazania {@link #wyjdz(int)}
+     */
+    int wejdz() {
+        int pasek = pasek();
+        while (true) {
+            int epoka = biezaca.get();
+            int licznik = licznik(epoka, pasek);
+            trwajace.incrementAndGet(licznik);
+            if (biezaca.get() == epoka) {
+                return epoka;
+            }
+            trwajace.decrementAndGet(licznik); // epoka właśnie zamknięta – sprzedaż trafi do następnej
+        }
+    }
+
+    /**
+     * Kończy sprzedaż rozpoczętą przez {@link #wejdz()} w tym samym wątku.
+     */
+    void wyjdz(int epoka) {
+        trwajace.decrementAndGet(licznik(epoka, pasek()));
+    }
+
+    /**
+     * Zamyka epokę: przesuwa sprzedaż na następne losowanie i czeka na zakończenie sprzedaży
+     * trwających w zamykanej epoce. Wątek, który sam sprzedaje w tej epoce, nie może jej zamykać.
+     * @param epoka numer zamykanej epoki
+     * @throws IllegalStateException jeśli epoka nie jest bieżąca
+     */
+    void zamknij(int epoka) {
+        if (!biezaca.compareAndSet(epoka, epoka + 1)) {
+            throw new IllegalStateException("Sprzedaż trwa na losowanie " + biezaca.get() + ", nie " + epoka);
+        }
+        for (int pasek = 0; pasek < liczbaPaskow; pasek++) {
+            int licznik = licznik(epoka, pasek);
+            while (trwajace.get(licznik) != 0) {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    /**
+     * Przesuwa bieżącą epokę co najmniej do podanej bez czekania, np. przy odtwarzaniu
+     * losowań z migawki lub dziennika, gdy sprzedaż jeszcze nie trwa.
+     */
+    void przesun(int epoka) {
+        biezaca.accumulateAndGet(epoka, Math::max);
+    }
+
+    private int pasek() {
+        return (int) Thread.currentThread().threadId() & (liczbaPaskow - 1);
+    }
+
+    private int licznik(int epoka, int pasek) {
+        return ((epoka & (EPOK - 1)) * liczbaPaskow + pasek) * ODSTEP;
+    }
+}
@@ -0,0 +1,82 @@
+package totolotek.core;
+
+import totolotek.kupon.Zaklad;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Histogram trafień zakładów w jednym losowaniu: liczba zakładów z 3..6 trafieniami
+ * oraz łączna liczba zakładów (potrzebna do wyliczenia sumy wpłat).
+ * Zakłady bez wygranej (0–2 trafienia) liczone są razem przy zerze trafień – tak samo
+ * w każdym silniku rozliczeń, także w {@link LicznikiKombinacji}, który nie odczytuje
+ * liczników zestawów z mniej niż 3 trafieniami.
+ * Każda część rozliczenia buduje własny histogram, a wyniki częściowe są scalane.
+ */
+class HistogramTrafien {
+    /** Najmniejsza liczba trafień dająca wygraną */
+    static final int MIN_WYGRANA = 3;
+
+    /** Liczba zakładów o danej liczbie trafień (indeks = liczba trafień; 0 – wszystkie bez wygranej) */
+    private final long[] liczbaZakladow = new long[Zaklad.LICZBA_TYPÓW + 1];
+
+    /**
+     * Dolicza zakład z podaną liczbą trafień.
+     * @param trafienia liczba trafień (0..6)
+     */
+    void dodaj(int trafienia) {
+        liczbaZakladow[indeks(trafienia)]++;
+    }
+
+    /**
+     * Dolicza wiele zakładów z tą samą liczbą trafień.
+     * @param trafienia liczba trafień (0..6)
+     * @param liczba liczba zakładów
+     */
+    void dodaj(int trafienia, long liczba) {
+        liczbaZakladow[indeks(trafienia)] += liczba;
+    }
+
+    private static int indeks(int trafienia) {
+        return trafienia < MIN_WYGRANA ? 0 : trafienia;
+    }
+
+    /**
+     * Dolicza do tego histogramu wyniki innego histogramu.
+     * @param inny histogram częściowy
+     * @return ten histogram
+     */
+    HistogramTrafien scal(HistogramTrafien inny) {
+        for (int i = 0; i < liczbaZakladow.length; i++) {
+            liczbaZakladow[i] += inny.liczbaZakladow[i];
+        }
+        return this;
+    }
+
+    /**
+     * @param trafienia liczba trafień (0..6)
+     * @return liczba zakładów z dokładnie tyloma trafieniami (3..6), bez wygranej (0) lub 0 (1, 2)
+     */
+    long getLiczba(int trafienia) {
+        return liczbaZakladow[trafienia];
+    }
+
+    /** @return łączna liczba zakładów */
+    long getLiczbaZakladow() {
+        long suma = 0;
+        for (long liczba : liczbaZakladow) suma += liczba;
+        return suma;
+    }
+
+    /**
+     * Zwraca liczbę wygranych w formacie oczekiwanym przez {@link StrategiaNagrod}.
+     * @return mapa: stopień wygranej (3-6) → liczba wygranych
+     */
+    Map<Integer, Integer> liczbaWygranych() {
+        Map<Integer, Integer> wynik = new HashMap<>();
+        for (int stopien = MIN_WYGRANA; stopien <= Zaklad.LICZBA_TYPÓW; stopien++) {
+            wynik.put(stopien, Math.toIntExact(liczbaZakladow[stopien]));
+        }
+        return wynik;
+    }
+}
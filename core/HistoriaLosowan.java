@@ -0,0 +1,413 @@
+package totolotek.core;
+
+import totolotek.kupon.Zaklad;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Historia losowań: wyniki i bazy wygranych kolejnych losowań oraz statystyki wylosowanych liczb.
+ *
+ * Numery losowań są kolejne od 1, więc losowanie o numerze n zajmuje pozycję n - 1
+ * w tablicach prostych: maski wyników w {@code long[]}, pule I-IV i liczby zwycięzców I-IV
+ * w równoległych tablicach po cztery wartości na losowanie. Historia jest tylko dopisywana:
+ * najpierw wynik ({@link #dodajWynik(int, long)}), potem – po rozliczeniu – baza wygranych
+ * ({@link #dodajBaze(int, BazaWygranych)}).
+ *
+ * Przy dopisaniu wyniku aktualizowane są statystyki: liczba wystąpień każdej liczby, każdej pary
+ * liczb i numer losowania, w którym liczba wystąpiła ostatnio – zapytania o nie nie przeglądają historii.
+ *
+ * Odczyt wyników i liczby losowań nie wymaga blokady: tablice są powiększane przed opublikowaniem
+ * nowej liczby losowań w polu volatile. Dopisywanie i statystyki są synchronizowane.
+ *
+ * Historia może być dodatkowo zapisywana w pliku odwzorowanym w pamięci ({@link #otworz(Path)}):
+ * nagłówek z liczbami losowań i rozliczeń, a za nim rekordy po {@value #ROZMIAR_REKORDU} bajtów
+ * (maska, 4 pule, 4 liczby zwycięzców). Liczby w nagłówku zapisywane są po rekordzie, więc plik
+ * po awarii procesu zawiera spójny przedrostek historii; przy otwarciu statystyki liczone są na nowo.
+ * Losowanie trafia do pamięci dopiero po zapisaniu w pliku – błąd zapisu nie rozsynchronizowuje
+ * ich – a po zamknięciu historii nie można już niczego dopisać.
+ * Plik z losowaniami można ponownie podłączyć do centrali odtwarzanej z migawki i dziennika
+ * ({@link Centrala#setHistoriaLosowan(HistoriaLosowan)}): zapisane już losowania są wtedy
+ * tylko porównywane z odtwarzanymi ({@link #odtworzWynik(int, long)}, {@link #odtworzBaze(int, BazaWygranych)}).
+ */
+public final class HistoriaLosowan implements Closeable {
+    private static final int LICZB = Zaklad.MAX_LICZBA - Zaklad.MIN_LICZBA + 1;
+    private static final int STOPNI = 4;
+
+    private static final int ZNACZNIK = 0x484C4F53; // "HLOS"
+    private static final int WERSJA = 1;
+    private static final int ROZMIAR_NAGLOWKA = 64;
+    private static final int ROZMIAR_REKORDU = 64;
+    /** Liczba rekordów w jednym odwzorowanym fragmencie pliku (1 MiB) */
+    private static final int REKORDOW_WE_FRAGMENCIE = 1 << 14;
+
+    private volatile long[] maski = new long[64];
+    private long[] pule = new long[64 * STOPNI];
+    private int[] zwyciezcy = new int[64 * STOPNI];
+    /** Liczba losowań z wynikiem */
+    private volatile int liczbaLosowan;
+    /** Liczba losowań z bazą wygranych */
+    private volatile int liczbaRozliczonych;
+
+    /** Liczba wystąpień liczby; indeks = liczba - 1 */
+    private final int[] czestosci = new int[LICZB];
+    /** Liczba wspólnych wystąpień pary liczb; indeks = (a - 1) * 49 + (b - 1), symetrycznie */
+    private final int[] czestosciPar = new int[LICZB * LICZB];
+    /** Numer losowania, w którym liczba wystąpiła ostatnio (0 – nigdy); indeks = liczba - 1 */
+    private final int[] ostatnieWystapienia = new int[LICZB];
+
+    /** Plik historii lub null – historia tylko w pamięci */
+    private final FileChannel kanal;
+    private MappedByteBuffer naglowek;
+    private final List<MappedByteBuffer> fragmenty = new ArrayList<>();
+    /** Czy historię zamknięto – wtedy nie można jej już zmieniać */
+    private boolean zamknieta;
+
+    /**
+     * Tworzy pustą historię przechowywaną tylko w pamięci.
+     */
+    public HistoriaLosowan() {
+        this.kanal = null;
+    }
+
+    private HistoriaLosowan(FileChannel kanal) {
+        this.kanal = kanal;
+    }
+
+    /**
+     * Otwiera historię zapisywaną w pliku, tworząc go w razie potrzeby. Losowania zapisane
+     * w istniejącym pliku są wczytywane.
+     * @param plik plik historii
+     * @return otwarta historia
+     * @throws IOException jeśli nie można otworzyć pliku lub nie jest on plikiem historii
+     */
+    public static HistoriaLosowan otworz(Path plik) throws IOException {
+        FileChannel kanal = FileChannel.open(plik,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        HistoriaLosowan historia = new HistoriaLosowan(kanal);
+        try {
+            historia.wczytaj();
+        } catch (IOException | RuntimeException e) {
+            kanal.close();
+            throw e;
+        }
+        return historia;
+    }
+
+    private void wczytaj() throws IOException {
+        boolean nowy = kanal.size() == 0;
+        naglowek = kanal.map(FileChannel.MapMode.READ_WRITE, 0, ROZMIAR_NAGLOWKA);
+        naglowek.order(ByteOrder.LITTLE_ENDIAN);
+        if (nowy) {
+            naglowek.putInt(0, ZNACZNIK).putInt(4, WERSJA).putInt(8, 0).putInt(12, 0);
+            return;
+        }
+        if (naglowek.getInt(0) != ZNACZNIK || naglowek.getInt(4) != WERSJA) {
+            throw new IOException("Plik nie jest historią losowań w wersji " + WERSJA);
+        }
+        int losowan = naglowek.getInt(8);
+        int rozliczonych = naglowek.getInt(12);
+        if (losowan < 0 || rozliczonych < 0 || rozliczonych > losowan
+                || kanal.size() < ROZMIAR_NAGLOWKA + (long) losowan * ROZMIAR_REKORDU) {
+            throw new IOException("Uszkodzony nagłówek historii losowań");
+        }
+        for (int i = 0; i < losowan; i++) {
+            MappedByteBuffer fragment = fragment(i);
+            int pozycja = pozycja(i);
+            dopiszWynik(i + 1, fragment.getLong(pozycja));
+            if (i < rozliczonych) {
+                BazaWygranych baza = new BazaWygranych(
+                        fragment.getLong(pozycja + 8), fragment.getLong(pozycja + 16),
+                        fragment.getLong(pozycja + 24), fragment.getLong(pozycja + 32),
+                        fragment.getInt(pozycja + 40), fragment.getInt(pozycja + 44),
+                        fragment.getInt(pozycja + 48), fragment.getInt(pozycja + 52));
+                dopiszBaze(i + 1, baza);
+            }
+        }
+    }
+
+    /** @return liczba losowań z wynikiem (numer ostatniego losowania) */
+    public int getLiczbaLosowan() {
+        return liczbaLosowan;
+    }
+
+    /** @return liczba rozliczonych losowań (z bazą wygranych) */
+    public int getLiczbaRozliczonych() {
+        return liczbaRozliczonych;
+    }
+
+    /**
+     * @param numerLosowania numer losowania
+     * @return maska wyniku losowania
+     * @throws IllegalArgumentException jeśli losowanie nie ma jeszcze wyniku
+     */
+    public long getMaska(int numerLosowania) {
+        int liczba = liczbaLosowan;
+        if (numerLosowania < 1 || numerLosowania > liczba) {
+            throw new IllegalArgumentException("Brak wyniku losowania " + numerLosowania);
+        }
+        return maski[numerLosowania - 1];
+    }
+
+    /**
+     * @param numerLosowania numer losowania
+     * @return baza wygranych lub null, jeśli losowanie nie zostało jeszcze rozliczone
+     */
+    public synchronized BazaWygranych getBazaWygranych(int numerLosowania) {
+        if (numerLosowania < 1 || numerLosowania > liczbaRozliczonych) {
+            return null;
+        }
+        int i = (numerLosowania - 1) * STOPNI;
+        return new BazaWygranych(pule[i], pule[i + 1], pule[i + 2], pule[i + 3],
+                zwyciezcy[i], zwyciezcy[i + 1], zwyciezcy[i + 2], zwyciezcy[i + 3]);
+    }
+
+    /**
+     * @param liczba liczba 1-49
+     * @return w ilu losowaniach wylosowano liczbę
+     */
+    public synchronized int getCzestosc(int liczba) {
+        return czestosci[indeks(liczba)];
+    }
+
+    /**
+     * @param a liczba 1-49
+     * @param b inna liczba 1-49
+     * @return w ilu losowaniach wylosowano obie liczby
+     * @throws IllegalArgumentException jeśli liczby są równe lub spoza zakresu
+     */
+    public synchronized int getCzestoscPary(int a, int b) {
+        if (a == b) {
+            throw new IllegalArgumentException("Para musi składać się z różnych liczb");
+        }
+        return czestosciPar[indeks(a) * LICZB + indeks(b)];
+    }
+
+    /**
+     * @param liczba liczba 1-49
+     * @return ile losowań minęło od ostatniego wylosowania liczby (0 – wylosowana w ostatnim losowaniu)
+     *         lub -1, jeśli nie była jeszcze wylosowana
+     */
+    public synchronized int getLosowanOdWystapienia(int liczba) {
+        int ostatnie = ostatnieWystapienia[indeks(liczba)];
+        return ostatnie == 0 ? -1 : liczbaLosowan - ostatnie;
+    }
+
+    /**
+     * Dopisuje wynik kolejnego losowania i aktualizuje statystyki.
+     * @param numerLosowania numer losowania; musi być o 1 większy od numeru ostatniego
+     * @param maska maska 6 wylosowanych liczb
+     * @throws IllegalStateException jeśli numer nie jest kolejny lub historia została zamknięta
+     * @throws IllegalArgumentException jeśli maska nie koduje 6 liczb z zakresu 1-49
+     * @throws UncheckedIOException jeśli nie udało się zapisać wyniku w pliku; historia się nie zmienia
+     */
+    public synchronized void dodajWynik(int numerLosowania, long maska) {
+        if ((maska & ~Zaklad.MASKA_ZAKRESU) != 0 || Long.bitCount(maska) != Zaklad.LICZBA_TYPÓW) {
+            throw new IllegalArgumentException("Wynik musi zawierać 6 liczb z zakresu 1-49.");
+        }
+        sprawdzOtwarta();
+        sprawdzKolejnyWynik(numerLosowania);
+        if (kanal != null) {
+            fragment(numerLosowania - 1).putLong(pozycja(numerLosowania - 1), maska);
+            naglowek.putInt(8, numerLosowania);
+        }
+        dopiszWynik(numerLosowania, maska);
+    }
+
+    /**
+     * Dopisuje bazę wygranych kolejnego rozliczonego losowania.
+     * @param numerLosowania numer losowania; musi mieć wynik i być o 1 większy od numeru ostatniego rozliczonego
+     * @param baza baza wygranych
+     * @throws IllegalStateException jeśli losowanie nie ma wyniku, numer nie jest kolejny
+     *                               lub historia została zamknięta
+     * @throws UncheckedIOException jeśli nie udało się zapisać bazy w pliku; historia się nie zmienia
+     */
+    public synchronized void dodajBaze(int numerLosowania, BazaWygranych baza) {
+        sprawdzOtwarta();
+        sprawdzKolejnaBaze(numerLosowania);
+        if (kanal != null) {
+            MappedByteBuffer fragment = fragment(numerLosowania - 1);
+            int pozycja = pozycja(numerLosowania - 1);
+            fragment.putLong(pozycja + 8, baza.getPulaI()).putLong(pozycja + 16, baza.getPulaII())
+                    .putLong(pozycja + 24, baza.getPulaIII()).putLong(pozycja + 32, baza.getPulaIV())
+                    .putInt(pozycja + 40, baza.getLiczbaI()).putInt(pozycja + 44, baza.getLiczbaII())
+                    .putInt(pozycja + 48, baza.getLiczbaIII()).putInt(pozycja + 52, baza.getLiczbaIV());
+            naglowek.putInt(12, numerLosowania);
+        }
+        dopiszBaze(numerLosowania, baza);
+    }
+
+    /**
+     * Dopisuje wynik losowania odtwarzanego z migawki lub dziennika. Losowanie zapisane już
+     * w historii (np. wczytanej z pliku) nie jest dopisywane ponownie – sprawdzana jest tylko
+     * zgodność wyniku.
+     * @throws IllegalStateException jeśli zapisany wynik jest inny lub numer nie jest kolejny
+     */
+    synchronized void odtworzWynik(int numerLosowania, long maska) {
+        if (numerLosowania < 1 || numerLosowania > liczbaLosowan) {
+            dodajWynik(numerLosowania, maska);
+        } else if (maski[numerLosowania - 1] != maska) {
+            throw new IllegalStateException("Wynik losowania " + numerLosowania
+                    + " zapisany w historii różni się od odtwarzanego");
+        }
+    }
+
+    /**
+     * Dopisuje bazę wygranych losowania odtwarzanego z migawki lub dziennika. Baza zapisana już
+     * w historii nie jest dopisywana ponownie – sprawdzana jest tylko jej zgodność.
+     * @throws IllegalStateException jeśli zapisana baza jest inna lub losowanie nie czeka na rozliczenie
+     */
+    synchronized void odtworzBaze(int numerLosowania, BazaWygranych baza) {
+        if (numerLosowania < 1 || numerLosowania > liczbaRozliczonych) {
+            dodajBaze(numerLosowania, baza);
+            return;
+        }
+        int i = (numerLosowania - 1) * STOPNI;
+        if (pule[i] != baza.getPulaI() || pule[i + 1] != baza.getPulaII()
+                || pule[i + 2] != baza.getPulaIII() || pule[i + 3] != baza.getPulaIV()
+                || zwyciezcy[i] != baza.getLiczbaI() || zwyciezcy[i + 1] != baza.getLiczbaII()
+                || zwyciezcy[i + 2] != baza.getLiczbaIII() || zwyciezcy[i + 3] != baza.getLiczbaIV()) {
+            throw new IllegalStateException("Baza wygranych losowania " + numerLosowania
+                    + " zapisana w historii różni się od odtwarzanej");
+        }
+    }
+
+    /**
+     * Usuwa wyniki losowań bez bazy wygranych – przerwanych przed rozliczeniem, np. przez awarię
+     * procesu. Takie losowania nie trafiły do dziennika, więc zostaną przeprowadzone ponownie.
+     * @throws IllegalStateException jeśli historia została zamknięta
+     */
+    synchronized void odrzucNierozliczone() {
+        sprawdzOtwarta();
+        while (liczbaLosowan > liczbaRozliczonych) {
+            int numer = liczbaLosowan;
+            if (kanal != null) {
+                naglowek.putInt(8, numer - 1);
+            }
+            long m = maski[numer - 1];
+            while (m != 0) {
+                int a = Long.numberOfTrailingZeros(m);
+                m &= m - 1;
+                czestosci[a]--;
+                for (long reszta = m; reszta != 0; reszta &= reszta - 1) {
+                    int b = Long.numberOfTrailingZeros(reszta);
+                    czestosciPar[a * LICZB + b]--;
+                    czestosciPar[b * LICZB + a]--;
+                }
+                int ostatnie = numer - 1;
+                while (ostatnie > 0 && (maski[ostatnie - 1] & (1L << a)) == 0) {
+                    ostatnie--;
+                }
+                ostatnieWystapienia[a] = ostatnie;
+            }
+            maski[numer - 1] = 0;
+            liczbaLosowan = numer - 1;
+        }
+    }
+
+    private void sprawdzOtwarta() {
+        if (zamknieta) {
+            throw new IllegalStateException("Historia losowań została zamknięta");
+        }
+    }
+
+    private void sprawdzKolejnyWynik(int numerLosowania) {
+        if (numerLosowania != liczbaLosowan + 1) {
+            throw new IllegalStateException("Kolejne losowanie ma numer " + (liczbaLosowan + 1)
+                    + ", nie " + numerLosowania);
+        }
+    }
+
+    private void sprawdzKolejnaBaze(int numerLosowania) {
+        if (numerLosowania != liczbaRozliczonych + 1 || numerLosowania > liczbaLosowan) {
+            throw new IllegalStateException("Losowanie " + numerLosowania + " nie czeka na rozliczenie");
+        }
+    }
+
+    private void dopiszWynik(int numerLosowania, long maska) {
+        sprawdzKolejnyWynik(numerLosowania);
+        if (numerLosowania > maski.length) {
+            int rozmiar = maski.length * 2;
+            pule = Arrays.copyOf(pule, rozmiar * STOPNI);
+            zwyciezcy = Arrays.copyOf(zwyciezcy, rozmiar * STOPNI);
+            maski = Arrays.copyOf(maski, rozmiar);
+        }
+        maski[numerLosowania - 1] = maska;
+
+        long m = maska;
+        while (m != 0) {
+            int a = Long.numberOfTrailingZeros(m);
+            m &= m - 1;
+            czestosci[a]++;
+            ostatnieWystapienia[a] = numerLosowania;
+            for (long reszta = m; reszta != 0; reszta &= reszta - 1) {
+                int b = Long.numberOfTrailingZeros(reszta);
+                czestosciPar[a * LICZB + b]++;
+                czestosciPar[b * LICZB + a]++;
+            }
+        }
+        liczbaLosowan = numerLosowania; // publikuje wynik czytelnikom bez blokady
+    }
+
+    private void dopiszBaze(int numerLosowania, BazaWygranych baza) {
+        sprawdzKolejnaBaze(numerLosowania);
+        int i = (numerLosowania - 1) * STOPNI;
+        pule[i] = baza.getPulaI();
+        pule[i + 1] = baza.getPulaII();
+        pule[i + 2] = baza.getPulaIII();
+        pule[i + 3] = baza.getPulaIV();
+        zwyciezcy[i] = baza.getLiczbaI();
+        zwyciezcy[i + 1] = baza.getLiczbaII();
+        zwyciezcy[i + 2] = baza.getLiczbaIII();
+        zwyciezcy[i + 3] = baza.getLiczbaIV();
+        liczbaRozliczonych = numerLosowania;
+    }
+
+    private static int indeks(int liczba) {
+        if (liczba < Zaklad.MIN_LICZBA || liczba > Zaklad.MAX_LICZBA) {
+            throw new IllegalArgumentException("Liczba spoza zakresu 1-49: " + liczba);
+        }
+        return liczba - Zaklad.MIN_LICZBA;
+    }
+
+    private static int pozycja(int indeksLosowania) {
+        return (indeksLosowania & (REKORDOW_WE_FRAGMENCIE - 1)) * ROZMIAR_REKORDU;
+    }
+
+    private MappedByteBuffer fragment(int indeksLosowania) {
+        int nr = indeksLosowania / REKORDOW_WE_FRAGMENCIE;
+        while (fragmenty.size() <= nr) {
+            long poczatek = ROZMIAR_NAGLOWKA + (long) fragmenty.size() * REKORDOW_WE_FRAGMENCIE * ROZMIAR_REKORDU;
+            try {
+                MappedByteBuffer fragment = kanal.map(FileChannel.MapMode.READ_WRITE, poczatek,
+                        (long) REKORDOW_WE_FRAGMENCIE * ROZMIAR_REKORDU);
+                fragment.order(ByteOrder.LITTLE_ENDIAN);
+                fragmenty.add(fragment);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Nie można odwzorować pliku historii losowań", e);
+            }
+        }
+        return fragmenty.get(nr);
+    }
+
+    /**
+     * Zamyka plik historii (jeśli jest). Historia pozostaje dostępna do odczytu,
+     * ale nie można już dopisywać do niej losowań.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        zamknieta = true;
+        if (kanal != null) {
+            kanal.close();
+        }
+    }
+}
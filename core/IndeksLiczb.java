@@ -0,0 +1,288 @@
+package totolotek.core;
+
+import totolotek.kupon.IdKuponu;
+import totolotek.kupon.Kupon;
+import totolotek.kupon.Zaklad;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Odwrócony indeks zakładów jednego losowania: dla każdej z 49 liczb mapa bitowa pozycji
+ * zakładów, które ją zawierają. Zakłady kuponu zajmują kolejne pozycje, przydzielane przy
+ * rejestracji kuponu w kolekturze.
+ *
+ * Mapy podzielone są na bloki po {@value #ROZMIAR_BLOKU} pozycji, a blok mapy danej liczby
+ * alokowany jest dopiero, gdy trafi do niego pierwszy zakład z tą liczbą – puste fragmenty
+ * nie zajmują pamięci. Bity ustawiane są atomowo, więc wiele terminali może rejestrować
+ * kupony jednocześnie.
+ *
+ * Zapytania można wykonywać także w trakcie rejestracji. Kupon dopisywany w tej chwili może
+ * być wtedy widoczny tylko częściowo (nie wszystkie jego bity są już ustawione), ale każdy
+ * zwrócony zakład ma poprawny identyfikator kuponu i numer: identyfikatory całego kuponu
+ * zapisywane są przed pierwszym bitem, a bloki pozycji kuponu tworzone są przed zapisem
+ * identyfikatorów. Dokładne wyniki daje indeks losowania, którego sprzedaż jest zamknięta.
+ *
+ * Liczbę trafień zakładów wyznacza się z sześciu map liczb wyniku: dla każdego słowa
+ * 64 zakładów sumator bitowy zlicza równolegle, w ilu z sześciu map ustawiony jest bit,
+ * więc histogram trafień kosztuje kilkadziesiąt operacji na 64 zakłady.
+ */
+public final class IndeksLiczb {
+    private static final int BITY_BLOKU = 16;
+    private static final int ROZMIAR_BLOKU = 1 << BITY_BLOKU;
+    private static final int SLOW_W_BLOKU = ROZMIAR_BLOKU / Long.SIZE;
+
+    private static final VarHandle ELEMENT_LONG = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle ELEMENT_MAPY = MethodHandles.arrayElementVarHandle(long[][].class);
+
+    /**
+     * Zakład wskazany przez indeks.
+     * @param idKuponu identyfikator kuponu ({@link IdKuponu})
+     * @param numerZakladu numer zakładu na kuponie (od 0)
+     */
+    public record PozycjaZakladu(long idKuponu, int numerZakladu) {
+    }
+
+    /** Blok pozycji: mapy liczb (tworzone leniwie) i identyfikatory kuponów na pozycjach */
+    private static final class Blok {
+        final long[][] mapy = new long[Zaklad.MAX_LICZBA][];
+        final long[] identyfikatory = new long[ROZMIAR_BLOKU];
+    }
+
+    private final int numerLosowania;
+    private final AtomicReferenceArray<Blok> bloki =
+            new AtomicReferenceArray<>(1 << (Integer.SIZE - 1 - BITY_BLOKU));
+    private final AtomicInteger liczbaZakladow = new AtomicInteger();
+
+    IndeksLiczb(int numerLosowania) {
+        this.numerLosowania = numerLosowania;
+    }
+
+    /**
+     * Dopisuje zakłady kuponu na kolejnych wolnych pozycjach. Bezpieczne dla wielu wątków.
+     */
+    void dodaj(Kupon kupon) {
+        List<Zaklad> zaklady = kupon.getZaklady();
+        int poczatek = liczbaZakladow.getAndAdd(zaklady.size());
+        if (poczatek < 0 || poczatek + zaklady.size() < 0) {
+            throw new IllegalStateException("Przekroczono liczbę zakładów w indeksie losowania " + numerLosowania);
+        }
+        // identyfikatory całego kuponu muszą być widoczne, zanim zapytanie zobaczy którykolwiek jego bit
+        for (int j = 0; j < zaklady.size(); j++) {
+            int pozycja = poczatek + j;
+            Blok blok = blok(pozycja >>> BITY_BLOKU);
+            ELEMENT_LONG.setRelease(blok.identyfikatory, pozycja & (ROZMIAR_BLOKU - 1), kupon.getId());
+        }
+        for (int j = 0; j < zaklady.size(); j++) {
+            int pozycja = poczatek + j;
+            Blok blok = bloki.get(pozycja >>> BITY_BLOKU);
+            int wBloku = pozycja & (ROZMIAR_BLOKU - 1);
+            long bit = 1L << wBloku;
+            for (long m = zaklady.get(j).getMaska(); m != 0; m &= m - 1) {
+                long[] mapa = mapa(blok, Long.numberOfTrailingZeros(m));
+                ELEMENT_LONG.getAndBitwiseOr(mapa, wBloku >>> 6, bit);
+            }
+        }
+    }
+
+    private Blok blok(int nr) {
+        Blok blok = bloki.get(nr);
+        if (blok == null) {
+            bloki.compareAndSet(nr, null, new Blok());
+            blok = bloki.get(nr);
+        }
+        return blok;
+    }
+
+    private static long[] mapa(Blok blok, int bitLiczby) {
+        long[] mapa = (long[]) ELEMENT_MAPY.getAcquire(blok.mapy, bitLiczby);
+        if (mapa == null) {
+            ELEMENT_MAPY.compareAndSet(blok.mapy, bitLiczby, null, new long[SLOW_W_BLOKU]);
+            mapa = (long[]) ELEMENT_MAPY.getAcquire(blok.mapy, bitLiczby);
+        }
+        return mapa;
+    }
+
+    /** @return numer losowania, którego dotyczy indeks */
+    public int getNumerLosowania() {
+        return numerLosowania;
+    }
+
+    /** @return liczba zakładów w indeksie */
+    public int getLiczbaZakladow() {
+        return liczbaZakladow.get();
+    }
+
+    /**
+     * Zlicza zakłady zawierające wszystkie liczby z maski (np. jedną liczbę albo parę).
+     * @param maskaLiczb maska liczb w układzie {@link Zaklad#getMaska()}
+     * @return liczba zakładów
+     */
+    public long liczbaZakladowZLiczbami(long maskaLiczb) {
+        long[] liczba = new long[1];
+        przegladaj(maskaLiczb, (blok, slowo, bity) -> liczba[0] += Long.bitCount(bity));
+        return liczba[0];
+    }
+
+    /**
+     * Zwraca zakłady zawierające wszystkie liczby z maski, w kolejności pozycji.
+     * @param maskaLiczb maska liczb w układzie {@link Zaklad#getMaska()}
+     * @return pozycje zakładów
+     */
+    public List<PozycjaZakladu> zakladyZLiczbami(long maskaLiczb) {
+        List<PozycjaZakladu> wynik = new ArrayList<>();
+        przegladaj(maskaLiczb, (blok, slowo, bity) -> dopiszPozycje(blok, slowo, bity, wynik));
+        return wynik;
+    }
+
+    /**
+     * Wyznacza histogram trafień wszystkich zakładów.
+     * @param maskaWyniku maska 6 wylosowanych liczb
+     * @return liczba zakładów według liczby trafień; indeks = liczba trafień (0..6)
+     */
+    public long[] histogramTrafien(long maskaWyniku) {
+        long[] wynik = new long[Zaklad.LICZBA_TYPÓW + 1];
+        zliczTrafienia(maskaWyniku, (blok, slowo, trafienia) -> {
+            for (int k = 1; k <= Zaklad.LICZBA_TYPÓW; k++) {
+                wynik[k] += Long.bitCount(trafienia[k]);
+            }
+        });
+        long zTrafieniami = 0;
+        for (int k = 1; k <= Zaklad.LICZBA_TYPÓW; k++) {
+            zTrafieniami += wynik[k];
+        }
+        wynik[0] = getLiczbaZakladow() - zTrafieniami;
+        return wynik;
+    }
+
+    /**
+     * Zwraca zakłady z dokładnie podaną liczbą trafień, np. listę zwycięzców danego stopnia.
+     * @param maskaWyniku maska 6 wylosowanych liczb
+     * @param trafienia liczba trafień (1..6)
+     * @return pozycje zakładów
+     * @throws IllegalArgumentException jeśli liczba trafień jest spoza zakresu 1..6
+     */
+    public List<PozycjaZakladu> zakladyZTrafieniami(long maskaWyniku, int trafienia) {
+        if (trafienia < 1 || trafienia > Zaklad.LICZBA_TYPÓW) {
+            throw new IllegalArgumentException("Liczba trafień musi być z zakresu 1-6");
+        }
+        List<PozycjaZakladu> wynik = new ArrayList<>();
+        zliczTrafienia(maskaWyniku, (blok, slowo, wgTrafien) ->
+                dopiszPozycje(blok, slowo, wgTrafien[trafienia], wynik));
+        return wynik;
+    }
+
+    private interface OdbiorcaSlowa {
+        void slowo(int blok, int slowo, long bity);
+    }
+
+    private interface OdbiorcaTrafien {
+        /** @param trafienia maski zakładów słowa według liczby trafień (indeksy 1..6) */
+        void slowo(int blok, int slowo, long[] trafienia);
+    }
+
+    /**
+     * Przechodzi przez słowa iloczynu map liczb z maski.
+     */
+    private void przegladaj(long maskaLiczb, OdbiorcaSlowa odbiorca) {
+        if (maskaLiczb == 0 || (maskaLiczb & ~Zaklad.MASKA_ZAKRESU) != 0) {
+            throw new IllegalArgumentException("Maska musi zawierać liczby z zakresu 1-49");
+        }
+        int liczbaBlokow = liczbaBlokow();
+        for (int b = 0; b < liczbaBlokow; b++) {
+            Blok blok = bloki.get(b);
+            if (blok == null) continue;
+            long[][] mapy = new long[Long.bitCount(maskaLiczb)][];
+            int i = 0;
+            boolean pusty = false;
+            for (long m = maskaLiczb; m != 0; m &= m - 1) {
+                mapy[i] = (long[]) ELEMENT_MAPY.getAcquire(blok.mapy, Long.numberOfTrailingZeros(m));
+                pusty |= mapy[i++] == null;
+            }
+            if (pusty) continue;
+            for (int s = 0; s < SLOW_W_BLOKU; s++) {
+                long bity = -1L;
+                for (long[] mapa : mapy) {
+                    bity &= mapa[s];
+                }
+                if (bity != 0) {
+                    odbiorca.slowo(b, s, bity);
+                }
+            }
+        }
+    }
+
+    /**
+     * Dla każdego słowa 64 zakładów wyznacza maski zakładów o 1..6 trafieniach.
+     * Sześć map liczb wyniku dodawanych jest bit po bicie sumatorami pełnymi,
+     * co daje trzybitową liczbę trafień (b2 b1 b0) dla każdego zakładu słowa.
+     */
+    private void zliczTrafienia(long maskaWyniku, OdbiorcaTrafien odbiorca) {
+        if (Long.bitCount(maskaWyniku) != Zaklad.LICZBA_TYPÓW || (maskaWyniku & ~Zaklad.MASKA_ZAKRESU) != 0) {
+            throw new IllegalArgumentException("Maska wyniku musi kodować 6 liczb z zakresu 1-49");
+        }
+        long[] zero = new long[SLOW_W_BLOKU];
+        long[][] mapy = new long[Zaklad.LICZBA_TYPÓW][];
+        long[] trafienia = new long[Zaklad.LICZBA_TYPÓW + 1];
+        int liczbaBlokow = liczbaBlokow();
+        for (int b = 0; b < liczbaBlokow; b++) {
+            Blok blok = bloki.get(b);
+            if (blok == null) continue;
+            int i = 0;
+            for (long m = maskaWyniku; m != 0; m &= m - 1) {
+                long[] mapa = (long[]) ELEMENT_MAPY.getAcquire(blok.mapy, Long.numberOfTrailingZeros(m));
+                mapy[i++] = mapa == null ? zero : mapa;
+            }
+            for (int s = 0; s < SLOW_W_BLOKU; s++) {
+                long a = mapy[0][s], c = mapy[1][s], d = mapy[2][s];
+                long e = mapy[3][s], f = mapy[4][s], g = mapy[5][s];
+                if ((a | c | d | e | f | g) == 0) continue;
+                long s1 = a ^ c ^ d, p1 = (a & c) | (d & (a ^ c));
+                long s2 = e ^ f ^ g, p2 = (e & f) | (g & (e ^ f));
+                long b0 = s1 ^ s2, p0 = s1 & s2;
+                long b1 = p1 ^ p2 ^ p0, b2 = (p1 & p2) | (p0 & (p1 ^ p2));
+                trafienia[1] = ~b2 & ~b1 & b0;
+                trafienia[2] = ~b2 & b1 & ~b0;
+                trafienia[3] = ~b2 & b1 & b0;
+                trafienia[4] = b2 & ~b1 & ~b0;
+                trafienia[5] = b2 & ~b1 & b0;
+                trafienia[6] = b2 & b1 & ~b0;
+                odbiorca.slowo(b, s, trafienia);
+            }
+        }
+    }
+
+    private int liczbaBlokow() {
+        return (int) ((getLiczbaZakladow() + (long) ROZMIAR_BLOKU - 1) >>> BITY_BLOKU);
+    }
+
+    /**
+     * Zamienia bity słowa na pozycje zakładów: identyfikator kuponu i numer zakładu na kuponie
+     * (liczony od pierwszej pozycji z tym samym identyfikatorem).
+     */
+    private void dopiszPozycje(int blok, int slowo, long bity, List<PozycjaZakladu> wynik) {
+        // bity słowa odczytane przed identyfikatorami: widać identyfikatory zapisane przed ich ustawieniem
+        VarHandle.acquireFence();
+        for (long m = bity; m != 0; m &= m - 1) {
+            int pozycja = (blok << BITY_BLOKU) + slowo * Long.SIZE + Long.numberOfTrailingZeros(m);
+            long id = identyfikator(pozycja);
+            int numer = 0;
+            while (pozycja - numer > 0 && identyfikator(pozycja - numer - 1) == id) {
+                numer++;
+            }
+            wynik.add(new PozycjaZakladu(id, numer));
+        }
+    }
+
+    /**
+     * @return identyfikator kuponu na pozycji albo 0, jeśli pozycja nie została jeszcze zapisana
+     */
+    private long identyfikator(int pozycja) {
+        Blok blok = bloki.get(pozycja >>> BITY_BLOKU);
+        return blok == null ? 0 : (long) ELEMENT_LONG.getAcquire(blok.identyfikatory, pozycja & (ROZMIAR_BLOKU - 1));
+    }
+}
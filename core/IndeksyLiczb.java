@@ -0,0 +1,59 @@
+package totolotek.core;
+
+import totolotek.kupon.Kupon;
+import totolotek.kupon.Zaklad;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Silnik rozliczeń oparty na odwróconych indeksach liczb ({@link IndeksLiczb}), budowanych
+ * przy rejestracji kuponów dla każdego losowania. Histogram trafień wyznaczany jest z map
+ * bitowych liczb wyniku, bez przeglądania kuponów.
+ *
+ * Po rozliczeniu losowania jego indeks pozostaje dostępny (np. dla listy zwycięzców)
+ * do rozliczenia następnego losowania.
+ */
+class IndeksyLiczb implements SilnikRozliczen {
+    private final Centrala centrala;
+    /** numer losowania -> indeks zakładów tego losowania */
+    private final ConcurrentHashMap<Integer, IndeksLiczb> wgLosowan = new ConcurrentHashMap<>();
+
+    IndeksyLiczb(Centrala centrala) {
+        this.centrala = centrala;
+    }
+
+    @Override
+    public void zarejestruj(Kupon kupon) {
+        // losowania z już wyznaczonym wynikiem pomijamy (kupon odtwarzany); sprzedaż w zamykanej
+        // epoce kończy się przed wyznaczeniem wyniku, więc jej losowanie jest jeszcze otwarte
+        int pierwszeOtwarte = centrala.getHistoriaLosowan().getLiczbaLosowan() + 1;
+        for (int nr = Math.max(kupon.getPierwszeLosowanie(), pierwszeOtwarte); nr <= kupon.getOstatnieLosowanieKuponu(); nr++) {
+            wgLosowan.computeIfAbsent(nr, IndeksLiczb::new).dodaj(kupon);
+        }
+    }
+
+    /**
+     * Wyznacza histogram z indeksu losowania i zwalnia indeksy losowań wcześniejszych niż rozliczane.
+     */
+    @Override
+    public HistogramTrafien zliczTrafienia(int numerLosowania, long maskaWyniku) {
+        wgLosowan.keySet().removeIf(nr -> nr < numerLosowania);
+        HistogramTrafien histogram = new HistogramTrafien();
+        IndeksLiczb indeks = wgLosowan.get(numerLosowania);
+        if (indeks != null) {
+            long[] wgTrafien = indeks.histogramTrafien(maskaWyniku);
+            for (int trafienia = 0; trafienia <= Zaklad.LICZBA_TYPÓW; trafienia++) {
+                histogram.dodaj(trafienia, wgTrafien[trafienia]);
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * @param numerLosowania numer losowania
+     * @return indeks losowania lub null, jeśli nie sprzedano na nie zakładów albo indeks został już zwolniony
+     */
+    IndeksLiczb indeks(int numerLosowania) {
+        return wgLosowan.get(numerLosowania);
+    }
+}
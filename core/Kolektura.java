@@ -3,10 +3,16 @@ package totolotek.core;
 import totolotek.finanse.BudzetPanstwa;
 import totolotek.gracz.Gracz;
 import totolotek.kupon.Blankiet;
+import totolotek.kupon.IdKuponu;
 import totolotek.kupon.Kupon;
 import totolotek.kupon.Zaklad;
+import totolotek.losowanie.ZrodloLosowosci;
+import totolotek.metryki.MetrykiKolektury;
+import totolotek.trwalosc.Dziennik;
+import totolotek.trwalosc.RekordDziennika;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 /**
@@ -17,17 +23,27 @@ import java.util.stream.Collectors;
  *  - przekazywanie środków do centrali i podatków do budżetu państwa,
  *  - wypłatę wygranych graczom na podstawie kuponów.
  *
- * Każda kolektura ma unikalny numer i przechowuje sprzedane przez siebie kupony.
+ * Każda kolektura ma unikalny numer i przechowuje sprzedane przez siebie kupony
+ * w magazynie wybranym przy tworzeniu ({@link RodzajMagazynu}).
+ * Sprzedaż jest bezpieczna dla wielu równoległych terminali: magazyn kuponów jest współbieżny,
+ * numery kuponów przydzielane są atomowo, a środki gracza pobierane jedną operacją CAS.
  */
 public class Kolektura {
     /** Unikalny numer kolektury */
     private final int numerKoloktury;
-    /** Mapa sprzedanych kuponów: identyfikator kuponu → kupon */
-    private final Map<String, Kupon> sprzedaneKupony;
+    /** Magazyn sprzedanych kuponów */
+    private final MagazynKuponow magazyn;
     /** Licznik do generowania kolejnych numerów kuponów */
-    private int nastepnyNrKuponu = 1;
+    private final AtomicInteger nastepnyNrKuponu = new AtomicInteger(1);
     /** Referencja do centrali Totolotka */
     private final Centrala centrala;
+    /** Źródło losowości dla zakładów „chybił-trafił” i znaczników identyfikatorów */
+    private ZrodloLosowosci zrodloLosowosci = ZrodloLosowosci.domyslne();
+    /** Liczniki i czasy sprzedaży oraz wypłat */
+    private final MetrykiKolektury metryki = new MetrykiKolektury();
+
+    /** Wartość w wyniku hurtowej wypłaty oznaczająca kupon odrzucony przy weryfikacji */
+    public static final long KUPON_ODRZUCONY = -1;
 
     /**
      * Tworzy kolekturę o podanym numerze i przypisuje ją do centrali.
@@ -35,9 +51,26 @@ public class Kolektura {
      * @param centrala referencja do centrali Totolotka
      */
     public Kolektura(int numerKoloktury, Centrala centrala) {
+        this(numerKoloktury, centrala, RodzajMagazynu.OBIEKTOWY);
+    }
+
+    /**
+     * Tworzy kolekturę o podanym numerze, przechowującą kupony w magazynie podanego rodzaju.
+     * @param numerKoloktury unikalny numer kolektury
+     * @param centrala referencja do centrali Totolotka
+     * @param rodzajMagazynu rodzaj magazynu kuponów
+     * @throws IllegalArgumentException jeśli numer kolektury nie mieści się w identyfikatorze kuponu
+     */
+    public Kolektura(int numerKoloktury, Centrala centrala, RodzajMagazynu rodzajMagazynu) {
+        if (numerKoloktury < 0 || numerKoloktury > IdKuponu.MAX_KOLEKTURA) {
+            throw new IllegalArgumentException("Numer kolektury spoza zakresu 0.." + IdKuponu.MAX_KOLEKTURA);
+        }
         this.numerKoloktury = numerKoloktury;
-        this.sprzedaneKupony = new HashMap<>();
         this.centrala = centrala;
+        this.magazyn = switch (rodzajMagazynu) {
+            case OBIEKTOWY -> new MagazynObiektowy();
+            case KOLUMNOWY -> new MagazynKolumnowy(numerKoloktury);
+        };
     }
 
     /**
@@ -51,10 +84,43 @@ public class Kolektura {
      * @throws IllegalArgumentException jeśli blankiet nie zawiera poprawnych zakładów lub gracz jest null
      */
     public Kupon sprzedajKupon(Blankiet blankiet, Gracz gracz) {
+        long poczatek = System.nanoTime();
+        BramkaSprzedazy bramka = centrala.getBramka();
+        EpokiSprzedazy epoki = centrala.getEpoki();
+        int pasek = bramka.wejdz();
+        int epoka = epoki.wejdz();
+        try {
+            Kupon kupon = utworzKupon(blankiet, gracz, epoka);
+            if (kupon == null) {
+                metryki.odmowaSprzedazy();
+                return null;
+            }
+            long podatek = zarejestrujKupon(kupon, gracz);
+
+            // 7. Przekaż podatek do budżetu państwa
+            BudzetPanstwa budzetPanstwa = centrala.getBudzetPanstwa();
+            budzetPanstwa.pobierzPodatekOdSprzedazy(podatek, numerKoloktury, kupon.getPierwszeLosowanie());
+
+            // 8. Zapisz sprzedaż w dzienniku
+            zapiszSprzedaz(kupon, podatek);
+            metryki.sprzedaz(System.nanoTime() - poczatek, kupon.getIleZakladow());
+            return kupon;
+        } finally {
+            epoki.wyjdz(epoka);
+            bramka.wyjdz(pasek);
+        }
+    }
+
+    /**
+     * Waliduje blankiet, pobiera środki gracza i tworzy kupon (bez rejestracji)
+     * obowiązujący od losowania bieżącej epoki sprzedaży.
+     * @return kupon lub null, jeśli gracz nie ma wystarczających środków
+     */
+    private Kupon utworzKupon(Blankiet blankiet, Gracz gracz, int epoka) {
         // 1. Walidacja blankietu i generacja zakładów
         List<Zaklad> zaklady = blankiet.generujZaklady()
                 .stream()
-                .filter(z -> z != null && z.getLiczby().size() == 6) // Tylko poprawne zakłady
+                .filter(z -> z != null && Long.bitCount(z.getMaska()) == Zaklad.LICZBA_TYPÓW) // Tylko poprawne zakłady
                 .collect(Collectors.toList());
 
         if (zaklady.isEmpty()) {
@@ -66,40 +132,62 @@ public class Kolektura {
         // 2. Pobierz liczbę losowań z blankietu
         int liczbaLosowan = blankiet.getLiczbaLosowan();
 
-        // 3. Oblicz cenę i podatek
+        // 3. Oblicz cenę
         long cenaBrutto = zaklady.size() * liczbaLosowan * 300L; // 3 zł = 300 gr
-        long podatek = zaklady.size() * liczbaLosowan * 60L;     // 0.60 zł = 60 gr
 
-        // 4. Sprawdź środki gracza
-        if (gracz.getSrodki() < cenaBrutto) {
+        // 4. Pobierz środki gracza (atomowo: sprawdzenie i pobranie w jednym kroku)
+        if (!gracz.pobierzSrodki(cenaBrutto)) {
             return null;
         }
         // 5. Utwórz kupon z unikalnym ID
-        String id = generujIdKuponu();
-        Kupon kupon = new Kupon(id, zaklady, liczbaLosowan, centrala, this);
+        long id = przydzielIdKuponu(gracz, cenaBrutto);
+        return new Kupon(id, zaklady, epoka, liczbaLosowan, this);
+    }
 
-        // 6. Pobierz środki i zarejestruj kupon
-        gracz.odejmijSrodki(cenaBrutto);
+    /**
+     * Rejestruje sprzedany kupon w magazynie i silniku rozliczeń oraz przekazuje go graczowi.
+     * @return podatek od sprzedaży kuponu (w groszach)
+     */
+    private long zarejestrujKupon(Kupon kupon, Gracz gracz) {
+        // 6. Zarejestruj kupon; jeśli magazyn go nie przyjmie, kupon nie powstaje i środki wracają do gracza
+        try {
+            magazyn.zarejestruj(kupon);
+        } catch (RuntimeException e) {
+            gracz.dodajSrodki(kupon.getCenaBrutto());
+            throw e;
+        }
+        centrala.zarejestrujKupon(kupon);
         gracz.dodajKupon(kupon);
-        this.sprzedaneKupony.put(id, kupon);
-
-        // 7. Przekaż podatek do budżetu państwa
-        BudzetPanstwa budzetPanstwa = centrala.getBudzetPanstwa();
-        budzetPanstwa.pobierzPodatek(podatek);
+        return kupon.getIleZakladow() * kupon.getLiczbaLosowan() * 60L; // 0.60 zł = 60 gr
+    }
 
-        return kupon;
+    /**
+     * Przydziela identyfikator kuponowi, za który gracz już zapłacił.
+     * Jeśli numery kuponów się wyczerpały, zwraca graczowi pobraną kwotę.
+     * @throws IllegalStateException jeśli wyczerpano numery kuponów kolektury
+     */
+    private long przydzielIdKuponu(Gracz gracz, long cenaBrutto) {
+        try {
+            return generujIdKuponu();
+        } catch (RuntimeException e) {
+            gracz.dodajSrodki(cenaBrutto);
+            throw e;
+        }
     }
 
     /**
      * Pomocnicza metoda do generowania unikalnych identyfikatorów kuponów.
-     * Identyfikator składa się z numeru kuponu, numeru kolektury, losowego znacznika i sumy kontrolnej.
+     * Identyfikator składa się z numeru kuponu, numeru kolektury, losowego znacznika i sumy kontrolnej,
+     * spakowanych w jedną liczbę ({@link IdKuponu}).
      * @return wygenerowany identyfikator kuponu
+     * @throws IllegalStateException jeśli wyczerpano numery kuponów kolektury
      */
-    private String generujIdKuponu() {
-        String randomTag = String.format("%09d", new Random().nextInt(1_000_000_000));
-        String czesc = this.numerKoloktury + "-" + randomTag;
-        int suma = czesc.chars().map(Character::getNumericValue).sum();
-        return this.nastepnyNrKuponu++ + "-" + czesc + "-" + String.format("%02d", suma % 100);
+    private long generujIdKuponu() {
+        int numer = this.nastepnyNrKuponu.getAndIncrement();
+        if (numer < 1 || numer > IdKuponu.MAX_NUMER) {
+            throw new IllegalStateException("Wyczerpano numery kuponów kolektury " + numerKoloktury);
+        }
+        return IdKuponu.utworz(numerKoloktury, numer, zrodloLosowosci.losujInt(IdKuponu.LICZBA_ZNACZNIKOW));
     }
 
     /**
@@ -114,34 +202,200 @@ public class Kolektura {
      * @throws IllegalArgumentException jeśli liczba zakładów lub losowań jest spoza dozwolonego zakresu
      */
     public Kupon sprzedajKuponChybilTraf(int liczbaZakladow, int liczbaLosowan, Gracz gracz) {
+        long poczatek = System.nanoTime();
+        BramkaSprzedazy bramka = centrala.getBramka();
+        EpokiSprzedazy epoki = centrala.getEpoki();
+        int pasek = bramka.wejdz();
+        int epoka = epoki.wejdz();
+        try {
+            Kupon kupon = utworzKuponChybilTraf(liczbaZakladow, liczbaLosowan, gracz, epoka);
+            if (kupon == null) {
+                metryki.odmowaSprzedazy();
+                return null;
+            }
+            // 5. Zarejestruj kupon i przekaż go graczowi
+            long podatek = zarejestrujKupon(kupon, gracz);
+            // 6. Przekaż podatek do budżetu
+            BudzetPanstwa budzetPanstwa = centrala.getBudzetPanstwa();
+            budzetPanstwa.pobierzPodatekOdSprzedazy(podatek, numerKoloktury, kupon.getPierwszeLosowanie());
+            // 7. Zapisz sprzedaż w dzienniku i zwróć kupon
+            zapiszSprzedaz(kupon, podatek);
+            metryki.sprzedaz(System.nanoTime() - poczatek, liczbaZakladow);
+            return kupon;
+        } finally {
+            epoki.wyjdz(epoka);
+            bramka.wyjdz(pasek);
+        }
+    }
+
+    /**
+     * Waliduje parametry, pobiera środki gracza i tworzy kupon „chybił-trafił” (bez rejestracji)
+     * obowiązujący od losowania bieżącej epoki sprzedaży.
+     * @return kupon lub null, jeśli gracz nie ma wystarczających środków
+     */
+    private Kupon utworzKuponChybilTraf(int liczbaZakladow, int liczbaLosowan, Gracz gracz, int epoka) {
         // 1. Walidacja
         if (liczbaZakladow < 1 || liczbaZakladow > 8 || liczbaLosowan < 1 || liczbaLosowan > 10) {
             throw new IllegalArgumentException("Nieprawidłowa liczba zakładów lub losowań");
         }
-        // 2. Sprawdź środki gracza
+        // 2. Pobierz środki gracza (atomowo: sprawdzenie i pobranie w jednym kroku)
         long cenaBrutto = liczbaZakladow * 300L * liczbaLosowan;
-        long podatek = cenaBrutto / 5;
-        if (gracz.getSrodki() < cenaBrutto) {
+        if (!gracz.pobierzSrodki(cenaBrutto)) {
             return null;
         }
         // 3. Wygeneruj zakłady
-        List<Zaklad> zaklady = new ArrayList<>();
-        for (int i = 0; i < liczbaZakladow; i++) {
-            zaklady.add(Zaklad.chybilTraf());
+        long[] maski = new long[liczbaZakladow];
+        zrodloLosowosci.losujMaski(maski);
+        List<Zaklad> zaklady = new ArrayList<>(liczbaZakladow);
+        for (long maska : maski) {
+            zaklady.add(new Zaklad(maska));
         }
         // 4. Utwórz kupon
-        String id = generujIdKuponu();
-        Kupon kupon = new Kupon(id, zaklady, liczbaLosowan, centrala, this);
+        long id = przydzielIdKuponu(gracz, cenaBrutto);
+        return new Kupon(id, zaklady, epoka, liczbaLosowan, this);
+    }
 
-        // 5. Zarejestruj kupon
-        sprzedaneKupony.put(kupon.getIdentyfikator(), kupon);
-        // 6. Pobierz środki od gracza
-        gracz.odejmijSrodki(cenaBrutto);
-        gracz.dodajKupon(kupon);
+    /**
+     * Sprzedaje partię kuponów zleconych przez {@link PotokSprzedazy} i kończy ich przyszłe wyniki.
+     * Cała partia przechodzi przez bramkę jeden raz, podatki tej samej kolektury i losowania
+     * księgowane są jedną operacją, a na utrwalenie w dzienniku czeka się raz – po zapisaniu
+     * rekordów wszystkich kuponów partii. Wyniki kończone są dopiero po tym utrwaleniu.
+     *
+     * Jeśli partia przerwie się wyjątkiem (np. błędem zapisu dziennika), kupony już zarejestrowane
+     * – z pobranymi środkami i opodatkowane – i tak trafiają do wyników swoich zleceń;
+     * wyjątek dotyczy tylko zleceń, których sprzedaż się nie odbyła.
+     */
+    void sprzedajPartie(List<ZlecenieSprzedazy> zlecenia) {
+        Kupon[] kupony = new Kupon[zlecenia.size()];
+        Dziennik dziennik = centrala.getDziennik();
+        long ostatniRekord = -1;
         BudzetPanstwa budzetPanstwa = centrala.getBudzetPanstwa();
-        budzetPanstwa.pobierzPodatek(podatek);
-        // 7. Zwróć kupon
-        return kupon;
+        BramkaSprzedazy bramka = centrala.getBramka();
+        EpokiSprzedazy epoki = centrala.getEpoki();
+        int pasek = bramka.wejdz();
+        // cała partia trafia do jednej epoki, więc podatek księgowany jest raz, na jej losowanie
+        int epoka = epoki.wejdz();
+        try {
+            long podatekPartii = 0;
+            try {
+                for (int i = 0; i < kupony.length; i++) {
+                    ZlecenieSprzedazy zlecenie = zlecenia.get(i);
+                    Kupon kupon;
+                    long podatek;
+                    try {
+                        kupon = zlecenie.blankiet != null
+                                ? utworzKupon(zlecenie.blankiet, zlecenie.gracz, epoka)
+                                : utworzKuponChybilTraf(zlecenie.liczbaZakladow, zlecenie.liczbaLosowan, zlecenie.gracz, epoka);
+                        if (kupon == null) {
+                            metryki.odmowaSprzedazy();
+                            zlecenie.wynik.complete(null);
+                            continue;
+                        }
+                        podatek = zarejestrujKupon(kupon, zlecenie.gracz);
+                    } catch (RuntimeException e) {
+                        zlecenie.wynik.completeExceptionally(e);
+                        continue;
+                    }
+                    podatekPartii += podatek;
+                    kupony[i] = kupon;
+                    if (dziennik != null) {
+                        ostatniRekord = ZapisyDziennika.sprzedaz(dziennik, kupon, podatek);
+                    }
+                }
+            } finally {
+                if (podatekPartii > 0) {
+                    budzetPanstwa.pobierzPodatekOdSprzedazy(podatekPartii, numerKoloktury, epoka);
+                }
+            }
+            if (ostatniRekord >= 0) {
+                dziennik.zatwierdz(ostatniRekord);
+            }
+        } finally {
+            epoki.wyjdz(epoka);
+            bramka.wyjdz(pasek);
+            zakonczSprzedane(zlecenia, kupony);
+        }
+    }
+
+    /**
+     * Kończy wyniki zleceń, dla których zarejestrowano kupon.
+     */
+    private void zakonczSprzedane(List<ZlecenieSprzedazy> zlecenia, Kupon[] kupony) {
+        long koniec = System.nanoTime();
+        for (int i = 0; i < kupony.length; i++) {
+            if (kupony[i] != null) {
+                ZlecenieSprzedazy zlecenie = zlecenia.get(i);
+                metryki.sprzedaz(koniec - zlecenie.przyjete, kupony[i].getIleZakladow());
+                zlecenie.wynik.complete(kupony[i]);
+            }
+        }
+    }
+
+    /**
+     * Zapisuje sprzedaż w dzienniku centrali (jeśli jest włączony) i czeka na jej zatwierdzenie.
+     */
+    private void zapiszSprzedaz(Kupon kupon, long podatek) {
+        Dziennik dziennik = centrala.getDziennik();
+        if (dziennik != null) {
+            dziennik.zatwierdz(ZapisyDziennika.sprzedaz(dziennik, kupon, podatek));
+        }
+    }
+
+    /**
+     * Odtwarza sprzedaż kuponu z rekordu dziennika: rejestruje kupon i księguje podatek.
+     */
+    void odtworzSprzedaz(RekordDziennika rekord) {
+        long id = rekord.getPole(0);
+        List<Zaklad> zaklady = new ArrayList<>(rekord.getBajt(1));
+        for (int i = 0; i < rekord.getBajt(1); i++) {
+            zaklady.add(Zaklad.zMaski(rekord.getPole(2 + i)));
+        }
+        Kupon kupon = new Kupon(id, zaklady, rekord.getNumer(), rekord.getBajt(2), this);
+        magazyn.zarejestruj(kupon);
+        centrala.zarejestrujKupon(kupon);
+        nastepnyNrKuponu.accumulateAndGet(IdKuponu.getNumer(id) + 1, Math::max);
+        centrala.getBudzetPanstwa().pobierzPodatekOdSprzedazy(rekord.getPole(1), numerKoloktury, rekord.getNumer());
+    }
+
+    /**
+     * Odtwarza realizację kuponu z rekordu dziennika. Kupon może być nieznany, jeśli został
+     * zrealizowany po wykonaniu migawki, ale przed jej zapisaniem – migawka pomija kupony zrealizowane.
+     */
+    void odtworzRealizacje(long id) {
+        Kupon kupon = magazyn.znajdz(id, this);
+        if (kupon != null) {
+            kupon.zrealizuj();
+            magazyn.zrealizuj(kupon);
+        }
+    }
+
+    /**
+     * @return numer, który otrzyma następny sprzedany kupon
+     */
+    int getNastepnyNrKuponu() {
+        return nastepnyNrKuponu.get();
+    }
+
+    /**
+     * Dopisuje do kolumn niezrealizowane kupony o numerach mniejszych niż {@code doNumeru}.
+     */
+    void eksportujKupony(int doNumeru, KolumnyKuponow kolumny) {
+        magazyn.eksportuj(doNumeru, kolumny);
+    }
+
+    /**
+     * Rejestruje kupony odczytane z migawki i ustawia licznik numerów kuponów.
+     * Kupony rejestrowane są w kolejności pierwszych losowań, której wymagają indeksy losowań.
+     * Podatki od sprzedaży nie są księgowane – są już w odczytanym stanie budżetu.
+     */
+    void importujKupony(int nastepnyNr, KolumnyKuponow kolumny) {
+        List<Kupon> kupony = kolumny.kupony(this);
+        kupony.sort(Comparator.comparingInt(Kupon::getPierwszeLosowanie));
+        for (Kupon kupon : kupony) {
+            magazyn.zarejestruj(kupon);
+            centrala.zarejestrujKupon(kupon);
+        }
+        nastepnyNrKuponu.accumulateAndGet(nastepnyNr, Math::max);
     }
 
     /**
@@ -152,6 +406,24 @@ public class Kolektura {
         return centrala;
     }
 
+    /**
+     * Ustawia źródło losowości używane przy sprzedaży „chybił-trafił”.
+     * Źródło musi być bezpieczne dla wielu wątków, jeśli kolektura ma kilka terminali.
+     * @param zrodlo źródło losowości
+     */
+    public void setZrodloLosowosci(ZrodloLosowosci zrodlo) {
+        this.zrodloLosowosci = zrodlo;
+    }
+
+    /**
+     * Zwraca liczniki i czasy sprzedaży oraz wypłat tej kolektury, udostępniane także przez JMX
+     * ({@link totolotek.metryki.RejestrMetryk}).
+     * @return metryki kolektury
+     */
+    public MetrykiKolektury getMetryki() {
+        return metryki;
+    }
+
     /**
      * Zwraca numer tej kolektury.
      * @return numer kolektury
@@ -166,28 +438,61 @@ public class Kolektura {
      * @return true jeśli kupon jest autentyczny i niezrealizowany, false w przeciwnym razie
      */
     public boolean zweryfikujKupon(Kupon kupon) {
-        if (!sprzedaneKupony.containsKey(kupon.getIdentyfikator())) {
-            return false;
-        }
-        if (sprzedaneKupony.get(kupon.getIdentyfikator()) != kupon) {
-            return false;
-        }
-        return !kupon.czyZrealizowany();
+        return magazyn.czyAutentyczny(kupon) && !kupon.czyZrealizowany();
+    }
+
+    /**
+     * Wyszukuje sprzedany tu kupon po identyfikatorze odczytanym z wydruku,
+     * np. przy odbiorze wygranej w okienku kolektury.
+     * @param identyfikator identyfikator w postaci „numer-kolektura-znacznik-suma”
+     * @return kupon lub null, jeśli identyfikator jest błędny albo kupon nie został tu sprzedany
+     */
+    public Kupon znajdzKupon(String identyfikator) {
+        long id = IdKuponu.zNapisu(identyfikator);
+        return id == IdKuponu.BRAK ? null : magazyn.znajdz(id, this);
+    }
+
+    /**
+     * Wyszukuje sprzedany tu kupon po identyfikatorze binarnym.
+     * @param id identyfikator kuponu ({@link IdKuponu})
+     * @return kupon (w magazynie kolumnowym – jego widok) lub null, jeśli kupon nie został tu sprzedany
+     */
+    public Kupon znajdzKupon(long id) {
+        return magazyn.znajdz(id, this);
     }
 
     /**
      * Zwraca listę kuponów ważnych na podane losowanie.
+     * Korzysta z indeksu kuponów według losowań, więc nie przegląda kuponów już rozliczonych.
+     * Magazyn obiektowy nie alokuje nowej listy; magazyn kolumnowy tworzy widoki kuponów.
+     * Obejmuje najbliższe {@value KubelkiLosowan#LICZBA_KUBELKOW} losowań.
      * @param numerLosowania numer losowania
-     * @return lista kuponów na to losowanie
+     * @return niezmienna lista kuponów na to losowanie
      */
     public List<Kupon> kuponyNaLosowanie(int numerLosowania) {
-        List<Kupon> wynik = new ArrayList<>();
-        for (Kupon kupon : sprzedaneKupony.values()) {
-            if (kupon.getNumeryLosowan().contains(numerLosowania)) {
-                wynik.add(kupon);
-            }
-        }
-        return wynik;
+        return magazyn.kuponyNaLosowanie(numerLosowania, this);
+    }
+
+    /**
+     * Zwraca liczbę pozycji magazynu, które trzeba przejrzeć, by rozliczyć losowanie.
+     * W magazynie obiektowym jest to liczba kuponów ważnych na losowanie.
+     * @param numerLosowania numer losowania
+     * @return rozmiar zakresu losowania
+     */
+    int rozmiarZakresuLosowania(int numerLosowania) {
+        return magazyn.rozmiarZakresu(numerLosowania);
+    }
+
+    /**
+     * Dolicza do histogramu trafienia zakładów z pozycji [od, doKuponu) zakresu losowania.
+     * @param numerLosowania numer losowania
+     * @param maskaWyniku maska wylosowanych liczb
+     * @param od pierwsza pozycja (włącznie)
+     * @param doKuponu ostatnia pozycja (wyłącznie)
+     * @param histogram histogram, do którego dopisywane są trafienia
+     */
+    void zliczTrafienia(int numerLosowania, long maskaWyniku, int od, int doKuponu, HistogramTrafien histogram) {
+        magazyn.zliczTrafienia(numerLosowania, maskaWyniku, od, doKuponu, histogram);
     }
 
     /**
@@ -200,30 +505,117 @@ public class Kolektura {
      * @return true jeśli wypłacono jakąkolwiek wygraną, false w przeciwnym razie
      */
     public boolean wyplacWygrane(Gracz gracz, Kupon kupon) {
-        boolean wynik = false;
-        if (zweryfikujKupon(kupon)) {
-            /** Oznaczamy kupon jako zrealizowany nawet jeżeli marnuje to jego przyszłe szanse na wygraną.*/
-            kupon.oznaczJakoZrealizowany();
-            for (Integer losowanieNR : kupon.getNumeryLosowan()) {
-                if (losowanieNR < centrala.getNajblizszeLosowanie() && losowanieNR > 0) {
+        return wyplacWygrane(gracz, List.of(kupon))[0] > 0;
+    }
+
+    /**
+     * Wypłaca hurtowo wygrane z wielu kuponów jednego gracza.
+     * @see #wyplacWygrane(List, List)
+     * @param gracz gracz odbierający wygrane
+     * @param kupony kupony, z których odbierane są wygrane
+     * @return kwoty netto wypłacone za kolejne kupony lub {@link #KUPON_ODRZUCONY}
+     */
+    public long[] wyplacWygrane(Gracz gracz, List<Kupon> kupony) {
+        return wyplacWygrane(Collections.nCopies(kupony.size(), gracz), kupony);
+    }
+
+    /**
+     * Wypłaca hurtowo wygrane z wielu kuponów, np. wszystkich kuponów zgłoszonych po losowaniu.
+     * Kupon {@code kupony.get(i)} należy do gracza {@code gracze.get(i)}.
+     *
+     * Kupony oceniane są w jednym przebiegu z użyciem tabel wygranych, a ruchy na wspólnym
+     * stanie są sumowane: jedno obciążenie centrali i jeden podatek od wygranych na każde
+     * losowanie oraz jedno uznanie środków na każdego gracza.
+     * Wszystkie rekordy partii (realizacje, wypłaty, subwencje i podatki) trafiają do dziennika
+     * bez zatwierdzania, a całość zatwierdzana jest raz na końcu, przed uznaniem środków graczy.
+     * Zasady są takie same jak przy wypłacie pojedynczego kuponu.
+     *
+     * @param gracze gracze odbierający wygrane
+     * @param kupony kupony, z których odbierane są wygrane
+     * @return kwoty netto wypłacone za kolejne kupony lub {@link #KUPON_ODRZUCONY},
+     *         jeśli kupon nie przeszedł weryfikacji
+     * @throws IllegalArgumentException jeśli listy mają różne długości
+     */
+    public long[] wyplacWygrane(List<? extends Gracz> gracze, List<Kupon> kupony) {
+        long poczatek = System.nanoTime();
+        BramkaSprzedazy bramka = centrala.getBramka();
+        int pasek = bramka.wejdz();
+        try {
+            if (gracze.size() != kupony.size()) {
+                throw new IllegalArgumentException("Liczba graczy i kuponów musi być równa");
+            }
+            long[] wynik = new long[kupony.size()];
+            // numer losowania -> {suma brutto, suma podatku}
+            Map<Integer, long[]> wgLosowan = new TreeMap<>();
+            Map<Gracz, long[]> wgGraczy = new IdentityHashMap<>();
+            // losowanie w trakcie rozliczania ma już wynik, ale jeszcze nie ma tabeli wygranych
+            int ostatnieRozliczone = centrala.getOstatnieRozliczoneLosowanie();
+            Dziennik dziennik = centrala.getDziennik();
+            long ostatniRekord = -1;
+            int odrzucone = 0;
+            long nettoRazem = 0;
+
+            for (int i = 0; i < kupony.size(); i++) {
+                Kupon kupon = kupony.get(i);
+                /* Oznaczamy kupon jako zrealizowany nawet jeżeli marnuje to jego przyszłe szanse na wygraną.*/
+                if (!zweryfikujKupon(kupon) || !kupon.zrealizuj() || !magazyn.zrealizuj(kupon)) {
+                    wynik[i] = KUPON_ODRZUCONY;
+                    odrzucone++;
+                    continue;
+                }
+                if (dziennik != null) {
+                    ostatniRekord = ZapisyDziennika.realizacja(dziennik, kupon.getId());
+                }
+                long netto = 0;
+                for (int losowanieNR = kupon.getPierwszeLosowanie(); losowanieNR <= kupon.getOstatnieLosowanieKuponu(); losowanieNR++) {
+                    if (losowanieNR > ostatnieRozliczone || losowanieNR <= 0) {
+                        break;
+                    }
+                    TabelaWygranych tabela = centrala.getTabelaWygranych(losowanieNR);
+                    if (tabela == null) {
+                        break;
+                    }
                     for (Zaklad zaklad : kupon.getZaklady()) {
-                        long wygrana = centrala.getWygrana(zaklad, losowanieNR);
+                        long wygrana = tabela.getWygrana(zaklad.getMaska());
                         if (wygrana != 0) {
-                            centrala.wyplacPieniadze(wygrana);
+                            long[] sumy = wgLosowan.computeIfAbsent(losowanieNR, k -> new long[2]);
+                            sumy[0] += wygrana;
                             if (wygrana >= 228000) { // 2280 zł w groszach
-                                centrala.getBudzetPanstwa().pobierzPodatek(wygrana / 10);
+                                sumy[1] += wygrana / 10;
                                 wygrana = wygrana * 9 / 10;
                             }
-                            gracz.dodajSrodki(wygrana);
-                            wynik = true;
+                            netto += wygrana;
                         }
                     }
-                } else {
-                    return wynik;
                 }
+                wynik[i] = netto;
+                nettoRazem += netto;
+                if (netto > 0) {
+                    wgGraczy.computeIfAbsent(gracze.get(i), k -> new long[1])[0] += netto;
+                }
+            }
+
+            BudzetPanstwa budzetPanstwa = centrala.getBudzetPanstwa();
+            for (Map.Entry<Integer, long[]> wpis : wgLosowan.entrySet()) {
+                int losowanieNR = wpis.getKey();
+                long[] sumy = wpis.getValue();
+                ostatniRekord = Math.max(ostatniRekord, centrala.zapiszWyplate(sumy[0], losowanieNR));
+                if (sumy[1] > 0) {
+                    budzetPanstwa.pobierzPodatekOdWygranej(sumy[1], numerKoloktury, losowanieNR);
+                    if (dziennik != null) {
+                        ostatniRekord = ZapisyDziennika.kwota(dziennik, ZapisyDziennika.PODATEK_WYGRANA,
+                                losowanieNR, numerKoloktury, sumy[1]);
+                    }
+                }
+            }
+            if (ostatniRekord >= 0) {
+                dziennik.zatwierdz(ostatniRekord);
             }
+            wgGraczy.forEach((gracz, netto) -> gracz.dodajSrodki(netto[0]));
+            metryki.wyplata(System.nanoTime() - poczatek, kupony.size() - odrzucone, odrzucone, nettoRazem);
             return wynik;
+        } finally {
+            bramka.wyjdz(pasek);
         }
-        return false;
     }
 }
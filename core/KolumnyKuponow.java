@@ -0,0 +1,101 @@
+package totolotek.core;
+
+import totolotek.kupon.IdKuponu;
+import totolotek.kupon.Kupon;
+import totolotek.kupon.Zaklad;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Kupony zapisane kolumnami typów prostych – postać, w której kolektura przekazuje kupony
+ * do migawki i z niej odtwarza. Kolumny rosną przy dopisywaniu; zajęte są pozycje
+ * [0, liczbaKuponow) oraz [0, liczbaZakladow) tablicy masek.
+ */
+final class KolumnyKuponow {
+    long[] identyfikatory;
+    int[] pierwszeLosowanie;
+    byte[] liczbaLosowan;
+    byte[] liczbaZakladowKuponu;
+    long[] maski;
+    int liczbaKuponow;
+    int liczbaZakladow;
+
+    KolumnyKuponow(int pojemnoscKuponow, int pojemnoscZakladow) {
+        identyfikatory = new long[pojemnoscKuponow];
+        pierwszeLosowanie = new int[pojemnoscKuponow];
+        liczbaLosowan = new byte[pojemnoscKuponow];
+        liczbaZakladowKuponu = new byte[pojemnoscKuponow];
+        maski = new long[pojemnoscZakladow];
+    }
+
+    void dodaj(long id, int pierwsze, int losowan, long[] zrodloMasek, int od, int ile) {
+        if (liczbaKuponow == identyfikatory.length) {
+            int nowa = Math.max(16, identyfikatory.length * 2);
+            identyfikatory = Arrays.copyOf(identyfikatory, nowa);
+            pierwszeLosowanie = Arrays.copyOf(pierwszeLosowanie, nowa);
+            liczbaLosowan = Arrays.copyOf(liczbaLosowan, nowa);
+            liczbaZakladowKuponu = Arrays.copyOf(liczbaZakladowKuponu, nowa);
+        }
+        if (liczbaZakladow + ile > maski.length) {
+            maski = Arrays.copyOf(maski, Math.max(liczbaZakladow + ile, maski.length * 2));
+        }
+        identyfikatory[liczbaKuponow] = id;
+        pierwszeLosowanie[liczbaKuponow] = pierwsze;
+        liczbaLosowan[liczbaKuponow] = (byte) losowan;
+        liczbaZakladowKuponu[liczbaKuponow] = (byte) ile;
+        System.arraycopy(zrodloMasek, od, maski, liczbaZakladow, ile);
+        liczbaKuponow++;
+        liczbaZakladow += ile;
+    }
+
+    void dodaj(Kupon kupon) {
+        List<Zaklad> zaklady = kupon.getZaklady();
+        long[] m = new long[zaklady.size()];
+        for (int i = 0; i < m.length; i++) {
+            m[i] = zaklady.get(i).getMaska();
+        }
+        dodaj(kupon.getId(), kupon.getPierwszeLosowanie(), kupon.getLiczbaLosowan(), m, 0, m.length);
+    }
+
+    /**
+     * Odtwarza obiekty kuponów z kolumn.
+     */
+    List<Kupon> kupony(Kolektura kolektura) {
+        List<Kupon> wynik = new ArrayList<>(liczbaKuponow);
+        int zaklad = 0;
+        for (int i = 0; i < liczbaKuponow; i++) {
+            List<Zaklad> zaklady = new ArrayList<>(liczbaZakladowKuponu[i]);
+            for (int j = 0; j < liczbaZakladowKuponu[i]; j++) {
+                zaklady.add(Zaklad.zMaski(maski[zaklad++]));
+            }
+            wynik.add(new Kupon(identyfikatory[i], zaklady, pierwszeLosowanie[i], liczbaLosowan[i], kolektura));
+        }
+        return wynik;
+    }
+
+    /**
+     * Porządkuje kupony rosnąco według numeru w kolekturze (kolejności sprzedaży).
+     */
+    void sortujWgNumerow() {
+        Integer[] kolejnosc = new Integer[liczbaKuponow];
+        int[] poczatki = new int[liczbaKuponow];
+        for (int i = 0, z = 0; i < liczbaKuponow; z += liczbaZakladowKuponu[i], i++) {
+            kolejnosc[i] = i;
+            poczatki[i] = z;
+        }
+        Arrays.sort(kolejnosc, (a, b) -> Integer.compare(
+                IdKuponu.getNumer(identyfikatory[a]), IdKuponu.getNumer(identyfikatory[b])));
+        KolumnyKuponow posortowane = new KolumnyKuponow(liczbaKuponow, liczbaZakladow);
+        for (int i : kolejnosc) {
+            posortowane.dodaj(identyfikatory[i], pierwszeLosowanie[i], liczbaLosowan[i],
+                    maski, poczatki[i], liczbaZakladowKuponu[i]);
+        }
+        identyfikatory = posortowane.identyfikatory;
+        pierwszeLosowanie = posortowane.pierwszeLosowanie;
+        liczbaLosowan = posortowane.liczbaLosowan;
+        liczbaZakladowKuponu = posortowane.liczbaZakladowKuponu;
+        maski = posortowane.maski;
+    }
+}
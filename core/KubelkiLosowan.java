@@ -0,0 +1,87 @@
+package totolotek.core;
+
+import totolotek.kupon.Kupon;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Indeks kuponów kolektury według numerów losowań.
+ * Pierścień kubełków obejmuje najbliższe {@link #LICZBA_KUBELKOW} losowań – kupon trafia
+ * do kubełka każdego losowania, na które obowiązuje, już w chwili sprzedaży.
+ *
+ * Kubełek jest zastępowany nowym, gdy pierwszy kupon na losowanie o {@link #LICZBA_KUBELKOW}
+ * późniejsze zostanie sprzedany – wtedy losowanie zapisane w kubełku jest już rozliczone.
+ * Pierścień jest dłuższy niż {@link #MAKS_LOSOWAN}, bo sprzedaż na następne losowanie trwa
+ * już w czasie rozliczania bieżącego, a nie może zastąpić jego kubełka.
+ *
+ * Dodawanie kuponów jest bezpieczne dla wielu wątków i nie używa blokad.
+ */
+class KubelkiLosowan {
+    /** Maksymalna liczba losowań, na które może obowiązywać kupon */
+    static final int MAKS_LOSOWAN = 10;
+    /** Liczba kubełków w pierścieniu (z zapasem na losowanie rozliczane w trakcie sprzedaży) */
+    static final int LICZBA_KUBELKOW = 16;
+
+    /** Kubełek: numer losowania i kupony na nie ważne */
+    private static final class Kubelek {
+        final int numerLosowania;
+        final ListaDopisywana<Kupon> kupony = new ListaDopisywana<>();
+        /** Niezmienny widok, tworzony raz, by odczyt nic nie alokował */
+        final List<Kupon> widok = Collections.unmodifiableList(kupony);
+
+        Kubelek(int numerLosowania) {
+            this.numerLosowania = numerLosowania;
+        }
+    }
+
+    private final AtomicReferenceArray<Kubelek> kubelki = new AtomicReferenceArray<>(LICZBA_KUBELKOW);
+
+    /**
+     * Dodaje kupon do kubełków wszystkich losowań, na które obowiązuje.
+     * @param kupon sprzedany kupon
+     */
+    void dodaj(Kupon kupon) {
+        for (int numerLosowania = kupon.getPierwszeLosowanie(); numerLosowania <= kupon.getOstatnieLosowanieKuponu(); numerLosowania++) {
+            kubelek(numerLosowania).kupony.dopisz(kupon);
+        }
+    }
+
+    /**
+     * Zwraca kupony ważne na podane losowanie. Koszt zależy wyłącznie od liczby tych kuponów.
+     * @param numerLosowania numer losowania
+     * @return niezmienny widok kubełka lub pusta lista, jeśli losowanie jest poza pierścieniem
+     */
+    List<Kupon> kupony(int numerLosowania) {
+        Kubelek kubelek = kubelki.get(indeks(numerLosowania));
+        if (kubelek == null || kubelek.numerLosowania != numerLosowania) {
+            return Collections.emptyList();
+        }
+        return kubelek.widok;
+    }
+
+    /**
+     * Zwraca kubełek danego losowania, w razie potrzeby zastępując kubełek
+     * losowania o {@link #LICZBA_KUBELKOW} wcześniejszego.
+     */
+    private Kubelek kubelek(int numerLosowania) {
+        int i = indeks(numerLosowania);
+        Kubelek kubelek = kubelki.get(i);
+        while (kubelek == null || kubelek.numerLosowania != numerLosowania) {
+            if (kubelek != null && kubelek.numerLosowania > numerLosowania) {
+                throw new IllegalStateException("Losowanie " + numerLosowania + " jest już poza indeksem");
+            }
+            Kubelek nowy = new Kubelek(numerLosowania);
+            if (kubelki.compareAndSet(i, kubelek, nowy)) {
+                return nowy;
+            }
+            kubelek = kubelki.get(i);
+        }
+        return kubelek;
+    }
+
+    private static int indeks(int numerLosowania) {
+        return Math.floorMod(numerLosowania, LICZBA_KUBELKOW);
+    }
+}
@@ -0,0 +1,254 @@
+package totolotek.core;
+
+import totolotek.kupon.Kupon;
+import totolotek.kupon.Zaklad;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Silnik rozliczeń zliczający zakłady według zestawów liczb. Przy sprzedaży kuponu
+ * każdy jego zakład zwiększa licznik swojej maski w tablicy każdego losowania kuponu.
+ * Przy losowaniu odczytywane są tylko liczniki zestawów z 3–6 trafieniami:
+ * <pre>
+ *   6 trafień: 1, 5 trafień: 6 x 43, 4 trafienia: 15 x 903, 3 trafienia: 20 x 12 341
+ * </pre>
+ * razem 260 624 odczyty, niezależnie od liczby sprzedanych zakładów. Jeśli różnych zestawów
+ * zagrano mniej, przeglądana jest po prostu cała tablica losowania.
+ * Liczba zakładów bez wygranej (0–2 trafienia) wynika z łącznej liczby zakładów
+ * i zapisywana jest w histogramie przy zerze trafień.
+ */
+class LicznikiKombinacji implements SilnikRozliczen {
+    /** Liczba zestawów z co najmniej 3 trafieniami */
+    static final int ROZMIAR_OTOCZENIA = 260_624;
+
+    private final Centrala centrala;
+    /** numer losowania -> liczniki zestawów zagranych w tym losowaniu */
+    private final ConcurrentHashMap<Integer, TablicaLicznikow> wgLosowan = new ConcurrentHashMap<>();
+
+    LicznikiKombinacji(Centrala centrala) {
+        this.centrala = centrala;
+    }
+
+    @Override
+    public void zarejestruj(Kupon kupon) {
+        int pierwszeOtwarte = centrala.getHistoriaLosowan().getLiczbaLosowan() + 1;
+        for (int nr = kupon.getPierwszeLosowanie(); nr <= kupon.getOstatnieLosowanieKuponu(); nr++) {
+            if (nr < pierwszeOtwarte) {
+                continue; // losowanie ma już wynik (kupon odtwarzany)
+            }
+            TablicaLicznikow tablica = wgLosowan.computeIfAbsent(nr, n -> new TablicaLicznikow());
+            for (Zaklad zaklad : kupon.getZaklady()) {
+                tablica.dodaj(zaklad.getMaska());
+            }
+            tablica.liczbaZakladow.add(kupon.getIleZakladow());
+        }
+    }
+
+    /**
+     * Odczytuje liczniki zestawów wygrywających i zwalnia tablice wcześniejszych losowań.
+     * Tablica tego losowania zostaje do następnego – przerwane losowanie
+     * ({@link Centrala#przerwijLosowanie(int)}) zlicza się ponownie.
+     */
+    @Override
+    public HistogramTrafien zliczTrafienia(int numerLosowania, long maskaWyniku) {
+        wgLosowan.keySet().removeIf(nr -> nr < numerLosowania);
+        TablicaLicznikow tablica = wgLosowan.get(numerLosowania);
+        HistogramTrafien histogram = new HistogramTrafien();
+        if (tablica == null) {
+            return histogram;
+        }
+        long[] wygrane = tablica.rozmiar() < ROZMIAR_OTOCZENIA
+                ? tablica.zliczPrzegladajac(maskaWyniku)
+                : tablica.zliczOtoczenie(maskaWyniku);
+        long zWygrana = 0;
+        for (int trafienia = HistogramTrafien.MIN_WYGRANA; trafienia <= Zaklad.LICZBA_TYPÓW; trafienia++) {
+            histogram.dodaj(trafienia, wygrane[trafienia]);
+            zWygrana += wygrane[trafienia];
+        }
+        histogram.dodaj(0, tablica.liczbaZakladow.sum() - zWygrana);
+        return histogram;
+    }
+
+    /**
+     * Liczniki zestawów jednego losowania: tablica mieszająca z adresowaniem otwartym,
+     * podzielona na segmenty z osobnymi blokadami, by sprzedaż w wielu terminalach
+     * rzadko trafiała na ten sam segment. Maska 0 oznacza wolne miejsce (żaden zakład jej nie ma).
+     */
+    static final class TablicaLicznikow {
+        private static final int BITY_SEGMENTOW = 6;
+        private static final int LICZBA_SEGMENTOW = 1 << BITY_SEGMENTOW;
+
+        private final Segment[] segmenty = new Segment[LICZBA_SEGMENTOW];
+        /** Łączna liczba zakładów (wszystkich, także bez wygranej) */
+        final LongAdder liczbaZakladow = new LongAdder();
+
+        TablicaLicznikow() {
+            for (int i = 0; i < LICZBA_SEGMENTOW; i++) {
+                segmenty[i] = new Segment();
+            }
+        }
+
+        private static long mieszaj(long maska) {
+            long h = maska * 0x9E3779B97F4A7C15L;
+            return h ^ (h >>> 29);
+        }
+
+        void dodaj(long maska) {
+            long h = mieszaj(maska);
+            segmenty[(int) (h >>> (Long.SIZE - BITY_SEGMENTOW))].dodaj(maska, (int) h);
+        }
+
+        long liczba(long maska) {
+            long h = mieszaj(maska);
+            return segmenty[(int) (h >>> (Long.SIZE - BITY_SEGMENTOW))].liczba(maska, (int) h);
+        }
+
+        /** @return liczba różnych zestawów w tablicy */
+        int rozmiar() {
+            int rozmiar = 0;
+            for (Segment segment : segmenty) {
+                rozmiar += segment.rozmiar();
+            }
+            return rozmiar;
+        }
+
+        /**
+         * Przegląda wszystkie zagrane zestawy.
+         * @return liczba zakładów według liczby trafień (indeksy 3..6 są wypełnione)
+         */
+        long[] zliczPrzegladajac(long maskaWyniku) {
+            long[] wynik = new long[Zaklad.LICZBA_TYPÓW + 1];
+            for (Segment segment : segmenty) {
+                segment.zlicz(maskaWyniku, wynik);
+            }
+            return wynik;
+        }
+
+        /**
+         * Odczytuje liczniki wszystkich zestawów z co najmniej 3 trafieniami: każdy taki zestaw
+         * to k liczb z wyniku i 6 - k liczb spoza niego.
+         * @return liczba zakładów według liczby trafień (indeksy 3..6 są wypełnione)
+         */
+        long[] zliczOtoczenie(long maskaWyniku) {
+            long[] wynik = new long[Zaklad.LICZBA_TYPÓW + 1];
+            long[] spoza = maskiSpoza(maskaWyniku);
+            // początki grup zestawów spoza wyniku o 0, 1, 2 i 3 liczbach
+            int[] od = {0, 1, 1 + 43, 1 + 43 + 903, spoza.length};
+            // wszystkie podzbiory liczb wyniku (przechodzone od pełnego do pustego)
+            for (long z = maskaWyniku; ; z = (z - 1) & maskaWyniku) {
+                int k = Long.bitCount(z);
+                if (k >= HistogramTrafien.MIN_WYGRANA) {
+                    int reszta = Zaklad.LICZBA_TYPÓW - k;
+                    long suma = 0;
+                    for (int i = od[reszta]; i < od[reszta + 1]; i++) {
+                        suma += liczba(z | spoza[i]);
+                    }
+                    wynik[k] += suma;
+                }
+                if (z == 0) {
+                    break;
+                }
+            }
+            return wynik;
+        }
+
+        /**
+         * @return maski wszystkich zestawów 0–3 liczb spoza wyniku, uporządkowane według liczebności
+         */
+        private static long[] maskiSpoza(long maskaWyniku) {
+            int[] bity = new int[Zaklad.MAX_LICZBA - Zaklad.LICZBA_TYPÓW];
+            int n = 0;
+            for (long m = Zaklad.MASKA_ZAKRESU & ~maskaWyniku; m != 0; m &= m - 1) {
+                bity[n++] = Long.numberOfTrailingZeros(m);
+            }
+            long[] maski = new long[1 + 43 + 903 + 12_341];
+            int p = 0;
+            maski[p++] = 0L;
+            for (int a = 0; a < n; a++) {
+                maski[p++] = 1L << bity[a];
+            }
+            for (int a = 0; a < n; a++) {
+                for (int b = a + 1; b < n; b++) {
+                    maski[p++] = 1L << bity[a] | 1L << bity[b];
+                }
+            }
+            for (int a = 0; a < n; a++) {
+                for (int b = a + 1; b < n; b++) {
+                    for (int c = b + 1; c < n; c++) {
+                        maski[p++] = 1L << bity[a] | 1L << bity[b] | 1L << bity[c];
+                    }
+                }
+            }
+            return maski;
+        }
+    }
+
+    /**
+     * Segment tablicy liczników; powiększany dwukrotnie, gdy zapełni się w 3/4.
+     */
+    private static final class Segment {
+        private long[] maski = new long[64];
+        private long[] liczniki = new long[64];
+        private int rozmiar;
+
+        synchronized void dodaj(long maska, int h) {
+            int m = maski.length - 1;
+            int i = h & m;
+            while (maski[i] != 0 && maski[i] != maska) {
+                i = (i + 1) & m;
+            }
+            if (maski[i] == 0) {
+                maski[i] = maska;
+                rozmiar++;
+            }
+            liczniki[i]++;
+            if (rozmiar * 4 > maski.length * 3) {
+                powieksz();
+            }
+        }
+
+        synchronized long liczba(long maska, int h) {
+            int m = maski.length - 1;
+            for (int i = h & m; maski[i] != 0; i = (i + 1) & m) {
+                if (maski[i] == maska) {
+                    return liczniki[i];
+                }
+            }
+            return 0;
+        }
+
+        synchronized int rozmiar() {
+            return rozmiar;
+        }
+
+        synchronized void zlicz(long maskaWyniku, long[] wynik) {
+            for (int i = 0; i < maski.length; i++) {
+                if (maski[i] != 0) {
+                    int trafienia = Long.bitCount(maski[i] & maskaWyniku);
+                    if (trafienia >= HistogramTrafien.MIN_WYGRANA) {
+                        wynik[trafienia] += liczniki[i];
+                    }
+                }
+            }
+        }
+
+        private void powieksz() {
+            long[] stareMaski = maski;
+            long[] stareLiczniki = liczniki;
+            maski = new long[stareMaski.length * 2];
+            liczniki = new long[stareMaski.length * 2];
+            int m = maski.length - 1;
+            for (int j = 0; j < stareMaski.length; j++) {
+                if (stareMaski[j] != 0) {
+                    int i = (int) TablicaLicznikow.mieszaj(stareMaski[j]) & m;
+                    while (maski[i] != 0) {
+                        i = (i + 1) & m;
+                    }
+                    maski[i] = stareMaski[j];
+                    liczniki[i] = stareLiczniki[j];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package totolotek.core;
+
+import java.util.AbstractList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lista, do której wiele wątków może równocześnie dopisywać elementy bez blokad.
+ * Miejsce na element rezerwowane jest atomowym licznikiem, a elementy przechowywane są
+ * w segmentach o rosnących rozmiarach, więc dopisanie nigdy nie kopiuje istniejących danych.
+ *
+ * Z zewnątrz lista jest tylko do odczytu. Odczyt zarezerwowanej, lecz jeszcze nie zapisanej
+ * pozycji czeka, aż wątek dopisujący ją zapisze.
+ *
+ * @param <T> typ elementów (bez wartości null)
+ */
+class ListaDopisywana<T> extends AbstractList<T> {
+    /** Rozmiar pierwszego segmentu to 2^BITY_BAZY, każdy kolejny jest dwa razy większy */
+    private static final int BITY_BAZY = 4;
+    private static final int LICZBA_SEGMENTOW = Integer.SIZE - BITY_BAZY;
+
+    private final AtomicReferenceArray<AtomicReferenceArray<Object>> segmenty =
+            new AtomicReferenceArray<>(LICZBA_SEGMENTOW);
+    private final AtomicInteger rozmiar = new AtomicInteger();
+
+    /**
+     * Dopisuje element na koniec listy.
+     * @param element element do dopisania
+     * @throws NullPointerException jeśli element jest null
+     */
+    void dopisz(T element) {
+        if (element == null) {
+            throw new NullPointerException();
+        }
+        int indeks = rozmiar.getAndIncrement();
+        if (indeks < 0 || indeks > Integer.MAX_VALUE - (1 << BITY_BAZY)) {
+            throw new IllegalStateException("Przekroczono pojemność listy");
+        }
+        int pozycja = indeks + (1 << BITY_BAZY);
+        int nrSegmentu = numerSegmentu(pozycja);
+        AtomicReferenceArray<Object> segment = segmenty.get(nrSegmentu);
+        if (segment == null) {
+            segmenty.compareAndSet(nrSegmentu, null, new AtomicReferenceArray<>(1 << (nrSegmentu + BITY_BAZY)));
+            segment = segmenty.get(nrSegmentu);
+        }
+        segment.set(pozycja - Integer.highestOneBit(pozycja), element);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int indeks) {
+        if (indeks < 0 || indeks >= rozmiar.get()) {
+            throw new IndexOutOfBoundsException(indeks);
+        }
+        int pozycja = indeks + (1 << BITY_BAZY);
+        int nrSegmentu = numerSegmentu(pozycja);
+        int przesuniecie = pozycja - Integer.highestOneBit(pozycja);
+        AtomicReferenceArray<Object> segment;
+        while ((segment = segmenty.get(nrSegmentu)) == null) {
+            Thread.onSpinWait();
+        }
+        Object element;
+        while ((element = segment.get(przesuniecie)) == null) {
+            Thread.onSpinWait();
+        }
+        return (T) element;
+    }
+
+    @Override
+    public int size() {
+        return rozmiar.get();
+    }
+
+    private static int numerSegmentu(int pozycja) {
+        return Integer.SIZE - 1 - Integer.numberOfLeadingZeros(pozycja) - BITY_BAZY;
+    }
+}
@@ -0,0 +1,70 @@
+package totolotek.core;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Odpowiednik {@link ListaDopisywana} dla nieujemnych liczb całkowitych, bez opakowywania w obiekty.
+ * Wartości przechowywane są jako {@code wartość + 1}, aby zero oznaczało pozycję
+ * zarezerwowaną, lecz jeszcze niezapisaną.
+ */
+class ListaDopisywanaInt {
+    private static final int BITY_BAZY = 4;
+    private static final int LICZBA_SEGMENTOW = Integer.SIZE - BITY_BAZY;
+
+    private final AtomicReferenceArray<AtomicIntegerArray> segmenty = new AtomicReferenceArray<>(LICZBA_SEGMENTOW);
+    private final AtomicInteger rozmiar = new AtomicInteger();
+
+    /**
+     * Dopisuje wartość na koniec listy.
+     * @param wartosc wartość z zakresu 0..Integer.MAX_VALUE-1
+     */
+    void dopisz(int wartosc) {
+        if (wartosc < 0 || wartosc == Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Wartość spoza zakresu: " + wartosc);
+        }
+        int indeks = rozmiar.getAndIncrement();
+        if (indeks < 0 || indeks > Integer.MAX_VALUE - (1 << BITY_BAZY)) {
+            throw new IllegalStateException("Przekroczono pojemność listy");
+        }
+        int pozycja = indeks + (1 << BITY_BAZY);
+        int nrSegmentu = numerSegmentu(pozycja);
+        AtomicIntegerArray segment = segmenty.get(nrSegmentu);
+        if (segment == null) {
+            segmenty.compareAndSet(nrSegmentu, null, new AtomicIntegerArray(1 << (nrSegmentu + BITY_BAZY)));
+            segment = segmenty.get(nrSegmentu);
+        }
+        segment.set(pozycja - Integer.highestOneBit(pozycja), wartosc + 1);
+    }
+
+    /**
+     * @param indeks indeks z zakresu 0..rozmiar()-1
+     * @return wartość zapisana pod indeksem
+     */
+    int get(int indeks) {
+        if (indeks < 0 || indeks >= rozmiar.get()) {
+            throw new IndexOutOfBoundsException(indeks);
+        }
+        int pozycja = indeks + (1 << BITY_BAZY);
+        int nrSegmentu = numerSegmentu(pozycja);
+        int przesuniecie = pozycja - Integer.highestOneBit(pozycja);
+        AtomicIntegerArray segment;
+        while ((segment = segmenty.get(nrSegmentu)) == null) {
+            Thread.onSpinWait();
+        }
+        int wartosc;
+        while ((wartosc = segment.get(przesuniecie)) == 0) {
+            Thread.onSpinWait();
+        }
+        return wartosc - 1;
+    }
+
+    int rozmiar() {
+        return rozmiar.get();
+    }
+
+    private static int numerSegmentu(int pozycja) {
+        return Integer.SIZE - 1 - Integer.numberOfLeadingZeros(pozycja) - BITY_BAZY;
+    }
+}
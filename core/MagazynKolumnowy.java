@@ -0,0 +1,336 @@
+package totolotek.core;
+
+import totolotek.kupon.IdKuponu;
+import totolotek.kupon.Kupon;
+import totolotek.kupon.Zaklad;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Kolumnowy magazyn kuponów dla dziesiątek milionów zakładów.
+ * Każde pole kuponu przechowywane jest w osobnej kolumnie typu prostego:
+ * <ul>
+ *   <li>maski zakładów – {@code long[]},</li>
+ *   <li>pierwsze losowanie i liczba losowań kuponu – {@code int[]} i {@code byte[]},</li>
+ *   <li>identyfikator kuponu – {@code long} ({@link IdKuponu}),</li>
+ *   <li>położenie i liczba zakładów kuponu – {@code int[]} i {@code byte[]},</li>
+ *   <li>stan realizacji – jeden bit na kupon.</li>
+ * </ul>
+ * Kupon o numerze {@code n} w kolekturze zajmuje pozycję {@code n - 1}, więc wyszukanie go
+ * po identyfikatorze nie wymaga żadnej mapy. Obiekty {@link Kupon} i {@link Zaklad}
+ * tworzone są wyłącznie na żądanie jako widoki. Kupon zajmuje około 22 bajtów
+ * (wraz z wpisem w indeksie losowań) i po 8 bajtów na każdy zakład.
+ *
+ * Kolumny podzielone są na kawałki alokowane przy pierwszym użyciu, więc rejestracja
+ * nigdy nie kopiuje istniejących danych. Katalogi kawałków również rosną na żądanie:
+ * nowy kawałek publikowany jest w kopii katalogu, więc pusty magazyn nie zajmuje miejsca
+ * na katalog pełnej pojemności identyfikatorów. Zapis identyfikatora z semantyką release
+ * publikuje pozostałe kolumny kuponu czytelnikom.
+ */
+class MagazynKolumnowy implements MagazynKuponow {
+    private static final int BITY_KAWALKA = 14;
+    private static final int ROZMIAR_KAWALKA = 1 << BITY_KAWALKA;
+    private static final int BITY_KAWALKA_ZAKLADOW = 16;
+    private static final int ROZMIAR_KAWALKA_ZAKLADOW = 1 << BITY_KAWALKA_ZAKLADOW;
+
+    private static final VarHandle ELEMENT_LONG = MethodHandles.arrayElementVarHandle(long[].class);
+
+    /** Kolumny jednego kawałka kuponów */
+    private static final class KawalekKuponow {
+        final long[] identyfikatory = new long[ROZMIAR_KAWALKA];
+        final int[] pierwszeLosowanie = new int[ROZMIAR_KAWALKA];
+        final byte[] liczbaLosowan = new byte[ROZMIAR_KAWALKA];
+        final int[] poczatekZakladow = new int[ROZMIAR_KAWALKA];
+        final byte[] liczbaZakladow = new byte[ROZMIAR_KAWALKA];
+        final long[] zrealizowane = new long[ROZMIAR_KAWALKA / Long.SIZE];
+    }
+
+    /** Indeksy kuponów o tym samym pierwszym losowaniu */
+    private static final class ListaStartowa {
+        final int pierwszeLosowanie;
+        final ListaDopisywanaInt indeksy = new ListaDopisywanaInt();
+
+        ListaStartowa(int pierwszeLosowanie) {
+            this.pierwszeLosowanie = pierwszeLosowanie;
+        }
+    }
+
+    private final int numerKolektury;
+    /** Katalog kawałków kuponów, zastępowany kopią przy dodaniu kawałka (pod blokadą magazynu) */
+    private volatile KawalekKuponow[] kawalkiKuponow = new KawalekKuponow[0];
+    /** Katalog kawałków masek zakładów, zastępowany tak jak katalog kuponów */
+    private volatile long[][] kawalkiZakladow = new long[0][];
+    private final AtomicInteger nastepnyZaklad = new AtomicInteger();
+    /** Pierścień list startowych obejmujący losowania, na które mogą obowiązywać żywe kupony */
+    private final AtomicReferenceArray<ListaStartowa> listyStartowe =
+            new AtomicReferenceArray<>(KubelkiLosowan.LICZBA_KUBELKOW);
+
+    MagazynKolumnowy(int numerKolektury) {
+        this.numerKolektury = numerKolektury;
+    }
+
+    @Override
+    public void zarejestruj(Kupon kupon) {
+        long id = kupon.getId();
+        if (!IdKuponu.czyPoprawny(id) || IdKuponu.getKolektura(id) != numerKolektury) {
+            throw new IllegalArgumentException("Nieprawidłowy identyfikator kuponu: " + kupon.getIdentyfikator());
+        }
+        int indeks = IdKuponu.getNumer(id) - 1;
+        List<Zaklad> zaklady = kupon.getZaklady();
+        int poczatek = nastepnyZaklad.getAndAdd(zaklady.size());
+        if (poczatek < 0 || poczatek > Integer.MAX_VALUE - zaklady.size()) {
+            throw new IllegalStateException("Przekroczono pojemność magazynu zakładów");
+        }
+        for (int j = 0; j < zaklady.size(); j++) {
+            int pozycja = poczatek + j;
+            kawalekZakladow(pozycja >>> BITY_KAWALKA_ZAKLADOW)[pozycja & (ROZMIAR_KAWALKA_ZAKLADOW - 1)] =
+                    zaklady.get(j).getMaska();
+        }
+        KawalekKuponow kawalek = kawalekKuponow(indeks >>> BITY_KAWALKA);
+        int p = indeks & (ROZMIAR_KAWALKA - 1);
+        kawalek.pierwszeLosowanie[p] = kupon.getPierwszeLosowanie();
+        kawalek.liczbaLosowan[p] = (byte) kupon.getLiczbaLosowan();
+        kawalek.poczatekZakladow[p] = poczatek;
+        kawalek.liczbaZakladow[p] = (byte) zaklady.size();
+        ELEMENT_LONG.setRelease(kawalek.identyfikatory, p, id);
+        listaStartowa(kupon.getPierwszeLosowanie()).indeksy.dopisz(indeks);
+    }
+
+    @Override
+    public boolean czyAutentyczny(Kupon kupon) {
+        long id = kupon.getId();
+        if (!IdKuponu.czyPoprawny(id) || IdKuponu.getKolektura(id) != numerKolektury) {
+            return false;
+        }
+        int indeks = IdKuponu.getNumer(id) - 1;
+        KawalekKuponow kawalek = kawalekDoOdczytu(indeks >>> BITY_KAWALKA);
+        if (kawalek == null) {
+            return false;
+        }
+        int p = indeks & (ROZMIAR_KAWALKA - 1);
+        if ((long) ELEMENT_LONG.getAcquire(kawalek.identyfikatory, p) != id) {
+            return false;
+        }
+        if (czyZrealizowany(kawalek, p)
+                || kawalek.pierwszeLosowanie[p] != kupon.getPierwszeLosowanie()
+                || kawalek.liczbaLosowan[p] != kupon.getLiczbaLosowan()
+                || kawalek.liczbaZakladow[p] != kupon.getIleZakladow()) {
+            return false;
+        }
+        List<Zaklad> zaklady = kupon.getZaklady();
+        for (int j = 0; j < zaklady.size(); j++) {
+            if (maskaZakladu(kawalek.poczatekZakladow[p] + j) != zaklady.get(j).getMaska()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean zrealizuj(Kupon kupon) {
+        int indeks = IdKuponu.getNumer(kupon.getId()) - 1;
+        KawalekKuponow kawalek = kawalekDoOdczytu(indeks >>> BITY_KAWALKA);
+        int p = indeks & (ROZMIAR_KAWALKA - 1);
+        long bit = 1L << p;
+        long slowo;
+        do {
+            slowo = (long) ELEMENT_LONG.getVolatile(kawalek.zrealizowane, p >>> 6);
+            if ((slowo & bit) != 0) {
+                return false;
+            }
+        } while (!ELEMENT_LONG.compareAndSet(kawalek.zrealizowane, p >>> 6, slowo, slowo | bit));
+        return true;
+    }
+
+    @Override
+    public Kupon znajdz(long id, Kolektura kolektura) {
+        if (!IdKuponu.czyPoprawny(id) || IdKuponu.getKolektura(id) != numerKolektury) {
+            return null;
+        }
+        int indeks = IdKuponu.getNumer(id) - 1;
+        KawalekKuponow kawalek = kawalekDoOdczytu(indeks >>> BITY_KAWALKA);
+        if (kawalek == null
+                || (long) ELEMENT_LONG.getAcquire(kawalek.identyfikatory, indeks & (ROZMIAR_KAWALKA - 1)) != id) {
+            return null;
+        }
+        return widok(indeks, kolektura);
+    }
+
+    /**
+     * Przegląda kolumny kawałek po kawałku, kopiując maski zakładów bez tworzenia obiektów kuponów.
+     */
+    @Override
+    public void eksportuj(int doNumeru, KolumnyKuponow kolumny) {
+        long[] maski = new long[Byte.MAX_VALUE];
+        for (int indeks = 0; indeks < doNumeru - 1; indeks++) {
+            KawalekKuponow kawalek = kawalekDoOdczytu(indeks >>> BITY_KAWALKA);
+            if (kawalek == null) {
+                indeks |= ROZMIAR_KAWALKA - 1;
+                continue;
+            }
+            int p = indeks & (ROZMIAR_KAWALKA - 1);
+            long id = (long) ELEMENT_LONG.getAcquire(kawalek.identyfikatory, p);
+            if (id == IdKuponu.BRAK || czyZrealizowany(kawalek, p)) {
+                continue;
+            }
+            int liczba = kawalek.liczbaZakladow[p];
+            for (int j = 0; j < liczba; j++) {
+                maski[j] = maskaZakladu(kawalek.poczatekZakladow[p] + j);
+            }
+            kolumny.dodaj(id, kawalek.pierwszeLosowanie[p], kawalek.liczbaLosowan[p], maski, 0, liczba);
+        }
+    }
+
+    /**
+     * Tworzy widoki kuponów ważnych na losowanie. W przeciwieństwie do magazynu obiektowego
+     * alokuje listę i obiekty kuponów – służy do inspekcji, nie do rozliczania.
+     */
+    @Override
+    public List<Kupon> kuponyNaLosowanie(int numerLosowania, Kolektura kolektura) {
+        List<Kupon> wynik = new ArrayList<>();
+        for (int s = numerLosowania - KubelkiLosowan.MAKS_LOSOWAN + 1; s <= numerLosowania; s++) {
+            ListaStartowa lista = listaStartowaDoOdczytu(s);
+            if (lista == null) continue;
+            for (int i = 0; i < lista.indeksy.rozmiar(); i++) {
+                int indeks = lista.indeksy.get(i);
+                KawalekKuponow kawalek = kawalekDoOdczytu(indeks >>> BITY_KAWALKA);
+                int p = indeks & (ROZMIAR_KAWALKA - 1);
+                if (s + kawalek.liczbaLosowan[p] > numerLosowania) {
+                    wynik.add(widok(indeks, kolektura));
+                }
+            }
+        }
+        return wynik;
+    }
+
+    @Override
+    public int rozmiarZakresu(int numerLosowania) {
+        int rozmiar = 0;
+        for (int s = numerLosowania - KubelkiLosowan.MAKS_LOSOWAN + 1; s <= numerLosowania; s++) {
+            ListaStartowa lista = listaStartowaDoOdczytu(s);
+            if (lista != null) rozmiar += lista.indeksy.rozmiar();
+        }
+        return rozmiar;
+    }
+
+    @Override
+    public void zliczTrafienia(int numerLosowania, long maskaWyniku, int od, int doPozycji, HistogramTrafien histogram) {
+        int przesuniecie = 0;
+        for (int s = numerLosowania - KubelkiLosowan.MAKS_LOSOWAN + 1; s <= numerLosowania && przesuniecie < doPozycji; s++) {
+            ListaStartowa lista = listaStartowaDoOdczytu(s);
+            if (lista == null) continue;
+            int rozmiar = lista.indeksy.rozmiar();
+            int poczatek = Math.max(od - przesuniecie, 0);
+            int koniec = Math.min(doPozycji - przesuniecie, rozmiar);
+            for (int i = poczatek; i < koniec; i++) {
+                int indeks = lista.indeksy.get(i);
+                KawalekKuponow kawalek = kawalekDoOdczytu(indeks >>> BITY_KAWALKA);
+                int p = indeks & (ROZMIAR_KAWALKA - 1);
+                if (s + kawalek.liczbaLosowan[p] <= numerLosowania) continue; // kupon już nieważny
+                int pierwszy = kawalek.poczatekZakladow[p];
+                int ostatni = pierwszy + kawalek.liczbaZakladow[p];
+                for (int z = pierwszy; z < ostatni; z++) {
+                    histogram.dodaj(Long.bitCount(maskaZakladu(z) & maskaWyniku));
+                }
+            }
+            przesuniecie += rozmiar;
+        }
+    }
+
+    /**
+     * Tworzy obiekt kuponu będący widokiem na dane z kolumn.
+     */
+    private Kupon widok(int indeks, Kolektura kolektura) {
+        KawalekKuponow kawalek = kawalekDoOdczytu(indeks >>> BITY_KAWALKA);
+        int p = indeks & (ROZMIAR_KAWALKA - 1);
+        long id = (long) ELEMENT_LONG.getAcquire(kawalek.identyfikatory, p);
+        List<Zaklad> zaklady = new ArrayList<>(kawalek.liczbaZakladow[p]);
+        for (int j = 0; j < kawalek.liczbaZakladow[p]; j++) {
+            zaklady.add(Zaklad.zMaski(maskaZakladu(kawalek.poczatekZakladow[p] + j)));
+        }
+        Kupon kupon = new Kupon(id, zaklady, kawalek.pierwszeLosowanie[p], kawalek.liczbaLosowan[p], kolektura);
+        if (czyZrealizowany(kawalek, p)) {
+            kupon.oznaczJakoZrealizowany();
+        }
+        return kupon;
+    }
+
+    private static boolean czyZrealizowany(KawalekKuponow kawalek, int p) {
+        return ((long) ELEMENT_LONG.getVolatile(kawalek.zrealizowane, p >>> 6) & (1L << p)) != 0;
+    }
+
+    private long maskaZakladu(int pozycja) {
+        return kawalkiZakladow[pozycja >>> BITY_KAWALKA_ZAKLADOW][pozycja & (ROZMIAR_KAWALKA_ZAKLADOW - 1)];
+    }
+
+    private KawalekKuponow kawalekDoOdczytu(int nr) {
+        KawalekKuponow[] katalog = kawalkiKuponow;
+        return nr < katalog.length ? katalog[nr] : null;
+    }
+
+    private KawalekKuponow kawalekKuponow(int nr) {
+        KawalekKuponow kawalek = kawalekDoOdczytu(nr);
+        return kawalek != null ? kawalek : dodajKawalekKuponow(nr);
+    }
+
+    private synchronized KawalekKuponow dodajKawalekKuponow(int nr) {
+        KawalekKuponow[] katalog = kawalkiKuponow;
+        if (nr < katalog.length && katalog[nr] != null) {
+            return katalog[nr];
+        }
+        KawalekKuponow[] nowy = Arrays.copyOf(katalog, Math.max(katalog.length, nr + 1));
+        nowy[nr] = new KawalekKuponow();
+        kawalkiKuponow = nowy;
+        return nowy[nr];
+    }
+
+    /** Zwraca kawałek masek, dodając brakujące kawałki aż do niego włącznie */
+    private long[] kawalekZakladow(int nr) {
+        long[][] katalog = kawalkiZakladow;
+        return nr < katalog.length ? katalog[nr] : dodajKawalkiZakladow(nr);
+    }
+
+    private synchronized long[] dodajKawalkiZakladow(int nr) {
+        long[][] katalog = kawalkiZakladow;
+        if (nr < katalog.length) {
+            return katalog[nr];
+        }
+        long[][] nowy = Arrays.copyOf(katalog, nr + 1);
+        for (int i = katalog.length; i <= nr; i++) {
+            nowy[i] = new long[ROZMIAR_KAWALKA_ZAKLADOW];
+        }
+        kawalkiZakladow = nowy;
+        return nowy[nr];
+    }
+
+    /**
+     * Zwraca listę startową dla losowania, zastępując listę losowania
+     * o {@link KubelkiLosowan#LICZBA_KUBELKOW} wcześniejszego (tak jak {@link KubelkiLosowan}).
+     */
+    private ListaStartowa listaStartowa(int pierwszeLosowanie) {
+        int i = Math.floorMod(pierwszeLosowanie, KubelkiLosowan.LICZBA_KUBELKOW);
+        ListaStartowa lista = listyStartowe.get(i);
+        while (lista == null || lista.pierwszeLosowanie != pierwszeLosowanie) {
+            if (lista != null && lista.pierwszeLosowanie > pierwszeLosowanie) {
+                throw new IllegalStateException("Losowanie " + pierwszeLosowanie + " jest już poza indeksem");
+            }
+            ListaStartowa nowa = new ListaStartowa(pierwszeLosowanie);
+            if (listyStartowe.compareAndSet(i, lista, nowa)) {
+                return nowa;
+            }
+            lista = listyStartowe.get(i);
+        }
+        return lista;
+    }
+
+    private ListaStartowa listaStartowaDoOdczytu(int pierwszeLosowanie) {
+        ListaStartowa lista = listyStartowe.get(Math.floorMod(pierwszeLosowanie, KubelkiLosowan.LICZBA_KUBELKOW));
+        return lista != null && lista.pierwszeLosowanie == pierwszeLosowanie ? lista : null;
+    }
+}
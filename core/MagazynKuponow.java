@@ -0,0 +1,66 @@
+package totolotek.core;
+
+import totolotek.kupon.Kupon;
+
+import java.util.List;
+
+/**
+ * Mechanizm przechowywania kuponów sprzedanych przez kolekturę.
+ * Pozycje w zakresie losowania ({@link #rozmiarZakresu(int)}) są wewnętrzne dla magazynu
+ * i służą wyłącznie do dzielenia pracy przy zliczaniu trafień.
+ */
+interface MagazynKuponow {
+    /**
+     * Rejestruje sprzedany kupon. Bezpieczne dla wielu wątków.
+     * @param kupon sprzedany kupon
+     */
+    void zarejestruj(Kupon kupon);
+
+    /**
+     * Sprawdza, czy kupon został sprzedany w tej kolekturze i nie został zrealizowany w magazynie.
+     * @param kupon kupon do sprawdzenia
+     * @return true jeśli kupon jest autentyczny
+     */
+    boolean czyAutentyczny(Kupon kupon);
+
+    /**
+     * Atomowo oznacza kupon jako zrealizowany w magazynie.
+     * @param kupon autentyczny kupon
+     * @return true jeśli to wywołanie zrealizowało kupon
+     */
+    boolean zrealizuj(Kupon kupon);
+
+    /**
+     * @param id identyfikator kuponu ({@link totolotek.kupon.IdKuponu})
+     * @param kolektura kolektura magazynu – do kuponów odtwarzanych z innej postaci
+     * @return kupon o podanym identyfikatorze lub null, jeśli nie został tu sprzedany
+     */
+    Kupon znajdz(long id, Kolektura kolektura);
+
+    /**
+     * Dopisuje do kolumn niezrealizowane kupony o numerach w kolekturze mniejszych niż {@code doNumeru}.
+     * Wywoływana współbieżnie z rejestracją nowych kuponów (o wyższych numerach) i realizacją;
+     * kupon zrealizowany w trakcie eksportu może zostać pominięty albo dopisany.
+     * @param doNumeru numer pierwszego kuponu, którego nie eksportować
+     * @param kolumny kolumny docelowe
+     */
+    void eksportuj(int doNumeru, KolumnyKuponow kolumny);
+
+    /**
+     * @param numerLosowania numer losowania
+     * @param kolektura kolektura magazynu – do kuponów odtwarzanych z innej postaci
+     * @return kupony ważne na losowanie
+     */
+    List<Kupon> kuponyNaLosowanie(int numerLosowania, Kolektura kolektura);
+
+    /**
+     * @param numerLosowania numer losowania
+     * @return liczba pozycji, które trzeba przejrzeć, by zliczyć trafienia w losowaniu
+     */
+    int rozmiarZakresu(int numerLosowania);
+
+    /**
+     * Dolicza do histogramu trafienia zakładów z pozycji [od, doPozycji) zakresu losowania.
+     */
+    void zliczTrafienia(int numerLosowania, long maskaWyniku, int od, int doPozycji, HistogramTrafien histogram);
+}
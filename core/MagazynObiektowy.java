@@ -0,0 +1,72 @@
+package totolotek.core;
+
+import totolotek.kupon.IdKuponu;
+import totolotek.kupon.Kupon;
+import totolotek.kupon.Zaklad;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Magazyn przechowujący kupony jako obiekty: współbieżna mapa identyfikator → kupon
+ * oraz indeks kuponów według losowań.
+ */
+class MagazynObiektowy implements MagazynKuponow {
+    /** Mapa sprzedanych kuponów: identyfikator kuponu → kupon */
+    private final Map<Long, Kupon> sprzedaneKupony = new ConcurrentHashMap<>();
+    /** Indeks sprzedanych kuponów według numerów losowań */
+    private final KubelkiLosowan kuponyWgLosowan = new KubelkiLosowan();
+
+    @Override
+    public void zarejestruj(Kupon kupon) {
+        sprzedaneKupony.put(kupon.getId(), kupon);
+        kuponyWgLosowan.dodaj(kupon);
+    }
+
+    @Override
+    public boolean czyAutentyczny(Kupon kupon) {
+        return sprzedaneKupony.get(kupon.getId()) == kupon;
+    }
+
+    @Override
+    public boolean zrealizuj(Kupon kupon) {
+        // Stan realizacji przechowuje sam obiekt kuponu
+        return true;
+    }
+
+    @Override
+    public Kupon znajdz(long id, Kolektura kolektura) {
+        return sprzedaneKupony.get(id);
+    }
+
+    @Override
+    public void eksportuj(int doNumeru, KolumnyKuponow kolumny) {
+        for (Kupon kupon : sprzedaneKupony.values()) {
+            if (IdKuponu.getNumer(kupon.getId()) < doNumeru && !kupon.czyZrealizowany()) {
+                kolumny.dodaj(kupon);
+            }
+        }
+        kolumny.sortujWgNumerow();
+    }
+
+    @Override
+    public List<Kupon> kuponyNaLosowanie(int numerLosowania, Kolektura kolektura) {
+        return kuponyWgLosowan.kupony(numerLosowania);
+    }
+
+    @Override
+    public int rozmiarZakresu(int numerLosowania) {
+        return kuponyWgLosowan.kupony(numerLosowania).size();
+    }
+
+    @Override
+    public void zliczTrafienia(int numerLosowania, long maskaWyniku, int od, int doPozycji, HistogramTrafien histogram) {
+        List<Kupon> kupony = kuponyWgLosowan.kupony(numerLosowania);
+        for (int i = od; i < doPozycji; i++) {
+            for (Zaklad zaklad : kupony.get(i).getZaklady()) {
+                histogram.dodaj(zaklad.liczbaTrafien(maskaWyniku));
+            }
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package totolotek.core;
+
+import totolotek.finanse.StanBudzetu;
+import totolotek.finanse.SumyBudzetu;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.zip.CRC32C;
+
+/**
+ * Migawka stanu centrali, kolektur i budżetu państwa w zwartym formacie binarnym.
+ * Wraz z numerem rekordu dziennika, od którego trzeba kontynuować odtwarzanie,
+ * pozwala wznowić pracę bez odczytywania całego dziennika.
+ *
+ * Układ pliku (little-endian):
+ * <pre>
+ *   nagłówek   long znacznik, int wersja, long numer rekordu dziennika, long środki, long kumulacja
+ *   losowania  int liczba, po nich: int numer, long maska wyniku, 4 x long pula, 4 x int liczba wygranych
+ *   budżet     3 x long sumy łączne, int n + n x (int losowanie, 3 x long), int m + m x (int kolektura, 3 x long)
+ *   kolektury  int liczba, po nich: int numer, int następny numer kuponu, int k kuponów, int z zakładów,
+ *              kolumny: k x long id, k x int pierwsze losowanie, k x byte liczba losowań,
+ *              k x byte liczba zakładów, z x long maska
+ *   suma       int CRC32C wszystkich wcześniejszych bajtów
+ * </pre>
+ * Kolumny zapisywane i odczytywane są hurtowo przez widoki {@link java.nio.LongBuffer}
+ * i {@link java.nio.IntBuffer}, bez przechodzenia przez obiekty kuponów.
+ */
+final class Migawka {
+    private static final long ZNACZNIK = 0x3147494D4F544F54L; // "TOTOMIG1"
+    private static final int WERSJA = 1;
+    private static final int ROZMIAR_BUFORA = 1 << 20;
+
+    /** Rozliczone losowanie: wynik i pule nagród */
+    record StanLosowania(int numer, long maska, BazaWygranych baza) {
+    }
+
+    /** Stan kolektury: licznik numerów kuponów i niezrealizowane kupony */
+    record StanKolektury(int numer, int nastepnyNrKuponu, KolumnyKuponow kupony) {
+    }
+
+    final long numerRekordu;
+    final long srodki;
+    final long kumulacja;
+    final List<StanLosowania> losowania;
+    final StanBudzetu budzet;
+    final List<StanKolektury> kolektury;
+
+    Migawka(long numerRekordu, long srodki, long kumulacja, List<StanLosowania> losowania,
+            StanBudzetu budzet, List<StanKolektury> kolektury) {
+        this.numerRekordu = numerRekordu;
+        this.srodki = srodki;
+        this.kumulacja = kumulacja;
+        this.losowania = losowania;
+        this.budzet = budzet;
+        this.kolektury = kolektury;
+    }
+
+    /**
+     * Zapisuje migawkę do pliku tymczasowego, utrwala go na dysku
+     * i atomowo zastępuje nim plik docelowy.
+     */
+    void zapisz(Path plik) throws IOException {
+        Path tymczasowy = plik.resolveSibling(plik.getFileName() + ".tmp");
+        try (FileChannel kanal = FileChannel.open(tymczasowy, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            Zapis zapis = new Zapis(kanal);
+            zapis.putLong(ZNACZNIK).putInt(WERSJA).putLong(numerRekordu).putLong(srodki).putLong(kumulacja);
+
+            zapis.putInt(losowania.size());
+            for (StanLosowania l : losowania) {
+                BazaWygranych b = l.baza();
+                zapis.putInt(l.numer()).putLong(l.maska())
+                        .putLong(b.getPulaI()).putLong(b.getPulaII()).putLong(b.getPulaIII()).putLong(b.getPulaIV())
+                        .putInt(b.getLiczbaI()).putInt(b.getLiczbaII()).putInt(b.getLiczbaIII()).putInt(b.getLiczbaIV());
+            }
+
+            zapis.putSumy(budzet.getRazem());
+            for (SortedMap<Integer, SumyBudzetu> mapa : List.of(budzet.getWgLosowan(), budzet.getWgKolektur())) {
+                zapis.putInt(mapa.size());
+                for (Map.Entry<Integer, SumyBudzetu> wpis : mapa.entrySet()) {
+                    zapis.putInt(wpis.getKey()).putSumy(wpis.getValue());
+                }
+            }
+
+            zapis.putInt(kolektury.size());
+            for (StanKolektury k : kolektury) {
+                KolumnyKuponow kolumny = k.kupony();
+                int n = kolumny.liczbaKuponow;
+                zapis.putInt(k.numer()).putInt(k.nastepnyNrKuponu()).putInt(n).putInt(kolumny.liczbaZakladow);
+                zapis.putLongs(kolumny.identyfikatory, n);
+                zapis.putInts(kolumny.pierwszeLosowanie, n);
+                zapis.putBytes(kolumny.liczbaLosowan, n);
+                zapis.putBytes(kolumny.liczbaZakladowKuponu, n);
+                zapis.putLongs(kolumny.maski, kolumny.liczbaZakladow);
+            }
+            zapis.zakoncz();
+            kanal.force(true);
+        }
+        Files.move(tymczasowy, plik, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Odczytuje migawkę z pliku odwzorowanego w pamięci.
+     * @throws IOException jeśli plik nie jest migawką, ma inną wersję lub błędną sumę kontrolną
+     */
+    static Migawka wczytaj(Path plik) throws IOException {
+        ByteBuffer b;
+        try (FileChannel kanal = FileChannel.open(plik, StandardOpenOption.READ)) {
+            b = kanal.map(FileChannel.MapMode.READ_ONLY, 0, kanal.size()).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        if (b.limit() < Long.BYTES + 2 * Integer.BYTES || b.getLong(0) != ZNACZNIK) {
+            throw new IOException("Plik nie jest migawką: " + plik);
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(b.slice(0, b.limit() - Integer.BYTES));
+        if ((int) crc.getValue() != b.getInt(b.limit() - Integer.BYTES)) {
+            throw new IOException("Błędna suma kontrolna migawki: " + plik);
+        }
+        b.position(Long.BYTES);
+        if (b.getInt() != WERSJA) {
+            throw new IOException("Nieobsługiwana wersja migawki: " + plik);
+        }
+        long numerRekordu = b.getLong();
+        long srodki = b.getLong();
+        long kumulacja = b.getLong();
+
+        int liczbaLosowan = b.getInt();
+        List<StanLosowania> losowania = new ArrayList<>(liczbaLosowan);
+        for (int i = 0; i < liczbaLosowan; i++) {
+            int numer = b.getInt();
+            long maska = b.getLong();
+            long pulaI = b.getLong(), pulaII = b.getLong(), pulaIII = b.getLong(), pulaIV = b.getLong();
+            BazaWygranych baza = new BazaWygranych(pulaI, pulaII, pulaIII, pulaIV,
+                    b.getInt(), b.getInt(), b.getInt(), b.getInt());
+            losowania.add(new StanLosowania(numer, maska, baza));
+        }
+
+        SumyBudzetu razem = getSumy(b);
+        SortedMap<Integer, SumyBudzetu> wgLosowan = getMapeSum(b);
+        SortedMap<Integer, SumyBudzetu> wgKolektur = getMapeSum(b);
+
+        int liczbaKolektur = b.getInt();
+        List<StanKolektury> kolektury = new ArrayList<>(liczbaKolektur);
+        for (int i = 0; i < liczbaKolektur; i++) {
+            int numer = b.getInt();
+            int nastepnyNr = b.getInt();
+            int n = b.getInt();
+            int z = b.getInt();
+            KolumnyKuponow kolumny = new KolumnyKuponow(n, z);
+            b.asLongBuffer().get(kolumny.identyfikatory, 0, n);
+            b.position(b.position() + n * Long.BYTES);
+            b.asIntBuffer().get(kolumny.pierwszeLosowanie, 0, n);
+            b.position(b.position() + n * Integer.BYTES);
+            b.get(kolumny.liczbaLosowan, 0, n);
+            b.get(kolumny.liczbaZakladowKuponu, 0, n);
+            b.asLongBuffer().get(kolumny.maski, 0, z);
+            b.position(b.position() + z * Long.BYTES);
+            kolumny.liczbaKuponow = n;
+            kolumny.liczbaZakladow = z;
+            kolektury.add(new StanKolektury(numer, nastepnyNr, kolumny));
+        }
+        return new Migawka(numerRekordu, srodki, kumulacja, losowania,
+                new StanBudzetu(razem, wgLosowan, wgKolektur), kolektury);
+    }
+
+    private static SumyBudzetu getSumy(ByteBuffer b) {
+        return new SumyBudzetu(b.getLong(), b.getLong(), b.getLong());
+    }
+
+    private static SortedMap<Integer, SumyBudzetu> getMapeSum(ByteBuffer b) {
+        SortedMap<Integer, SumyBudzetu> mapa = new TreeMap<>();
+        int n = b.getInt();
+        for (int i = 0; i < n; i++) {
+            mapa.put(b.getInt(), getSumy(b));
+        }
+        return mapa;
+    }
+
+    /**
+     * Buforowany zapis do kanału, liczący po drodze sumę kontrolną.
+     */
+    private static final class Zapis {
+        private final FileChannel kanal;
+        private final ByteBuffer bufor = ByteBuffer.allocateDirect(ROZMIAR_BUFORA).order(ByteOrder.LITTLE_ENDIAN);
+        private final CRC32C crc = new CRC32C();
+
+        Zapis(FileChannel kanal) {
+            this.kanal = kanal;
+        }
+
+        Zapis putInt(int wartosc) throws IOException {
+            miejsce(Integer.BYTES);
+            bufor.putInt(wartosc);
+            return this;
+        }
+
+        Zapis putLong(long wartosc) throws IOException {
+            miejsce(Long.BYTES);
+            bufor.putLong(wartosc);
+            return this;
+        }
+
+        Zapis putSumy(SumyBudzetu sumy) throws IOException {
+            return putLong(sumy.getPodatkiOdSprzedazy()).putLong(sumy.getPodatkiOdWygranych()).putLong(sumy.getSubwencje());
+        }
+
+        void putLongs(long[] tablica, int ile) throws IOException {
+            for (int od = 0; od < ile; ) {
+                miejsce(Long.BYTES);
+                int porcja = Math.min(ile - od, bufor.remaining() / Long.BYTES);
+                bufor.asLongBuffer().put(tablica, od, porcja);
+                bufor.position(bufor.position() + porcja * Long.BYTES);
+                od += porcja;
+            }
+        }
+
+        void putInts(int[] tablica, int ile) throws IOException {
+            for (int od = 0; od < ile; ) {
+                miejsce(Integer.BYTES);
+                int porcja = Math.min(ile - od, bufor.remaining() / Integer.BYTES);
+                bufor.asIntBuffer().put(tablica, od, porcja);
+                bufor.position(bufor.position() + porcja * Integer.BYTES);
+                od += porcja;
+            }
+        }
+
+        void putBytes(byte[] tablica, int ile) throws IOException {
+            for (int od = 0; od < ile; ) {
+                miejsce(1);
+                int porcja = Math.min(ile - od, bufor.remaining());
+                bufor.put(tablica, od, porcja);
+                od += porcja;
+            }
+        }
+
+        /**
+         * Dopisuje sumę kontrolną i opróżnia bufor.
+         */
+        void zakoncz() throws IOException {
+            oproznij();
+            bufor.putInt((int) crc.getValue());
+            oproznij();
+        }
+
+        private void miejsce(int bajtow) throws IOException {
+            if (bufor.remaining() < bajtow) {
+                oproznij();
+            }
+        }
+
+        private void oproznij() throws IOException {
+            bufor.flip();
+            crc.update(bufor.duplicate());
+            while (bufor.hasRemaining()) {
+                kanal.write(bufor);
+            }
+            bufor.clear();
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package totolotek.core;
+
+import totolotek.gracz.Gracz;
+import totolotek.kupon.Blankiet;
+import totolotek.kupon.Kupon;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchroniczna sprzedaż kuponów w kolekturze: terminal przekazuje zlecenie i od razu dostaje
+ * przyszły kupon, a sprzedaż wykonują wątki potoku, partiami.
+ *
+ * Zlecenia trafiają do ograniczonego bufora pierścieniowego. Wątek potoku pobiera z niego
+ * naraz do {@code maksymalnaPartia} zleceń i sprzedaje je jednym przejściem przez bramkę centrali,
+ * z jednym księgowaniem podatku na losowanie i jednym oczekiwaniem na utrwalenie dziennika
+ * ({@link Kolektura#sprzedajKupon(Blankiet, Gracz)} robi to wszystko dla każdego kuponu osobno).
+ * Kupon trafia do gracza przed zakończeniem wyniku.
+ *
+ * Gdy bufor jest pełny, zlecenie jest od razu odrzucane: wynik kończy się wyjątkiem
+ * {@link RejectedExecutionException}, a terminal może spróbować ponownie później. Dzięki temu
+ * szczyt sprzedaży nie wydłuża bez końca kolejki ani czasu odpowiedzi.
+ *
+ * Wynik zlecenia:
+ * - kupon – sprzedaż się powiodła,
+ * - null – gracz nie ma wystarczających środków (jak w sprzedaży synchronicznej),
+ * - wyjątek {@link IllegalArgumentException} – niepoprawny blankiet lub parametry.
+ */
+public final class PotokSprzedazy implements AutoCloseable {
+    /** Domyślna pojemność bufora zleceń */
+    public static final int DOMYSLNA_POJEMNOSC = 1 << 14;
+    /** Domyślna największa liczba zleceń sprzedawanych w jednej partii */
+    public static final int DOMYSLNA_PARTIA = 256;
+    /** Liczba prób pobrania z pustego bufora przed uśpieniem wątku potoku */
+    private static final int PROBY_PRZED_USPIENIEM = 256;
+
+    private final Kolektura kolektura;
+    private final BuforPierscieniowy<ZlecenieSprzedazy> bufor;
+    private final int maksymalnaPartia;
+    private final Thread[] watki;
+    private volatile boolean zamkniety;
+    /** Liczba trwających przyjęć zleceń; zamknięcie czeka, aż spadnie do zera */
+    private final AtomicInteger przyjmowane = new AtomicInteger();
+    /**
+     * Liczba wątków potoku, które zasypiają lub śpią przy pustym buforze. Wątek zgłasza się tu
+     * przed ostatnim sprawdzeniem bufora, a terminal sprawdza licznik po wstawieniu zlecenia,
+     * więc zlecenie nie może utknąć w buforze, gdy wszystkie wątki potoku śpią.
+     */
+    private final AtomicInteger uspione = new AtomicInteger();
+
+    /**
+     * Tworzy potok z domyślną pojemnością i partią, obsługiwany przez jeden wątek.
+     * @param kolektura kolektura sprzedająca kupony
+     */
+    public PotokSprzedazy(Kolektura kolektura) {
+        this(kolektura, DOMYSLNA_POJEMNOSC, DOMYSLNA_PARTIA, 1);
+    }
+
+    /**
+     * @param kolektura kolektura sprzedająca kupony
+     * @param pojemnosc pojemność bufora zleceń (zaokrąglana w górę do potęgi dwójki)
+     * @param maksymalnaPartia największa liczba zleceń sprzedawanych w jednej partii
+     * @param liczbaWatkow liczba wątków potoku
+     * @throws IllegalArgumentException jeśli któryś z parametrów jest mniejszy niż 1
+     */
+    public PotokSprzedazy(Kolektura kolektura, int pojemnosc, int maksymalnaPartia, int liczbaWatkow) {
+        if (maksymalnaPartia < 1 || liczbaWatkow < 1) {
+            throw new IllegalArgumentException("Partia i liczba wątków muszą być dodatnie");
+        }
+        this.kolektura = kolektura;
+        this.bufor = new BuforPierscieniowy<>(pojemnosc);
+        this.maksymalnaPartia = maksymalnaPartia;
+        this.watki = new Thread[liczbaWatkow];
+        for (int i = 0; i < liczbaWatkow; i++) {
+            watki[i] = new Thread(this::obsluguj, "potok-sprzedazy-" + kolektura.getNumerKoloktury() + "-" + i);
+            watki[i].setDaemon(true);
+            watki[i].start();
+        }
+    }
+
+    /**
+     * Zleca sprzedaż kuponu na podstawie blankietu.
+     * @param blankiet blankiet wypełniony przez gracza
+     * @param gracz gracz kupujący kupon
+     * @return przyszły kupon (null, jeśli gracz nie ma wystarczających środków)
+     */
+    public CompletableFuture<Kupon> sprzedajKupon(Blankiet blankiet, Gracz gracz) {
+        if (blankiet == null) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Nie podano blankietu"));
+        }
+        return przyjmij(new ZlecenieSprzedazy(blankiet, gracz));
+    }
+
+    /**
+     * Zleca sprzedaż kuponu „chybił-trafił”.
+     * @param liczbaZakladow liczba zakładów (1–8)
+     * @param liczbaLosowan liczba losowań (1–10)
+     * @param gracz gracz kupujący kupon
+     * @return przyszły kupon (null, jeśli gracz nie ma wystarczających środków)
+     */
+    public CompletableFuture<Kupon> sprzedajKuponChybilTraf(int liczbaZakladow, int liczbaLosowan, Gracz gracz) {
+        return przyjmij(new ZlecenieSprzedazy(liczbaZakladow, liczbaLosowan, gracz));
+    }
+
+    private CompletableFuture<Kupon> przyjmij(ZlecenieSprzedazy zlecenie) {
+        if (zlecenie.gracz == null) {
+            zlecenie.wynik.completeExceptionally(new IllegalArgumentException("Nie podano gracza"));
+            return zlecenie.wynik;
+        }
+        przyjmowane.incrementAndGet();
+        try {
+            if (zamkniety) {
+                zlecenie.wynik.completeExceptionally(new RejectedExecutionException("Potok sprzedaży jest zamknięty"));
+            } else if (!bufor.wstaw(zlecenie)) {
+                zlecenie.wynik.completeExceptionally(new RejectedExecutionException(
+                        "Bufor sprzedaży kolektury " + kolektura.getNumerKoloktury() + " jest pełny"));
+            } else if (uspione.get() > 0) {
+                obudzWatki();
+            }
+        } finally {
+            przyjmowane.decrementAndGet();
+        }
+        return zlecenie.wynik;
+    }
+
+    /** @return przybliżona liczba zleceń czekających w buforze */
+    public int getLiczbaOczekujacych() {
+        return bufor.getRozmiar();
+    }
+
+    /** @return pojemność bufora zleceń */
+    public int getPojemnosc() {
+        return bufor.getPojemnosc();
+    }
+
+    private void obsluguj() {
+        List<ZlecenieSprzedazy> partia = new ArrayList<>(maksymalnaPartia);
+        int puste = 0;
+        while (true) {
+            if (bufor.pobierz(partia, maksymalnaPartia) == 0) {
+                if (zamkniety && przyjmowane.get() == 0 && bufor.getRozmiar() == 0) {
+                    return;
+                }
+                // krótkie oczekiwanie aktywne, potem sen do czasu obudzenia przez terminal lub zamknięcie
+                if (++puste < PROBY_PRZED_USPIENIEM) {
+                    Thread.onSpinWait();
+                } else {
+                    uspione.incrementAndGet();
+                    try {
+                        if (bufor.getRozmiar() == 0 && !zamkniety) {
+                            LockSupport.park(this);
+                        }
+                    } finally {
+                        uspione.decrementAndGet();
+                    }
+                }
+                continue;
+            }
+            puste = 0;
+            try {
+                kolektura.sprzedajPartie(partia);
+            } catch (RuntimeException e) {
+                // np. błąd zapisu dziennika – kupony już sprzedane mają wynik, pozostałe
+                // zlecenia partii kończą się tym błędem (complete nie zmienia zakończonych)
+                for (ZlecenieSprzedazy zlecenie : partia) {
+                    zlecenie.wynik.completeExceptionally(e);
+                }
+            }
+            partia.clear();
+        }
+    }
+
+    private void obudzWatki() {
+        for (Thread watek : watki) {
+            LockSupport.unpark(watek);
+        }
+    }
+
+    /**
+     * Przestaje przyjmować zlecenia, czeka na sprzedaż już przyjętych i kończy wątki potoku.
+     */
+    @Override
+    public void close() {
+        zamkniety = true;
+        while (przyjmowane.get() != 0) {
+            Thread.onSpinWait(); // zlecenie przyjęte przed zamknięciem musi trafić do bufora
+        }
+        obudzWatki();
+        for (Thread watek : watki) {
+            try {
+                watek.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
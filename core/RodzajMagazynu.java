@@ -0,0 +1,18 @@
+package totolotek.core;
+
+/**
+ * Rodzaj magazynu, w którym kolektura przechowuje sprzedane kupony.
+ */
+public enum RodzajMagazynu {
+    /**
+     * Kupony przechowywane jako obiekty {@link totolotek.kupon.Kupon}
+     * w mapie identyfikatorów i indeksie losowań.
+     */
+    OBIEKTOWY,
+    /**
+     * Kupony rozłożone na kolumny typów prostych (maski zakładów, numery losowań,
+     * identyfikatory); obiekty kuponów i zakładów tworzone są tylko na żądanie.
+     * Przeznaczony dla dziesiątek milionów zakładów.
+     */
+    KOLUMNOWY
+}
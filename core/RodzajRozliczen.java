@@ -0,0 +1,24 @@
+package totolotek.core;
+
+/**
+ * Sposób, w jaki centrala zlicza trafienia zakładów przy rozliczaniu losowania.
+ */
+public enum RodzajRozliczen {
+    /**
+     * Przegląda wszystkie kupony biorące udział w losowaniu; czas rośnie z liczbą zakładów.
+     */
+    SKAN_KUPONOW,
+    /**
+     * Przy sprzedaży zlicza zakłady na każdy zestaw liczb, a przy losowaniu odczytuje liczniki
+     * zestawów z co najmniej 3 trafieniami (około 260 tysięcy zestawów); czas nie zależy
+     * od liczby sprzedanych zakładów.
+     */
+    LICZNIKI_KOMBINACJI,
+    /**
+     * Przy sprzedaży dopisuje zakłady do odwróconego indeksu: dla każdej liczby mapa bitowa
+     * zakładów, które ją zawierają ({@link IndeksLiczb}). Przy losowaniu trafienia zlicza
+     * się z sześciu map liczb wyniku; indeks odpowiada też na pytania o zakłady z daną liczbą
+     * i o listy zwycięzców ({@link Centrala#getIndeksLiczb(int)}).
+     */
+    INDEKS_LICZB
+}
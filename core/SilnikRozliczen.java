@@ -0,0 +1,24 @@
+package totolotek.core;
+
+import totolotek.kupon.Kupon;
+
+/**
+ * Mechanizm zliczania trafień zakładów biorących udział w losowaniu.
+ * Wyniki w postaci {@link HistogramTrafien} trafiają do {@link StrategiaNagrod}.
+ */
+interface SilnikRozliczen {
+    /**
+     * Wywoływane po zarejestrowaniu sprzedanego (lub odtworzonego) kuponu. Bezpieczne dla wielu wątków.
+     * @param kupon zarejestrowany kupon
+     */
+    void zarejestruj(Kupon kupon);
+
+    /**
+     * Zlicza trafienia wszystkich zakładów biorących udział w losowaniu. Zakłady z 0–2 trafieniami
+     * trafiają do histogramu przy zerze trafień, więc histogramy wszystkich silników są równe.
+     * @param numerLosowania numer rozliczanego losowania
+     * @param maskaWyniku maska wylosowanych liczb
+     * @return histogram trafień
+     */
+    HistogramTrafien zliczTrafienia(int numerLosowania, long maskaWyniku);
+}
@@ -0,0 +1,38 @@
+package totolotek.core;
+
+import totolotek.kupon.Kupon;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Silnik rozliczeń przeglądający kupony wszystkich kolektur centrali – sekwencyjnie
+ * albo w puli rozliczeń centrali, jeśli ustawiono poziom równoległości większy niż 1.
+ */
+class SkanowanieKuponow implements SilnikRozliczen {
+    private final Centrala centrala;
+
+    SkanowanieKuponow(Centrala centrala) {
+        this.centrala = centrala;
+    }
+
+    /**
+     * Kupony są już w magazynach kolektur, nic nie trzeba zliczać.
+     */
+    @Override
+    public void zarejestruj(Kupon kupon) {
+    }
+
+    @Override
+    public HistogramTrafien zliczTrafienia(int numerLosowania, long maskaWyniku) {
+        ForkJoinPool pula = centrala.getPulaRozliczen();
+        if (pula != null) {
+            return pula.invoke(new ZadanieZliczaniaTrafien(centrala.getKolektury(), numerLosowania, maskaWyniku));
+        }
+        HistogramTrafien histogram = new HistogramTrafien();
+        for (Kolektura kolektura : centrala.getKolektury()) {
+            kolektura.zliczTrafienia(numerLosowania, maskaWyniku,
+                    0, kolektura.rozmiarZakresuLosowania(numerLosowania), histogram);
+        }
+        return histogram;
+    }
+}
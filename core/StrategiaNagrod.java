@@ -30,4 +30,12 @@ public interface StrategiaNagrod {
             long kumulacjaIstopnia,
             Map<Integer, Integer> liczbaWygranych
     );
+
+    /**
+     * Zwraca strategię standardową, używaną domyślnie przez centralę.
+     * @return nowa strategia standardowa
+     */
+    static StrategiaNagrod standardowa() {
+        return new StandardowaStrategiaNagrod();
+    }
 }
@@ -0,0 +1,66 @@
+package totolotek.core;
+
+import totolotek.kupon.Zaklad;
+
+/**
+ * Niezmienny, zwarty zapis rozliczenia jednego losowania: maska wyniku oraz
+ * kwota wygranej za zakład w zależności od liczby trafień.
+ * Tworzony raz na koniec {@link Centrala#przeprowadzLosowanie()}, dzięki czemu
+ * sprawdzenie wygranej zakładu to jedno {@link Long#bitCount} i odczyt z tablicy.
+ */
+public final class TabelaWygranych {
+    private final int numerLosowania;
+    private final long maskaWyniku;
+    private final BazaWygranych baza;
+    /** Wygrana za zakład (w groszach); indeks = liczba trafień (0..6) */
+    private final long[] wygranaWgTrafien = new long[Zaklad.LICZBA_TYPÓW + 1];
+
+    /**
+     * Tworzy tabelę wygranych na podstawie bazy wygranych losowania.
+     * Stopnie bez zwycięzców mają wygraną 0 – żaden zakład nie może ich zgłosić.
+     *
+     * @param numerLosowania numer losowania
+     * @param maskaWyniku    maska wylosowanych liczb
+     * @param baza           baza wygranych ustalona przez strategię nagród
+     */
+    TabelaWygranych(int numerLosowania, long maskaWyniku, BazaWygranych baza) {
+        this.numerLosowania = numerLosowania;
+        this.maskaWyniku = maskaWyniku;
+        this.baza = baza;
+        wygranaWgTrafien[6] = baza.getLiczbaI() > 0 ? baza.getWygranaI() : 0;
+        wygranaWgTrafien[5] = baza.getLiczbaII() > 0 ? baza.getWygranaII() : 0;
+        wygranaWgTrafien[4] = baza.getLiczbaIII() > 0 ? baza.getWygranaIII() : 0;
+        wygranaWgTrafien[3] = baza.getWygranaIV();
+    }
+
+    /** @return numer losowania */
+    public int getNumerLosowania() {
+        return numerLosowania;
+    }
+
+    /** @return maska wylosowanych liczb */
+    public long getMaskaWyniku() {
+        return maskaWyniku;
+    }
+
+    /** @return pule nagród i liczby wygranych, z których wyliczono tabelę */
+    public BazaWygranych getBazaWygranych() {
+        return baza;
+    }
+
+    /**
+     * @param trafienia liczba trafień (0..6)
+     * @return wygrana za zakład z taką liczbą trafień (w groszach)
+     */
+    public long getWygranaZaTrafienia(int trafienia) {
+        return wygranaWgTrafien[trafienia];
+    }
+
+    /**
+     * @param maskaZakladu maska liczb zakładu
+     * @return wygrana zakładu w tym losowaniu (w groszach)
+     */
+    public long getWygrana(long maskaZakladu) {
+        return wygranaWgTrafien[Long.bitCount(maskaZakladu & maskaWyniku)];
+    }
+}
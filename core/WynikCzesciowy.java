@@ -0,0 +1,116 @@
+package totolotek.core;
+
+import totolotek.kupon.Zaklad;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Trafienia zakładów części kolektur w jednym losowaniu – wynik zwracany przez
+ * {@link Centrala#rozpocznijLosowanie(int, long)}. Wyniki częściowe wszystkich central
+ * scalane są w wynik całego losowania, z którego ustalana jest baza wygranych.
+ */
+public final class WynikCzesciowy {
+    /** Cena zakładu (w groszach) */
+    private static final long CENA_ZAKLADU = 300;
+
+    private final int numerLosowania;
+    /** Liczba zakładów o danej liczbie trafień (indeks = liczba trafień; 0 – wszystkie bez wygranej) */
+    private final long[] liczbaZakladow;
+
+    /**
+     * @param numerLosowania numer losowania
+     * @param liczbaZakladow liczby zakładów z 0..6 trafieniami
+     * @throws IllegalArgumentException jeśli tablica nie ma 7 elementów lub zawiera wartości ujemne
+     */
+    public WynikCzesciowy(int numerLosowania, long[] liczbaZakladow) {
+        if (liczbaZakladow.length != Zaklad.LICZBA_TYPÓW + 1) {
+            throw new IllegalArgumentException("Oczekiwano " + (Zaklad.LICZBA_TYPÓW + 1) + " liczb zakładów");
+        }
+        for (long liczba : liczbaZakladow) {
+            if (liczba < 0) {
+                throw new IllegalArgumentException("Liczba zakładów nie może być ujemna");
+            }
+        }
+        this.numerLosowania = numerLosowania;
+        this.liczbaZakladow = liczbaZakladow.clone();
+    }
+
+    WynikCzesciowy(int numerLosowania, HistogramTrafien histogram) {
+        this.numerLosowania = numerLosowania;
+        this.liczbaZakladow = new long[Zaklad.LICZBA_TYPÓW + 1];
+        for (int i = 0; i < liczbaZakladow.length; i++) {
+            liczbaZakladow[i] = histogram.getLiczba(i);
+        }
+    }
+
+    public int getNumerLosowania() {
+        return numerLosowania;
+    }
+
+    /**
+     * Zakłady bez wygranej (0–2 trafienia) liczone są razem przy zerze trafień.
+     * @param trafienia liczba trafień (0..6)
+     * @return liczba zakładów z dokładnie tyloma trafieniami (3..6), bez wygranej (0) lub 0 (1, 2)
+     */
+    public long getLiczba(int trafienia) {
+        return liczbaZakladow[trafienia];
+    }
+
+    /** @return liczby zakładów z 0..6 trafieniami (kopia) */
+    public long[] getLiczby() {
+        return liczbaZakladow.clone();
+    }
+
+    /** @return łączna liczba zakładów */
+    public long getLiczbaZakladow() {
+        long suma = 0;
+        for (long liczba : liczbaZakladow) suma += liczba;
+        return suma;
+    }
+
+    /** @return suma wpłat za zakłady (w groszach) */
+    public long getSumaWplat() {
+        return getLiczbaZakladow() * CENA_ZAKLADU;
+    }
+
+    /** @return podatek od sprzedaży zakładów (w groszach) */
+    public long getSumaPodatku() {
+        return getSumaWplat() / 5;
+    }
+
+    /**
+     * Scala ten wynik z wynikiem innej części kolektur.
+     * @param inny wynik częściowy tego samego losowania
+     * @return nowy wynik obejmujący obie części
+     * @throws IllegalArgumentException jeśli wyniki dotyczą różnych losowań
+     */
+    public WynikCzesciowy scal(WynikCzesciowy inny) {
+        if (inny.numerLosowania != numerLosowania) {
+            throw new IllegalArgumentException("Nie można scalić wyników losowań "
+                    + numerLosowania + " i " + inny.numerLosowania);
+        }
+        long[] suma = liczbaZakladow.clone();
+        for (int i = 0; i < suma.length; i++) {
+            suma[i] += inny.liczbaZakladow[i];
+        }
+        return new WynikCzesciowy(numerLosowania, suma);
+    }
+
+    /**
+     * Zwraca liczbę wygranych w formacie oczekiwanym przez {@link StrategiaNagrod}.
+     * @return mapa: stopień wygranej (3-6) → liczba wygranych
+     */
+    public Map<Integer, Integer> liczbaWygranych() {
+        HistogramTrafien histogram = new HistogramTrafien();
+        for (int i = 0; i < liczbaZakladow.length; i++) {
+            histogram.dodaj(i, liczbaZakladow[i]);
+        }
+        return histogram.liczbaWygranych();
+    }
+
+    @Override
+    public String toString() {
+        return "WynikCzesciowy{losowanie=" + numerLosowania + ", trafienia=" + Arrays.toString(liczbaZakladow) + "}";
+    }
+}
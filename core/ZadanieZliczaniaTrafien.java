@@ -0,0 +1,73 @@
+package totolotek.core;
+
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Zadanie fork-join zliczające trafienia zakładów w jednym losowaniu.
+ * Praca dzielona jest najpierw między kolektury, a w obrębie jednej kolektury
+ * na przedziały jej kuponów. Każdy liść buduje prywatny {@link HistogramTrafien},
+ * a histogramy częściowe są scalane przy łączeniu zadań.
+ */
+@SuppressWarnings("serial") // zadanie nigdy nie jest serializowane
+class ZadanieZliczaniaTrafien extends RecursiveTask<HistogramTrafien> {
+    /** Liczba kuponów, poniżej której przedział liczony jest bez dalszego podziału */
+    static final int PROG_PODZIALU = 4_096;
+
+    private final List<Kolektura> kolektury;
+    private final int numerLosowania;
+    private final long maskaWyniku;
+    /** Przedział kolektur [kolekturaOd, kolekturaDo) */
+    private final int kolekturaOd, kolekturaDo;
+    /** Przedział kuponów [kuponOd, kuponDo) – używany tylko, gdy zadanie obejmuje jedną kolekturę */
+    private final int kuponOd, kuponDo;
+
+    /**
+     * Tworzy zadanie obejmujące wszystkie kupony wszystkich podanych kolektur.
+     */
+    ZadanieZliczaniaTrafien(List<Kolektura> kolektury, int numerLosowania, long maskaWyniku) {
+        this(kolektury, numerLosowania, maskaWyniku, 0, kolektury.size(), 0, -1);
+    }
+
+    private ZadanieZliczaniaTrafien(List<Kolektura> kolektury, int numerLosowania, long maskaWyniku,
+                                    int kolekturaOd, int kolekturaDo, int kuponOd, int kuponDo) {
+        this.kolektury = kolektury;
+        this.numerLosowania = numerLosowania;
+        this.maskaWyniku = maskaWyniku;
+        this.kolekturaOd = kolekturaOd;
+        this.kolekturaDo = kolekturaDo;
+        this.kuponOd = kuponOd;
+        this.kuponDo = kuponDo;
+    }
+
+    @Override
+    protected HistogramTrafien compute() {
+        if (kolekturaDo - kolekturaOd > 1) {
+            int srodek = (kolekturaOd + kolekturaDo) >>> 1;
+            ZadanieZliczaniaTrafien lewe = new ZadanieZliczaniaTrafien(
+                    kolektury, numerLosowania, maskaWyniku, kolekturaOd, srodek, 0, -1);
+            ZadanieZliczaniaTrafien prawe = new ZadanieZliczaniaTrafien(
+                    kolektury, numerLosowania, maskaWyniku, srodek, kolekturaDo, 0, -1);
+            lewe.fork();
+            return prawe.compute().scal(lewe.join());
+        }
+        HistogramTrafien histogram = new HistogramTrafien();
+        if (kolekturaDo == kolekturaOd) {
+            return histogram;
+        }
+        Kolektura kolektura = kolektury.get(kolekturaOd);
+        int od = kuponOd;
+        int doKuponu = kuponDo < 0 ? kolektura.rozmiarZakresuLosowania(numerLosowania) : kuponDo;
+        if (doKuponu - od > PROG_PODZIALU) {
+            int srodek = (od + doKuponu) >>> 1;
+            ZadanieZliczaniaTrafien lewe = new ZadanieZliczaniaTrafien(
+                    kolektury, numerLosowania, maskaWyniku, kolekturaOd, kolekturaDo, od, srodek);
+            ZadanieZliczaniaTrafien prawe = new ZadanieZliczaniaTrafien(
+                    kolektury, numerLosowania, maskaWyniku, kolekturaOd, kolekturaDo, srodek, doKuponu);
+            lewe.fork();
+            return prawe.compute().scal(lewe.join());
+        }
+        kolektura.zliczTrafienia(numerLosowania, maskaWyniku, od, doKuponu, histogram);
+        return histogram;
+    }
+}
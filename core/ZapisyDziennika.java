@@ -0,0 +1,92 @@
+package totolotek.core;
+
+import totolotek.kupon.Kupon;
+import totolotek.kupon.Zaklad;
+import totolotek.trwalosc.Dziennik;
+import totolotek.trwalosc.RekordDziennika;
+
+import java.util.List;
+
+/**
+ * Typy i układ rekordów, którymi centrala i kolektury opisują zmiany stanu w dzienniku.
+ * Rekordy zapisują skutki operacji (kwoty, wyniki, pule), a nie ich parametry wejściowe,
+ * więc odtworzenie nie przelicza rozliczeń ani nie wywołuje ich efektów ubocznych.
+ *
+ * <pre>
+ * SPRZEDAZ        numer = pierwsze losowanie, bajt1 = liczba zakładów, bajt2 = liczba losowań,
+ *                 pole0 = id kuponu, pole1 = podatek, pole2..9 = maski zakładów
+ * LOSOWANIE       numer = numer losowania, pole0 = maska wyniku, pole1 = suma wpłat,
+ *                 pole2 = suma podatku, pole3 = kumulacja po losowaniu, pole4..7 = pule I-IV,
+ *                 pole8 = liczby wygranych I i II, pole9 = liczby wygranych III i IV
+ * WYPLATA         numer = numer losowania, pole0 = kwota wypłacona z funduszy centrali
+ * SUBWENCJA       numer = numer losowania, pole0 = kwota subwencji
+ * PODATEK_WYGRANA numer = numer losowania, dodatkowa = numer kolektury, pole0 = kwota podatku
+ * REALIZACJA      pole0 = id zrealizowanego kuponu
+ * </pre>
+ */
+final class ZapisyDziennika {
+    static final int SPRZEDAZ = 1;
+    static final int LOSOWANIE = 2;
+    static final int WYPLATA = 3;
+    static final int SUBWENCJA = 4;
+    static final int PODATEK_WYGRANA = 5;
+    static final int REALIZACJA = 6;
+
+    /** Maksymalna liczba zakładów kuponu mieszcząca się w rekordzie sprzedaży */
+    static final int MAKS_ZAKLADOW = RekordDziennika.LICZBA_POL - 2;
+
+    private static final ThreadLocal<RekordDziennika> REKORDY = ThreadLocal.withInitial(RekordDziennika::new);
+
+    private ZapisyDziennika() {
+    }
+
+    static long sprzedaz(Dziennik dziennik, Kupon kupon, long podatek) {
+        List<Zaklad> zaklady = kupon.getZaklady();
+        if (zaklady.size() > MAKS_ZAKLADOW) {
+            throw new IllegalArgumentException("Kupon ma więcej niż " + MAKS_ZAKLADOW + " zakładów");
+        }
+        RekordDziennika rekord = REKORDY.get().nowy(SPRZEDAZ)
+                .setNumer(kupon.getPierwszeLosowanie())
+                .setBajt(1, zaklady.size())
+                .setBajt(2, kupon.getLiczbaLosowan())
+                .setPole(0, kupon.getId())
+                .setPole(1, podatek);
+        for (int i = 0; i < zaklady.size(); i++) {
+            rekord.setPole(2 + i, zaklady.get(i).getMaska());
+        }
+        return dziennik.zapisz(rekord);
+    }
+
+    static long losowanie(Dziennik dziennik, int numerLosowania, long maskaWyniku, long sumaWplat,
+                          long sumaPodatku, long kumulacja, BazaWygranych baza) {
+        return dziennik.zapisz(REKORDY.get().nowy(LOSOWANIE)
+                .setNumer(numerLosowania)
+                .setPole(0, maskaWyniku)
+                .setPole(1, sumaWplat)
+                .setPole(2, sumaPodatku)
+                .setPole(3, kumulacja)
+                .setPole(4, baza.getPulaI())
+                .setPole(5, baza.getPulaII())
+                .setPole(6, baza.getPulaIII())
+                .setPole(7, baza.getPulaIV())
+                .setPole(8, (long) baza.getLiczbaI() << 32 | Integer.toUnsignedLong(baza.getLiczbaII()))
+                .setPole(9, (long) baza.getLiczbaIII() << 32 | Integer.toUnsignedLong(baza.getLiczbaIV())));
+    }
+
+    static BazaWygranych bazaWygranych(RekordDziennika rekord) {
+        return new BazaWygranych(rekord.getPole(4), rekord.getPole(5), rekord.getPole(6), rekord.getPole(7),
+                (int) (rekord.getPole(8) >>> 32), (int) rekord.getPole(8),
+                (int) (rekord.getPole(9) >>> 32), (int) rekord.getPole(9));
+    }
+
+    static long kwota(Dziennik dziennik, int typ, int numerLosowania, int numerKolektury, long kwota) {
+        return dziennik.zapisz(REKORDY.get().nowy(typ)
+                .setNumer(numerLosowania)
+                .setDodatkowa(numerKolektury)
+                .setPole(0, kwota));
+    }
+
+    static long realizacja(Dziennik dziennik, long idKuponu) {
+        return dziennik.zapisz(REKORDY.get().nowy(REALIZACJA).setPole(0, idKuponu));
+    }
+}
@@ -0,0 +1,35 @@
+package totolotek.core;
+
+import totolotek.gracz.Gracz;
+import totolotek.kupon.Blankiet;
+import totolotek.kupon.Kupon;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Sprzedaż przyjęta przez {@link PotokSprzedazy}, czekająca na realizację w partii:
+ * z blankietu albo „chybił-trafił” (gdy blankiet jest null).
+ */
+final class ZlecenieSprzedazy {
+    final Blankiet blankiet;
+    final int liczbaZakladow;
+    final int liczbaLosowan;
+    final Gracz gracz;
+    final CompletableFuture<Kupon> wynik = new CompletableFuture<>();
+    /** Chwila przyjęcia zlecenia (System.nanoTime()), od której liczony jest czas sprzedaży */
+    final long przyjete = System.nanoTime();
+
+    ZlecenieSprzedazy(Blankiet blankiet, Gracz gracz) {
+        this.blankiet = blankiet;
+        this.liczbaZakladow = 0;
+        this.liczbaLosowan = 0;
+        this.gracz = gracz;
+    }
+
+    ZlecenieSprzedazy(int liczbaZakladow, int liczbaLosowan, Gracz gracz) {
+        this.blankiet = null;
+        this.liczbaZakladow = liczbaZakladow;
+        this.liczbaLosowan = liczbaLosowan;
+        this.gracz = gracz;
+    }
+}
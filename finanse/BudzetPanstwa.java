@@ -1,31 +1,106 @@
 package totolotek.finanse;
 
+import totolotek.raport.RaportTekstowy;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
 /**
  * Klasa BudzetPanstwa reprezentuje uproszczony model budżetu państwa
  * na potrzeby systemu Totolotka.
- * Przechowuje łączną kwotę pobranych podatków od gier oraz sumę przekazanych subwencji.
- * Może wypisywać swój aktualny stan.
+ * Przechowuje osobno podatki od sprzedaży, podatki od wygranych i przekazane subwencje,
+ * z rozbiciem na losowania i kolektury. Może wypisywać swój aktualny stan.
+ *
+ * Każda para (losowanie, kolektura) ma własne konto z licznikami {@link LongAdder},
+ * więc księgowanie nie bierze żadnej blokady, a równoległe wątki księgujące na to samo
+ * konto trafiają w różne komórki licznika. Sumy łączne i rozbicia wyliczane są dopiero
+ * w migawce ({@link #getStan()}) z tych samych kont. Sumy łączne poszczególnych pozycji
+ * prowadzone są dodatkowo w osobnych licznikach, więc ich odczyt nie przegląda kont.
+ *
+ * Konta rozliczonych losowań przenoszone są do bazy ({@link #zamknijKonta(int)}), więc
+ * liczba żywych kont nie rośnie z liczbą losowań. Księgowanie zgłasza wejście i wyjście
+ * w liczniku konta; zamykający czeka, aż wszystkie wejścia widoczne po zamknięciu konta
+ * mają swoje wyjścia, a spóźnione księgowanie trafia do nowego konta.
  */
 public class BudzetPanstwa {
-    /** Łączna kwota pobranych podatków (w groszach) */
-    private long pobranePodatki;
-    /** Łączna kwota przekazanych subwencji (w groszach) */
-    private long przekazaneSubwencjie;
+    /** Numer losowania lub kolektury dla operacji, których nie da się przypisać */
+    public static final int BEZ_PRZYPISANIA = 0;
+
+    private static final int PODATEK_OD_SPRZEDAZY = 0;
+    private static final int PODATEK_OD_WYGRANYCH = 1;
+    private static final int SUBWENCJA = 2;
+    private static final int LICZBA_POZYCJI = 3;
+
+    /** Konto jednej pary (losowanie, kolektura) */
+    private static final class Konto {
+        final int numerLosowania;
+        final int numerKolektury;
+        /** Podatki od sprzedaży, podatki od wygranych, subwencje (w groszach) */
+        final LongAdder[] pozycje = new LongAdder[LICZBA_POZYCJI];
+        /** Liczby rozpoczętych i zakończonych księgowań na koncie */
+        final LongAdder wejscia = new LongAdder();
+        final LongAdder wyjscia = new LongAdder();
+        /** Czy konto jest przenoszone do bazy – nowe księgowania trafiają wtedy do nowego konta */
+        volatile boolean zamkniete;
+
+        Konto(int numerLosowania, int numerKolektury) {
+            this.numerLosowania = numerLosowania;
+            this.numerKolektury = numerKolektury;
+            for (int i = 0; i < LICZBA_POZYCJI; i++) {
+                pozycje[i] = new LongAdder();
+            }
+        }
+    }
+
+    /** Konta według klucza z {@link #klucz(int, int)} */
+    private final ConcurrentHashMap<Long, Konto> konta = new ConcurrentHashMap<>();
+    /** Sumy łączne wszystkich księgowań, według pozycji */
+    private final LongAdder[] razem = new LongAdder[LICZBA_POZYCJI];
+    /** Kwoty doliczone przez {@link #dodajStan(StanBudzetu)}, np. z migawki, oraz z zamkniętych kont */
+    private volatile StanBudzetu baza;
+    /** Sumy łączne kwot doliczonych przez {@link #dodajStan(StanBudzetu)} */
+    private volatile SumyBudzetu doliczoneRazem = SumyBudzetu.ZERO;
 
     /**
      * Tworzy nowy budżet państwa z zerowymi stanami podatków i subwencji.
      */
     public BudzetPanstwa() {
-        pobranePodatki = 0;
-        przekazaneSubwencjie = 0;
+        for (int i = 0; i < LICZBA_POZYCJI; i++) {
+            razem[i] = new LongAdder();
+        }
     }
 
     /**
      * Powiększa sumę pobranych podatków o podaną kwotę.
+     * Kwota księgowana jest jako podatek od sprzedaży bez przypisania do losowania i kolektury.
      * @param kwota kwota podatku do pobrania (w groszach)
      */
     public void pobierzPodatek(long kwota) {
-        this.pobranePodatki += kwota;
+        pobierzPodatekOdSprzedazy(kwota, BEZ_PRZYPISANIA, BEZ_PRZYPISANIA);
+    }
+
+    /**
+     * Księguje podatek od sprzedaży zakładów.
+     * @param kwota          kwota podatku (w groszach)
+     * @param numerKolektury numer kolektury lub {@link #BEZ_PRZYPISANIA}
+     * @param numerLosowania numer losowania lub {@link #BEZ_PRZYPISANIA}
+     */
+    public void pobierzPodatekOdSprzedazy(long kwota, int numerKolektury, int numerLosowania) {
+        zaksieguj(PODATEK_OD_SPRZEDAZY, kwota, numerKolektury, numerLosowania);
+    }
+
+    /**
+     * Księguje podatek od wypłaconej wygranej.
+     * @param kwota          kwota podatku (w groszach)
+     * @param numerKolektury numer kolektury wypłacającej wygraną
+     * @param numerLosowania numer losowania, w którym padła wygrana
+     */
+    public void pobierzPodatekOdWygranej(long kwota, int numerKolektury, int numerLosowania) {
+        zaksieguj(PODATEK_OD_WYGRANYCH, kwota, numerKolektury, numerLosowania);
     }
 
     /**
@@ -33,7 +108,99 @@ public class BudzetPanstwa {
      * @param kwota kwota subwencji do przekazania (w groszach)
      */
     public void udzielSubwencji(long kwota) {
-        this.przekazaneSubwencjie += kwota;
+        udzielSubwencji(kwota, BEZ_PRZYPISANIA);
+    }
+
+    /**
+     * Księguje subwencję przekazaną centrali.
+     * @param kwota          kwota subwencji (w groszach)
+     * @param numerLosowania numer losowania, którego wypłaty wymagały subwencji, lub {@link #BEZ_PRZYPISANIA}
+     */
+    public void udzielSubwencji(long kwota, int numerLosowania) {
+        zaksieguj(SUBWENCJA, kwota, BEZ_PRZYPISANIA, numerLosowania);
+    }
+
+    /**
+     * @return łączna kwota pobranych podatków (od sprzedaży i od wygranych, w groszach)
+     */
+    public long getPobranePodatki() {
+        return suma(PODATEK_OD_SPRZEDAZY) + suma(PODATEK_OD_WYGRANYCH);
+    }
+
+    /**
+     * @return łączna kwota przekazanych subwencji (w groszach)
+     */
+    public long getPrzekazaneSubwencje() {
+        return suma(SUBWENCJA);
+    }
+
+    /**
+     * Zwraca migawkę stanu budżetu bez wstrzymywania księgowania.
+     * Każda operacja zmienia jeden licznik jednego konta, a sumy łączne i oba rozbicia
+     * liczone są z tych samych odczytów kont, więc zawsze się ze sobą zgadzają.
+     * @return stan budżetu z rozbiciem na losowania i kolektury
+     */
+    public synchronized StanBudzetu getStan() {
+        long[] razem = new long[LICZBA_POZYCJI];
+        Map<Integer, long[]> losowania = new HashMap<>();
+        Map<Integer, long[]> kolektury = new HashMap<>();
+        StanBudzetu stan = baza;
+        if (stan != null) {
+            dodaj(razem, tablica(stan.getRazem()));
+            stan.getWgLosowan().forEach((nr, s) -> dodaj(wiersz(losowania, nr), tablica(s)));
+            stan.getWgKolektur().forEach((nr, s) -> dodaj(wiersz(kolektury, nr), tablica(s)));
+        }
+        for (Konto konto : konta.values()) {
+            long[] s = odczytaj(konto);
+            dodaj(razem, s);
+            dodaj(wiersz(losowania, konto.numerLosowania), s);
+            dodaj(wiersz(kolektury, konto.numerKolektury), s);
+        }
+        return new StanBudzetu(sumy(razem), sumy(losowania), sumy(kolektury));
+    }
+
+    /**
+     * Dolicza do księgi wszystkie kwoty ze stanu budżetu, np. odczytanego z migawki.
+     * Po doliczeniu do pustego budżetu {@link #getStan()} zwraca stan równy podanemu.
+     * @param stan stan budżetu do doliczenia
+     */
+    public synchronized void dodajStan(StanBudzetu stan) {
+        baza = polacz(baza, stan);
+        long[] s = tablica(doliczoneRazem);
+        dodaj(s, tablica(stan.getRazem()));
+        doliczoneRazem = sumy(s);
+    }
+
+    /**
+     * Przenosi do bazy konta losowań o numerach nie większych niż podany (oraz konta operacji
+     * bez przypisanego losowania), by liczba żywych kont nie rosła z liczbą losowań.
+     * Centrala wywołuje tę metodę po rozliczeniu losowania. Późniejsze księgowania na te losowania,
+     * np. podatki od wygranych odbieranych po czasie, tworzą nowe konta, zamykane przy kolejnym wywołaniu.
+     * Stan budżetu ({@link #getStan()}) się przy tym nie zmienia.
+     * @param doLosowania numer ostatniego losowania, którego konta są zamykane
+     */
+    public synchronized void zamknijKonta(int doLosowania) {
+        long[] zamkniete = new long[LICZBA_POZYCJI];
+        Map<Integer, long[]> losowania = new HashMap<>();
+        Map<Integer, long[]> kolektury = new HashMap<>();
+        for (Konto konto : konta.values()) {
+            if (konto.numerLosowania > doLosowania) {
+                continue;
+            }
+            konta.remove(klucz(konto.numerLosowania, konto.numerKolektury), konto);
+            konto.zamkniete = true;
+            // wyjścia odczytywane przed wejściami: każde widoczne wyjście ma widoczne wejście
+            while (konto.wyjscia.sum() != konto.wejscia.sum()) {
+                Thread.yield(); // księgowanie rozpoczęte przed zamknięciem jeszcze trwa
+            }
+            long[] s = odczytaj(konto);
+            dodaj(zamkniete, s);
+            dodaj(wiersz(losowania, konto.numerLosowania), s);
+            dodaj(wiersz(kolektury, konto.numerKolektury), s);
+        }
+        if (!losowania.isEmpty()) {
+            baza = polacz(baza, new StanBudzetu(sumy(zamkniete), sumy(losowania), sumy(kolektury)));
+        }
     }
 
     /**
@@ -41,7 +208,89 @@ public class BudzetPanstwa {
      * łączną kwotę pobranych podatków i przekazanych subwencji (w groszach).
      */
     public void wypiszStan() {
-        System.out.println("Pobrane podatki: " + pobranePodatki);
-        System.out.println("Przekazane subwencje: " + przekazaneSubwencjie);
+        try (RaportTekstowy raport = RaportTekstowy.naStandardoweWyjscie()) {
+            raport.budzet(getStan().getRazem());
+        }
+    }
+
+    private void zaksieguj(int pozycja, long kwota, int numerKolektury, int numerLosowania) {
+        long klucz = klucz(numerLosowania, numerKolektury);
+        while (true) {
+            Konto konto = konta.get(klucz);
+            if (konto == null) {
+                konto = konta.computeIfAbsent(klucz, k -> new Konto(numerLosowania, numerKolektury));
+            }
+            konto.wejscia.increment();
+            try {
+                if (!konto.zamkniete) {
+                    konto.pozycje[pozycja].add(kwota);
+                    razem[pozycja].add(kwota);
+                    return;
+                }
+            } finally {
+                konto.wyjscia.increment();
+            }
+            // konto jest właśnie przenoszone do bazy i usunięte z mapy – następna próba utworzy nowe
+        }
+    }
+
+    private long suma(int pozycja) {
+        return razem[pozycja].sum() + tablica(doliczoneRazem)[pozycja];
+    }
+
+    private static long[] odczytaj(Konto konto) {
+        long[] s = new long[LICZBA_POZYCJI];
+        for (int i = 0; i < LICZBA_POZYCJI; i++) {
+            s[i] = konto.pozycje[i].sum();
+        }
+        return s;
+    }
+
+    private static long klucz(int numerLosowania, int numerKolektury) {
+        return ((long) numerLosowania << 32) | (numerKolektury & 0xFFFF_FFFFL);
+    }
+
+    private static long[] wiersz(Map<Integer, long[]> mapa, int numer) {
+        return mapa.computeIfAbsent(numer, k -> new long[LICZBA_POZYCJI]);
+    }
+
+    private static void dodaj(long[] cel, long[] zrodlo) {
+        for (int i = 0; i < LICZBA_POZYCJI; i++) cel[i] += zrodlo[i];
+    }
+
+    private static StanBudzetu polacz(StanBudzetu a, StanBudzetu b) {
+        if (a == null) {
+            return b;
+        }
+        long[] razem = tablica(a.getRazem());
+        dodaj(razem, tablica(b.getRazem()));
+        return new StanBudzetu(sumy(razem), polacz(a.getWgLosowan(), b.getWgLosowan()),
+                polacz(a.getWgKolektur(), b.getWgKolektur()));
+    }
+
+    private static SortedMap<Integer, SumyBudzetu> polacz(SortedMap<Integer, SumyBudzetu> a,
+                                                           SortedMap<Integer, SumyBudzetu> b) {
+        Map<Integer, long[]> wynik = new HashMap<>();
+        a.forEach((nr, s) -> dodaj(wiersz(wynik, nr), tablica(s)));
+        b.forEach((nr, s) -> dodaj(wiersz(wynik, nr), tablica(s)));
+        return sumy(wynik);
+    }
+
+    private static long[] tablica(SumyBudzetu sumy) {
+        long[] s = new long[LICZBA_POZYCJI];
+        s[PODATEK_OD_SPRZEDAZY] = sumy.getPodatkiOdSprzedazy();
+        s[PODATEK_OD_WYGRANYCH] = sumy.getPodatkiOdWygranych();
+        s[SUBWENCJA] = sumy.getSubwencje();
+        return s;
+    }
+
+    private static SumyBudzetu sumy(long[] s) {
+        return new SumyBudzetu(s[PODATEK_OD_SPRZEDAZY], s[PODATEK_OD_WYGRANYCH], s[SUBWENCJA]);
+    }
+
+    private static SortedMap<Integer, SumyBudzetu> sumy(Map<Integer, long[]> mapa) {
+        SortedMap<Integer, SumyBudzetu> wynik = new TreeMap<>();
+        mapa.forEach((nr, s) -> wynik.put(nr, sumy(s)));
+        return wynik;
     }
 }
@@ -0,0 +1,85 @@
+package totolotek.finanse;
+
+import java.util.Collections;
+import java.util.Objects;
+import java.util.SortedMap;
+
+/**
+ * Migawka stanu budżetu państwa: sumy łączne oraz rozbicie na losowania i kolektury.
+ * Każda operacja księgowa jest w migawce uwzględniona w całości albo wcale,
+ * więc sumy łączne zawsze zgadzają się z sumą rozbić.
+ */
+public final class StanBudzetu {
+    private final SumyBudzetu razem;
+    private final SortedMap<Integer, SumyBudzetu> wgLosowan;
+    private final SortedMap<Integer, SumyBudzetu> wgKolektur;
+
+    /**
+     * Tworzy stan z gotowych sum, np. odczytanych z migawki.
+     * @param razem sumy łączne
+     * @param wgLosowan sumy według losowań
+     * @param wgKolektur sumy według kolektur
+     */
+    public StanBudzetu(SumyBudzetu razem, SortedMap<Integer, SumyBudzetu> wgLosowan,
+                       SortedMap<Integer, SumyBudzetu> wgKolektur) {
+        this.razem = razem;
+        this.wgLosowan = Collections.unmodifiableSortedMap(wgLosowan);
+        this.wgKolektur = Collections.unmodifiableSortedMap(wgKolektur);
+    }
+
+    /** @return sumy łączne */
+    public SumyBudzetu getRazem() {
+        return razem;
+    }
+
+    /**
+     * Zwraca sumy dla operacji przypisanych do losowań.
+     * Operacje bez wskazanego losowania występują pod kluczem {@link BudzetPanstwa#BEZ_PRZYPISANIA}.
+     * @return mapa: numer losowania → sumy
+     */
+    public SortedMap<Integer, SumyBudzetu> getWgLosowan() {
+        return wgLosowan;
+    }
+
+    /**
+     * Zwraca sumy dla operacji przypisanych do kolektur.
+     * Operacje bez wskazanej kolektury występują pod kluczem {@link BudzetPanstwa#BEZ_PRZYPISANIA}.
+     * @return mapa: numer kolektury → sumy
+     */
+    public SortedMap<Integer, SumyBudzetu> getWgKolektur() {
+        return wgKolektur;
+    }
+
+    /**
+     * @param numerLosowania numer losowania
+     * @return sumy dla losowania (zerowe, jeśli nie było operacji)
+     */
+    public SumyBudzetu getLosowanie(int numerLosowania) {
+        return wgLosowan.getOrDefault(numerLosowania, SumyBudzetu.ZERO);
+    }
+
+    /**
+     * @param numerKolektury numer kolektury
+     * @return sumy dla kolektury (zerowe, jeśli nie było operacji)
+     */
+    public SumyBudzetu getKolektura(int numerKolektury) {
+        return wgKolektur.getOrDefault(numerKolektury, SumyBudzetu.ZERO);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof StanBudzetu inny)) return false;
+        return razem.equals(inny.razem) && wgLosowan.equals(inny.wgLosowan) && wgKolektur.equals(inny.wgKolektur);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(razem, wgLosowan, wgKolektur);
+    }
+
+    @Override
+    public String toString() {
+        return "razem: " + razem + ", według losowań: " + wgLosowan + ", według kolektur: " + wgKolektur;
+    }
+}
@@ -0,0 +1,69 @@
+package totolotek.finanse;
+
+import java.util.Objects;
+
+/**
+ * Niezmienne sumy księgowe budżetu państwa w jednym przekroju
+ * (łącznie, dla jednego losowania lub dla jednej kolektury).
+ * Wszystkie kwoty w groszach.
+ */
+public final class SumyBudzetu {
+    /** Sumy zerowe */
+    public static final SumyBudzetu ZERO = new SumyBudzetu(0, 0, 0);
+
+    private final long podatkiOdSprzedazy;
+    private final long podatkiOdWygranych;
+    private final long subwencje;
+
+    /**
+     * @param podatkiOdSprzedazy suma podatków od sprzedaży zakładów
+     * @param podatkiOdWygranych suma podatków od wypłaconych wygranych
+     * @param subwencje          suma przekazanych subwencji
+     */
+    public SumyBudzetu(long podatkiOdSprzedazy, long podatkiOdWygranych, long subwencje) {
+        this.podatkiOdSprzedazy = podatkiOdSprzedazy;
+        this.podatkiOdWygranych = podatkiOdWygranych;
+        this.subwencje = subwencje;
+    }
+
+    /** @return suma podatków od sprzedaży zakładów */
+    public long getPodatkiOdSprzedazy() {
+        return podatkiOdSprzedazy;
+    }
+
+    /** @return suma podatków od wygranych */
+    public long getPodatkiOdWygranych() {
+        return podatkiOdWygranych;
+    }
+
+    /** @return łączna kwota pobranych podatków */
+    public long getPobranePodatki() {
+        return podatkiOdSprzedazy + podatkiOdWygranych;
+    }
+
+    /** @return suma przekazanych subwencji */
+    public long getSubwencje() {
+        return subwencje;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof SumyBudzetu inne)) return false;
+        return podatkiOdSprzedazy == inne.podatkiOdSprzedazy
+                && podatkiOdWygranych == inne.podatkiOdWygranych
+                && subwencje == inne.subwencje;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(podatkiOdSprzedazy, podatkiOdWygranych, subwencje);
+    }
+
+    @Override
+    public String toString() {
+        return "podatki od sprzedaży: " + podatkiOdSprzedazy
+                + ", podatki od wygranych: " + podatkiOdWygranych
+                + ", subwencje: " + subwencje;
+    }
+}
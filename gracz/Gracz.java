@@ -2,12 +2,20 @@ package totolotek.gracz;
 
 import totolotek.core.Kolektura;
 import totolotek.kupon.Kupon;
+import totolotek.raport.RaportTekstowy;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * Klasa abstrakcyjna reprezentująca gracza w systemie Totolotka.
- * Każdy gracz posiada imię, nazwisko, PESEL, środki pieniężne oraz listę zakupionych kuponów.
+ * Każdy gracz posiada imię, nazwisko, PESEL, środki pieniężne oraz identyfikatory zakupionych kuponów.
  * Gracz potrafi kupować kupony, wypisywać informacje o sobie oraz odbierać wygrane.
  */
 public abstract class Gracz {
@@ -17,10 +25,46 @@ public abstract class Gracz {
     protected final String nazwisko;
     /** Numer PESEL gracza */
     protected final String pesel;
-    /** Aktualna ilość środków pieniężnych gracza (w groszach) */
-    protected long srodki;
-    /** Lista posiadanych przez gracza kuponów */
-    protected final List<Kupon> kupony = new java.util.ArrayList<>();
+    /** Aktualna ilość środków pieniężnych gracza (w groszach), zmieniana atomowo */
+    protected volatile long srodki;
+    /**
+     * Kolejka dojrzewania posiadanych kuponów: numer ostatniego losowania kuponu -> kupony
+     * w kolejności zakupu. Kupony, które wzięły udział we wszystkich losowaniach, są na początku.
+     * Gracz pamięta tylko kolekturę i identyfikator kuponu – sam kupon przechowuje magazyn kolektury.
+     * Kupony dodają terminale i wątki potoków sprzedaży, więc dostęp do kolejki (i liczby kuponów)
+     * jest synchronizowany na niej samej.
+     */
+    private final TreeMap<Integer, PosiadaneKupony> kupony = new TreeMap<>();
+    /** Liczba posiadanych kuponów */
+    private int liczbaKuponow;
+
+    /** Kolektury i identyfikatory kuponów o tym samym ostatnim losowaniu, w kolejności zakupu */
+    private static final class PosiadaneKupony {
+        Kolektura[] kolektury = new Kolektura[1];
+        long[] identyfikatory = new long[1];
+        int rozmiar;
+
+        void dodaj(Kolektura kolektura, long id) {
+            if (rozmiar == identyfikatory.length) {
+                kolektury = Arrays.copyOf(kolektury, rozmiar * 2);
+                identyfikatory = Arrays.copyOf(identyfikatory, rozmiar * 2);
+            }
+            kolektury[rozmiar] = kolektura;
+            identyfikatory[rozmiar] = id;
+            rozmiar++;
+        }
+    }
+
+    /** Uchwyt do atomowych operacji na polu srodki */
+    private static final VarHandle SRODKI;
+
+    static {
+        try {
+            SRODKI = MethodHandles.lookup().findVarHandle(Gracz.class, "srodki", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
 
     /**
      * Konstruktor gracza.
@@ -40,13 +84,8 @@ public abstract class Gracz {
      * Wypisuje informacje o graczu: nazwisko, imię, PESEL, środki oraz identyfikatory posiadanych kuponów.
      */
     public void wypiszInformacje() {
-        System.out.println(nazwisko + " " + imie + ", PESEL: " + pesel);
-        System.out.printf("Środki: %d zł %02d gr\n", srodki / 100, srodki % 100);
-        if (kupony.isEmpty()) {
-            System.out.println("Brak kuponów.");
-        } else {
-            System.out.println("Identyfikatory posiadanych kuponów:");
-            kupony.forEach(k -> System.out.println("  " + k.getIdentyfikator()));
+        try (RaportTekstowy raport = RaportTekstowy.naStandardoweWyjscie()) {
+            raport.gracz(this);
         }
     }
 
@@ -56,18 +95,50 @@ public abstract class Gracz {
     public abstract void kupKupon();
 
     /**
-     * Odbiera wygrane z kuponów, które brały już udział we wszystkich swoich losowaniach.
+     * Odbiera wygrane z kuponów, których wszystkie losowania zostały już rozliczone.
      * Po odbiorze wygranej kupon jest usuwany z listy posiadanych kuponów.
+     * Przeglądane są tylko dojrzałe kupony z początku kolejki dojrzewania, a wygrane
+     * odbierane hurtowo w każdej z kolektur.
      */
     public void odbierzWygrane() {
-        kupony.removeIf(kupon -> {
-            // Jeśli kupon brał udział we wszystkich losowaniach
-            if (kupon.getOstatnieLosowanieKuponu() < kupon.getKolektura().getCentrala().getNajblizszeLosowanie()) {
-                kupon.getKolektura().wyplacWygrane(this, kupon); // Odbierz wygraną i usuń kupon
-                return true;
+        List<PosiadaneKupony> dojrzale = new ArrayList<>();
+        synchronized (kupony) {
+            if (kupony.isEmpty()) {
+                return;
+            }
+            int ostatnieRozliczone = kupony.firstEntry().getValue().kolektury[0]
+                    .getCentrala().getOstatnieRozliczoneLosowanie();
+            while (!kupony.isEmpty() && kupony.firstKey() <= ostatnieRozliczone) {
+                PosiadaneKupony posiadane = kupony.pollFirstEntry().getValue();
+                dojrzale.add(posiadane);
+                liczbaKuponow -= posiadane.rozmiar;
             }
-            return false;
-        });
+        }
+        // widoki kuponów i wypłata już poza blokadą – zakup kolejnych kuponów nie czeka na kolektury;
+        // kolejność kolektur jak w kolejce, by wypłaty były powtarzalne
+        Map<Kolektura, List<Kupon>> wgKolektur = new LinkedHashMap<>();
+        for (PosiadaneKupony posiadane : dojrzale) {
+            dopiszWidoki(posiadane, wgKolektur);
+        }
+        for (Map.Entry<Kolektura, List<Kupon>> wpis : wgKolektur.entrySet()) {
+            wpis.getKey().wyplacWygrane(this, wpis.getValue()); // Odbierz wygrane z usuniętych kuponów
+        }
+    }
+
+    /**
+     * Sprawdza, czy gracz ma kupon, którego nie wszystkie losowania zostały już rozliczone.
+     * Wystarczy spojrzeć na koniec kolejki dojrzewania.
+     * @return true jeśli któryś z kuponów czeka jeszcze na losowanie
+     */
+    public boolean maAktywnyKupon() {
+        synchronized (kupony) {
+            if (kupony.isEmpty()) {
+                return false;
+            }
+            Map.Entry<Integer, PosiadaneKupony> ostatni = kupony.lastEntry();
+            return ostatni.getKey() > ostatni.getValue().kolektury[0]
+                    .getCentrala().getOstatnieRozliczoneLosowanie();
+        }
     }
 
     /**
@@ -77,27 +148,87 @@ public abstract class Gracz {
      * @param kolektura kolektura, w której próbujemy wypłacić wygraną
      */
     public void wyplacKupon(int index, Kolektura kolektura) {
-        if (index < 0 || index >= kupony.size())
+        List<Kupon> posiadane = getKupony();
+        if (index < 0 || index >= posiadane.size())
             throw new IllegalArgumentException("Nie posiadasz tylu kuponów: " + imie);
-        if (!kolektura.wyplacWygrane(this, kupony.get(index))) {
+        if (!kolektura.wyplacWygrane(this, posiadane.get(index))) {
             throw new IllegalArgumentException("Błędna próba wypłaty wygranej kuponu");
         }
     }
 
     /**
-     * Zwraca niezmienną listę posiadanych przez gracza kuponów.
+     * Zwraca kolekturę, w której gracz kupuje najczęściej – według niej symulacja
+     * grupuje graczy, by ograniczyć rywalizację wątków o tę samą kolekturę.
+     * @return ulubiona kolektura lub null, jeśli gracz nie ma ulubionej
+     */
+    public Kolektura getUlubionaKolektura() {
+        return null;
+    }
+
+    /** @return imię gracza */
+    public String getImie() {
+        return imie;
+    }
+
+    /** @return nazwisko gracza */
+    public String getNazwisko() {
+        return nazwisko;
+    }
+
+    /** @return numer PESEL gracza */
+    public String getPesel() {
+        return pesel;
+    }
+
+    /**
+     * Zwraca niezmienną listę posiadanych przez gracza kuponów, w kolejności ostatnich losowań
+     * kuponów, a przy równych – w kolejności zakupu. Kupony wyszukiwane są w magazynach kolektur,
+     * więc kolektura z magazynem kolumnowym zwraca ich widoki.
      * @return lista kuponów
      */
     public List<Kupon> getKupony() {
-        return java.util.Collections.unmodifiableList(kupony);
+        List<Kupon> lista;
+        synchronized (kupony) {
+            lista = new ArrayList<>(liczbaKuponow);
+            for (PosiadaneKupony posiadane : kupony.values()) {
+                for (int i = 0; i < posiadane.rozmiar; i++) {
+                    lista.add(posiadane.kolektury[i].znajdzKupon(posiadane.identyfikatory[i]));
+                }
+            }
+        }
+        return java.util.Collections.unmodifiableList(lista);
+    }
+
+    /** @return liczba posiadanych kuponów */
+    public int getLiczbaKuponow() {
+        synchronized (kupony) {
+            return liczbaKuponow;
+        }
     }
 
     /**
-     * Dodaje nowy kupon do listy posiadanych kuponów.
+     * Dodaje nowy kupon do listy posiadanych kuponów. Zapamiętywane są tylko kolektura
+     * i identyfikator, więc kupon musi być już zarejestrowany w magazynie kolektury.
+     * Bezpieczne dla wielu wątków, np. kilku terminali lub wątków potoku sprzedających temu samemu graczowi.
      * @param nowyKupon kupon do dodania
      */
     public void dodajKupon(Kupon nowyKupon) {
-        kupony.add(nowyKupon);
+        synchronized (kupony) {
+            kupony.computeIfAbsent(nowyKupon.getOstatnieLosowanieKuponu(), k -> new PosiadaneKupony())
+                    .dodaj(nowyKupon.getKolektura(), nowyKupon.getId());
+            liczbaKuponow++;
+        }
+    }
+
+    /**
+     * Dopisuje widoki kuponów do list kuponów ich kolektur.
+     */
+    private static void dopiszWidoki(PosiadaneKupony posiadane, Map<Kolektura, List<Kupon>> wgKolektur) {
+        for (int i = 0; i < posiadane.rozmiar; i++) {
+            Kolektura kolektura = posiadane.kolektury[i];
+            wgKolektur.computeIfAbsent(kolektura, k -> new ArrayList<>())
+                    .add(kolektura.znajdzKupon(posiadane.identyfikatory[i]));
+        }
     }
 
     /**
@@ -105,7 +236,25 @@ public abstract class Gracz {
      * @param kwota kwota do odjęcia (w groszach)
      */
     public void odejmijSrodki(long kwota) {
-        srodki -= kwota;
+        SRODKI.getAndAdd(this, -kwota);
+    }
+
+    /**
+     * Atomowo pobiera podaną kwotę, o ile gracz ma wystarczające środki.
+     * Sprawdzenie i pobranie stanowią jedną operację, więc gracz obsługiwany
+     * równocześnie przez kilka terminali nigdy nie zejdzie poniżej zera.
+     * @param kwota kwota do pobrania (w groszach)
+     * @return true jeśli środki zostały pobrane, false jeśli gracz ma ich za mało
+     */
+    public boolean pobierzSrodki(long kwota) {
+        long stan;
+        do {
+            stan = srodki;
+            if (stan < kwota) {
+                return false;
+            }
+        } while (!SRODKI.compareAndSet(this, stan, stan - kwota));
+        return true;
     }
 
     /**
@@ -113,7 +262,7 @@ public abstract class Gracz {
      * @param kwota kwota do dodania (w groszach)
      */
     public void dodajSrodki(long kwota) {
-        srodki += kwota;
+        SRODKI.getAndAdd(this, kwota);
     }
 
     /**
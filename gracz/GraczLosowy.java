@@ -1,10 +1,9 @@
 package totolotek.gracz;
 
 import totolotek.core.Kolektura;
-import totolotek.kupon.Kupon;
+import totolotek.losowanie.ZrodloLosowosci;
 
 import java.util.List;
-import java.util.Random;
 
 /**
  * GraczLosowy reprezentuje gracza, który:
@@ -16,7 +15,7 @@ public class GraczLosowy extends Gracz {
     /** Lista dostępnych kolektur, w których gracz może kupować kupony */
     private final List<Kolektura> kolektury;
     /** Generator liczb losowych używany przez gracza */
-    private final Random rand = new Random();
+    private final ZrodloLosowosci rand;
 
     /**
      * Tworzy gracza losowego o losowych środkach i dostępnych kolekturach.
@@ -26,7 +25,20 @@ public class GraczLosowy extends Gracz {
      * @param kolektury lista kolektur, w których gracz może kupować kupony
      */
     public GraczLosowy(String imie, String nazwisko, String pesel, List<Kolektura> kolektury) {
+        this(imie, nazwisko, pesel, kolektury, ZrodloLosowosci.domyslne());
+    }
+
+    /**
+     * Tworzy gracza losowego, którego decyzje pochodzą z podanego źródła losowości.
+     * @param imie imię gracza
+     * @param nazwisko nazwisko gracza
+     * @param pesel numer PESEL gracza
+     * @param kolektury lista kolektur, w których gracz może kupować kupony
+     * @param zrodlo źródło losowości gracza
+     */
+    public GraczLosowy(String imie, String nazwisko, String pesel, List<Kolektura> kolektury, ZrodloLosowosci zrodlo) {
         super(imie, nazwisko, pesel, 0);
+        this.rand = zrodlo;
         wylosujSrodki();
         this.kolektury = kolektury;
     }
@@ -35,7 +47,7 @@ public class GraczLosowy extends Gracz {
      * Losuje początkową ilość środków gracza (maksymalnie 1 000 000 zł, czyli 100 000 000 gr).
      */
     private void wylosujSrodki() {
-        this.srodki = rand.nextLong(100_000_000);
+        this.srodki = rand.losujLong(100_000_000);
     }
 
     /**
@@ -45,15 +57,12 @@ public class GraczLosowy extends Gracz {
      */
     @Override
     public void kupKupon() {
-        int ileKuponow = rand.nextInt(100) + 1;
+        int ileKuponow = rand.losujInt(100) + 1;
         for (int i = 0; i < ileKuponow; i++) {
-            Kolektura kolektura = kolektury.get(rand.nextInt(kolektury.size()));
-            int ileZakladow = rand.nextInt(8) + 1;
-            int ileLosowan = rand.nextInt(10) + 1;
-            Kupon kupon = kolektura.sprzedajKuponChybilTraf(ileZakladow, ileLosowan, this);
-            if (kupon != null) {
-                this.dodajKupon(kupon);
-            }
+            Kolektura kolektura = kolektury.get(rand.losujInt(kolektury.size()));
+            int ileZakladow = rand.losujInt(8) + 1;
+            int ileLosowan = rand.losujInt(10) + 1;
+            kolektura.sprzedajKuponChybilTraf(ileZakladow, ileLosowan, this);
         }
     }
 }
@@ -22,7 +22,7 @@ public class GraczMinimalista extends Gracz {
     @Override
     public void kupKupon() {
         // Sprawdź, czy gracz ma już aktywny kupon na przyszłe losowanie
-        if(!kupony.isEmpty()){
+        if(getLiczbaKuponow() > 0){
             return;
         }
         // Kup jeden zakład, jedno losowanie, chybił-trafił
@@ -33,6 +33,7 @@ public class GraczMinimalista extends Gracz {
     /**
      * Zwraca ulubioną kolekturę gracza.
      */
+    @Override
     public Kolektura getUlubionaKolektura() {
         return ulubionaKolektura;
     }
@@ -68,8 +68,15 @@ public class GraczStaloblankietowy extends Gracz {
 
         Kupon kupon = kolektura.sprzedajKupon(ulubionyBlankiet, this);
         if (kupon != null) {
-            this.dodajKupon(kupon);
             losowaniaDoNowegoKuponu = coIleLosowan;
         }
     }
+
+    /**
+     * Zwraca pierwszą z ulubionych kolektur gracza.
+     */
+    @Override
+    public Kolektura getUlubionaKolektura() {
+        return ulubioneKolektury.get(0);
+    }
 }
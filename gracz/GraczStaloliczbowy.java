@@ -2,7 +2,6 @@ package totolotek.gracz;
 
 import totolotek.core.Kolektura;
 import totolotek.kupon.Blankiet;
-import totolotek.kupon.Kupon;
 import totolotek.kupon.PoleBlankietu;
 
 import java.util.List;
@@ -16,8 +15,8 @@ import java.util.Set;
 public class GraczStaloliczbowy extends Gracz {
     /** Lista ulubionych kolektur, w których gracz kupuje kupony (cyklicznie) */
     private final List<Kolektura> ulubioneKolektury;
-    /** Zestaw 6 ulubionych liczb gracza */
-    private final Set<Integer> ulubioneLiczby;
+    /** Blankiet z ulubionymi liczbami na 10 losowań, przygotowany raz i używany przy każdym zakupie */
+    private final Blankiet blankiet;
     /** Indeks aktualnie wybieranej kolektury z listy */
     private int kolekturaIdx = 0;
 
@@ -34,7 +33,10 @@ public class GraczStaloliczbowy extends Gracz {
                               List<Kolektura> ulubioneKolektury, Set<Integer> ulubioneLiczby) {
         super(imie, nazwisko, pesel, srodki);
         this.ulubioneKolektury = ulubioneKolektury;
-        this.ulubioneLiczby = ulubioneLiczby;
+        this.blankiet = new Blankiet();
+        blankiet.ustawPole(0, new PoleBlankietu(ulubioneLiczby, false));
+        for (int i = 1; i < 8; i++) blankiet.ustawPole(i, null);
+        blankiet.zaznaczLiczbeLosowan(10);
     }
 
     /**
@@ -45,23 +47,21 @@ public class GraczStaloliczbowy extends Gracz {
     @Override
     public void kupKupon() {
         // Sprawdź, czy gracz ma już aktywny kupon (niezrealizowany)
-        boolean aktywny = kupony.stream().anyMatch(k -> !k.czyZrealizowany());
-        if (aktywny) return;
+        if (maAktywnyKupon()) return;
 
         // Wybierz kolekturę cyklicznie z listy
         Kolektura kolektura = ulubioneKolektury.get(kolekturaIdx);
         kolekturaIdx = (kolekturaIdx + 1) % ulubioneKolektury.size();
 
-        // Przygotuj blankiet z ulubionymi liczbami na 10 losowań
-        Blankiet blankiet = new Blankiet();
-        blankiet.ustawPole(0, new PoleBlankietu(ulubioneLiczby, false));
-        for (int i = 1; i < 8; i++) blankiet.ustawPole(i, null);
-        blankiet.zaznaczLiczbeLosowan(10);
+        // Kup kupon w wybranej kolekturze (kolektura sama dopisuje go do kuponów gracza)
+        kolektura.sprzedajKupon(blankiet, this);
+    }
 
-        // Kup kupon w wybranej kolekturze
-        Kupon kupon = kolektura.sprzedajKupon(blankiet, this);
-        if (kupon != null) {
-            this.dodajKupon(kupon);
-        }
+    /**
+     * Zwraca pierwszą z ulubionych kolektur gracza.
+     */
+    @Override
+    public Kolektura getUlubionaKolektura() {
+        return ulubioneKolektury.get(0);
     }
 }
@@ -0,0 +1,162 @@
+package totolotek.kupon;
+
+/**
+ * Operacje na 64-bitowych identyfikatorach kuponów.
+ *
+ * Identyfikator to dodatnia liczba {@code long} o układzie (od najstarszych bitów):
+ * <pre>
+ *   0 | kolektura (12) | numer kuponu (28) | znacznik losowy (16) | suma kontrolna (7)
+ * </pre>
+ * Postać tekstowa „numer-kolektura-znacznik-suma” tworzona jest wyłącznie do wydruku
+ * i parsowana z powrotem przy odbiorze wygranej. Suma kontrolna to suma cyfr numeru,
+ * kolektury i znacznika modulo 100 – wykrywa większość pomyłek przy przepisywaniu.
+ */
+public final class IdKuponu {
+    /** Wartość oznaczająca brak identyfikatora binarnego */
+    public static final long BRAK = 0L;
+
+    private static final int BITY_SUMY = 7;
+    private static final int BITY_ZNACZNIKA = 16;
+    private static final int BITY_NUMERU = 28;
+    private static final int BITY_KOLEKTURY = 12;
+
+    private static final int PRZESUNIECIE_ZNACZNIKA = BITY_SUMY;
+    private static final int PRZESUNIECIE_NUMERU = PRZESUNIECIE_ZNACZNIKA + BITY_ZNACZNIKA;
+    private static final int PRZESUNIECIE_KOLEKTURY = PRZESUNIECIE_NUMERU + BITY_NUMERU;
+
+    /** Największy numer kolektury, który mieści się w identyfikatorze */
+    public static final int MAX_KOLEKTURA = (1 << BITY_KOLEKTURY) - 1;
+    /** Największy numer kuponu w obrębie kolektury */
+    public static final int MAX_NUMER = (1 << BITY_NUMERU) - 1;
+    /** Liczba możliwych znaczników losowych */
+    public static final int LICZBA_ZNACZNIKOW = 1 << BITY_ZNACZNIKA;
+
+    private IdKuponu() {
+    }
+
+    /**
+     * Tworzy identyfikator kuponu i wylicza jego sumę kontrolną.
+     * @param kolektura numer kolektury (0..{@value #MAX_KOLEKTURA})
+     * @param numer numer kuponu w kolekturze (1..{@value #MAX_NUMER})
+     * @param znacznik znacznik losowy (0..{@value #LICZBA_ZNACZNIKOW}-1)
+     * @return identyfikator kuponu
+     * @throws IllegalArgumentException jeśli któraś część jest spoza zakresu
+     */
+    public static long utworz(int kolektura, int numer, int znacznik) {
+        if (kolektura < 0 || kolektura > MAX_KOLEKTURA) {
+            throw new IllegalArgumentException("Numer kolektury spoza zakresu: " + kolektura);
+        }
+        if (numer < 1 || numer > MAX_NUMER) {
+            throw new IllegalArgumentException("Numer kuponu spoza zakresu: " + numer);
+        }
+        if (znacznik < 0 || znacznik >= LICZBA_ZNACZNIKOW) {
+            throw new IllegalArgumentException("Znacznik spoza zakresu: " + znacznik);
+        }
+        return (long) kolektura << PRZESUNIECIE_KOLEKTURY
+                | (long) numer << PRZESUNIECIE_NUMERU
+                | (long) znacznik << PRZESUNIECIE_ZNACZNIKA
+                | sumaKontrolna(kolektura, numer, znacznik);
+    }
+
+    /**
+     * @return numer kolektury zapisany w identyfikatorze
+     */
+    public static int getKolektura(long id) {
+        return (int) (id >>> PRZESUNIECIE_KOLEKTURY) & MAX_KOLEKTURA;
+    }
+
+    /**
+     * @return numer kuponu w kolekturze zapisany w identyfikatorze
+     */
+    public static int getNumer(long id) {
+        return (int) (id >>> PRZESUNIECIE_NUMERU) & MAX_NUMER;
+    }
+
+    /**
+     * @return znacznik losowy zapisany w identyfikatorze
+     */
+    public static int getZnacznik(long id) {
+        return (int) (id >>> PRZESUNIECIE_ZNACZNIKA) & (LICZBA_ZNACZNIKOW - 1);
+    }
+
+    /**
+     * @return suma kontrolna zapisana w identyfikatorze
+     */
+    public static int getSumaKontrolna(long id) {
+        return (int) id & ((1 << BITY_SUMY) - 1);
+    }
+
+    /**
+     * Sprawdza, czy liczba jest poprawnym identyfikatorem (dodatnia, numer co najmniej 1,
+     * zgodna suma kontrolna).
+     */
+    public static boolean czyPoprawny(long id) {
+        return id > 0 && getNumer(id) >= 1
+                && getSumaKontrolna(id) == sumaKontrolna(getKolektura(id), getNumer(id), getZnacznik(id));
+    }
+
+    /**
+     * Tworzy postać tekstową identyfikatora, np. {@code 12-3-04567-27}.
+     * @param id identyfikator kuponu
+     * @return napis „numer-kolektura-znacznik-suma”
+     */
+    public static String naNapis(long id) {
+        StringBuilder sb = new StringBuilder(24);
+        sb.append(getNumer(id)).append('-').append(getKolektura(id)).append('-');
+        int znacznik = getZnacznik(id);
+        for (int dzielnik = 10_000; dzielnik > 1 && znacznik < dzielnik; dzielnik /= 10) {
+            sb.append('0');
+        }
+        sb.append(znacznik).append('-');
+        int suma = getSumaKontrolna(id);
+        if (suma < 10) sb.append('0');
+        return sb.append(suma).toString();
+    }
+
+    /**
+     * Parsuje postać tekstową identyfikatora.
+     * @param napis napis „numer-kolektura-znacznik-suma”
+     * @return identyfikator kuponu lub {@link #BRAK}, jeśli napis nie jest poprawnym identyfikatorem
+     */
+    public static long zNapisu(String napis) {
+        if (napis == null) {
+            return BRAK;
+        }
+        long[] czesci = new long[4];
+        int poczatek = 0;
+        for (int i = 0; i < czesci.length; i++) {
+            int koniec = i < czesci.length - 1 ? napis.indexOf('-', poczatek) : napis.length();
+            if (koniec <= poczatek || koniec - poczatek > 10) {
+                return BRAK;
+            }
+            long wartosc = 0;
+            for (int j = poczatek; j < koniec; j++) {
+                char c = napis.charAt(j);
+                if (c < '0' || c > '9') {
+                    return BRAK;
+                }
+                wartosc = wartosc * 10 + (c - '0');
+            }
+            czesci[i] = wartosc;
+            poczatek = koniec + 1;
+        }
+        long numer = czesci[0], kolektura = czesci[1], znacznik = czesci[2], suma = czesci[3];
+        if (numer < 1 || numer > MAX_NUMER || kolektura > MAX_KOLEKTURA || znacznik >= LICZBA_ZNACZNIKOW
+                || suma != sumaKontrolna((int) kolektura, (int) numer, (int) znacznik)) {
+            return BRAK;
+        }
+        return utworz((int) kolektura, (int) numer, (int) znacznik);
+    }
+
+    private static int sumaKontrolna(int kolektura, int numer, int znacznik) {
+        return (sumaCyfr(numer) + sumaCyfr(kolektura) + sumaCyfr(znacznik)) % 100;
+    }
+
+    private static int sumaCyfr(int liczba) {
+        int suma = 0;
+        for (; liczba > 0; liczba /= 10) {
+            suma += liczba % 10;
+        }
+        return suma;
+    }
+}
@@ -3,10 +3,11 @@ package totolotek.kupon;
 import totolotek.core.Centrala;
 import totolotek.core.Kolektura;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.AbstractList;
 import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 /**
  * Klasa reprezentująca kupon Totolotka.
@@ -15,26 +16,72 @@ import java.util.stream.IntStream;
  * Jest niezbędny do odbioru ewentualnych wygranych.
  */
 public class Kupon {
-    /** Unikalny identyfikator kuponu */
-    private final String identyfikator;
+    /** Unikalny 64-bitowy identyfikator kuponu ({@link IdKuponu}) */
+    private final long id;
+    /** Postać tekstowa identyfikatora, tworzona leniwie */
+    private volatile String identyfikator;
     /** Lista zakładów przypisanych do kuponu */
     private final List<Zaklad> zaklady;
-    /** Liczba losowań, na które obowiązuje kupon */
+    /** Numer pierwszego losowania, na które obowiązuje kupon */
+    private final int pierwszeLosowanie;
+    /** Liczba kolejnych losowań, na które obowiązuje kupon */
     private final int liczbaLosowan;
-    /** Lista numerów losowań, w których bierze udział kupon */
-    private final List<Integer> numeryLosowan;
     /** Cena brutto kuponu (w groszach) */
     private final long cenaBrutto;
     /** Podatek od kuponu (w groszach) */
     private final long podatek;
     /** Czy kupon został już zrealizowany (odebrano wygraną) */
-    private boolean zrealizowany;
+    private volatile boolean zrealizowany;
     /** Kolektura, w której kupon został zakupiony */
-    private Kolektura kolektura;
+    private final Kolektura kolektura;
+
+    /** Uchwyt do atomowej zmiany pola zrealizowany */
+    private static final VarHandle ZREALIZOWANY;
+
+    static {
+        try {
+            ZREALIZOWANY = MethodHandles.lookup().findVarHandle(Kupon.class, "zrealizowany", boolean.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
 
     /**
      * Tworzy kupon na podstawie listy zakładów, liczby losowań, centrali i kolektury.
-     * Generuje listę numerów losowań od najbliższego.
+     * Kupon obowiązuje na kolejne losowania od najbliższego.
+     *
+     * @param id unikalny identyfikator kuponu ({@link IdKuponu})
+     * @param zaklady lista zakładów
+     * @param liczbaLosowan liczba losowań (musi być > 0)
+     * @param centrala centrala Totolotka (do pobrania numeru najbliższego losowania)
+     * @param kolektura kolektura, w której kupon został zakupiony
+     * @throws IllegalArgumentException jeśli id jest niepoprawny, zaklady są null lub liczbaLosowan <= 0
+     */
+    public Kupon(long id, List<Zaklad> zaklady, int liczbaLosowan, Centrala centrala, Kolektura kolektura) {
+        this(id, zaklady, centrala.getNajblizszeLosowanie(), liczbaLosowan, kolektura);
+    }
+
+    /**
+     * Tworzy kupon obowiązujący na kolejne losowania od podanego numeru.
+     * Służy do odtwarzania kuponów przechowywanych w innej postaci, np. w magazynie kolumnowym.
+     *
+     * @param id unikalny identyfikator kuponu ({@link IdKuponu})
+     * @param zaklady lista zakładów
+     * @param pierwszeLosowanie numer pierwszego losowania
+     * @param liczbaLosowan liczba losowań (musi być > 0)
+     * @param kolektura kolektura, w której kupon został zakupiony
+     * @throws IllegalArgumentException jeśli id jest niepoprawny, zaklady są null lub liczbaLosowan <= 0
+     */
+    public Kupon(long id, List<Zaklad> zaklady, int pierwszeLosowanie, int liczbaLosowan, Kolektura kolektura) {
+        this(id, null, zaklady, pierwszeLosowanie, liczbaLosowan, kolektura);
+        if (!IdKuponu.czyPoprawny(id)) {
+            throw new IllegalArgumentException("Niepoprawny identyfikator kuponu: " + id);
+        }
+    }
+
+    /**
+     * Tworzy kupon na podstawie listy zakładów, liczby losowań, centrali i kolektury,
+     * z identyfikatorem w postaci tekstowej.
      *
      * @param id unikalny identyfikator kuponu
      * @param zaklady lista zakładów
@@ -44,42 +91,64 @@ public class Kupon {
      * @throws IllegalArgumentException jeśli id, zaklady są null lub liczbaLosowan <= 0
      */
     public Kupon(String id, List<Zaklad> zaklady, int liczbaLosowan, Centrala centrala, Kolektura kolektura) {
-        if (id == null || zaklady == null || liczbaLosowan <= 0) {
-            throw new IllegalArgumentException();
-        }
-        this.zaklady = zaklady;
-        this.liczbaLosowan = liczbaLosowan;
-        this.zrealizowany = false;
-        this.identyfikator = id;
-        this.cenaBrutto = liczbaLosowan * 300L * zaklady.size();
-        this.podatek = cenaBrutto / 5;
-        this.kolektura = kolektura;
-        int start = centrala.getNajblizszeLosowanie();
-        this.numeryLosowan = IntStream.range(start, start + liczbaLosowan)
-                .boxed()
-                .collect(Collectors.toList());
+        this(IdKuponu.zNapisu(id), id, zaklady, centrala.getNajblizszeLosowanie(), liczbaLosowan, kolektura);
     }
 
     /**
      * Alternatywny konstruktor kuponu – przydatny do testów.
-     * Pozwala określić bezpośrednio listę numerów losowań.
+     * Pozwala określić bezpośrednio listę numerów losowań, które muszą być kolejnymi liczbami.
+     * Identyfikator zachowywany jest w podanej postaci; jeśli jest poprawnym identyfikatorem
+     * w formacie {@link IdKuponu}, kupon otrzymuje też odpowiadający mu identyfikator binarny.
      *
      * @param id unikalny identyfikator kuponu
      * @param zaklady lista zakładów
-     * @param numeryLosowan lista numerów losowań (nie może być pusta)
-     * @throws IllegalArgumentException jeśli id, zaklady lub numeryLosowan są null lub puste
+     * @param numeryLosowan lista kolejnych numerów losowań (nie może być pusta)
+     * @throws IllegalArgumentException jeśli id, zaklady lub numeryLosowan są null lub puste,
+     *         albo numery losowań nie są kolejnymi liczbami
      */
     public Kupon(String id, List<Zaklad> zaklady, List<Integer> numeryLosowan) {
-        if (id == null || zaklady == null || numeryLosowan == null || numeryLosowan.isEmpty()) {
+        this(IdKuponu.zNapisu(id), id, zaklady, pierwszyZZakresu(numeryLosowan), numeryLosowan.size(), null);
+    }
+
+    private Kupon(long id, String identyfikator, List<Zaklad> zaklady, int pierwszeLosowanie, int liczbaLosowan,
+                  Kolektura kolektura) {
+        if ((id == IdKuponu.BRAK && identyfikator == null) || zaklady == null || liczbaLosowan <= 0) {
             throw new IllegalArgumentException();
         }
+        this.id = id;
+        this.identyfikator = identyfikator;
         this.zaklady = zaklady;
-        this.liczbaLosowan = numeryLosowan.size();
+        this.pierwszeLosowanie = pierwszeLosowanie;
+        this.liczbaLosowan = liczbaLosowan;
         this.zrealizowany = false;
-        this.identyfikator = id;
         this.cenaBrutto = liczbaLosowan * 300L * zaklady.size();
         this.podatek = cenaBrutto / 5;
-        this.numeryLosowan = numeryLosowan;
+        this.kolektura = kolektura;
+    }
+
+    /**
+     * Sprawdza, że numery losowań są kolejnymi liczbami, i zwraca pierwszy z nich.
+     */
+    private static int pierwszyZZakresu(List<Integer> numeryLosowan) {
+        if (numeryLosowan == null || numeryLosowan.isEmpty()) {
+            throw new IllegalArgumentException();
+        }
+        int pierwszy = numeryLosowan.getFirst();
+        for (int i = 1; i < numeryLosowan.size(); i++) {
+            if (numeryLosowan.get(i) != pierwszy + i) {
+                throw new IllegalArgumentException("Numery losowań kuponu muszą być kolejnymi liczbami");
+            }
+        }
+        return pierwszy;
+    }
+
+    /**
+     * Zwraca 64-bitowy identyfikator kuponu.
+     * @return identyfikator kuponu lub {@link IdKuponu#BRAK}, jeśli kupon utworzono z napisu
+     *         spoza formatu {@link IdKuponu}
+     */
+    public long getId() {
+        return id;
     }
 
     /**
@@ -87,7 +156,12 @@ public class Kupon {
      * @return identyfikator kuponu
      */
     public String getIdentyfikator() {
-        return identyfikator;
+        String napis = identyfikator;
+        if (napis == null) {
+            napis = IdKuponu.naNapis(id);
+            identyfikator = napis;
+        }
+        return napis;
     }
 
     /**
@@ -122,12 +196,20 @@ public class Kupon {
         return this.kolektura;
     }
 
+    /**
+     * Zwraca numer pierwszego losowania, na które obowiązuje kupon.
+     * @return numer pierwszego losowania
+     */
+    public int getPierwszeLosowanie() {
+        return pierwszeLosowanie;
+    }
+
     /**
      * Zwraca numer ostatniego losowania, na które obowiązuje kupon.
      * @return numer ostatniego losowania
      */
     public int getOstatnieLosowanieKuponu() {
-        return numeryLosowan.getLast();
+        return pierwszeLosowanie + liczbaLosowan - 1;
     }
 
     /**
@@ -153,6 +235,15 @@ public class Kupon {
         this.zrealizowany = true;
     }
 
+    /**
+     * Atomowo oznacza kupon jako zrealizowany, o ile nie był zrealizowany wcześniej.
+     * Gwarantuje, że z kuponu zgłaszanego równocześnie w kilku miejscach wygrana zostanie wypłacona raz.
+     * @return true jeśli to wywołanie zrealizowało kupon, false jeśli był już zrealizowany
+     */
+    public boolean zrealizuj() {
+        return ZREALIZOWANY.compareAndSet(this, false, true);
+    }
+
     /**
      * Zwraca tekstową reprezentację kuponu zgodną z wymaganiami zadania.
      * Zawiera identyfikator, zakłady, liczbę losowań, numery losowań i cenę.
@@ -163,7 +254,7 @@ public class Kupon {
         StringBuilder sb = new StringBuilder();
 
         // 1. Identyfikator kuponu
-        sb.append("KUPON NR ").append(identyfikator).append('\n');
+        sb.append("KUPON NR ").append(getIdentyfikator()).append('\n');
 
         // 2. Ponumerowana lista zakładów (każdy zestaw liczb wyrównany do prawej)
         int numerZakladu = 1;
@@ -181,7 +272,7 @@ public class Kupon {
 
         // 4. Lista numerów losowań w jednym wierszu
         sb.append("NUMERY LOSOWAŃ:\n");
-        for (int numerLosowania : numeryLosowan) {
+        for (int numerLosowania = pierwszeLosowanie; numerLosowania <= getOstatnieLosowanieKuponu(); numerLosowania++) {
             sb.append(" ").append(numerLosowania);
         }
         sb.append('\n');
@@ -202,9 +293,23 @@ public class Kupon {
 
     /**
      * Zwraca niezmienną listę numerów losowań, na które obowiązuje kupon.
+     * Lista jest widokiem na zakres losowań – kupon nie przechowuje numerów osobno.
      * @return lista numerów losowań
      */
     public List<Integer> getNumeryLosowan() {
-        return Collections.unmodifiableList(numeryLosowan);
+        return new AbstractList<>() {
+            @Override
+            public Integer get(int i) {
+                if (i < 0 || i >= liczbaLosowan) {
+                    throw new IndexOutOfBoundsException(i);
+                }
+                return pierwszeLosowanie + i;
+            }
+
+            @Override
+            public int size() {
+                return liczbaLosowan;
+            }
+        };
     }
 }
@@ -55,10 +55,11 @@ public class PoleBlankietu {
     /**
      * Generuje zakład na podstawie tego pola (jeśli jest poprawne).
      * Jeśli pole nie jest poprawne, zwraca null.
+     * Ten sam zestaw liczb daje zawsze wspólny egzemplarz zakładu z puli.
      */
     public Zaklad generujZaklad() {
         if (czyPoprawnyZaklad()) {
-            return new Zaklad(liczby);
+            return Zaklad.zMaski(Zaklad.maskaZbioru(liczby));
         }
         return null;
     }
@@ -0,0 +1,75 @@
+package totolotek.kupon;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Współbieżna pula zakładów: dla danej maski liczb zwraca jeden, wspólny egzemplarz
+ * niezmiennego {@link Zaklad}. Popularne zestawy liczb, grane na wielu kuponach,
+ * zajmują wtedy pamięć raz, a rozliczenie odwołuje się wciąż do tych samych obiektów.
+ *
+ * Pula trzyma zakłady przez słabe referencje – zakład, którego nie używa już żaden kupon,
+ * może zostać usunięty przez odśmiecacz, a jego wpis jest sprzątany przy kolejnym wstawieniu.
+ */
+final class PulaZakladow {
+    private static final ConcurrentHashMap<Long, Wpis> ZAKLADY = new ConcurrentHashMap<>();
+    private static final ReferenceQueue<Zaklad> USUNIETE = new ReferenceQueue<>();
+
+    /** Słaba referencja do zakładu, pamiętająca klucz swojego wpisu */
+    private static final class Wpis extends WeakReference<Zaklad> {
+        private final long maska;
+
+        Wpis(Zaklad zaklad) {
+            super(zaklad, USUNIETE);
+            this.maska = zaklad.getMaska();
+        }
+    }
+
+    private PulaZakladow() {
+    }
+
+    /**
+     * Zwraca wspólny zakład o podanej masce, tworząc go, jeśli nie ma go w puli.
+     * @param maska poprawna maska zakładu
+     * @return zakład z puli
+     */
+    static Zaklad zaklad(long maska) {
+        Wpis wpis = ZAKLADY.get(maska);
+        Zaklad zaklad = wpis == null ? null : wpis.get();
+        if (zaklad != null) {
+            return zaklad;
+        }
+        sprzataj();
+        Zaklad nowy = new Zaklad(maska);
+        while (true) {
+            wpis = ZAKLADY.putIfAbsent(maska, new Wpis(nowy));
+            if (wpis == null) {
+                return nowy;
+            }
+            zaklad = wpis.get();
+            if (zaklad != null) {
+                return zaklad;
+            }
+            // Wpis po usuniętym zakładzie – podmień go, o ile nikt nie zrobił tego wcześniej
+            if (ZAKLADY.replace(maska, wpis, new Wpis(nowy))) {
+                return nowy;
+            }
+        }
+    }
+
+    /**
+     * Usuwa wpisy zakładów usuniętych przez odśmiecacz.
+     */
+    private static void sprzataj() {
+        for (Object usuniety; (usuniety = USUNIETE.poll()) != null; ) {
+            Wpis wpis = (Wpis) usuniety;
+            ZAKLADY.remove(wpis.maska, wpis);
+        }
+    }
+
+    /** @return liczba wpisów w puli, łącznie z jeszcze niesprzątniętymi */
+    static int getRozmiar() {
+        return ZAKLADY.size();
+    }
+}
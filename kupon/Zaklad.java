@@ -1,17 +1,31 @@
 package totolotek.kupon;
 
+import totolotek.losowanie.ZrodloLosowosci;
+
 import java.util.*;
 
 /**
  * Klasa Zaklad reprezentuje pojedynczy zakład w grze Totolotek.
  * Zakład to zestaw 6 unikalnych liczb z zakresu 1-49.
+ *
+ * Liczby przechowywane są jako 49-bitowa maska (bit {@code n-1} odpowiada liczbie {@code n}),
+ * dzięki czemu liczenie trafień sprowadza się do jednej koniunkcji i {@link Long#bitCount}.
+ * Widok {@code Set<Integer>} tworzony jest leniwie, wyłącznie dla zgodności.
+ *
+ * Zakład jest niezmienny, więc ten sam egzemplarz może być współdzielony przez wiele kuponów;
+ * {@link #zMaski(long)} zwraca wspólne egzemplarze z puli zakładów.
  */
 public class Zaklad {
     public static final int LICZBA_TYPÓW = 6;
     public static final int MIN_LICZBA = 1;
     public static final int MAX_LICZBA = 49;
+    /** Maska wszystkich dozwolonych liczb (bity 0..48) */
+    public static final long MASKA_ZAKRESU = (1L << MAX_LICZBA) - 1;
 
-    private final Set<Integer> liczby;
+    /** Obstawione liczby zakodowane jako maska bitowa */
+    private final long maska;
+    /** Leniwie tworzony widok liczb (tylko dla zgodności) */
+    private volatile Set<Integer> liczby;
 
     /**
      * Tworzy zakład na podstawie przekazanego zbioru liczb.
@@ -25,28 +39,102 @@ public class Zaklad {
             if (liczba < MIN_LICZBA || liczba > MAX_LICZBA)
                 throw new IllegalArgumentException("Liczby muszą być z zakresu 1-49.");
         }
-        // TreeSet automatycznie sortuje i eliminuje duplikaty
-        this.liczby = Collections.unmodifiableSet(new TreeSet<>(liczby));
+        this.maska = maskaZbioru(liczby);
+    }
+
+    /**
+     * Tworzy zakład bezpośrednio z maski bitowej.
+     * @param maska maska z dokładnie 6 ustawionymi bitami w zakresie 0..48
+     * @throws IllegalArgumentException jeśli maska nie koduje 6 liczb z zakresu 1-49
+     */
+    public Zaklad(long maska) {
+        if ((maska & ~MASKA_ZAKRESU) != 0)
+            throw new IllegalArgumentException("Liczby muszą być z zakresu 1-49.");
+        if (Long.bitCount(maska) != LICZBA_TYPÓW)
+            throw new IllegalArgumentException("Zakład musi zawierać dokładnie 6 liczb.");
+        this.maska = maska;
+    }
+
+    /**
+     * Zwraca zakład o podanej masce, współdzielony z innymi kuponami obstawiającymi te same liczby.
+     * @param maska maska z dokładnie 6 ustawionymi bitami w zakresie 0..48
+     * @return wspólny egzemplarz zakładu
+     * @throws IllegalArgumentException jeśli maska nie koduje 6 liczb z zakresu 1-49
+     */
+    public static Zaklad zMaski(long maska) {
+        if ((maska & ~MASKA_ZAKRESU) != 0)
+            throw new IllegalArgumentException("Liczby muszą być z zakresu 1-49.");
+        if (Long.bitCount(maska) != LICZBA_TYPÓW)
+            throw new IllegalArgumentException("Zakład musi zawierać dokładnie 6 liczb.");
+        return PulaZakladow.zaklad(maska);
     }
 
     //statyczna funkcja do tworzenia zakladow chybil-trafil
     public static Zaklad chybilTraf() {
-        Set<Integer> liczby = new TreeSet<>();
-        Random rand = new Random();
+        return chybilTraf(ZrodloLosowosci.domyslne());
+    }
+
+    /**
+     * Tworzy zakład „chybił-trafił” z liczb wylosowanych z podanego źródła.
+     * @param zrodlo źródło losowości
+     * @return nowy zakład
+     */
+    public static Zaklad chybilTraf(ZrodloLosowosci zrodlo) {
+        return new Zaklad(zrodlo.losujMaske());
+    }
+
+    /**
+     * Koduje zbiór liczb z zakresu 1-49 jako maskę bitową. Liczby spoza zakresu są pomijane.
+     * @param liczby zbiór liczb
+     * @return maska bitowa
+     */
+    public static long maskaZbioru(Collection<Integer> liczby) {
+        long maska = 0L;
+        for (int liczba : liczby) {
+            if (liczba >= MIN_LICZBA && liczba <= MAX_LICZBA) {
+                maska |= 1L << (liczba - MIN_LICZBA);
+            }
+        }
+        return maska;
+    }
 
-        while (liczby.size() < LICZBA_TYPÓW) {
-            int liczba = rand.nextInt(MAX_LICZBA - MIN_LICZBA + 1) + MIN_LICZBA;
-            liczby.add(liczba);
+    /**
+     * Dekoduje maskę bitową do rosnącego zbioru liczb.
+     * @param maska maska bitowa
+     * @return zbiór liczb w porządku rosnącym
+     */
+    public static SortedSet<Integer> liczbyZMaski(long maska) {
+        SortedSet<Integer> wynik = new TreeSet<>();
+        for (long m = maska; m != 0; m &= m - 1) {
+            wynik.add(Long.numberOfTrailingZeros(m) + MIN_LICZBA);
         }
+        return wynik;
+    }
 
-        return new Zaklad(liczby);
+    /**
+     * Liczba wspólnych liczb dwóch masek.
+     */
+    public static int liczbaTrafien(long maskaZakladu, long maskaWyniku) {
+        return Long.bitCount(maskaZakladu & maskaWyniku);
+    }
+
+    /**
+     * Zwraca maskę bitową obstawionych liczb.
+     */
+    public long getMaska() {
+        return maska;
     }
 
     /**
      * Zwraca niezmienny zbiór liczb obstawionych w tym zakładzie.
      */
     public Set<Integer> getLiczby() {
-        return liczby;
+        Set<Integer> wynik = liczby;
+        if (wynik == null) {
+            wynik = Collections.unmodifiableSet(liczbyZMaski(maska));
+            liczby = wynik;
+        }
+        return wynik;
     }
 
     /**
@@ -55,13 +143,16 @@ public class Zaklad {
      * @return liczba trafionych liczb (od 0 do 6)
      */
     public int liczbaTrafien(Set<Integer> wylosowaneLiczby) {
-        int trafienia = 0;
-        for (int liczba : liczby) {
-            if (wylosowaneLiczby.contains(liczba)) {
-                trafienia++;
-            }
-        }
-        return trafienia;
+        return liczbaTrafien(maskaZbioru(wylosowaneLiczby));
+    }
+
+    /**
+     * Oblicza liczbę trafień tego zakładu względem maski wyniku losowania.
+     * @param maskaWyniku maska 6 wylosowanych liczb
+     * @return liczba trafionych liczb (od 0 do 6)
+     */
+    public int liczbaTrafien(long maskaWyniku) {
+        return Long.bitCount(maska & maskaWyniku);
     }
 
     /**
@@ -69,11 +160,14 @@ public class Zaklad {
      */
     @Override
     public String toString() {
-        return liczby.stream()
-                .sorted()
-                .map(l -> String.format("%2d", l))
-                .reduce((a, b) -> a + " " + b)
-                .orElse("");
+        StringBuilder sb = new StringBuilder();
+        for (long m = maska; m != 0; m &= m - 1) {
+            int liczba = Long.numberOfTrailingZeros(m) + MIN_LICZBA;
+            if (sb.length() > 0) sb.append(' ');
+            if (liczba < 10) sb.append(' ');
+            sb.append(liczba);
+        }
+        return sb.toString();
     }
 
     /**
@@ -83,11 +177,11 @@ public class Zaklad {
     public boolean equals(Object obj) {
         if (this == obj) return true;
         if (!(obj instanceof Zaklad other)) return false;
-        return liczby.equals(other.liczby);
+        return maska == other.maska;
     }
 
     @Override
     public int hashCode() {
-        return liczby.hashCode();
+        return Long.hashCode(maska);
     }
 }
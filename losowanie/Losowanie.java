@@ -1,14 +1,19 @@
 package totolotek.losowanie;
 
+import totolotek.kupon.Zaklad;
+
+import java.io.PrintStream;
 import java.util.*;
 
 /**
  * Reprezentuje pojedyncze oficjalne losowanie Totolotka.
  * Przechowuje unikalny numer losowania oraz wynik (6 różnych liczb 1-49, rosnąco).
+ * Wynik zapisany jest jako maska bitowa w tym samym układzie co {@link Zaklad#getMaska()}.
  */
 public class Losowanie {
     private final int numerLosowania;
-    private final SortedSet<Integer> wynik; // TreeSet - automatycznie rosnąco
+    private final long maska; // bit n-1 <=> liczba n
+    private volatile SortedSet<Integer> wynik; // leniwy widok dla zgodności
     public static final int LICZBA_LOSOWANYCH_LICZB = 6;
 
     /**
@@ -17,11 +22,36 @@ public class Losowanie {
      * @param numerLosowania unikalny numer porządkowy (od 1)
      */
     public Losowanie(int numerLosowania) {
+        this(numerLosowania, ZrodloLosowosci.domyslne());
+    }
+
+    /**
+     * Tworzy losowanie z wynikiem wylosowanym z podanego źródła.
+     *
+     * @param numerLosowania unikalny numer porządkowy (od 1)
+     * @param zrodlo źródło losowości
+     */
+    public Losowanie(int numerLosowania, ZrodloLosowosci zrodlo) {
         this.numerLosowania = numerLosowania;
-        this.wynik = wylosujWynik();
+        this.maska = zrodlo.losujMaske();
     }
 
 
+    /**
+     * Tworzy losowanie o znanym wyniku, np. przy odtwarzaniu stanu z dziennika.
+     *
+     * @param numerLosowania unikalny numer porządkowy (od 1)
+     * @param maska maska 6 wylosowanych liczb w układzie {@link Zaklad#getMaska()}
+     * @throws IllegalArgumentException jeśli maska nie koduje 6 liczb z zakresu 1-49
+     */
+    public Losowanie(int numerLosowania, long maska) {
+        if ((maska & ~Zaklad.MASKA_ZAKRESU) != 0 || Long.bitCount(maska) != LICZBA_LOSOWANYCH_LICZB) {
+            throw new IllegalArgumentException("Wynik musi zawierać 6 liczb z zakresu 1-49.");
+        }
+        this.numerLosowania = numerLosowania;
+        this.maska = maska;
+    }
+
     /**
      * Zwraca numer tego losowania.
      */
@@ -33,14 +63,39 @@ public class Losowanie {
      * Zwraca niezmienny zbiór 6 wylosowanych liczb w porządku rosnącym.
      */
     public SortedSet<Integer> getWynik() {
-        return Collections.unmodifiableSortedSet(wynik);
+        SortedSet<Integer> widok = wynik;
+        if (widok == null) {
+            widok = Collections.unmodifiableSortedSet(Zaklad.liczbyZMaski(maska));
+            wynik = widok;
+        }
+        return widok;
     }
 
     /**
-     * Wypisuje losowanie w wymaganym formacie.
+     * Zwraca maskę bitową wylosowanych liczb.
+     */
+    public long getMaska() {
+        return maska;
+    }
+
+    /**
+     * Wypisuje losowanie w wymaganym formacie na standardowe wyjście, bez składania napisu.
+     * Raporty z wielu losowań tworzy {@code totolotek.raport.Raport}.
      */
     public void wypiszLosowanie() {
-        System.out.println(this);
+        PrintStream out = System.out;
+        out.print("Losowanie nr ");
+        out.println(numerLosowania);
+        out.print("Wyniki: ");
+        for (long m = maska; m != 0; m &= m - 1) {
+            int liczba = Long.numberOfTrailingZeros(m) + 1;
+            if (liczba < 10) {
+                out.print(' ');
+            }
+            out.print(liczba);
+            out.print(' ');
+        }
+        out.println();
     }
 
     /**
@@ -51,7 +106,7 @@ public class Losowanie {
         StringBuilder sb = new StringBuilder();
         sb.append("Losowanie nr ").append(numerLosowania).append("\n");
         sb.append("Wyniki: ");
-        for (int liczba : wynik) {
+        for (int liczba : getWynik()) {
             // Wyrównanie do prawej: jednocyfrowe z dodatkową spacją
             if (liczba < 10) {
                 sb.append(" ");
@@ -60,17 +115,4 @@ public class Losowanie {
         }
         return sb.toString();
     }
-
-    /**
-     * Losuje 6 różnych liczb z zakresu 1-49 i zwraca je jako posortowany zbiór.
-     */
-    private SortedSet<Integer> wylosujWynik() {
-        Random rand = new Random();
-        Set<Integer> liczby = new HashSet<>();
-        while (liczby.size() < LICZBA_LOSOWANYCH_LICZB) {
-            int liczba = rand.nextInt(49) + 1; // 1..49
-            liczby.add(liczba);
-        }
-        return new TreeSet<>(liczby); // automatycznie rosnąco
-    }
 }
@@ -0,0 +1,94 @@
+package totolotek.losowanie;
+
+import totolotek.kupon.Zaklad;
+
+/**
+ * Źródło liczb losowych używane przez losowania, kolektury i graczy.
+ *
+ * Źródła tworzone z ziarnem są powtarzalne: ten sam ciąg wywołań daje te same wyniki.
+ * Równoległe przebiegi pozostają powtarzalne, jeśli każdy wątek dostaje własny strumień
+ * wydzielony metodą {@link #rozdziel()} w ustalonej kolejności.
+ */
+public interface ZrodloLosowosci {
+    /**
+     * @param granica górna granica (wyłącznie), dodatnia
+     * @return liczba z zakresu [0, granica)
+     */
+    int losujInt(int granica);
+
+    /**
+     * @param granica górna granica (wyłącznie), dodatnia
+     * @return liczba z zakresu [0, granica)
+     */
+    long losujLong(long granica);
+
+    /**
+     * Wydziela nowe, niezależne źródło. Wynik zależy wyłącznie od stanu tego źródła,
+     * więc wydzielanie w ustalonej kolejności zachowuje powtarzalność.
+     * @return nowe źródło przeznaczone dla jednego wątku
+     */
+    ZrodloLosowosci rozdziel();
+
+    /**
+     * Losuje 6 różnych liczb z zakresu 1-49 (algorytm Floyda: dokładnie 6 losowań,
+     * bez odrzucania i bez tworzenia obiektów).
+     * @return maska bitowa w układzie {@link Zaklad#getMaska()}
+     */
+    default long losujMaske() {
+        long maska = 0L;
+        for (int j = Zaklad.MAX_LICZBA - Zaklad.LICZBA_TYPÓW; j < Zaklad.MAX_LICZBA; j++) {
+            int t = losujInt(j + 1);
+            maska |= (maska & (1L << t)) == 0 ? 1L << t : 1L << j;
+        }
+        return maska;
+    }
+
+    /**
+     * Wypełnia tablicę losowymi maskami zakładów „chybił-trafił”.
+     * @param maski tablica do wypełnienia
+     */
+    default void losujMaski(long[] maski) {
+        losujMaski(maski, 0, maski.length);
+    }
+
+    /**
+     * Wypełnia fragment tablicy [od, doIndeksu) losowymi maskami zakładów „chybił-trafił”.
+     * @param maski tablica do wypełnienia
+     * @param od pierwszy indeks (włącznie)
+     * @param doIndeksu ostatni indeks (wyłącznie)
+     */
+    default void losujMaski(long[] maski, int od, int doIndeksu) {
+        for (int i = od; i < doIndeksu; i++) {
+            maski[i] = losujMaske();
+        }
+    }
+
+    /**
+     * Zwraca wspólne, bezpieczne dla wielu wątków źródło bez ziarna.
+     * Każdy wątek losuje z własnego strumienia, bez synchronizacji.
+     * @return domyślne źródło losowości
+     */
+    static ZrodloLosowosci domyslne() {
+        return ZrodloSystemowe.INSTANCJA;
+    }
+
+    /**
+     * Tworzy powtarzalne źródło o podanym ziarnie. Źródło nie jest bezpieczne dla wielu wątków.
+     * @param ziarno ziarno generatora
+     * @return nowe źródło losowości
+     */
+    static ZrodloLosowosci zZiarnem(long ziarno) {
+        return new ZrodloRozdzielne(ziarno);
+    }
+
+    /**
+     * Tworzy źródło o podanym ziarnie bezpieczne dla wielu wątków: każdy wątek przy pierwszym
+     * użyciu dostaje własny strumień wydzielony ze strumienia głównego. Wyniki są powtarzalne,
+     * jeśli wątki po raz pierwszy sięgają po źródło w ustalonej kolejności.
+     * @param ziarno ziarno strumienia głównego
+     * @return nowe źródło losowości
+     */
+    static ZrodloLosowosci wspolbiezneZZiarnem(long ziarno) {
+        return new ZrodloWatkowe(ziarno);
+    }
+}
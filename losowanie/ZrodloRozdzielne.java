@@ -0,0 +1,34 @@
+package totolotek.losowanie;
+
+import java.util.SplittableRandom;
+
+/**
+ * Powtarzalne źródło losowości oparte na {@link SplittableRandom}.
+ * Nie jest bezpieczne dla wielu wątków – każdy wątek powinien dostać własne źródło z {@link #rozdziel()}.
+ */
+class ZrodloRozdzielne implements ZrodloLosowosci {
+    private final SplittableRandom generator;
+
+    ZrodloRozdzielne(long ziarno) {
+        this(new SplittableRandom(ziarno));
+    }
+
+    ZrodloRozdzielne(SplittableRandom generator) {
+        this.generator = generator;
+    }
+
+    @Override
+    public int losujInt(int granica) {
+        return generator.nextInt(granica);
+    }
+
+    @Override
+    public long losujLong(long granica) {
+        return generator.nextLong(granica);
+    }
+
+    @Override
+    public ZrodloLosowosci rozdziel() {
+        return new ZrodloRozdzielne(generator.split());
+    }
+}
@@ -0,0 +1,28 @@
+package totolotek.losowanie;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Źródło losowości bez ziarna oparte na {@link ThreadLocalRandom}.
+ */
+final class ZrodloSystemowe implements ZrodloLosowosci {
+    static final ZrodloSystemowe INSTANCJA = new ZrodloSystemowe();
+
+    private ZrodloSystemowe() {
+    }
+
+    @Override
+    public int losujInt(int granica) {
+        return ThreadLocalRandom.current().nextInt(granica);
+    }
+
+    @Override
+    public long losujLong(long granica) {
+        return ThreadLocalRandom.current().nextLong(granica);
+    }
+
+    @Override
+    public ZrodloLosowosci rozdziel() {
+        return new ZrodloRozdzielne(ThreadLocalRandom.current().nextLong());
+    }
+}
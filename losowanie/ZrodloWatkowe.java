@@ -0,0 +1,39 @@
+package totolotek.losowanie;
+
+import java.util.SplittableRandom;
+
+/**
+ * Źródło losowości z ziarnem, bezpieczne dla wielu wątków.
+ * Każdy wątek przy pierwszym użyciu wydziela własny strumień ze strumienia głównego,
+ * później losuje już bez synchronizacji.
+ */
+class ZrodloWatkowe implements ZrodloLosowosci {
+    private final SplittableRandom glowny;
+    private final ThreadLocal<SplittableRandom> strumienie;
+
+    ZrodloWatkowe(long ziarno) {
+        this.glowny = new SplittableRandom(ziarno);
+        this.strumienie = ThreadLocal.withInitial(this::wydziel);
+    }
+
+    @Override
+    public int losujInt(int granica) {
+        return strumienie.get().nextInt(granica);
+    }
+
+    @Override
+    public long losujLong(long granica) {
+        return strumienie.get().nextLong(granica);
+    }
+
+    @Override
+    public ZrodloLosowosci rozdziel() {
+        return new ZrodloRozdzielne(wydziel());
+    }
+
+    private SplittableRandom wydziel() {
+        synchronized (glowny) {
+            return glowny.split();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package totolotek.metryki;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram czasów trwania o przedziałach będących kolejnymi potęgami dwójki nanosekund.
+ * Zapis to wyznaczenie numeru przedziału instrukcją {@link Long#numberOfLeadingZeros}
+ * i zwiększenie licznika {@link LongAdder} – nie alokuje i nie blokuje.
+ * Percentyle szacowane są górną granicą przedziału, więc są zawyżone co najwyżej dwukrotnie.
+ */
+public final class HistogramCzasu {
+    private static final int LICZBA_PRZEDZIALOW = Long.SIZE;
+
+    /** Przedział i obejmuje czasy z [2^(i-1), 2^i) ns; przedział 0 – czas 0 */
+    private final LongAdder[] przedzialy = new LongAdder[LICZBA_PRZEDZIALOW];
+    private final LongAdder suma = new LongAdder();
+    private final LongAccumulator maksimum = new LongAccumulator(Math::max, 0);
+
+    public HistogramCzasu() {
+        for (int i = 0; i < LICZBA_PRZEDZIALOW; i++) {
+            przedzialy[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * @param nanosekundy czas trwania operacji; ujemne traktowane są jak 0
+     */
+    public void zapisz(long nanosekundy) {
+        long czas = Math.max(nanosekundy, 0);
+        przedzialy[Long.SIZE - Long.numberOfLeadingZeros(czas)].increment();
+        suma.add(czas);
+        maksimum.accumulate(czas);
+    }
+
+    /** @return liczba zapisanych pomiarów */
+    public long getLiczba() {
+        long liczba = 0;
+        for (LongAdder przedzial : przedzialy) {
+            liczba += przedzial.sum();
+        }
+        return liczba;
+    }
+
+    /** @return średni czas w nanosekundach lub 0, jeśli nie ma pomiarów */
+    public long getSrednia() {
+        long liczba = getLiczba();
+        return liczba == 0 ? 0 : suma.sum() / liczba;
+    }
+
+    /** @return najdłuższy zapisany czas w nanosekundach */
+    public long getMaksimum() {
+        return maksimum.get();
+    }
+
+    /**
+     * @param ulamek ułamek pomiarów (0..1), np. 0.99
+     * @return górna granica przedziału, w którym wypada percentyl, w nanosekundach
+     */
+    public long getPercentyl(double ulamek) {
+        long[] liczby = new long[LICZBA_PRZEDZIALOW];
+        long razem = 0;
+        for (int i = 0; i < LICZBA_PRZEDZIALOW; i++) {
+            liczby[i] = przedzialy[i].sum();
+            razem += liczby[i];
+        }
+        if (razem == 0) {
+            return 0;
+        }
+        long prog = (long) Math.ceil(ulamek * razem);
+        long narastajaco = 0;
+        for (int i = 0; i < LICZBA_PRZEDZIALOW; i++) {
+            narastajaco += liczby[i];
+            if (narastajaco >= Math.max(prog, 1)) {
+                return i == 0 ? 0 : Math.min((1L << i) - 1, getMaksimum());
+            }
+        }
+        return getMaksimum();
+    }
+}
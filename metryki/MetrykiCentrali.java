@@ -0,0 +1,130 @@
+package totolotek.metryki;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Liczniki losowań i wypłat centrali. Stan finansowy (środki, kumulacja, sumy budżetu)
+ * nie jest powielany w licznikach – odczytywany jest z centrali przy każdym odczycie atrybutu.
+ */
+public final class MetrykiCentrali implements MetrykiCentraliMBean {
+    private final LongAdder liczbaLosowan = new LongAdder();
+    private final LongAdder zakladyWszystkichLosowan = new LongAdder();
+    private volatile long zakladyOstatniegoLosowania;
+    private volatile long czasRozliczeniaOstatniego;
+    private final HistogramCzasu czasRozliczenia = new HistogramCzasu();
+    private final LongAdder liczbaWyplat = new LongAdder();
+    private final LongAdder kwotaWyplat = new LongAdder();
+    private final LongAdder liczbaSubwencji = new LongAdder();
+
+    private final LongSupplier srodki;
+    private final LongSupplier kumulacja;
+    private final LongSupplier podatki;
+    private final LongSupplier subwencje;
+
+    /**
+     * @param srodki odczyt środków centrali
+     * @param kumulacja odczyt kumulacji I stopnia
+     * @param podatki odczyt podatków pobranych przez budżet państwa
+     * @param subwencje odczyt subwencji przekazanych przez budżet państwa
+     */
+    public MetrykiCentrali(LongSupplier srodki, LongSupplier kumulacja, LongSupplier podatki, LongSupplier subwencje) {
+        this.srodki = srodki;
+        this.kumulacja = kumulacja;
+        this.podatki = podatki;
+        this.subwencje = subwencje;
+    }
+
+    /**
+     * @param nanosekundy czas przeprowadzenia i rozliczenia losowania
+     * @param zakladow liczba rozliczonych zakładów
+     */
+    public void losowanie(long nanosekundy, long zakladow) {
+        liczbaLosowan.increment();
+        zakladyWszystkichLosowan.add(zakladow);
+        zakladyOstatniegoLosowania = zakladow;
+        czasRozliczeniaOstatniego = nanosekundy;
+        czasRozliczenia.zapisz(nanosekundy);
+    }
+
+    /**
+     * @param kwota wypłacona kwota
+     * @param zSubwencja czy brakujące środki pokryła subwencja
+     */
+    public void wyplata(long kwota, boolean zSubwencja) {
+        liczbaWyplat.increment();
+        kwotaWyplat.add(kwota);
+        if (zSubwencja) {
+            liczbaSubwencji.increment();
+        }
+    }
+
+    public HistogramCzasu getCzasRozliczenia() {
+        return czasRozliczenia;
+    }
+
+    @Override
+    public long getLiczbaLosowan() {
+        return liczbaLosowan.sum();
+    }
+
+    @Override
+    public long getZakladyOstatniegoLosowania() {
+        return zakladyOstatniegoLosowania;
+    }
+
+    @Override
+    public long getZakladyWszystkichLosowan() {
+        return zakladyWszystkichLosowan.sum();
+    }
+
+    @Override
+    public long getCzasRozliczeniaOstatniegoNs() {
+        return czasRozliczeniaOstatniego;
+    }
+
+    @Override
+    public long getCzasRozliczeniaSredniNs() {
+        return czasRozliczenia.getSrednia();
+    }
+
+    @Override
+    public long getCzasRozliczeniaMaksNs() {
+        return czasRozliczenia.getMaksimum();
+    }
+
+    @Override
+    public long getLiczbaWyplat() {
+        return liczbaWyplat.sum();
+    }
+
+    @Override
+    public long getKwotaWyplat() {
+        return kwotaWyplat.sum();
+    }
+
+    @Override
+    public long getLiczbaSubwencji() {
+        return liczbaSubwencji.sum();
+    }
+
+    @Override
+    public long getSrodkiFinansowe() {
+        return srodki.getAsLong();
+    }
+
+    @Override
+    public long getKumulacja() {
+        return kumulacja.getAsLong();
+    }
+
+    @Override
+    public long getPobranePodatki() {
+        return podatki.getAsLong();
+    }
+
+    @Override
+    public long getPrzekazaneSubwencje() {
+        return subwencje.getAsLong();
+    }
+}
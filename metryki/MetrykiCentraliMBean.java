@@ -0,0 +1,34 @@
+package totolotek.metryki;
+
+/**
+ * Atrybuty JMX centrali i jej budżetu państwa. Czasy podawane są w nanosekundach, kwoty w groszach.
+ */
+public interface MetrykiCentraliMBean {
+    long getLiczbaLosowan();
+
+    /** @return liczba zakładów rozliczonych w ostatnim losowaniu */
+    long getZakladyOstatniegoLosowania();
+
+    long getZakladyWszystkichLosowan();
+
+    long getCzasRozliczeniaOstatniegoNs();
+
+    long getCzasRozliczeniaSredniNs();
+
+    long getCzasRozliczeniaMaksNs();
+
+    long getLiczbaWyplat();
+
+    long getKwotaWyplat();
+
+    /** @return liczba wypłat, których brak środków pokryła subwencja */
+    long getLiczbaSubwencji();
+
+    long getSrodkiFinansowe();
+
+    long getKumulacja();
+
+    long getPobranePodatki();
+
+    long getPrzekazaneSubwencje();
+}
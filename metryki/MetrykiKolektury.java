@@ -0,0 +1,133 @@
+package totolotek.metryki;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Liczniki i histogramy czasów sprzedaży oraz wypłat jednej kolektury.
+ * Metody zapisu wywoływane są na gorącej ścieżce, więc jedynie zwiększają
+ * liczniki {@link LongAdder}; wszystkie wyliczenia wykonywane są przy odczycie.
+ */
+public final class MetrykiKolektury implements MetrykiKolekturyMBean {
+    private final LongAdder sprzedaneKupony = new LongAdder();
+    private final LongAdder sprzedaneZaklady = new LongAdder();
+    private final LongAdder odmowySprzedazy = new LongAdder();
+    private final HistogramCzasu czasSprzedazy = new HistogramCzasu();
+    private final LongAdder zrealizowaneKupony = new LongAdder();
+    private final LongAdder odrzuconeKupony = new LongAdder();
+    private final LongAdder wyplaconoNetto = new LongAdder();
+    private final HistogramCzasu czasWyplaty = new HistogramCzasu();
+
+    /** Stan z poprzedniego odczytu tempa sprzedaży */
+    private long poprzedniOdczytNs = System.nanoTime();
+    private long poprzedniaSprzedaz;
+
+    /**
+     * @param nanosekundy czas sprzedaży
+     * @param zakladow liczba zakładów sprzedanego kuponu
+     */
+    public void sprzedaz(long nanosekundy, int zakladow) {
+        sprzedaneKupony.increment();
+        sprzedaneZaklady.add(zakladow);
+        czasSprzedazy.zapisz(nanosekundy);
+    }
+
+    public void odmowaSprzedazy() {
+        odmowySprzedazy.increment();
+    }
+
+    /**
+     * @param nanosekundy czas hurtowej wypłaty
+     * @param zrealizowane liczba zrealizowanych kuponów
+     * @param odrzucone liczba kuponów odrzuconych przy weryfikacji
+     * @param netto łączna wypłacona kwota netto
+     */
+    public void wyplata(long nanosekundy, int zrealizowane, int odrzucone, long netto) {
+        zrealizowaneKupony.add(zrealizowane);
+        odrzuconeKupony.add(odrzucone);
+        wyplaconoNetto.add(netto);
+        czasWyplaty.zapisz(nanosekundy);
+    }
+
+    public HistogramCzasu getCzasSprzedazy() {
+        return czasSprzedazy;
+    }
+
+    public HistogramCzasu getCzasWyplaty() {
+        return czasWyplaty;
+    }
+
+    @Override
+    public long getSprzedaneKupony() {
+        return sprzedaneKupony.sum();
+    }
+
+    @Override
+    public long getSprzedaneZaklady() {
+        return sprzedaneZaklady.sum();
+    }
+
+    @Override
+    public long getOdmowySprzedazy() {
+        return odmowySprzedazy.sum();
+    }
+
+    @Override
+    public synchronized double getSprzedazNaSekunde() {
+        long teraz = System.nanoTime();
+        long sprzedaz = sprzedaneKupony.sum();
+        double tempo = (sprzedaz - poprzedniaSprzedaz) * 1e9 / Math.max(teraz - poprzedniOdczytNs, 1);
+        poprzedniOdczytNs = teraz;
+        poprzedniaSprzedaz = sprzedaz;
+        return tempo;
+    }
+
+    @Override
+    public long getCzasSprzedazySredniNs() {
+        return czasSprzedazy.getSrednia();
+    }
+
+    @Override
+    public long getCzasSprzedazyP50Ns() {
+        return czasSprzedazy.getPercentyl(0.5);
+    }
+
+    @Override
+    public long getCzasSprzedazyP99Ns() {
+        return czasSprzedazy.getPercentyl(0.99);
+    }
+
+    @Override
+    public long getCzasSprzedazyMaksNs() {
+        return czasSprzedazy.getMaksimum();
+    }
+
+    @Override
+    public long getZrealizowaneKupony() {
+        return zrealizowaneKupony.sum();
+    }
+
+    @Override
+    public long getOdrzuconeKupony() {
+        return odrzuconeKupony.sum();
+    }
+
+    @Override
+    public long getWyplaconoNetto() {
+        return wyplaconoNetto.sum();
+    }
+
+    @Override
+    public long getCzasWyplatySredniNs() {
+        return czasWyplaty.getSrednia();
+    }
+
+    @Override
+    public long getCzasWyplatyP99Ns() {
+        return czasWyplaty.getPercentyl(0.99);
+    }
+
+    @Override
+    public long getCzasWyplatyMaksNs() {
+        return czasWyplaty.getMaksimum();
+    }
+}
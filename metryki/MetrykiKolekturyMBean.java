@@ -0,0 +1,37 @@
+package totolotek.metryki;
+
+/**
+ * Atrybuty JMX kolektury. Czasy podawane są w nanosekundach, kwoty w groszach.
+ */
+public interface MetrykiKolekturyMBean {
+    long getSprzedaneKupony();
+
+    long getSprzedaneZaklady();
+
+    /** @return liczba sprzedaży odrzuconych z powodu braku środków gracza */
+    long getOdmowySprzedazy();
+
+    /** @return średnia liczba sprzedanych kuponów na sekundę od poprzedniego odczytu tego atrybutu */
+    double getSprzedazNaSekunde();
+
+    long getCzasSprzedazySredniNs();
+
+    long getCzasSprzedazyP50Ns();
+
+    long getCzasSprzedazyP99Ns();
+
+    long getCzasSprzedazyMaksNs();
+
+    long getZrealizowaneKupony();
+
+    /** @return liczba kuponów odrzuconych przy weryfikacji w czasie wypłaty */
+    long getOdrzuconeKupony();
+
+    long getWyplaconoNetto();
+
+    long getCzasWyplatySredniNs();
+
+    long getCzasWyplatyP99Ns();
+
+    long getCzasWyplatyMaksNs();
+}
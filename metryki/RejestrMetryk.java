@@ -0,0 +1,73 @@
+package totolotek.metryki;
+
+import totolotek.core.Centrala;
+import totolotek.core.Kolektura;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Rejestruje metryki centrali i jej kolektur w serwerze MBean platformy pod nazwami
+ * {@code totolotek:type=Centrala,name=<nazwa>} oraz
+ * {@code totolotek:type=Kolektura,centrala=<nazwa>,numer=<numer kolektury>}.
+ */
+public final class RejestrMetryk {
+    private static final String DOMENA = "totolotek";
+
+    private RejestrMetryk() {
+    }
+
+    /**
+     * Rejestruje metryki centrali i wszystkich jej kolektur dodanych do tej chwili.
+     * @param centrala centrala
+     * @param nazwa nazwa odróżniająca centralę w JMX
+     * @throws IllegalStateException jeśli centrala o tej nazwie jest już zarejestrowana
+     */
+    public static void zarejestruj(Centrala centrala, String nazwa) {
+        MBeanServer serwer = ManagementFactory.getPlatformMBeanServer();
+        try {
+            serwer.registerMBean(centrala.getMetryki(), nazwaCentrali(nazwa));
+            for (Kolektura kolektura : centrala.getKolektury()) {
+                serwer.registerMBean(kolektura.getMetryki(), nazwaKolektury(nazwa, kolektura.getNumerKoloktury()));
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Nie udało się zarejestrować metryk centrali " + nazwa, e);
+        }
+    }
+
+    /**
+     * Wyrejestrowuje metryki centrali o podanej nazwie i wszystkich jej kolektur.
+     * @param nazwa nazwa podana przy rejestracji
+     */
+    public static void wyrejestruj(String nazwa) {
+        MBeanServer serwer = ManagementFactory.getPlatformMBeanServer();
+        try {
+            for (ObjectName obiekt : serwer.queryNames(nazwaKolektury(nazwa, -1), null)) {
+                serwer.unregisterMBean(obiekt);
+            }
+            if (serwer.isRegistered(nazwaCentrali(nazwa))) {
+                serwer.unregisterMBean(nazwaCentrali(nazwa));
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Nie udało się wyrejestrować metryk centrali " + nazwa, e);
+        }
+    }
+
+    /**
+     * @return nazwa JMX metryk centrali
+     */
+    public static ObjectName nazwaCentrali(String nazwa) throws JMException {
+        return new ObjectName(DOMENA + ":type=Centrala,name=" + ObjectName.quote(nazwa));
+    }
+
+    /**
+     * @param numer numer kolektury lub -1 dla wzorca obejmującego wszystkie kolektury centrali
+     * @return nazwa JMX metryk kolektury
+     */
+    public static ObjectName nazwaKolektury(String nazwa, int numer) throws JMException {
+        return new ObjectName(DOMENA + ":type=Kolektura,centrala=" + ObjectName.quote(nazwa)
+                + ",numer=" + (numer < 0 ? "*" : Integer.toString(numer)));
+    }
+}
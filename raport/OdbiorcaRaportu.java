@@ -0,0 +1,46 @@
+package totolotek.raport;
+
+import totolotek.core.BazaWygranych;
+import totolotek.finanse.SumyBudzetu;
+import totolotek.gracz.Gracz;
+
+import java.io.Flushable;
+
+/**
+ * Odbiorca wierszy raportu, np. plik tekstowy, CSV lub JSON Lines.
+ * Wiersze przekazywane są pojedynczo, więc raport z dowolnej liczby losowań
+ * nie jest budowany w pamięci. Błędy zapisu zgłaszane są jako {@link java.io.UncheckedIOException}.
+ */
+public interface OdbiorcaRaportu extends Flushable, AutoCloseable {
+    /**
+     * Wynik rozliczonego losowania.
+     * @param numer numer losowania
+     * @param maskaWyniku maska wylosowanych liczb
+     * @param baza pule nagród i liczby wygranych; null, jeśli nie są znane
+     */
+    void losowanie(int numer, long maskaWyniku, BazaWygranych baza);
+
+    /**
+     * Stan finansowy centrali (w groszach).
+     */
+    void stanFinansowy(long srodki, long kumulacja);
+
+    /**
+     * Łączne sumy budżetu państwa.
+     */
+    void budzet(SumyBudzetu razem);
+
+    /**
+     * Dane gracza, jego środki i identyfikatory posiadanych kuponów.
+     */
+    void gracz(Gracz gracz);
+
+    @Override
+    void flush();
+
+    /**
+     * Opróżnia bufor i zamyka docelowy strumień lub kanał.
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,74 @@
+package totolotek.raport;
+
+import totolotek.core.BazaWygranych;
+
+/**
+ * Wspólna podstawa odbiorców zapisujących raport znakowo przez {@link Wyjscie}.
+ */
+abstract class OdbiorcaZnakowy implements OdbiorcaRaportu {
+    /** Nazwy stopni wygranych w kolejności od najwyższego */
+    static final String[] STOPNIE = {"I", "II", "III", "IV"};
+
+    final Wyjscie wyjscie;
+
+    OdbiorcaZnakowy(Wyjscie wyjscie) {
+        this.wyjscie = wyjscie;
+    }
+
+    /**
+     * Dopisuje liczby z maski w kolejności rosnącej, rozdzielone podanym separatorem.
+     */
+    void liczbyZMaski(long maska, char separator) {
+        boolean pierwsza = true;
+        for (long m = maska; m != 0; m &= m - 1) {
+            if (!pierwsza) {
+                wyjscie.znak(separator);
+            }
+            wyjscie.liczba(Long.numberOfTrailingZeros(m) + 1);
+            pierwsza = false;
+        }
+    }
+
+    static long pula(BazaWygranych baza, int stopien) {
+        return switch (stopien) {
+            case 0 -> baza.getPulaI();
+            case 1 -> baza.getPulaII();
+            case 2 -> baza.getPulaIII();
+            default -> baza.getPulaIV();
+        };
+    }
+
+    static int liczbaWygranych(BazaWygranych baza, int stopien) {
+        return switch (stopien) {
+            case 0 -> baza.getLiczbaI();
+            case 1 -> baza.getLiczbaII();
+            case 2 -> baza.getLiczbaIII();
+            default -> baza.getLiczbaIV();
+        };
+    }
+
+    /**
+     * @return wygrana jednego zwycięzcy danego stopnia lub 0, jeśli nikt go nie osiągnął
+     */
+    static long wygrana(BazaWygranych baza, int stopien) {
+        if (liczbaWygranych(baza, stopien) == 0) {
+            return 0;
+        }
+        return switch (stopien) {
+            case 0 -> baza.getWygranaI();
+            case 1 -> baza.getWygranaII();
+            case 2 -> baza.getWygranaIII();
+            default -> baza.getWygranaIV();
+        };
+    }
+
+    @Override
+    public void flush() {
+        wyjscie.flush();
+    }
+
+    @Override
+    public void close() {
+        wyjscie.close();
+    }
+}
@@ -0,0 +1,74 @@
+package totolotek.raport;
+
+import totolotek.core.Centrala;
+import totolotek.core.TabelaWygranych;
+import totolotek.gracz.Gracz;
+
+/**
+ * Przekazuje odbiorcy raportu wyniki losowań i stan finansowy centrali.
+ * Losowania odczytywane są z opublikowanych tabel wygranych
+ * ({@link Centrala#getTabelaWygranych(int)}), więc raport może powstawać
+ * równolegle z kolejnymi losowaniami. Obiekt pamięta ostatnie wypisane losowanie,
+ * co pozwala wypisywać wyłącznie losowania dodane od poprzedniego raportu.
+ * Nie jest bezpieczny dla wielu wątków.
+ */
+public class Raport {
+    private final Centrala centrala;
+    private final OdbiorcaRaportu odbiorca;
+    /** Numer ostatniego losowania przekazanego odbiorcy */
+    private int ostatnieWypisane;
+
+    public Raport(Centrala centrala, OdbiorcaRaportu odbiorca) {
+        this.centrala = centrala;
+        this.odbiorca = odbiorca;
+    }
+
+    /**
+     * Wypisuje wszystkie rozliczone losowania. W odróżnieniu od
+     * {@link Centrala#wypiszWynikiLosowan()} pomija losowanie, którego tabela wygranych
+     * nie została jeszcze opublikowana, zamiast wypisać je bez puli nagród.
+     * @return liczba wypisanych losowań
+     */
+    public int wypiszLosowania() {
+        ostatnieWypisane = 0;
+        return wypiszNoweLosowania();
+    }
+
+    /**
+     * Wypisuje losowania rozliczone od poprzedniego wywołania
+     * {@link #wypiszLosowania()} lub {@link #wypiszNoweLosowania()}.
+     * @return liczba wypisanych losowań
+     */
+    public int wypiszNoweLosowania() {
+        int wypisane = 0;
+        TabelaWygranych tabela;
+        while ((tabela = centrala.getTabelaWygranych(ostatnieWypisane + 1)) != null) {
+            odbiorca.losowanie(tabela.getNumerLosowania(), tabela.getMaskaWyniku(), tabela.getBazaWygranych());
+            ostatnieWypisane++;
+            wypisane++;
+        }
+        return wypisane;
+    }
+
+    /**
+     * Wypisuje stan środków i kumulacji centrali oraz sumy budżetu państwa.
+     */
+    public void wypiszStanFinansowy() {
+        odbiorca.stanFinansowy(centrala.getSrodkiFinansowe(), centrala.getKumulacjaIstopnia());
+        odbiorca.budzet(centrala.getBudzetPanstwa().getStan().getRazem());
+    }
+
+    /**
+     * Wypisuje dane gracza i identyfikatory jego kuponów.
+     */
+    public void wypiszGracza(Gracz gracz) {
+        odbiorca.gracz(gracz);
+    }
+
+    /**
+     * @return numer ostatniego wypisanego losowania (0, jeśli żadnego)
+     */
+    public int getOstatnieWypisane() {
+        return ostatnieWypisane;
+    }
+}
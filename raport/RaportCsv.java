@@ -0,0 +1,132 @@
+package totolotek.raport;
+
+import totolotek.core.BazaWygranych;
+import totolotek.finanse.SumyBudzetu;
+import totolotek.gracz.Gracz;
+import totolotek.kupon.Kupon;
+
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Raport w formacie CSV. Pierwsza kolumna wiersza określa jego rodzaj; przed pierwszym
+ * wierszem danego rodzaju wypisywany jest nagłówek. Kwoty podawane są w groszach,
+ * a listy (wylosowane liczby, identyfikatory kuponów) rozdzielane spacją.
+ * <pre>
+ * rodzaj,numer,wynik,pula_i,...,liczba_i,...,wygrana_i,...
+ * losowanie,1,3 7 12 30 41 49,...
+ * </pre>
+ */
+public class RaportCsv extends OdbiorcaZnakowy {
+    private boolean naglowekLosowan;
+    private boolean naglowekStanu;
+    private boolean naglowekBudzetu;
+    private boolean naglowekGraczy;
+
+    /**
+     * @param writer docelowy strumień; zamykany razem z raportem
+     */
+    public RaportCsv(Writer writer) {
+        super(new Wyjscie(writer, true));
+    }
+
+    /**
+     * @param kanal docelowy kanał (tekst w UTF-8); zamykany razem z raportem
+     */
+    public RaportCsv(FileChannel kanal) {
+        super(new Wyjscie(kanal, true));
+    }
+
+    @Override
+    public void losowanie(int numer, long maskaWyniku, BazaWygranych baza) {
+        if (!naglowekLosowan) {
+            wyjscie.tekst("rodzaj,numer,wynik");
+            for (String kolumna : new String[]{"pula_", "liczba_", "wygrana_"}) {
+                for (String stopien : STOPNIE) {
+                    wyjscie.znak(',').tekst(kolumna).tekst(stopien.toLowerCase());
+                }
+            }
+            wyjscie.nowaLinia();
+            naglowekLosowan = true;
+        }
+        wyjscie.tekst("losowanie,").liczba(numer).znak(',');
+        liczbyZMaski(maskaWyniku, ' ');
+        for (int stopien = 0; stopien < STOPNIE.length; stopien++) {
+            wyjscie.znak(',');
+            if (baza != null) wyjscie.liczba(pula(baza, stopien));
+        }
+        for (int stopien = 0; stopien < STOPNIE.length; stopien++) {
+            wyjscie.znak(',');
+            if (baza != null) wyjscie.liczba(liczbaWygranych(baza, stopien));
+        }
+        for (int stopien = 0; stopien < STOPNIE.length; stopien++) {
+            wyjscie.znak(',');
+            if (baza != null) wyjscie.liczba(wygrana(baza, stopien));
+        }
+        wyjscie.nowaLinia();
+    }
+
+    @Override
+    public void stanFinansowy(long srodki, long kumulacja) {
+        if (!naglowekStanu) {
+            wyjscie.tekst("rodzaj,srodki,kumulacja").nowaLinia();
+            naglowekStanu = true;
+        }
+        wyjscie.tekst("stan,").liczba(srodki).znak(',').liczba(kumulacja).nowaLinia();
+    }
+
+    @Override
+    public void budzet(SumyBudzetu razem) {
+        if (!naglowekBudzetu) {
+            wyjscie.tekst("rodzaj,podatki_od_sprzedazy,podatki_od_wygranych,subwencje").nowaLinia();
+            naglowekBudzetu = true;
+        }
+        wyjscie.tekst("budzet,").liczba(razem.getPodatkiOdSprzedazy()).znak(',')
+                .liczba(razem.getPodatkiOdWygranych()).znak(',')
+                .liczba(razem.getSubwencje()).nowaLinia();
+    }
+
+    @Override
+    public void gracz(Gracz gracz) {
+        if (!naglowekGraczy) {
+            wyjscie.tekst("rodzaj,nazwisko,imie,pesel,srodki,kupony").nowaLinia();
+            naglowekGraczy = true;
+        }
+        wyjscie.tekst("gracz,");
+        pole(gracz.getNazwisko());
+        wyjscie.znak(',');
+        pole(gracz.getImie());
+        wyjscie.znak(',');
+        pole(gracz.getPesel());
+        wyjscie.znak(',').liczba(gracz.getSrodki()).znak(',');
+        boolean pierwszy = true;
+        for (Kupon kupon : gracz.getKupony()) {
+            if (!pierwszy) wyjscie.znak(' ');
+            wyjscie.identyfikator(kupon);
+            pierwszy = false;
+        }
+        wyjscie.nowaLinia();
+    }
+
+    /**
+     * Dopisuje pole tekstowe, ujmując je w cudzysłów, jeśli zawiera przecinek, cudzysłów lub koniec wiersza.
+     */
+    private void pole(String tekst) {
+        boolean cudzyslow = false;
+        for (int i = 0; i < tekst.length() && !cudzyslow; i++) {
+            char c = tekst.charAt(i);
+            cudzyslow = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!cudzyslow) {
+            wyjscie.tekst(tekst);
+            return;
+        }
+        wyjscie.znak('"');
+        for (int i = 0; i < tekst.length(); i++) {
+            char c = tekst.charAt(i);
+            if (c == '"') wyjscie.znak('"');
+            wyjscie.znak(c);
+        }
+        wyjscie.znak('"');
+    }
+}
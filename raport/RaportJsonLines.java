@@ -0,0 +1,117 @@
+package totolotek.raport;
+
+import totolotek.core.BazaWygranych;
+import totolotek.finanse.SumyBudzetu;
+import totolotek.gracz.Gracz;
+import totolotek.kupon.Kupon;
+
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Raport w formacie JSON Lines – jeden obiekt JSON w wierszu, z polem {@code "rodzaj"}.
+ * Kwoty podawane są w groszach, a tablice pul, liczb i wysokości wygranych
+ * w kolejności stopni od I do IV.
+ * <pre>
+ * {"rodzaj":"losowanie","numer":1,"wynik":[3,7,12,30,41,49],"pule":[...],"liczby":[...],"wygrane":[...]}
+ * </pre>
+ */
+public class RaportJsonLines extends OdbiorcaZnakowy {
+
+    /**
+     * @param writer docelowy strumień; zamykany razem z raportem
+     */
+    public RaportJsonLines(Writer writer) {
+        super(new Wyjscie(writer, true));
+    }
+
+    /**
+     * @param kanal docelowy kanał (tekst w UTF-8); zamykany razem z raportem
+     */
+    public RaportJsonLines(FileChannel kanal) {
+        super(new Wyjscie(kanal, true));
+    }
+
+    @Override
+    public void losowanie(int numer, long maskaWyniku, BazaWygranych baza) {
+        wyjscie.tekst("{\"rodzaj\":\"losowanie\",\"numer\":").liczba(numer).tekst(",\"wynik\":[");
+        liczbyZMaski(maskaWyniku, ',');
+        wyjscie.znak(']');
+        if (baza != null) {
+            wyjscie.tekst(",\"pule\":[");
+            for (int stopien = 0; stopien < STOPNIE.length; stopien++) {
+                if (stopien > 0) wyjscie.znak(',');
+                wyjscie.liczba(pula(baza, stopien));
+            }
+            wyjscie.tekst("],\"liczby\":[");
+            for (int stopien = 0; stopien < STOPNIE.length; stopien++) {
+                if (stopien > 0) wyjscie.znak(',');
+                wyjscie.liczba(liczbaWygranych(baza, stopien));
+            }
+            wyjscie.tekst("],\"wygrane\":[");
+            for (int stopien = 0; stopien < STOPNIE.length; stopien++) {
+                if (stopien > 0) wyjscie.znak(',');
+                wyjscie.liczba(wygrana(baza, stopien));
+            }
+            wyjscie.znak(']');
+        }
+        wyjscie.znak('}').nowaLinia();
+    }
+
+    @Override
+    public void stanFinansowy(long srodki, long kumulacja) {
+        wyjscie.tekst("{\"rodzaj\":\"stan\",\"srodki\":").liczba(srodki)
+                .tekst(",\"kumulacja\":").liczba(kumulacja).znak('}').nowaLinia();
+    }
+
+    @Override
+    public void budzet(SumyBudzetu razem) {
+        wyjscie.tekst("{\"rodzaj\":\"budzet\",\"podatkiOdSprzedazy\":").liczba(razem.getPodatkiOdSprzedazy())
+                .tekst(",\"podatkiOdWygranych\":").liczba(razem.getPodatkiOdWygranych())
+                .tekst(",\"subwencje\":").liczba(razem.getSubwencje()).znak('}').nowaLinia();
+    }
+
+    @Override
+    public void gracz(Gracz gracz) {
+        wyjscie.tekst("{\"rodzaj\":\"gracz\",\"nazwisko\":");
+        napis(gracz.getNazwisko());
+        wyjscie.tekst(",\"imie\":");
+        napis(gracz.getImie());
+        wyjscie.tekst(",\"pesel\":");
+        napis(gracz.getPesel());
+        wyjscie.tekst(",\"srodki\":").liczba(gracz.getSrodki()).tekst(",\"kupony\":[");
+        boolean pierwszy = true;
+        for (Kupon kupon : gracz.getKupony()) {
+            if (!pierwszy) wyjscie.znak(',');
+            wyjscie.znak('"').identyfikator(kupon).znak('"');
+            pierwszy = false;
+        }
+        wyjscie.tekst("]}").nowaLinia();
+    }
+
+    /**
+     * Dopisuje napis JSON, zastępując znaki specjalne sekwencjami ucieczki.
+     */
+    private void napis(String tekst) {
+        wyjscie.znak('"');
+        for (int i = 0; i < tekst.length(); i++) {
+            char c = tekst.charAt(i);
+            switch (c) {
+                case '"' -> wyjscie.tekst("\\\"");
+                case '\\' -> wyjscie.tekst("\\\\");
+                case '\n' -> wyjscie.tekst("\\n");
+                case '\r' -> wyjscie.tekst("\\r");
+                case '\t' -> wyjscie.tekst("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        wyjscie.tekst("\\u00");
+                        wyjscie.znak(Character.forDigit(c >> 4, 16)).znak(Character.forDigit(c & 0xF, 16));
+                    } else {
+                        wyjscie.znak(c);
+                    }
+                }
+            }
+        }
+        wyjscie.znak('"');
+    }
+}
@@ -0,0 +1,92 @@
+package totolotek.raport;
+
+import totolotek.core.BazaWygranych;
+import totolotek.finanse.SumyBudzetu;
+import totolotek.gracz.Gracz;
+import totolotek.kupon.Kupon;
+
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Raport czytelny dla człowieka, w układzie dotychczasowych wydruków centrali, budżetu i graczy.
+ */
+public class RaportTekstowy extends OdbiorcaZnakowy {
+    private static final String[] ETYKIETY = {"I stopień:   ", "II stopień:  ", "III stopień: ", "IV stopień:  "};
+
+    /**
+     * @param writer docelowy strumień; zamykany razem z raportem
+     */
+    public RaportTekstowy(Writer writer) {
+        super(new Wyjscie(writer, true));
+    }
+
+    /**
+     * @param kanal docelowy kanał (tekst w UTF-8); zamykany razem z raportem
+     */
+    public RaportTekstowy(FileChannel kanal) {
+        super(new Wyjscie(kanal, true));
+    }
+
+    /**
+     * Tworzy raport na standardowe wyjście. Zamknięcie raportu jedynie opróżnia bufor.
+     */
+    public static RaportTekstowy naStandardoweWyjscie() {
+        return new RaportTekstowy(new Wyjscie(new OutputStreamWriter(System.out, System.out.charset()), false));
+    }
+
+    private RaportTekstowy(Wyjscie wyjscie) {
+        super(wyjscie);
+    }
+
+    @Override
+    public void losowanie(int numer, long maskaWyniku, BazaWygranych baza) {
+        wyjscie.tekst("Losowanie nr ").liczba(numer).nowaLinia().tekst("Wyniki: ");
+        for (long m = maskaWyniku; m != 0; m &= m - 1) {
+            wyjscie.liczba(Long.numberOfTrailingZeros(m) + 1, 2, ' ').znak(' ');
+        }
+        wyjscie.nowaLinia();
+        if (baza != null) {
+            wyjscie.tekst("PULA NAGRÓD:").nowaLinia();
+            for (int stopien = 0; stopien < STOPNIE.length; stopien++) {
+                int liczba = liczbaWygranych(baza, stopien);
+                wyjscie.tekst(ETYKIETY[stopien]).liczba(liczba).tekst(" x ");
+                if (liczba > 0) {
+                    wyjscie.kwota(wygrana(baza, stopien));
+                } else {
+                    wyjscie.tekst("---");
+                }
+                wyjscie.tekst(" (łączna pula: ").kwota(pula(baza, stopien)).znak(')').nowaLinia();
+            }
+        }
+        wyjscie.nowaLinia();
+    }
+
+    @Override
+    public void stanFinansowy(long srodki, long kumulacja) {
+        // kumulację podają raporty CSV i JSON Lines; wydruk tekstowy zachowuje dotychczasowy układ
+        wyjscie.tekst("Stan środków finansowych centrali: ").kwota(srodki).nowaLinia();
+    }
+
+    @Override
+    public void budzet(SumyBudzetu razem) {
+        wyjscie.tekst("Pobrane podatki: ").liczba(razem.getPobranePodatki()).nowaLinia();
+        wyjscie.tekst("Przekazane subwencje: ").liczba(razem.getSubwencje()).nowaLinia();
+    }
+
+    @Override
+    public void gracz(Gracz gracz) {
+        wyjscie.tekst(gracz.getNazwisko()).znak(' ').tekst(gracz.getImie())
+                .tekst(", PESEL: ").tekst(gracz.getPesel()).nowaLinia();
+        wyjscie.tekst("Środki: ").kwota(gracz.getSrodki()).nowaLinia();
+        if (gracz.getKupony().isEmpty()) {
+            wyjscie.tekst("Brak kuponów.").nowaLinia();
+        } else {
+            wyjscie.tekst("Identyfikatory posiadanych kuponów:").nowaLinia();
+            for (Kupon kupon : gracz.getKupony()) {
+                wyjscie.tekst("  ").identyfikator(kupon).nowaLinia();
+            }
+        }
+    }
+}
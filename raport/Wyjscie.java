@@ -0,0 +1,219 @@
+package totolotek.raport;
+
+import totolotek.kupon.IdKuponu;
+import totolotek.kupon.Kupon;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Buforowane wyjście znakowe raportów. Liczby dopisywane są cyfra po cyfrze wprost do bufora,
+ * więc wiersz raportu nie tworzy żadnych pośrednich napisów. Bufor opróżniany jest do
+ * {@link Writer}a albo – po zakodowaniu w UTF-8 – do {@link FileChannel}.
+ * Nie jest bezpieczne dla wielu wątków.
+ */
+final class Wyjscie implements Flushable, Closeable {
+    private static final int ROZMIAR_BUFORA = 1 << 14;
+
+    private final char[] bufor = new char[ROZMIAR_BUFORA];
+    private int zajete;
+    private final Writer writer;
+    private final FileChannel kanal;
+    private final CharsetEncoder koder;
+    private final ByteBuffer bajty;
+    /** Czy zamknięcie wyjścia zamyka też docelowy Writer lub kanał */
+    private final boolean zamykajCel;
+    /** Czy koder dostał już koniec danych (po zamknięciu wyjścia) */
+    private boolean zakonczone;
+
+    Wyjscie(Writer writer, boolean zamykajCel) {
+        this.writer = writer;
+        this.kanal = null;
+        this.koder = null;
+        this.bajty = null;
+        this.zamykajCel = zamykajCel;
+    }
+
+    Wyjscie(FileChannel kanal, boolean zamykajCel) {
+        this.writer = null;
+        this.kanal = kanal;
+        // jak Writer: niesparowany znak zastępczy zamieniany jest na „?”, a nie zgłaszany
+        this.koder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.bajty = ByteBuffer.allocateDirect(ROZMIAR_BUFORA * 3);
+        this.zamykajCel = zamykajCel;
+    }
+
+    Wyjscie znak(char c) {
+        if (zajete == bufor.length) {
+            oproznijBufor();
+        }
+        bufor[zajete++] = c;
+        return this;
+    }
+
+    Wyjscie tekst(CharSequence tekst) {
+        for (int i = 0; i < tekst.length(); i++) {
+            znak(tekst.charAt(i));
+        }
+        return this;
+    }
+
+    Wyjscie liczba(long wartosc) {
+        if (wartosc == Long.MIN_VALUE) {
+            return tekst("-9223372036854775808");
+        }
+        if (wartosc < 0) {
+            znak('-');
+            wartosc = -wartosc;
+        }
+        if (zajete + 19 > bufor.length) {
+            oproznijBufor();
+        }
+        int cyfry = 1;
+        for (long w = wartosc; w >= 10; w /= 10) {
+            cyfry++;
+        }
+        for (int i = zajete + cyfry - 1; i >= zajete; i--) {
+            bufor[i] = (char) ('0' + wartosc % 10);
+            wartosc /= 10;
+        }
+        zajete += cyfry;
+        return this;
+    }
+
+    /**
+     * Dopisuje liczbę uzupełnioną z lewej znakiem {@code wypelnienie} do podanej szerokości.
+     */
+    Wyjscie liczba(long wartosc, int szerokosc, char wypelnienie) {
+        int cyfry = wartosc < 0 ? 2 : 1;
+        for (long w = Math.abs(wartosc); w >= 10; w /= 10) {
+            cyfry++;
+        }
+        for (int i = cyfry; i < szerokosc; i++) {
+            znak(wypelnienie);
+        }
+        return liczba(wartosc);
+    }
+
+    /**
+     * Dopisuje kwotę w groszach w postaci „12 zł 05 gr”.
+     */
+    Wyjscie kwota(long grosze) {
+        return liczba(grosze / 100).tekst(" zł ").liczba(grosze % 100, 2, '0').tekst(" gr");
+    }
+
+    /**
+     * Dopisuje identyfikator kuponu w postaci „numer-kolektura-znacznik-suma”.
+     */
+    Wyjscie identyfikator(Kupon kupon) {
+        long id = kupon.getId();
+        if (id == IdKuponu.BRAK) {
+            return tekst(kupon.getIdentyfikator());
+        }
+        return liczba(IdKuponu.getNumer(id)).znak('-')
+                .liczba(IdKuponu.getKolektura(id)).znak('-')
+                .liczba(IdKuponu.getZnacznik(id), 5, '0').znak('-')
+                .liczba(IdKuponu.getSumaKontrolna(id), 2, '0');
+    }
+
+    Wyjscie nowaLinia() {
+        return znak('\n');
+    }
+
+    @Override
+    public void flush() {
+        oproznijBufor();
+        try {
+            if (writer != null) {
+                writer.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        flush();
+        if (kanal != null && !zakonczone) {
+            zakonczone = true;
+            try {
+                zakonczKodowanie();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        if (zamykajCel) {
+            try {
+                if (writer != null) {
+                    writer.close();
+                } else {
+                    kanal.close();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private void oproznijBufor() {
+        try {
+            if (writer != null) {
+                writer.write(bufor, 0, zajete);
+            } else {
+                CharBuffer znaki = CharBuffer.wrap(bufor, 0, zajete);
+                while (true) {
+                    CoderResult wynik = koder.encode(znaki, bajty, false);
+                    zapiszBajty();
+                    if (wynik.isUnderflow()) {
+                        break;
+                    }
+                }
+                // niedokończona para zastępcza zostaje na następne opróżnienie
+                int reszta = znaki.remaining();
+                System.arraycopy(bufor, zajete - reszta, bufor, 0, reszta);
+                zajete = reszta;
+                return;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        zajete = 0;
+    }
+
+    /**
+     * Koduje resztę bufora jako koniec danych (np. niedokończoną parę zastępczą)
+     * i zapisuje końcowy stan kodera.
+     */
+    private void zakonczKodowanie() throws IOException {
+        CharBuffer znaki = CharBuffer.wrap(bufor, 0, zajete);
+        while (koder.encode(znaki, bajty, true).isOverflow()) {
+            zapiszBajty();
+        }
+        while (koder.flush(bajty).isOverflow()) {
+            zapiszBajty();
+        }
+        zapiszBajty();
+        zajete = 0;
+    }
+
+    private void zapiszBajty() throws IOException {
+        bajty.flip();
+        while (bajty.hasRemaining()) {
+            kanal.write(bajty);
+        }
+        bajty.clear();
+    }
+}
@@ -0,0 +1,196 @@
+package totolotek.rozproszone;
+
+import totolotek.core.BazaWygranych;
+import totolotek.core.Centrala;
+import totolotek.core.WynikCzesciowy;
+import totolotek.losowanie.Losowanie;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Koordynator losowań rozliczanych przez kilka central, z których każda – zwykle w osobnym
+ * procesie – obsługuje własną grupę kolektur i przechowuje ich kupony ({@link PracownikRozliczen}).
+ *
+ * Losowanie przebiega w trzech fazach:
+ * - koordynator sprawdza, czy wszyscy pracownicy czekają na losowanie o tym samym numerze;
+ *   jeśli nie, zgłasza błąd, zanim którakolwiek centrala rozpocznie losowanie,
+ * - koordynator losuje wynik i rozsyła go pracownikom; każda centrala (także centrala koordynatora)
+ *   zlicza trafienia swoich zakładów i zwraca histogram częściowy,
+ * - koordynator scala histogramy, ustala bazę wygranych swoją strategią nagród i kumulacją,
+ *   zatwierdza losowanie u siebie i rozsyła bazę pracownikom, którzy zatwierdzają je u siebie.
+ * Po zatwierdzeniu wszystkie centrale mają tę samą tabelę wygranych i kumulację, a każda
+ * zaksięgowała wpłaty i podatek od zakładów swoich kolektur.
+ *
+ * Jeśli po rozpoczęciu losowania pracownik zgłosi błąd lub połączenie zostanie zerwane, zgłaszany
+ * jest wyjątek, a koordynator zamyka wszystkie połączenia, by nieodebrane odpowiedzi nie zostały
+ * wzięte za odpowiedzi w kolejnym losowaniu. Centrale, które losowania jeszcze nie zatwierdziły,
+ * przerywają je ({@link Centrala#przerwijLosowanie(int)}) – centrala koordynatora od razu, pracownicy
+ * po rozłączeniu – i kolejny koordynator przeprowadza je od nowa. Rozliczenie nie jest jednak
+ * transakcyjne: błąd po zatwierdzeniu losowania u koordynatora pozostawia część pracowników
+ * z losowaniem zatwierdzonym, a część z przerwanym.
+ */
+public class KoordynatorRozliczen implements Closeable {
+    private final Centrala centrala;
+    private final List<SocketChannel> pracownicy = new ArrayList<>();
+    /** Czy połączenia zamknięto po błędzie w trakcie rozpoczętego losowania */
+    private boolean przerwany;
+    /** Wynik losowania rozpoczętego w centrali koordynatora i jeszcze niezatwierdzonego */
+    private WynikCzesciowy rozpoczete;
+
+    /**
+     * Łączy się z pracownikami.
+     * @param centrala centrala koordynatora; jej strategia nagród, kumulacja i źródło losowości
+     *                 wyznaczają wyniki wszystkich central
+     * @param gniazda ścieżki gniazd pracowników
+     * @throws IOException jeśli nie udało się połączyć z którymś pracownikiem
+     */
+    public KoordynatorRozliczen(Centrala centrala, List<Path> gniazda) throws IOException {
+        this.centrala = centrala;
+        try {
+            for (Path gniazdo : gniazda) {
+                SocketChannel kanal = SocketChannel.open(StandardProtocolFamily.UNIX);
+                pracownicy.add(kanal);
+                kanal.connect(UnixDomainSocketAddress.of(gniazdo));
+            }
+        } catch (IOException e) {
+            zamknijPolaczenia();
+            throw e;
+        }
+    }
+
+    /**
+     * Przeprowadza najbliższe losowanie we wszystkich centralach.
+     * Jeśli któryś pracownik czeka na losowanie o innym numerze, żadna centrala nie rozpoczyna
+     * losowania, a koordynator pozostaje gotowy do kolejnej próby. Błąd po rozpoczęciu losowania
+     * zamyka połączenia z pracownikami i przerywa losowanie, jeśli centrala koordynatora go
+     * jeszcze nie zatwierdziła.
+     * @return wspólna baza wygranych losowania
+     * @throws IOException jeśli komunikacja z pracownikiem się nie powiodła
+     * @throws IllegalStateException jeśli pracownik zgłosił błąd (np. inny numer najbliższego losowania)
+     *                               lub koordynator zamknął połączenia po wcześniejszym błędzie
+     */
+    public synchronized BazaWygranych przeprowadzLosowanie() throws IOException {
+        if (przerwany) {
+            throw new IllegalStateException("Koordynator zamknął połączenia po nieudanym losowaniu");
+        }
+        int numerLosowania = centrala.getKolejneLosowanie();
+        try {
+            przygotuj(numerLosowania);
+        } catch (IOException e) {
+            przerwij();
+            throw e;
+        }
+        try {
+            return rozlicz(numerLosowania);
+        } catch (IOException | RuntimeException e) {
+            przerwij();
+            throw e;
+        }
+    }
+
+    private void przerwij() throws IOException {
+        przerwany = true;
+        try {
+            zamknijPolaczenia();
+        } finally {
+            if (rozpoczete != null) {
+                int numer = rozpoczete.getNumerLosowania();
+                rozpoczete = null;
+                centrala.przerwijLosowanie(numer);
+            }
+        }
+    }
+
+    /**
+     * Sprawdza u wszystkich pracowników numer najbliższego losowania. Odpowiedzi odbierane są
+     * od każdego pracownika, także po błędzie, więc kanały pozostają gotowe do kolejnej próby.
+     */
+    private void przygotuj(int numerLosowania) throws IOException {
+        for (SocketChannel kanal : pracownicy) {
+            Protokol.wyslij(kanal, Protokol.PRZYGOTOWANIE, numerLosowania);
+        }
+        IllegalStateException blad = null;
+        for (SocketChannel kanal : pracownicy) {
+            try {
+                odbierz(kanal, Protokol.GOTOWY, numerLosowania);
+            } catch (IllegalStateException e) {
+                if (blad == null) {
+                    blad = e;
+                }
+            }
+        }
+        if (blad != null) {
+            throw blad;
+        }
+    }
+
+    private BazaWygranych rozlicz(int numerLosowania) throws IOException {
+        long maska = new Losowanie(numerLosowania, centrala.getZrodloLosowosci()).getMaska();
+        for (SocketChannel kanal : pracownicy) {
+            Protokol.wyslij(kanal, Protokol.LOSOWANIE, numerLosowania, Protokol.maska(maska));
+        }
+        // pracownicy zliczają trafienia równolegle z centralą koordynatora
+        WynikCzesciowy wlasny = centrala.rozpocznijLosowanie(numerLosowania, maska);
+        rozpoczete = wlasny;
+        WynikCzesciowy scalony = wlasny;
+        for (SocketChannel kanal : pracownicy) {
+            scalony = scalony.scal(Protokol.wynik(odbierz(kanal, Protokol.WYNIK, numerLosowania)));
+        }
+
+        BazaWygranych baza = centrala.ustalBazeWygranych(scalony);
+        centrala.zatwierdzLosowanie(wlasny, baza);
+        rozpoczete = null;
+        for (SocketChannel kanal : pracownicy) {
+            Protokol.wyslij(kanal, Protokol.ZATWIERDZENIE, numerLosowania, Protokol.baza(baza));
+        }
+        for (SocketChannel kanal : pracownicy) {
+            odbierz(kanal, Protokol.POTWIERDZENIE, numerLosowania);
+        }
+        return baza;
+    }
+
+    private static Protokol.Wiadomosc odbierz(SocketChannel kanal, int typ, int numerLosowania) throws IOException {
+        Protokol.Wiadomosc wiadomosc = Protokol.odbierz(kanal);
+        if (wiadomosc == null) {
+            throw new IOException("Pracownik rozliczeń zamknął połączenie");
+        }
+        if (wiadomosc.typ() == Protokol.BLAD) {
+            throw new IllegalStateException("Błąd pracownika rozliczeń: " + Protokol.blad(wiadomosc));
+        }
+        if (wiadomosc.typ() != typ || wiadomosc.numer() != numerLosowania) {
+            throw new IOException("Nieoczekiwana wiadomość " + wiadomosc.typ() + " dla losowania " + wiadomosc.numer());
+        }
+        return wiadomosc;
+    }
+
+    /**
+     * Kończy współpracę z pracownikami i zamyka połączenia.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        for (SocketChannel kanal : pracownicy) {
+            if (kanal.isConnected()) {
+                try {
+                    Protokol.wyslij(kanal, Protokol.KONIEC, 0);
+                } catch (IOException e) {
+                    // pracownik już się rozłączył
+                }
+            }
+        }
+        zamknijPolaczenia();
+    }
+
+    private void zamknijPolaczenia() throws IOException {
+        for (SocketChannel kanal : pracownicy) {
+            kanal.close();
+        }
+        pracownicy.clear();
+    }
+}
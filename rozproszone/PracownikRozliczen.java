@@ -0,0 +1,161 @@
+package totolotek.rozproszone;
+
+import totolotek.core.Centrala;
+import totolotek.core.WynikCzesciowy;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Pracownik rozliczeń: udostępnia koordynatorowi ({@link KoordynatorRozliczen}) centralę
+ * obsługującą część kolektur, przez gniazdo domeny uniksowej.
+ *
+ * Centrala pracownika sama prowadzi sprzedaż swoich kolektur i przechowuje ich kupony. Na polecenie
+ * koordynatora zlicza trafienia tych kuponów, a po otrzymaniu wspólnej bazy wygranych publikuje
+ * tabelę wygranych, księguje wpłaty i podatek od swojej sprzedaży i aktualizuje kumulację.
+ * Wygrane kuponów swoich kolektur wypłaca ze swoich środków, a ich brak pokrywa subwencją ze
+ * swojego budżetu państwa – środki central nie są przenoszone między procesami.
+ *
+ * Pracownik obsługuje jednego koordynatora naraz; po rozłączeniu czeka na następnego.
+ * Losowanie rozpoczęte, ale niezatwierdzone przed rozłączeniem koordynatora jest przerywane
+ * ({@link Centrala#przerwijLosowanie(int)}), więc następny koordynator przeprowadza je od nowa.
+ */
+public class PracownikRozliczen implements Closeable {
+    private final Centrala centrala;
+    private final Path gniazdo;
+    private ServerSocketChannel serwer;
+    private Thread watek;
+    /** Połączenie z obsługiwanym koordynatorem; zamykane przy zamykaniu pracownika */
+    private volatile SocketChannel polaczenie;
+    /** Losowanie rozpoczęte na polecenie koordynatora i czekające na zatwierdzenie; używane tylko w wątku obsługi */
+    private WynikCzesciowy rozpoczete;
+
+    /**
+     * @param centrala centrala obsługująca kolektury pracownika
+     * @param gniazdo ścieżka gniazda domeny uniksowej; plik nie może istnieć
+     */
+    public PracownikRozliczen(Centrala centrala, Path gniazdo) {
+        this.centrala = centrala;
+        this.gniazdo = gniazdo;
+    }
+
+    /**
+     * Otwiera gniazdo i zaczyna obsługiwać koordynatora w osobnym wątku.
+     * @throws IOException jeśli nie udało się utworzyć gniazda
+     * @throws IllegalStateException jeśli pracownik już działa
+     */
+    public synchronized void start() throws IOException {
+        if (serwer != null) {
+            throw new IllegalStateException("Pracownik rozliczeń już działa");
+        }
+        serwer = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        serwer.bind(UnixDomainSocketAddress.of(gniazdo));
+        watek = new Thread(this::obsluguj, "pracownik-rozliczen-" + gniazdo.getFileName());
+        watek.setDaemon(true);
+        watek.start();
+    }
+
+    private void obsluguj() {
+        while (true) {
+            try (SocketChannel kanal = serwer.accept()) {
+                polaczenie = kanal;
+                if (!serwer.isOpen()) {
+                    return;
+                }
+                obsluz(kanal);
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                if (!serwer.isOpen()) {
+                    return;
+                }
+                // zerwane połączenie – czekamy na kolejnego koordynatora
+            }
+        }
+    }
+
+    /**
+     * Obsługuje polecenia jednego koordynatora aż do {@link Protokol#KONIEC} lub rozłączenia,
+     * po którym przerywa niezatwierdzone losowanie.
+     */
+    private void obsluz(SocketChannel kanal) throws IOException {
+        try {
+            odbieraj(kanal);
+        } finally {
+            if (rozpoczete != null) {
+                int numer = rozpoczete.getNumerLosowania();
+                rozpoczete = null;
+                centrala.przerwijLosowanie(numer);
+            }
+        }
+    }
+
+    private void odbieraj(SocketChannel kanal) throws IOException {
+        Protokol.Wiadomosc wiadomosc;
+        while ((wiadomosc = Protokol.odbierz(kanal)) != null) {
+            try {
+                switch (wiadomosc.typ()) {
+                    case Protokol.PRZYGOTOWANIE -> {
+                        if (rozpoczete != null) {
+                            throw new IllegalStateException("Losowanie " + rozpoczete.getNumerLosowania()
+                                    + " nie zostało zatwierdzone");
+                        }
+                        int najblizsze = centrala.getKolejneLosowanie();
+                        if (najblizsze != wiadomosc.numer()) {
+                            throw new IllegalStateException("Najbliższe losowanie ma numer " + najblizsze
+                                    + ", nie " + wiadomosc.numer());
+                        }
+                        Protokol.wyslij(kanal, Protokol.GOTOWY, wiadomosc.numer());
+                    }
+                    case Protokol.LOSOWANIE -> {
+                        rozpoczete = centrala.rozpocznijLosowanie(wiadomosc.numer(), wiadomosc.tresc().getLong());
+                        Protokol.wyslij(kanal, Protokol.WYNIK, wiadomosc.numer(), Protokol.wynik(rozpoczete));
+                    }
+                    case Protokol.ZATWIERDZENIE -> {
+                        if (rozpoczete == null || rozpoczete.getNumerLosowania() != wiadomosc.numer()) {
+                            throw new IllegalStateException("Losowanie " + wiadomosc.numer() + " nie zostało rozpoczęte");
+                        }
+                        centrala.zatwierdzLosowanie(rozpoczete, Protokol.baza(wiadomosc));
+                        rozpoczete = null;
+                        Protokol.wyslij(kanal, Protokol.POTWIERDZENIE, wiadomosc.numer());
+                    }
+                    case Protokol.KONIEC -> {
+                        return;
+                    }
+                    default -> throw new IllegalStateException("Nieznany typ wiadomości: " + wiadomosc.typ());
+                }
+            } catch (RuntimeException e) {
+                Protokol.wyslij(kanal, Protokol.BLAD, wiadomosc.numer(), Protokol.blad(e.getMessage()));
+            }
+        }
+    }
+
+    /**
+     * Zamyka gniazdo, czeka na zakończenie wątku obsługi i usuwa plik gniazda.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (serwer == null) {
+            return;
+        }
+        serwer.close();
+        SocketChannel kanal = polaczenie;
+        if (kanal != null) {
+            kanal.close();
+        }
+        try {
+            watek.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Files.deleteIfExists(gniazdo);
+        serwer = null;
+    }
+}
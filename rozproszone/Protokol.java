@@ -0,0 +1,144 @@
+package totolotek.rozproszone;
+
+import totolotek.core.BazaWygranych;
+import totolotek.core.WynikCzesciowy;
+import totolotek.kupon.Zaklad;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Protokół między koordynatorem a pracownikami rozliczeń.
+ *
+ * Wiadomość to ramka {@code [int długość treści][int typ][int numer losowania][treść]}
+ * w porządku little-endian. Losowanie zaczyna się od {@link #PRZYGOTOWANIE} (bez treści), na które
+ * pracownik gotowy do losowania o tym numerze odpowiada {@link #GOTOWY}. Następnie koordynator
+ * wysyła {@link #LOSOWANIE} (treść: maska wyniku),
+ * pracownik odpowiada {@link #WYNIK} (7 liczb zakładów z 0..6 trafieniami); następnie
+ * koordynator wysyła {@link #ZATWIERDZENIE} (pule I-IV i liczby zwycięzców I-IV),
+ * a pracownik odpowiada {@link #POTWIERDZENIE}. Błąd po stronie pracownika zgłaszany jest
+ * wiadomością {@link #BLAD} z opisem w UTF-8.
+ */
+final class Protokol {
+    static final int LOSOWANIE = 1;
+    static final int WYNIK = 2;
+    static final int ZATWIERDZENIE = 3;
+    static final int POTWIERDZENIE = 4;
+    static final int BLAD = 5;
+    static final int KONIEC = 6;
+    static final int PRZYGOTOWANIE = 7;
+    static final int GOTOWY = 8;
+
+    private static final int NAGLOWEK = 3 * Integer.BYTES;
+    /** Największa dopuszczalna długość treści wiadomości */
+    private static final int MAKS_TRESC = 1 << 16;
+
+    private Protokol() {
+    }
+
+    /**
+     * Odebrana wiadomość.
+     * @param typ typ wiadomości
+     * @param numer numer losowania
+     * @param tresc treść ustawiona do odczytu
+     */
+    record Wiadomosc(int typ, int numer, ByteBuffer tresc) {
+    }
+
+    static void wyslij(SocketChannel kanal, int typ, int numer, ByteBuffer tresc) throws IOException {
+        ByteBuffer ramka = ByteBuffer.allocate(NAGLOWEK + tresc.remaining()).order(ByteOrder.LITTLE_ENDIAN);
+        ramka.putInt(tresc.remaining()).putInt(typ).putInt(numer).put(tresc).flip();
+        while (ramka.hasRemaining()) {
+            kanal.write(ramka);
+        }
+    }
+
+    static void wyslij(SocketChannel kanal, int typ, int numer) throws IOException {
+        wyslij(kanal, typ, numer, ByteBuffer.allocate(0));
+    }
+
+    /**
+     * Odbiera jedną wiadomość.
+     * @return wiadomość lub null, jeśli druga strona zamknęła połączenie przed początkiem ramki
+     * @throws IOException jeśli połączenie zostało zerwane w środku ramki lub ramka jest błędna
+     */
+    static Wiadomosc odbierz(SocketChannel kanal) throws IOException {
+        ByteBuffer naglowek = ByteBuffer.allocate(NAGLOWEK).order(ByteOrder.LITTLE_ENDIAN);
+        if (!wczytaj(kanal, naglowek, true)) {
+            return null;
+        }
+        int dlugosc = naglowek.getInt();
+        int typ = naglowek.getInt();
+        int numer = naglowek.getInt();
+        if (dlugosc < 0 || dlugosc > MAKS_TRESC) {
+            throw new IOException("Błędna długość wiadomości: " + dlugosc);
+        }
+        ByteBuffer tresc = ByteBuffer.allocate(dlugosc).order(ByteOrder.LITTLE_ENDIAN);
+        wczytaj(kanal, tresc, false);
+        return new Wiadomosc(typ, numer, tresc);
+    }
+
+    private static boolean wczytaj(SocketChannel kanal, ByteBuffer bufor, boolean dozwolonyKoniec) throws IOException {
+        while (bufor.hasRemaining()) {
+            if (kanal.read(bufor) < 0) {
+                if (dozwolonyKoniec && bufor.position() == 0) {
+                    return false;
+                }
+                throw new EOFException("Połączenie zamknięte w trakcie wiadomości");
+            }
+        }
+        bufor.flip();
+        return true;
+    }
+
+    static ByteBuffer maska(long maska) {
+        return bufor(Long.BYTES).putLong(maska).flip();
+    }
+
+    static ByteBuffer wynik(WynikCzesciowy wynik) {
+        ByteBuffer bufor = bufor((Zaklad.LICZBA_TYPÓW + 1) * Long.BYTES);
+        for (int trafienia = 0; trafienia <= Zaklad.LICZBA_TYPÓW; trafienia++) {
+            bufor.putLong(wynik.getLiczba(trafienia));
+        }
+        return bufor.flip();
+    }
+
+    static WynikCzesciowy wynik(Wiadomosc wiadomosc) {
+        long[] liczby = new long[Zaklad.LICZBA_TYPÓW + 1];
+        for (int i = 0; i < liczby.length; i++) {
+            liczby[i] = wiadomosc.tresc().getLong();
+        }
+        return new WynikCzesciowy(wiadomosc.numer(), liczby);
+    }
+
+    static ByteBuffer baza(BazaWygranych baza) {
+        return bufor(4 * Long.BYTES + 4 * Integer.BYTES)
+                .putLong(baza.getPulaI()).putLong(baza.getPulaII())
+                .putLong(baza.getPulaIII()).putLong(baza.getPulaIV())
+                .putInt(baza.getLiczbaI()).putInt(baza.getLiczbaII())
+                .putInt(baza.getLiczbaIII()).putInt(baza.getLiczbaIV())
+                .flip();
+    }
+
+    static BazaWygranych baza(Wiadomosc wiadomosc) {
+        ByteBuffer b = wiadomosc.tresc();
+        return new BazaWygranych(b.getLong(), b.getLong(), b.getLong(), b.getLong(),
+                b.getInt(), b.getInt(), b.getInt(), b.getInt());
+    }
+
+    static ByteBuffer blad(String opis) {
+        return ByteBuffer.wrap(String.valueOf(opis).getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String blad(Wiadomosc wiadomosc) {
+        return StandardCharsets.UTF_8.decode(wiadomosc.tresc()).toString();
+    }
+
+    private static ByteBuffer bufor(int rozmiar) {
+        return ByteBuffer.allocate(rozmiar).order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
@@ -0,0 +1,83 @@
+package totolotek.ryzyko;
+
+import totolotek.kupon.Zaklad;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Losowanie liczby zwycięzców każdego stopnia wprost z rozkładu, bez tworzenia zakładów.
+ *
+ * Liczba trafień zakładu „chybił-trafił” ma rozkład hipergeometryczny:
+ * P(k) = C(6, k) C(43, 6 - k) / C(49, 6). Liczby zakładów z 6, 5, 4 i 3 trafieniami wśród
+ * n niezależnych zakładów mają więc rozkład wielomianowy, losowany jako ciąg warunkowych
+ * rozkładów dwumianowych.
+ */
+final class LiczbyWygranych {
+    /** Prawdopodobieństwo k trafień jednym zakładem; indeks = k */
+    static final double[] PRAWDOPODOBIENSTWA = new double[Zaklad.LICZBA_TYPÓW + 1];
+    /** Średnia, od której rozkład dwumianowy przybliżany jest rozkładem normalnym */
+    private static final double PROG_PRZYBLIZENIA = 500;
+
+    static {
+        int pozaWynikiem = Zaklad.MAX_LICZBA - Zaklad.LICZBA_TYPÓW;
+        double wszystkie = dwumian(Zaklad.MAX_LICZBA, Zaklad.LICZBA_TYPÓW);
+        for (int k = 0; k <= Zaklad.LICZBA_TYPÓW; k++) {
+            PRAWDOPODOBIENSTWA[k] = dwumian(Zaklad.LICZBA_TYPÓW, k)
+                    * dwumian(pozaWynikiem, Zaklad.LICZBA_TYPÓW - k) / wszystkie;
+        }
+    }
+
+    private LiczbyWygranych() {
+    }
+
+    /**
+     * Losuje liczby zakładów z 6, 5, 4 i 3 trafieniami.
+     * @param losowy generator liczb losowych
+     * @param liczbaZakladow liczba zakładów w losowaniu
+     * @param wynik tablica wyników; indeks = liczba trafień (wypełniane są indeksy 3..6)
+     */
+    static void losuj(RandomGenerator losowy, long liczbaZakladow, long[] wynik) {
+        long pozostale = liczbaZakladow;
+        double pozostalePrawdopodobienstwo = 1.0;
+        for (int k = Zaklad.LICZBA_TYPÓW; k >= 3; k--) {
+            double p = Math.min(1.0, PRAWDOPODOBIENSTWA[k] / pozostalePrawdopodobienstwo);
+            wynik[k] = losujDwumianowy(losowy, pozostale, p);
+            pozostale -= wynik[k];
+            pozostalePrawdopodobienstwo -= PRAWDOPODOBIENSTWA[k];
+        }
+    }
+
+    /**
+     * Losuje z rozkładu dwumianowego B(n, p): dla małej średniej dokładnie, metodą odwracania
+     * dystrybuanty, dla średniej co najmniej {@value #PROG_PRZYBLIZENIA} – z przybliżenia normalnego.
+     */
+    static long losujDwumianowy(RandomGenerator losowy, long n, double p) {
+        if (n <= 0 || p <= 0) {
+            return 0;
+        }
+        double srednia = n * p;
+        if (srednia >= PROG_PRZYBLIZENIA) {
+            long k = Math.round(srednia + Math.sqrt(srednia * (1 - p)) * losowy.nextGaussian());
+            return Math.max(0, Math.min(n, k));
+        }
+        double u = losowy.nextDouble();
+        double iloraz = p / (1 - p);
+        double pk = Math.exp(n * Math.log1p(-p));
+        double dystrybuanta = pk;
+        long k = 0;
+        while (u > dystrybuanta && k < n && pk > 0) {
+            pk *= iloraz * (n - k) / (k + 1);
+            k++;
+            dystrybuanta += pk;
+        }
+        return k;
+    }
+
+    private static double dwumian(int n, int k) {
+        double wynik = 1;
+        for (int i = 1; i <= k; i++) {
+            wynik = wynik * (n - k + i) / i;
+        }
+        return wynik;
+    }
+}
@@ -0,0 +1,100 @@
+package totolotek.ryzyko;
+
+/**
+ * Rozkład nieujemnych wartości (kwot w groszach, liczby losowań) zapisany w przedziałach
+ * logarytmiczno-liniowych: każda potęga dwójki dzielona jest na {@value #PODZIALY} równych
+ * części, więc percentyle są dokładne do około 6%, a wartości mniejsze niż {@value #PODZIALY} – dokładnie.
+ *
+ * Obiekt nie jest bezpieczny dla wielu wątków: każde zadanie symulacji wypełnia własny
+ * rozkład, a rozkłady częściowe są scalane ({@link #scal(Rozklad)}).
+ */
+public final class Rozklad {
+    private static final int BITY_PODZIALU = 4;
+    private static final int PODZIALY = 1 << BITY_PODZIALU;
+    private static final int LICZBA_PRZEDZIALOW = PODZIALY + (Long.SIZE - 1 - BITY_PODZIALU) * PODZIALY;
+
+    private final long[] przedzialy = new long[LICZBA_PRZEDZIALOW];
+    private long liczba;
+    private long suma;
+    private long maksimum;
+
+    /**
+     * @param wartosc zapisywana wartość; ujemne traktowane są jak 0
+     */
+    public void dodaj(long wartosc) {
+        long w = Math.max(wartosc, 0);
+        przedzialy[przedzial(w)]++;
+        liczba++;
+        suma += w;
+        maksimum = Math.max(maksimum, w);
+    }
+
+    /**
+     * Dolicza do tego rozkładu wartości innego rozkładu.
+     * @param inny rozkład częściowy
+     * @return ten rozkład
+     */
+    public Rozklad scal(Rozklad inny) {
+        for (int i = 0; i < LICZBA_PRZEDZIALOW; i++) {
+            przedzialy[i] += inny.przedzialy[i];
+        }
+        liczba += inny.liczba;
+        suma += inny.suma;
+        maksimum = Math.max(maksimum, inny.maksimum);
+        return this;
+    }
+
+    /** @return liczba zapisanych wartości */
+    public long getLiczba() {
+        return liczba;
+    }
+
+    /** @return suma zapisanych wartości */
+    public long getSuma() {
+        return suma;
+    }
+
+    /** @return średnia wartość lub 0, jeśli rozkład jest pusty */
+    public double getSrednia() {
+        return liczba == 0 ? 0 : (double) suma / liczba;
+    }
+
+    /** @return największa zapisana wartość */
+    public long getMaksimum() {
+        return maksimum;
+    }
+
+    /**
+     * @param ulamek ułamek wartości (0..1), np. 0.99
+     * @return górna granica przedziału, w którym wypada percentyl (nie większa niż maksimum)
+     */
+    public long getPercentyl(double ulamek) {
+        long prog = (long) Math.ceil(liczba * ulamek);
+        long narastajaco = 0;
+        for (int i = 0; i < LICZBA_PRZEDZIALOW; i++) {
+            narastajaco += przedzialy[i];
+            if (narastajaco >= prog && narastajaco > 0) {
+                return Math.min(gornaGranica(i), maksimum);
+            }
+        }
+        return maksimum;
+    }
+
+    private static int przedzial(long wartosc) {
+        if (wartosc < PODZIALY) {
+            return (int) wartosc;
+        }
+        int wykladnik = Long.SIZE - 1 - Long.numberOfLeadingZeros(wartosc);
+        int przesuniecie = wykladnik - BITY_PODZIALU;
+        return PODZIALY + przesuniecie * PODZIALY + (int) ((wartosc >>> przesuniecie) & (PODZIALY - 1));
+    }
+
+    private static long gornaGranica(int przedzial) {
+        if (przedzial < PODZIALY) {
+            return przedzial;
+        }
+        int przesuniecie = (przedzial - PODZIALY) / PODZIALY;
+        long dolna = (long) (PODZIALY + (przedzial - PODZIALY) % PODZIALY) << przesuniecie;
+        return dolna + (1L << przesuniecie) - 1;
+    }
+}
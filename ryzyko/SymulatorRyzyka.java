@@ -0,0 +1,250 @@
+package totolotek.ryzyko;
+
+import totolotek.core.BazaWygranych;
+import totolotek.core.StrategiaNagrod;
+import totolotek.kupon.Zaklad;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Symulator ryzyka finansowego strategii nagród: jak często centrala będzie musiała pobierać
+ * subwencje (np. z powodu gwarantowanej puli I stopnia lub minimalnej wygranej III stopnia)
+ * i jak kształtują się kumulacje – bez symulowania graczy i kuponów.
+ *
+ * Symulowane są niezależne serie kolejnych losowań. W każdym losowaniu liczby zwycięzców
+ * losowane są wprost z rozkładu trafień zakładów „chybił-trafił” dla zadanej liczby zakładów,
+ * a strategie ustalają pule tak jak w {@link totolotek.core.Centrala#przeprowadzLosowanie()}.
+ * Centrala dostaje wpłaty pomniejszone o podatek, wszyscy zwycięzcy od razu odbierają wygrane,
+ * a brakujące środki uzupełnia subwencja.
+ *
+ * Wszystkie strategie oceniane są na tych samych liczbach zwycięzców, więc różnice wyników
+ * wynikają wyłącznie ze strategii. Serie wykonywane są równolegle; każda ma własny generator
+ * wyznaczony przez ziarno i numer serii, więc wynik nie zależy od liczby wątków.
+ * ({@link totolotek.losowanie.ZrodloLosowosci} nie losuje liczb rzeczywistych, stąd
+ * {@link SplittableRandom}.)
+ */
+public class SymulatorRyzyka {
+    /** Cena zakładu (w groszach) */
+    private static final long CENA_ZAKLADU = 300;
+    /** Liczba serii w jednym zadaniu puli */
+    private static final int SERII_W_ZADANIU = 64;
+
+    private final long liczbaZakladow;
+    private final long srodkiPoczatkowe;
+    private final long ziarno;
+    private int dlugoscSerii = 104;
+    private int poziomRownoleglosci = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * @param liczbaZakladow liczba zakładów sprzedawanych na każde losowanie
+     * @param srodkiPoczatkowe środki centrali na początku każdej serii (w groszach)
+     * @param ziarno ziarno symulacji
+     * @throws IllegalArgumentException jeśli liczba zakładów lub środki są ujemne
+     */
+    public SymulatorRyzyka(long liczbaZakladow, long srodkiPoczatkowe, long ziarno) {
+        if (liczbaZakladow < 0 || srodkiPoczatkowe < 0) {
+            throw new IllegalArgumentException("Liczba zakładów i środki nie mogą być ujemne");
+        }
+        this.liczbaZakladow = liczbaZakladow;
+        this.srodkiPoczatkowe = srodkiPoczatkowe;
+        this.ziarno = ziarno;
+    }
+
+    /**
+     * Ustawia liczbę kolejnych losowań w serii (domyślnie 104 – dwa losowania tygodniowo przez rok).
+     * Kumulacja i środki centrali przechodzą między losowaniami serii.
+     * @param dlugoscSerii liczba losowań w serii
+     * @throws IllegalArgumentException jeśli długość jest mniejsza niż 1
+     */
+    public void setDlugoscSerii(int dlugoscSerii) {
+        if (dlugoscSerii < 1) {
+            throw new IllegalArgumentException("Seria musi mieć co najmniej jedno losowanie");
+        }
+        this.dlugoscSerii = dlugoscSerii;
+    }
+
+    /**
+     * @param poziom liczba wątków symulacji (co najmniej 1)
+     * @throws IllegalArgumentException jeśli poziom jest mniejszy niż 1
+     */
+    public void setPoziomRownoleglosci(int poziom) {
+        if (poziom < 1) {
+            throw new IllegalArgumentException("Poziom równoległości musi być dodatni");
+        }
+        this.poziomRownoleglosci = poziom;
+    }
+
+    /**
+     * Symuluje podaną liczbę serii losowań dla jednej strategii.
+     * @param strategia oceniana strategia
+     * @param liczbaSerii liczba serii
+     * @return wynik symulacji
+     */
+    public WynikRyzyka symuluj(StrategiaNagrod strategia, int liczbaSerii) {
+        return symuluj(Map.of("", strategia), liczbaSerii).get("");
+    }
+
+    /**
+     * Symuluje podaną liczbę serii losowań, oceniając wszystkie strategie na tych samych liczbach zwycięzców.
+     * Strategie są wywoływane z wielu wątków, więc nie mogą mieć zmiennego stanu.
+     * @param strategie strategie według nazw
+     * @param liczbaSerii liczba serii
+     * @return wyniki według nazw strategii, w kolejności mapy strategii
+     */
+    public Map<String, WynikRyzyka> symuluj(Map<String, StrategiaNagrod> strategie, int liczbaSerii) {
+        List<String> nazwy = new ArrayList<>(strategie.keySet());
+        StrategiaNagrod[] tablica = new StrategiaNagrod[nazwy.size()];
+        for (int s = 0; s < tablica.length; s++) {
+            tablica[s] = strategie.get(nazwy.get(s));
+        }
+
+        List<Callable<Wyniki[]>> zadania = new ArrayList<>();
+        for (int od = 0; od < liczbaSerii; od += SERII_W_ZADANIU) {
+            int poczatek = od, koniec = Math.min(od + SERII_W_ZADANIU, liczbaSerii);
+            zadania.add(() -> symulujSerie(tablica, poczatek, koniec));
+        }
+        Wyniki[] razem = Wyniki.nowe(tablica.length);
+        ForkJoinPool pula = new ForkJoinPool(poziomRownoleglosci);
+        try {
+            for (Future<Wyniki[]> zadanie : pula.invokeAll(zadania)) {
+                Wyniki[] czesciowe = zadanie.get();
+                for (int s = 0; s < razem.length; s++) {
+                    razem[s].scal(czesciowe[s]);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Przerwano symulację ryzyka", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException wyjatek) {
+                throw wyjatek;
+            }
+            throw new IllegalStateException("Błąd w symulacji ryzyka", e.getCause());
+        } finally {
+            pula.shutdown();
+        }
+
+        Map<String, WynikRyzyka> wynik = new LinkedHashMap<>();
+        long liczbaLosowan = (long) liczbaSerii * dlugoscSerii;
+        for (int s = 0; s < tablica.length; s++) {
+            wynik.put(nazwy.get(s), new WynikRyzyka(liczbaLosowan,
+                    razem[s].subwencje, razem[s].kumulacje, razem[s].dlugosciKumulacji));
+        }
+        return wynik;
+    }
+
+    /**
+     * Symuluje serie o numerach [od, do).
+     */
+    private Wyniki[] symulujSerie(StrategiaNagrod[] strategie, int od, int doSerii) {
+        Wyniki[] wyniki = Wyniki.nowe(strategie.length);
+        long[] zwyciezcy = new long[Zaklad.LICZBA_TYPÓW + 1];
+        Map<Integer, Integer> liczbaWygranych = new HashMap<>();
+        long sumaWplat = liczbaZakladow * CENA_ZAKLADU;
+        long sumaPodatku = sumaWplat / 5;
+        long[] srodki = new long[strategie.length];
+        long[] kumulacja = new long[strategie.length];
+
+        for (int seria = od; seria < doSerii; seria++) {
+            SplittableRandom losowy = new SplittableRandom(ziarnoSerii(seria));
+            Arrays.fill(srodki, srodkiPoczatkowe);
+            Arrays.fill(kumulacja, 0);
+            int bezSzostki = 0;
+            for (int losowanie = 0; losowanie < dlugoscSerii; losowanie++) {
+                LiczbyWygranych.losuj(losowy, liczbaZakladow, zwyciezcy);
+                for (int stopien = 3; stopien <= 6; stopien++) {
+                    liczbaWygranych.put(stopien, Math.toIntExact(zwyciezcy[stopien]));
+                }
+                for (int s = 0; s < strategie.length; s++) {
+                    srodki[s] += sumaWplat - sumaPodatku;
+                    BazaWygranych baza = strategie[s].ustalBazeWygranych(
+                            sumaWplat, sumaPodatku, kumulacja[s], liczbaWygranych);
+                    long wyplata = wyplata(baza, zwyciezcy);
+                    if (wyplata > srodki[s]) {
+                        wyniki[s].subwencje.dodaj(wyplata - srodki[s]);
+                        srodki[s] = wyplata;
+                    }
+                    srodki[s] -= wyplata;
+                    if (zwyciezcy[6] == 0) {
+                        kumulacja[s] = baza.getPulaI();
+                        wyniki[s].kumulacje.dodaj(kumulacja[s]);
+                    } else {
+                        kumulacja[s] = 0;
+                    }
+                }
+                if (zwyciezcy[6] == 0) {
+                    bezSzostki++;
+                } else if (bezSzostki > 0) {
+                    dodajDlugosc(wyniki, bezSzostki);
+                    bezSzostki = 0;
+                }
+            }
+            if (bezSzostki > 0) {
+                dodajDlugosc(wyniki, bezSzostki);
+            }
+        }
+        return wyniki;
+    }
+
+    /**
+     * Kwota wypłacana przez centralę, gdy wszyscy zwycięzcy odbiorą wygrane – tak jak w tabeli wygranych:
+     * stopnie bez zwycięzców nie są wypłacane.
+     */
+    private static long wyplata(BazaWygranych baza, long[] zwyciezcy) {
+        long wyplata = baza.getWygranaIV() * zwyciezcy[3];
+        if (zwyciezcy[4] > 0) wyplata += baza.getWygranaIII() * zwyciezcy[4];
+        if (zwyciezcy[5] > 0) wyplata += baza.getWygranaII() * zwyciezcy[5];
+        if (zwyciezcy[6] > 0) wyplata += baza.getWygranaI() * zwyciezcy[6];
+        return wyplata;
+    }
+
+    private static void dodajDlugosc(Wyniki[] wyniki, int dlugosc) {
+        for (Wyniki w : wyniki) {
+            w.dlugosciKumulacji.dodaj(dlugosc);
+        }
+    }
+
+    /**
+     * Wyznacza ziarno generatora serii; zależy tylko od ziarna symulacji i numeru serii.
+     * Wynik jest wymieszany, by generatory sąsiednich ziaren nie dawały przesuniętych ciągów.
+     */
+    private long ziarnoSerii(int seria) {
+        long z = ziarno + (seria + 1L) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+        z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return z ^ (z >>> 33);
+    }
+
+    /**
+     * Rozkłady zbierane dla jednej strategii.
+     */
+    private static final class Wyniki {
+        final Rozklad subwencje = new Rozklad();
+        final Rozklad kumulacje = new Rozklad();
+        final Rozklad dlugosciKumulacji = new Rozklad();
+
+        static Wyniki[] nowe(int liczba) {
+            Wyniki[] wyniki = new Wyniki[liczba];
+            for (int i = 0; i < liczba; i++) {
+                wyniki[i] = new Wyniki();
+            }
+            return wyniki;
+        }
+
+        void scal(Wyniki inne) {
+            subwencje.scal(inne.subwencje);
+            kumulacje.scal(inne.kumulacje);
+            dlugosciKumulacji.scal(inne.dlugosciKumulacji);
+        }
+    }
+}
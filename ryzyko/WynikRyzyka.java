@@ -0,0 +1,28 @@
+package totolotek.ryzyko;
+
+/**
+ * Wynik symulacji ryzyka jednej strategii nagród. Kwoty podawane są w groszach.
+ *
+ * @param liczbaLosowan liczba symulowanych losowań (we wszystkich seriach)
+ * @param subwencje subwencje potrzebne do wypłaty wygranych – tylko losowania, w których były potrzebne
+ * @param kumulacje kumulacja I stopnia przechodząca na kolejne losowanie – tylko losowania bez szóstki
+ * @param dlugosciKumulacji liczby kolejnych losowań bez szóstki; serie przerwane końcem symulowanej
+ *                          serii losowań też są liczone, więc długie kumulacje są nieco niedoszacowane
+ */
+public record WynikRyzyka(long liczbaLosowan, Rozklad subwencje, Rozklad kumulacje, Rozklad dlugosciKumulacji) {
+
+    /** @return ułamek losowań, w których centrala musiała pobrać subwencję */
+    public double czestoscSubwencji() {
+        return liczbaLosowan == 0 ? 0 : (double) subwencje.getLiczba() / liczbaLosowan;
+    }
+
+    /** @return średnia subwencja na losowanie (łącznie z losowaniami bez subwencji) */
+    public double sredniaSubwencjaNaLosowanie() {
+        return liczbaLosowan == 0 ? 0 : (double) subwencje.getSuma() / liczbaLosowan;
+    }
+
+    /** @return ułamek losowań zakończonych kumulacją */
+    public double czestoscKumulacji() {
+        return liczbaLosowan == 0 ? 0 : (double) kumulacje.getLiczba() / liczbaLosowan;
+    }
+}
@@ -0,0 +1,11 @@
+package totolotek.symulacja;
+
+/**
+ * Sposób wykonywania partii graczy w symulacji.
+ */
+public enum RodzajWatkow {
+    /** Każda partia w osobnym wątku wirtualnym */
+    WIRTUALNE,
+    /** Partie dzielone między wątki puli z podkradaniem zadań ({@link java.util.concurrent.ForkJoinPool}) */
+    PULA_ZADAN
+}
@@ -0,0 +1,239 @@
+package totolotek.symulacja;
+
+import totolotek.core.Centrala;
+import totolotek.core.Kolektura;
+import totolotek.gracz.Gracz;
+import totolotek.losowanie.ZrodloLosowosci;
+import totolotek.metryki.MetrykiKolektury;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Powtarzalna, równoległa symulacja gry populacji graczy. Runda składa się z trzech faz:
+ * wszyscy gracze kupują kupony ({@link Gracz#kupKupon()}), centrala przeprowadza losowanie,
+ * wszyscy gracze odbierają wygrane ({@link Gracz#odbierzWygrane()}).
+ *
+ * Gracze dzieleni są na partie według ulubionej kolektury ({@link Gracz#getUlubionaKolektura()}),
+ * a liczne grupy – na partie po {@value #ROZMIAR_PARTII} graczy. Partia wykonywana jest
+ * sekwencyjnie w jednym wątku, więc stan gracza nigdy nie jest zmieniany równolegle,
+ * a terminale jednej kolektury rzadko obsługują kilka wątków naraz.
+ *
+ * Wyniki są powtarzalne dla danego ziarna: losowania centrali pochodzą ze źródła z tym ziarnem,
+ * a kolektury i gracze losują ze strumienia bieżącej partii ({@link #getZrodloLosowosci()}),
+ * wyznaczonego przez ziarno, numer rundy i numer partii – niezależnie od liczby i rodzaju wątków.
+ * Gracze losowi powinni więc otrzymać źródło symulacji. Numery kuponów mogą się różnić
+ * między przebiegami, gdy partie kupują w tej samej kolekturze, ale nie wpływa to na wyniki.
+ */
+public class Symulacja implements AutoCloseable {
+    /** Największa liczba graczy w partii */
+    public static final int ROZMIAR_PARTII = 4096;
+
+    private final Centrala centrala;
+    private final List<List<Gracz>> partie;
+    private final long ziarno;
+    private final ZrodloPartii zrodlo;
+    private RodzajWatkow rodzajWatkow = RodzajWatkow.WIRTUALNE;
+    /** Pula wątków, istnieje tylko dla {@link RodzajWatkow#PULA_ZADAN} */
+    private ForkJoinPool pula;
+    private int poziomRownoleglosci = Runtime.getRuntime().availableProcessors();
+    private int runda;
+
+    /**
+     * Tworzy symulację i przypisuje centrali oraz jej kolekturom źródła losowości wyznaczone przez ziarno.
+     * @param centrala centrala z dodanymi kolekturami
+     * @param ziarno ziarno symulacji
+     */
+    public Symulacja(Centrala centrala, long ziarno) {
+        this.centrala = centrala;
+        this.ziarno = ziarno;
+        this.zrodlo = new ZrodloPartii(ziarno);
+        this.partie = new ArrayList<>();
+        centrala.setZrodloLosowosci(ZrodloLosowosci.zZiarnem(ziarno));
+        for (Kolektura kolektura : centrala.getKolektury()) {
+            kolektura.setZrodloLosowosci(zrodlo);
+        }
+    }
+
+    /**
+     * Zwraca źródło losowości, które należy przekazać tworzonym graczom losowym.
+     * Wewnątrz partii losuje ze strumienia partii, poza nią – ze strumienia o ziarnie symulacji.
+     * @return źródło losowości symulacji
+     */
+    public ZrodloLosowosci getZrodloLosowosci() {
+        return zrodlo;
+    }
+
+    /**
+     * Dodaje graczy do symulacji. Kolejność graczy w partii jest kolejnością dodawania.
+     * @param gracze gracze do dodania
+     */
+    public void dodajGraczy(List<? extends Gracz> gracze) {
+        Map<Integer, List<Gracz>> wgKolektur = new LinkedHashMap<>();
+        for (Gracz gracz : gracze) {
+            Kolektura ulubiona = gracz.getUlubionaKolektura();
+            int klucz = ulubiona == null ? -1 : ulubiona.getNumerKoloktury();
+            wgKolektur.computeIfAbsent(klucz, k -> new ArrayList<>()).add(gracz);
+        }
+        for (List<Gracz> grupa : wgKolektur.values()) {
+            for (int od = 0; od < grupa.size(); od += ROZMIAR_PARTII) {
+                partie.add(new ArrayList<>(grupa.subList(od, Math.min(od + ROZMIAR_PARTII, grupa.size()))));
+            }
+        }
+    }
+
+    /**
+     * Ustawia sposób wykonywania partii.
+     * @param rodzaj wątki wirtualne lub pula z podkradaniem zadań
+     * @param poziomRownoleglosci liczba wątków puli (ignorowana dla wątków wirtualnych)
+     * @throws IllegalArgumentException jeśli poziom równoległości jest mniejszy niż 1
+     */
+    public void setRodzajWatkow(RodzajWatkow rodzaj, int poziomRownoleglosci) {
+        if (poziomRownoleglosci < 1) {
+            throw new IllegalArgumentException("Poziom równoległości musi być dodatni");
+        }
+        zamknijPule();
+        this.rodzajWatkow = rodzaj;
+        this.poziomRownoleglosci = poziomRownoleglosci;
+    }
+
+    /** @return liczba partii graczy */
+    public int getLiczbaPartii() {
+        return partie.size();
+    }
+
+    /**
+     * Przeprowadza kolejne rundy symulacji.
+     * @param liczbaRund liczba rund
+     * @return wyniki kolejnych rund
+     */
+    public List<WynikRundy> uruchom(int liczbaRund) {
+        List<WynikRundy> wyniki = new ArrayList<>(liczbaRund);
+        uruchom(liczbaRund, wyniki::add);
+        return wyniki;
+    }
+
+    /**
+     * Przeprowadza kolejne rundy symulacji, przekazując wynik każdej rundy zaraz po jej zakończeniu.
+     * @param liczbaRund liczba rund
+     * @param odbiorca odbiorca wyników rund
+     */
+    public void uruchom(int liczbaRund, Consumer<WynikRundy> odbiorca) {
+        for (int i = 0; i < liczbaRund; i++) {
+            odbiorca.accept(przeprowadzRunde());
+        }
+    }
+
+    private WynikRundy przeprowadzRunde() {
+        runda++;
+        long[] przed = obroty();
+
+        long poczatek = System.nanoTime();
+        wykonaj(0, Gracz::kupKupon);
+        long poZakupach = System.nanoTime();
+        centrala.przeprowadzLosowanie();
+        long poLosowaniu = System.nanoTime();
+        wykonaj(1, Gracz::odbierzWygrane);
+        long koniec = System.nanoTime();
+
+        long[] po = obroty();
+        return new WynikRundy(runda, centrala.getOstatnieRozliczoneLosowanie(),
+                poZakupach - poczatek, poLosowaniu - poZakupach, koniec - poLosowaniu,
+                po[0] - przed[0], po[1] - przed[1], po[2] - przed[2],
+                centrala.getSrodkiFinansowe(), centrala.getKumulacjaIstopnia(),
+                centrala.getBudzetPanstwa().getPobranePodatki(), centrala.getBudzetPanstwa().getPrzekazaneSubwencje());
+    }
+
+    /**
+     * Wykonuje akcję dla wszystkich graczy, partiami, i czeka na zakończenie wszystkich partii.
+     */
+    private void wykonaj(int faza, Consumer<Gracz> akcja) {
+        List<Future<?>> zadania = new ArrayList<>(partie.size());
+        ExecutorService wykonawca = rodzajWatkow == RodzajWatkow.WIRTUALNE
+                ? Executors.newVirtualThreadPerTaskExecutor() : pula();
+        try {
+            for (int i = 0; i < partie.size(); i++) {
+                List<Gracz> partia = partie.get(i);
+                ZrodloLosowosci strumien = ZrodloLosowosci.zZiarnem(ziarnoPartii(faza, i));
+                zadania.add(wykonawca.submit(() -> {
+                    zrodlo.przypisz(strumien);
+                    try {
+                        partia.forEach(akcja);
+                    } finally {
+                        zrodlo.zwolnij();
+                    }
+                }));
+            }
+            for (Future<?> zadanie : zadania) {
+                zadanie.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Przerwano rundę symulacji", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException wyjatek) {
+                throw wyjatek;
+            }
+            throw new IllegalStateException("Błąd w rundzie symulacji", e.getCause());
+        } finally {
+            if (wykonawca != pula) {
+                wykonawca.close();
+            }
+        }
+    }
+
+    /**
+     * Wyznacza ziarno strumienia partii; zależy tylko od ziarna symulacji, rundy, fazy i numeru partii.
+     */
+    private long ziarnoPartii(int faza, int partia) {
+        long z = ziarno;
+        z = z * 0x9E3779B97F4A7C15L + runda;
+        z = z * 0x9E3779B97F4A7C15L + faza;
+        z = z * 0x9E3779B97F4A7C15L + partia;
+        return z;
+    }
+
+    /**
+     * @return sumy sprzedanych kuponów, zakładów i wypłaconych kwot we wszystkich kolekturach
+     */
+    private long[] obroty() {
+        long[] obroty = new long[3];
+        for (Kolektura kolektura : centrala.getKolektury()) {
+            MetrykiKolektury metryki = kolektura.getMetryki();
+            obroty[0] += metryki.getSprzedaneKupony();
+            obroty[1] += metryki.getSprzedaneZaklady();
+            obroty[2] += metryki.getWyplaconoNetto();
+        }
+        return obroty;
+    }
+
+    private ForkJoinPool pula() {
+        if (pula == null) {
+            pula = new ForkJoinPool(poziomRownoleglosci);
+        }
+        return pula;
+    }
+
+    private void zamknijPule() {
+        if (pula != null) {
+            pula.shutdown();
+            pula = null;
+        }
+    }
+
+    /**
+     * Zamyka pulę wątków symulacji, jeśli została utworzona.
+     */
+    @Override
+    public void close() {
+        zamknijPule();
+    }
+}
@@ -0,0 +1,41 @@
+package totolotek.symulacja;
+
+/**
+ * Wynik jednej rundy symulacji: czasy faz oraz obroty rundy i stan finansowy po niej.
+ * Czasy podawane są w nanosekundach, kwoty w groszach.
+ *
+ * @param runda numer rundy (od 1)
+ * @param numerLosowania numer losowania przeprowadzonego w rundzie
+ * @param czasZakupowNs czas fazy zakupów kuponów
+ * @param czasLosowaniaNs czas przeprowadzenia i rozliczenia losowania
+ * @param czasWyplatNs czas fazy odbioru wygranych
+ * @param sprzedaneKupony liczba kuponów sprzedanych w rundzie
+ * @param sprzedaneZaklady liczba zakładów sprzedanych w rundzie
+ * @param wyplaconoNetto kwota netto wypłacona graczom w rundzie
+ * @param srodkiCentrali środki centrali po rundzie
+ * @param kumulacja kumulacja I stopnia po rundzie
+ * @param pobranePodatki łączne podatki pobrane przez budżet państwa
+ * @param przekazaneSubwencje łączne subwencje przekazane przez budżet państwa
+ */
+public record WynikRundy(int runda, int numerLosowania, long czasZakupowNs, long czasLosowaniaNs,
+                         long czasWyplatNs, long sprzedaneKupony, long sprzedaneZaklady, long wyplaconoNetto,
+                         long srodkiCentrali, long kumulacja, long pobranePodatki, long przekazaneSubwencje) {
+
+    /** @return łączny czas rundy w nanosekundach */
+    public long czasRundyNs() {
+        return czasZakupowNs + czasLosowaniaNs + czasWyplatNs;
+    }
+
+    /**
+     * Porównuje wyłącznie wyniki finansowe i obroty, pomijając czasy – do sprawdzania powtarzalności.
+     * @param inny wynik tej samej rundy innego przebiegu
+     * @return true jeśli obroty i stan finansowy są takie same
+     */
+    public boolean zgodnyFinansowo(WynikRundy inny) {
+        return runda == inny.runda && numerLosowania == inny.numerLosowania
+                && sprzedaneKupony == inny.sprzedaneKupony && sprzedaneZaklady == inny.sprzedaneZaklady
+                && wyplaconoNetto == inny.wyplaconoNetto && srodkiCentrali == inny.srodkiCentrali
+                && kumulacja == inny.kumulacja && pobranePodatki == inny.pobranePodatki
+                && przekazaneSubwencje == inny.przekazaneSubwencje;
+    }
+}
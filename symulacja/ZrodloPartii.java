@@ -0,0 +1,56 @@
+package totolotek.symulacja;
+
+import totolotek.losowanie.ZrodloLosowosci;
+
+/**
+ * Źródło losowości przypisywane kolekturom i graczom symulacji. Każde wywołanie trafia
+ * do strumienia partii wykonywanej przez bieżący wątek, więc ciąg losowań partii nie zależy
+ * od tego, jak partie zostały rozdzielone między wątki. Poza partiami (np. przy tworzeniu
+ * graczy) używany jest strumień zapasowy o ziarnie symulacji, przeznaczony dla jednego wątku.
+ */
+final class ZrodloPartii implements ZrodloLosowosci {
+    private final ThreadLocal<ZrodloLosowosci> biezace = new ThreadLocal<>();
+    private final ZrodloLosowosci zapasowe;
+
+    ZrodloPartii(long ziarno) {
+        this.zapasowe = ZrodloLosowosci.zZiarnem(ziarno);
+    }
+
+    void przypisz(ZrodloLosowosci zrodlo) {
+        biezace.set(zrodlo);
+    }
+
+    void zwolnij() {
+        biezace.remove();
+    }
+
+    private ZrodloLosowosci zrodlo() {
+        ZrodloLosowosci zrodlo = biezace.get();
+        return zrodlo != null ? zrodlo : zapasowe;
+    }
+
+    @Override
+    public int losujInt(int granica) {
+        return zrodlo().losujInt(granica);
+    }
+
+    @Override
+    public long losujLong(long granica) {
+        return zrodlo().losujLong(granica);
+    }
+
+    @Override
+    public ZrodloLosowosci rozdziel() {
+        return zrodlo().rozdziel();
+    }
+
+    @Override
+    public long losujMaske() {
+        return zrodlo().losujMaske();
+    }
+
+    @Override
+    public void losujMaski(long[] maski, int od, int doIndeksu) {
+        zrodlo().losujMaski(maski, od, doIndeksu);
+    }
+}
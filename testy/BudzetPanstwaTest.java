@@ -0,0 +1,100 @@
+package totolotek.testy;
+
+import org.junit.jupiter.api.Test;
+import totolotek.finanse.BudzetPanstwa;
+import totolotek.finanse.StanBudzetu;
+import totolotek.finanse.SumyBudzetu;
+
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BudzetPanstwaTest {
+
+    @Test
+    void testStan_RozbicieNaPozycjeLosowaniaIKolektury() {
+        // given: pusty budżet
+        BudzetPanstwa budzet = new BudzetPanstwa();
+
+        // when: księgowane są podatki i subwencja
+        budzet.pobierzPodatekOdSprzedazy(600, 1, 1);
+        budzet.pobierzPodatekOdSprzedazy(300, 2, 1);
+        budzet.pobierzPodatekOdWygranej(5_000, 2, 1);
+        budzet.udzielSubwencji(1_000, 2);
+        StanBudzetu stan = budzet.getStan();
+
+        // then: sumy łączne i rozbicia są poprawne
+        assertEquals(new SumyBudzetu(900, 5_000, 1_000), stan.getRazem());
+        assertEquals(5_900, stan.getLosowanie(1).getPobranePodatki());
+        assertEquals(1_000, stan.getLosowanie(2).getSubwencje());
+        assertEquals(5_300, stan.getKolektura(2).getPobranePodatki());
+        assertEquals(5_900, budzet.getPobranePodatki());
+        assertEquals(1_000, budzet.getPrzekazaneSubwencje());
+    }
+
+    @Test
+    void testStan_RownolegleKsiegowanie() {
+        // given: pusty budżet
+        BudzetPanstwa budzet = new BudzetPanstwa();
+
+        // when: wiele wątków równocześnie księguje podatki od sprzedaży
+        IntStream.range(0, 100_000).parallel()
+                .forEach(i -> budzet.pobierzPodatekOdSprzedazy(60, i % 10 + 1, i % 3 + 1));
+
+        // then: żadna operacja nie zginęła, a rozbicie zgadza się z sumą łączną
+        StanBudzetu stan = budzet.getStan();
+        assertEquals(6_000_000L, stan.getRazem().getPodatkiOdSprzedazy());
+        assertEquals(600_000L, stan.getKolektura(7).getPodatkiOdSprzedazy());
+        long sumaLosowan = stan.getWgLosowan().values().stream().mapToLong(SumyBudzetu::getPodatkiOdSprzedazy).sum();
+        assertEquals(stan.getRazem().getPodatkiOdSprzedazy(), sumaLosowan);
+    }
+
+    @Test
+    void testDodajStan_OdtwarzaIDoliczaKsiegowania() {
+        // given: budżet z kilkoma operacjami i jego stan
+        BudzetPanstwa budzet = new BudzetPanstwa();
+        budzet.pobierzPodatekOdSprzedazy(600, 1, 1);
+        budzet.pobierzPodatekOdWygranej(5_000, 2, 1);
+        budzet.udzielSubwencji(1_000, 2);
+        StanBudzetu stan = budzet.getStan();
+
+        // when: stan jest doliczany do pustego budżetu, a potem dochodzą nowe operacje
+        BudzetPanstwa odtworzony = new BudzetPanstwa();
+        odtworzony.dodajStan(stan);
+        StanBudzetu poDoliczeniu = odtworzony.getStan();
+        budzet.pobierzPodatekOdSprzedazy(300, 3, 2);
+        odtworzony.pobierzPodatekOdSprzedazy(300, 3, 2);
+
+        // then: stany są równe przed i po nowych operacjach
+        assertEquals(stan, poDoliczeniu);
+        assertEquals(stan.hashCode(), poDoliczeniu.hashCode());
+        assertEquals(budzet.getStan(), odtworzony.getStan());
+        assertEquals(5_900, odtworzony.getPobranePodatki());
+    }
+
+    @Test
+    void testZamknijKonta_RownolegleKsiegowanieBezStrat() throws InterruptedException {
+        // given: budżet, w którym wątek w tle zamyka konta kolejnych losowań
+        BudzetPanstwa budzet = new BudzetPanstwa();
+        Thread zamykajacy = new Thread(() -> {
+            for (int nr = 1; nr <= 300; nr++) {
+                budzet.zamknijKonta(nr);
+                Thread.yield();
+            }
+        });
+        zamykajacy.start();
+
+        // when: równocześnie księgowane są podatki na zamykane losowania
+        IntStream.range(0, 60_000).parallel()
+                .forEach(i -> budzet.pobierzPodatekOdWygranej(10, i % 4 + 1, i % 300 + 1));
+        zamykajacy.join();
+        budzet.zamknijKonta(300);
+
+        // then: żadna operacja nie zginęła ani nie została policzona dwa razy
+        StanBudzetu stan = budzet.getStan();
+        assertEquals(600_000L, stan.getRazem().getPodatkiOdWygranych());
+        assertEquals(600_000L, budzet.getPobranePodatki());
+        assertEquals(150_000L, stan.getKolektura(3).getPodatkiOdWygranych());
+        assertEquals(2_000L, stan.getLosowanie(17).getPodatkiOdWygranych());
+    }
+}
@@ -1,9 +1,22 @@
 package totolotek.testy;
 
 import org.junit.jupiter.api.Test;
+import totolotek.core.BazaWygranych;
 import totolotek.core.Centrala;
 import totolotek.core.Kolektura;
+import totolotek.core.RodzajMagazynu;
+import totolotek.core.RodzajRozliczen;
+import totolotek.core.TabelaWygranych;
+import totolotek.core.WynikCzesciowy;
 import totolotek.finanse.BudzetPanstwa;
+import totolotek.gracz.GraczMinimalista;
+import totolotek.kupon.Kupon;
+import totolotek.kupon.Zaklad;
+import totolotek.losowanie.ZrodloLosowosci;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -27,4 +40,294 @@ public class CentralaTest {
         assertEquals(przed + 1, po);
     }
 
+    @Test
+    void testPrzeprowadzLosowanie_RownolegleRozliczenie() {
+        // given: centrale z tą samą sprzedażą, rozliczające sekwencyjnie i na 4 wątkach;
+        // kuponów jest na tyle dużo, że zliczanie dzieli się na wiele zadań
+        int[] poziomy = {1, 4};
+        Centrala[] centrale = new Centrala[poziomy.length];
+        for (int p = 0; p < poziomy.length; p++) {
+            Centrala centrala = new Centrala(1_000_000_000L, new BudzetPanstwa());
+            centrala.setPoziomRownoleglosci(poziomy[p]);
+            centrala.setZrodloLosowosci(ZrodloLosowosci.zZiarnem(5));
+            Kolektura kolektura = new Kolektura(1, centrala);
+            kolektura.setZrodloLosowosci(ZrodloLosowosci.zZiarnem(13));
+            centrala.dodajKolekture(kolektura);
+            GraczMinimalista gracz = new GraczMinimalista("Jan", "Kowalski", "12345678901", 10_000_000_000L, kolektura);
+            for (int i = 0; i < 20_000; i++) {
+                kolektura.sprzedajKuponChybilTraf(1 + i % 8, 1 + i % 4, gracz);
+            }
+
+            // when: przeprowadzenie kilku losowań
+            for (int i = 0; i < 4; i++) {
+                centrala.przeprowadzLosowanie();
+            }
+            centrale[p] = centrala;
+        }
+
+        // then: liczby wygranych, pule i stan finansów nie zależą od poziomu równoległości,
+        // a nieprawidłowy poziom jest odrzucany
+        for (int nr = 1; nr <= 4; nr++) {
+            TabelaWygranych sekwencyjna = centrale[0].getTabelaWygranych(nr);
+            TabelaWygranych rownolegla = centrale[1].getTabelaWygranych(nr);
+            BazaWygranych a = sekwencyjna.getBazaWygranych(), b = rownolegla.getBazaWygranych();
+            assertArrayEquals(new long[]{a.getLiczbaI(), a.getLiczbaII(), a.getLiczbaIII(), a.getLiczbaIV(),
+                            a.getPulaI(), a.getPulaII(), a.getPulaIII(), a.getPulaIV()},
+                    new long[]{b.getLiczbaI(), b.getLiczbaII(), b.getLiczbaIII(), b.getLiczbaIV(),
+                            b.getPulaI(), b.getPulaII(), b.getPulaIII(), b.getPulaIV()});
+            for (int trafienia = 0; trafienia <= Zaklad.LICZBA_TYPÓW; trafienia++) {
+                assertEquals(sekwencyjna.getWygranaZaTrafienia(trafienia), rownolegla.getWygranaZaTrafienia(trafienia));
+            }
+        }
+        assertEquals(centrale[0].getSrodkiFinansowe(), centrale[1].getSrodkiFinansowe());
+        assertEquals(centrale[0].getKumulacjaIstopnia(), centrale[1].getKumulacjaIstopnia());
+        assertEquals(4, centrale[1].getLosowania().size());
+        assertThrows(IllegalArgumentException.class, () -> centrale[1].setPoziomRownoleglosci(0));
+    }
+
+    @Test
+    void testRodzajeRozliczen_TeSameWygraneCoSkanKuponow() {
+        // given: centrale z tą samą sprzedażą, rozliczające każdym z silników rozliczeń;
+        // w pierwszym losowaniu różnych zestawów jest więcej niż zestawów wygrywających
+        Centrala[] centrale = new Centrala[RodzajRozliczen.values().length];
+        for (RodzajRozliczen rodzaj : RodzajRozliczen.values()) {
+            Centrala centrala = new Centrala(1_000_000_000L, new BudzetPanstwa());
+            centrala.setRodzajRozliczen(rodzaj);
+            centrala.setZrodloLosowosci(ZrodloLosowosci.zZiarnem(7));
+            Kolektura kolektura = new Kolektura(1, centrala);
+            kolektura.setZrodloLosowosci(ZrodloLosowosci.zZiarnem(11));
+            centrala.dodajKolekture(kolektura);
+            GraczMinimalista gracz = new GraczMinimalista("Jan", "Kowalski", "12345678901", 10_000_000_000L, kolektura);
+            for (int i = 0; i < 40_000; i++) {
+                kolektura.sprzedajKuponChybilTraf(8, 1, gracz);
+            }
+            for (int i = 0; i < 2_000; i++) {
+                kolektura.sprzedajKuponChybilTraf(1 + i % 8, 1 + i % 10, gracz);
+            }
+            assertThrows(IllegalStateException.class, () -> centrala.setRodzajRozliczen(RodzajRozliczen.SKAN_KUPONOW));
+
+            // when: przeprowadzenie kilku losowań
+            for (int i = 0; i < 4; i++) {
+                centrala.przeprowadzLosowanie();
+            }
+            centrale[rodzaj.ordinal()] = centrala;
+        }
+
+        // then: liczby wygranych, pule i stan finansów są takie same, a po sprzedaży silnika nie można zmienić
+        for (int r = 1; r < centrale.length; r++) {
+            for (int nr = 1; nr <= 4; nr++) {
+                TabelaWygranych skan = centrale[0].getTabelaWygranych(nr);
+                TabelaWygranych inna = centrale[r].getTabelaWygranych(nr);
+                BazaWygranych a = skan.getBazaWygranych(), b = inna.getBazaWygranych();
+                assertArrayEquals(new long[]{a.getLiczbaI(), a.getLiczbaII(), a.getLiczbaIII(), a.getLiczbaIV(),
+                                a.getPulaI(), a.getPulaII(), a.getPulaIII(), a.getPulaIV()},
+                        new long[]{b.getLiczbaI(), b.getLiczbaII(), b.getLiczbaIII(), b.getLiczbaIV(),
+                                b.getPulaI(), b.getPulaII(), b.getPulaIII(), b.getPulaIV()});
+                for (int trafienia = 0; trafienia <= Zaklad.LICZBA_TYPÓW; trafienia++) {
+                    assertEquals(skan.getWygranaZaTrafienia(trafienia), inna.getWygranaZaTrafienia(trafienia));
+                }
+            }
+            assertEquals(centrale[0].getSrodkiFinansowe(), centrale[r].getSrodkiFinansowe());
+            assertEquals(centrale[0].getKumulacjaIstopnia(), centrale[r].getKumulacjaIstopnia());
+        }
+    }
+
+    @Test
+    void testRodzajeRozliczen_TenSamHistogramTrafien() {
+        // given: centrale z tą samą sprzedażą, rozliczające każdym z silników rozliczeń
+        long maska = ZrodloLosowosci.zZiarnem(7).losujMaske();
+        long[] skan = null;
+        for (RodzajRozliczen rodzaj : RodzajRozliczen.values()) {
+            Centrala centrala = new Centrala(1_000_000_000L, new BudzetPanstwa());
+            centrala.setRodzajRozliczen(rodzaj);
+            Kolektura kolektura = new Kolektura(1, centrala);
+            kolektura.setZrodloLosowosci(ZrodloLosowosci.zZiarnem(11));
+            centrala.dodajKolekture(kolektura);
+            GraczMinimalista gracz = new GraczMinimalista("Jan", "Kowalski", "12345678901", 10_000_000_000L, kolektura);
+            for (int i = 0; i < 2_000; i++) {
+                kolektura.sprzedajKuponChybilTraf(1 + i % 8, 1, gracz);
+            }
+
+            // when: zliczenie trafień
+            long[] liczby = centrala.rozpocznijLosowanie(1, maska).getLiczby();
+
+            // then: zakłady bez wygranej są przy zerze trafień, a histogramy silników są równe
+            assertEquals(0, liczby[1], rodzaj.name());
+            assertEquals(0, liczby[2], rodzaj.name());
+            if (skan == null) {
+                skan = liczby;
+            }
+            assertArrayEquals(skan, liczby, rodzaj.name());
+        }
+    }
+
+    @Test
+    void testPrzerwaneLosowanie_PonownieZliczaTeSameKupony() {
+        for (RodzajRozliczen rodzaj : RodzajRozliczen.values()) {
+            // given: losowanie rozpoczęte po sprzedaży
+            Centrala centrala = new Centrala(1_000_000_000L, new BudzetPanstwa());
+            centrala.setRodzajRozliczen(rodzaj);
+            Kolektura kolektura = new Kolektura(1, centrala);
+            kolektura.setZrodloLosowosci(ZrodloLosowosci.zZiarnem(11));
+            centrala.dodajKolekture(kolektura);
+            GraczMinimalista gracz = new GraczMinimalista("Jan", "Kowalski", "12345678901", 10_000_000_000L, kolektura);
+            for (int i = 0; i < 2_000; i++) {
+                kolektura.sprzedajKuponChybilTraf(1 + i % 8, 1 + i % 3, gracz);
+            }
+            long maska = ZrodloLosowosci.zZiarnem(7).losujMaske();
+            WynikCzesciowy pierwszy = centrala.rozpocznijLosowanie(1, maska);
+
+            // when: losowanie zostaje przerwane, a sprzedaż trwa dalej
+            centrala.przerwijLosowanie(1);
+            Kupon kupon = kolektura.sprzedajKuponChybilTraf(8, 1, gracz);
+            WynikCzesciowy ponowny = centrala.rozpocznijLosowanie(1, maska);
+
+            // then: ponowne losowanie zlicza te same zakłady, a nowy kupon obowiązuje od następnego
+            assertArrayEquals(pierwszy.getLiczby(), ponowny.getLiczby(), rodzaj.name());
+            assertEquals(2, kupon.getPierwszeLosowanie());
+            assertThrows(IllegalStateException.class, () -> centrala.przerwijLosowanie(2));
+            centrala.zatwierdzLosowanie(ponowny, centrala.ustalBazeWygranych(ponowny));
+            assertEquals(1, centrala.getOstatnieRozliczoneLosowanie());
+            assertThrows(IllegalStateException.class, () -> centrala.przerwijLosowanie(1));
+        }
+    }
+
+    @Test
+    void testLosowanieWTrakcieSprzedazy_RozliczaZamrozoneKupony() throws Exception {
+        for (RodzajRozliczen rodzaj : RodzajRozliczen.values()) {
+            for (RodzajMagazynu rodzajMagazynu : RodzajMagazynu.values()) {
+                // given: cztery terminale sprzedające po 3000 kuponów
+                Centrala centrala = new Centrala(1_000_000_000L, new BudzetPanstwa());
+                centrala.setRodzajRozliczen(rodzaj);
+                Kolektura kolektura = new Kolektura(1, centrala, rodzajMagazynu);
+                centrala.dodajKolekture(kolektura);
+                ZrodloLosowosci zrodlo = ZrodloLosowosci.zZiarnem(3);
+                List<List<Kupon>> sprzedane = new ArrayList<>();
+                List<Thread> terminale = new ArrayList<>();
+                for (int t = 0; t < 4; t++) {
+                    List<Kupon> kupony = new ArrayList<>();
+                    GraczMinimalista gracz = new GraczMinimalista("Jan", "Kowalski", "12345678901", 1_000_000_000L, kolektura);
+                    terminale.add(new Thread(() -> {
+                        for (int i = 0; i < 3_000; i++) {
+                            kupony.add(kolektura.sprzedajKuponChybilTraf(1 + i % 8, 1 + i % 10, gracz));
+                        }
+                    }));
+                    sprzedane.add(kupony);
+                }
+
+                // when: losowania odbywają się w trakcie sprzedaży, aż terminale skończą
+                List<WynikCzesciowy> wyniki = new ArrayList<>();
+                List<Kupon> wTrakcieRozliczenia = new ArrayList<>();
+                GraczMinimalista kupujacy = new GraczMinimalista("Anna", "Nowak", "10987654321", 1_000_000_000L, kolektura);
+                terminale.forEach(Thread::start);
+                while (wyniki.size() < 3 || terminale.stream().anyMatch(Thread::isAlive)) {
+                    int nr = centrala.getNajblizszeLosowanie();
+                    WynikCzesciowy wynik = centrala.rozpocznijLosowanie(nr, zrodlo.losujMaske());
+                    // sprzedaż nie czeka na rozliczenie – trafia już na następne losowanie
+                    Kupon kupon = kolektura.sprzedajKuponChybilTraf(1, 1, kupujacy);
+                    assertEquals(nr + 1, kupon.getPierwszeLosowanie());
+                    wTrakcieRozliczenia.add(kupon);
+                    centrala.zatwierdzLosowanie(wynik, centrala.ustalBazeWygranych(wynik));
+                    wyniki.add(wynik);
+                }
+                for (Thread terminal : terminale) {
+                    terminal.join();
+                }
+
+                // then: każde losowanie rozliczyło dokładnie zakłady kuponów sprzedanych na nie przed odcięciem
+                int ostatnie = wyniki.size();
+                sprzedane.add(wTrakcieRozliczenia);
+                long[] zaklady = new long[ostatnie + 1];
+                for (List<Kupon> kupony : sprzedane) {
+                    for (Kupon kupon : kupony) {
+                        for (int nr : kupon.getNumeryLosowan()) {
+                            if (nr <= ostatnie) zaklady[nr] += kupon.getIleZakladow();
+                        }
+                    }
+                }
+                for (WynikCzesciowy wynik : wyniki) {
+                    assertEquals(zaklady[wynik.getNumerLosowania()], wynik.getLiczbaZakladow(), rodzaj + "/" + rodzajMagazynu);
+                }
+                assertEquals(ostatnie, centrala.getOstatnieRozliczoneLosowanie());
+                assertEquals(ostatnie + 1, centrala.getNajblizszeLosowanie());
+            }
+        }
+    }
+
+    @Test
+    void testRealizacjaWTrakcieZatwierdzania_WygraneNieGina() throws Exception {
+        // given: po 20 kuponów na każde z 300 losowań i wątek realizujący je zaraz po rozliczeniu
+        Centrala centrala = new Centrala(1_000_000_000L, new BudzetPanstwa());
+        centrala.setZrodloLosowosci(ZrodloLosowosci.zZiarnem(13));
+        Kolektura kolektura = new Kolektura(1, centrala);
+        centrala.dodajKolekture(kolektura);
+        GraczMinimalista gracz = new GraczMinimalista("Jan", "Kowalski", "12345678901", 1_000_000_000L, kolektura);
+        GraczMinimalista odbierajacy = new GraczMinimalista("Anna", "Nowak", "10987654321", 0L, kolektura);
+        int losowan = 300;
+        AtomicReferenceArray<List<Kupon>> kuponyLosowan = new AtomicReferenceArray<>(losowan + 1);
+        long[] wyplacone = new long[losowan + 1];
+        Thread realizujacy = new Thread(() -> {
+            for (int nr = 1; nr <= losowan; nr++) {
+                while (centrala.getOstatnieRozliczoneLosowanie() < nr) {
+                    Thread.onSpinWait();
+                }
+                for (long netto : kolektura.wyplacWygrane(odbierajacy, kuponyLosowan.get(nr))) {
+                    wyplacone[nr] += netto;
+                }
+            }
+        });
+        realizujacy.start();
+
+        // when: losowania są zatwierdzane, gdy kupony poprzednich są już realizowane
+        for (int nr = 1; nr <= losowan; nr++) {
+            List<Kupon> kupony = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                kupony.add(kolektura.sprzedajKuponChybilTraf(8, 1, gracz));
+            }
+            kuponyLosowan.set(nr, kupony);
+            centrala.przeprowadzLosowanie();
+        }
+        realizujacy.join();
+
+        // then: każdy kupon dostał wygraną z tabeli swojego losowania
+        long razem = 0;
+        for (int nr = 1; nr <= losowan; nr++) {
+            long oczekiwane = 0;
+            for (Kupon kupon : kuponyLosowan.get(nr)) {
+                for (Zaklad zaklad : kupon.getZaklady()) {
+                    long wygrana = centrala.getWygrana(zaklad, nr);
+                    oczekiwane += wygrana >= 228_000 ? wygrana * 9 / 10 : wygrana;
+                }
+            }
+            assertEquals(oczekiwane, wyplacone[nr], "losowanie " + nr);
+            razem += oczekiwane;
+        }
+        assertTrue(razem > 0);
+        assertEquals(razem, odbierajacy.getSrodki());
+    }
+
+    @Test
+    void testGetWygrana_ZTabeliWygranych() {
+        // given: centrala po jednym losowaniu bez sprzedanych kuponów
+        BudzetPanstwa budzet = new BudzetPanstwa();
+        Centrala centrala = new Centrala(1_000_000L, budzet);
+        centrala.przeprowadzLosowanie();
+        long wynik = centrala.getTabelaWygranych(1).getMaskaWyniku();
+
+        // when: zakład z 6 trafieniami i zakład z dokładnie 3 trafieniami
+        Zaklad szostka = new Zaklad(wynik);
+        long trzyTrafione = wynik;
+        for (int i = 0; i < 3; i++) trzyTrafione &= trzyTrafione - 1; // usuń 3 najniższe liczby
+        long trojka = trzyTrafione;
+        for (long bit = 1; Long.bitCount(trojka) < 6; bit <<= 1) {
+            if ((wynik & bit) == 0) trojka |= bit;
+        }
+
+        // then: stopień bez zwycięzców daje 0, trójka stałe 24 zł, nierozliczone losowanie 0
+        assertEquals(3, Long.bitCount(trzyTrafione));
+        assertEquals(0, centrala.getWygrana(szostka, 1));
+        assertEquals(2_400, centrala.getWygrana(new Zaklad(trojka), 1));
+        assertEquals(0, centrala.getWygrana(szostka, 2));
+        assertNull(centrala.getTabelaWygranych(2));
+    }
 }
@@ -0,0 +1,118 @@
+package totolotek.testy;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import totolotek.core.Centrala;
+import totolotek.core.Kolektura;
+import totolotek.finanse.BudzetPanstwa;
+import totolotek.gracz.GraczMinimalista;
+import totolotek.kupon.IdKuponu;
+import totolotek.kupon.Kupon;
+import totolotek.losowanie.ZrodloLosowosci;
+import totolotek.trwalosc.Dziennik;
+import totolotek.trwalosc.RekordDziennika;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DziennikTest {
+
+    @Test
+    void testZapiszIOdczytaj_PoPonownymOtwarciu(@TempDir Path katalog) throws IOException {
+        // given: dziennik z małymi segmentami i 10 rekordami (rozłożonymi na 3 segmenty)
+        try (Dziennik dziennik = Dziennik.otworz(katalog, true, 4)) {
+            RekordDziennika rekord = new RekordDziennika();
+            for (int i = 0; i < 10; i++) {
+                dziennik.zatwierdz(dziennik.zapisz(rekord.nowy(7).setNumer(i).setPole(9, -i)));
+            }
+        }
+
+        // when: dziennik jest otwierany ponownie i odczytywany
+        List<Long> pola = new ArrayList<>();
+        try (Dziennik dziennik = Dziennik.otworz(katalog, true, 4)) {
+            assertEquals(10, dziennik.getLiczbaRekordow());
+            dziennik.odczytaj(0, r -> {
+                assertEquals(7, r.getTyp());
+                pola.add(r.getPole(9) + r.getNumer());
+            });
+        }
+
+        // then: odczytano wszystkie rekordy w kolejności zapisu
+        assertEquals(10, pola.size());
+        pola.forEach(p -> assertEquals(0L, p));
+    }
+
+    @Test
+    void testOdtworzZDziennika_TenSamStan(@TempDir Path katalog) throws IOException {
+        // given: centrala z dziennikiem, sprzedaż, trzy losowania i odbiór wygranych
+        Centrala centrala = new Centrala(1_000_000_000L, new BudzetPanstwa());
+        centrala.setZrodloLosowosci(ZrodloLosowosci.zZiarnem(3));
+        Kolektura kolektura = new Kolektura(1, centrala);
+        centrala.dodajKolekture(kolektura);
+        GraczMinimalista gracz = new GraczMinimalista("Jan", "Kowalski", "12345678901", 10_000_000L, kolektura);
+        List<Kupon> kupony = new ArrayList<>();
+        try (Dziennik dziennik = Dziennik.otworz(katalog, false)) {
+            centrala.setDziennik(dziennik);
+            for (int losowanie = 0; losowanie < 3; losowanie++) {
+                for (int i = 0; i < 200; i++) {
+                    kupony.add(kolektura.sprzedajKuponChybilTraf(8, 2, gracz));
+                }
+                centrala.przeprowadzLosowanie();
+            }
+            kolektura.wyplacWygrane(gracz, kupony.subList(0, 200));
+        }
+
+        // when: stan odtwarzany jest w nowej centrali
+        Centrala odtworzona = new Centrala(1_000_000_000L, new BudzetPanstwa());
+        Kolektura odtworzonaKolektura = new Kolektura(1, odtworzona);
+        odtworzona.dodajKolekture(odtworzonaKolektura);
+        try (Dziennik dziennik = Dziennik.otworz(katalog, false)) {
+            odtworzona.odtworzZDziennika(dziennik);
+        }
+
+        // then: środki, kumulacja, budżet, losowania i kupony są takie same
+        assertEquals(centrala.getSrodkiFinansowe(), odtworzona.getSrodkiFinansowe());
+        assertEquals(centrala.getKumulacjaIstopnia(), odtworzona.getKumulacjaIstopnia());
+        assertEquals(centrala.getBudzetPanstwa().getStan().getRazem(),
+                odtworzona.getBudzetPanstwa().getStan().getRazem());
+        assertEquals(centrala.getNajblizszeLosowanie(), odtworzona.getNajblizszeLosowanie());
+        for (int nr = 1; nr <= 3; nr++) {
+            assertEquals(centrala.getLosowania().get(nr).getMaska(), odtworzona.getLosowania().get(nr).getMaska());
+        }
+        assertEquals(kolektura.kuponyNaLosowanie(4).size(), odtworzonaKolektura.kuponyNaLosowanie(4).size());
+        Kupon zrealizowany = odtworzonaKolektura.znajdzKupon(kupony.get(0).getIdentyfikator());
+        Kupon niezrealizowany = odtworzonaKolektura.znajdzKupon(kupony.get(599).getIdentyfikator());
+        assertTrue(zrealizowany.czyZrealizowany());
+        assertTrue(odtworzonaKolektura.zweryfikujKupon(niezrealizowany));
+        assertEquals(kupony.get(599).getZaklady(), niezrealizowany.getZaklady());
+    }
+
+    @Test
+    void testWyczerpaneNumeryKuponow_SrodkiZwrocone(@TempDir Path katalog) throws IOException {
+        // given: dziennik ze sprzedażą kuponu o największym możliwym numerze
+        long id = IdKuponu.utworz(1, IdKuponu.MAX_NUMER, 0);
+        try (Dziennik dziennik = Dziennik.otworz(katalog, false)) {
+            dziennik.zapisz(new RekordDziennika().nowy(1).setNumer(1).setBajt(1, 1).setBajt(2, 1)
+                    .setPole(0, id).setPole(1, 60).setPole(2, 0b111111L));
+        }
+        Centrala centrala = new Centrala(1_000_000L, new BudzetPanstwa());
+        Kolektura kolektura = new Kolektura(1, centrala);
+        centrala.dodajKolekture(kolektura);
+        try (Dziennik dziennik = Dziennik.otworz(katalog, false)) {
+            centrala.odtworzZDziennika(dziennik);
+            GraczMinimalista gracz = new GraczMinimalista("Jan", "Kowalski", "12345678901", 10_000L, kolektura);
+
+            // when: kolejna sprzedaż nie dostaje numeru kuponu
+            assertThrows(IllegalStateException.class, () -> kolektura.sprzedajKuponChybilTraf(2, 3, gracz));
+
+            // then: gracz odzyskał pobrane środki i nie ma kuponu
+            assertEquals(10_000L, gracz.getSrodki());
+            assertEquals(0, gracz.getLiczbaKuponow());
+            assertNotNull(kolektura.znajdzKupon(IdKuponu.naNapis(id)));
+        }
+    }
+}
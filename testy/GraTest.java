@@ -7,6 +7,7 @@ import totolotek.finanse.BudzetPanstwa;
 import totolotek.gracz.*;
 import totolotek.kupon.Blankiet;
 import totolotek.kupon.PoleBlankietu;
+import totolotek.symulacja.Symulacja;
 
 import java.util.*;
 
@@ -78,10 +79,9 @@ public class GraTest {
         }
 
         // when: gracze kupują kupony, przeprowadzane jest 20 losowań, odbierają wygrane
-        for (int nrLosowania = 1; nrLosowania <= 20; nrLosowania++) {
-            wszyscyGracze.parallelStream().forEach(Gracz::kupKupon);
-            centrala.przeprowadzLosowanie();
-            wszyscyGracze.parallelStream().forEach(Gracz::odbierzWygrane);
+        try (Symulacja symulacja = new Symulacja(centrala, 20L)) {
+            symulacja.dodajGraczy(wszyscyGracze);
+            symulacja.uruchom(20);
         }
 
         // then: wypisanie końcowych wyników, stanu finansowego i budżetu państwa
@@ -0,0 +1,112 @@
+package totolotek.testy;
+
+import org.junit.jupiter.api.Test;
+import totolotek.core.Centrala;
+import totolotek.core.Kolektura;
+import totolotek.core.RodzajMagazynu;
+import totolotek.finanse.BudzetPanstwa;
+import totolotek.gracz.GraczMinimalista;
+import totolotek.gracz.GraczStaloliczbowy;
+import totolotek.kupon.Kupon;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GraczTest {
+
+    @Test
+    void testOdbierzWygrane_TylkoDojrzaleKupony() {
+        // given: kupony na 3, 1 i 2 losowania
+        Centrala centrala = new Centrala(1_000_000_000L, new BudzetPanstwa());
+        Kolektura kolektura = new Kolektura(1, centrala);
+        centrala.dodajKolekture(kolektura);
+        GraczMinimalista gracz = new GraczMinimalista("Jan", "Kowalski", "12345678901", 1_000_000L, kolektura);
+        Kupon naTrzy = kolektura.sprzedajKuponChybilTraf(1, 3, gracz);
+        Kupon naJedno = kolektura.sprzedajKuponChybilTraf(1, 1, gracz);
+        Kupon naDwa = kolektura.sprzedajKuponChybilTraf(1, 2, gracz);
+
+        // then: kupony są dopisane raz, w kolejności dojrzewania
+        assertEquals(List.of(naJedno, naDwa, naTrzy), gracz.getKupony());
+        assertEquals(3, gracz.getLiczbaKuponow());
+
+        // when: po pierwszym losowaniu gracz odbiera wygrane
+        centrala.przeprowadzLosowanie();
+        gracz.odbierzWygrane();
+
+        // then: odebrany i usunięty jest tylko kupon na jedno losowanie
+        assertTrue(naJedno.czyZrealizowany());
+        assertFalse(naDwa.czyZrealizowany());
+        assertEquals(List.of(naDwa, naTrzy), gracz.getKupony());
+        assertTrue(gracz.maAktywnyKupon());
+
+        // when: po dwóch kolejnych losowaniach
+        centrala.przeprowadzLosowanie();
+        centrala.przeprowadzLosowanie();
+        assertFalse(gracz.maAktywnyKupon());
+        gracz.odbierzWygrane();
+
+        // then: gracz nie ma już kuponów
+        assertTrue(naDwa.czyZrealizowany());
+        assertTrue(naTrzy.czyZrealizowany());
+        assertTrue(gracz.getKupony().isEmpty());
+        assertEquals(0, gracz.getLiczbaKuponow());
+    }
+
+    @Test
+    void testGraczStaloliczbowy_NowyKuponPoZakonczeniuPoprzedniego() {
+        // given: gracz stałoliczbowy z jednym kuponem na 10 losowań
+        Centrala centrala = new Centrala(1_000_000_000L, new BudzetPanstwa());
+        Kolektura kolektura = new Kolektura(1, centrala);
+        centrala.dodajKolekture(kolektura);
+        GraczStaloliczbowy gracz = new GraczStaloliczbowy("Anna", "Nowak", "98765432109", 1_000_000L,
+                List.of(kolektura), Set.of(1, 2, 3, 4, 5, 6));
+        gracz.kupKupon();
+
+        // when: gracz próbuje kupować w trakcie trwania kuponu
+        for (int i = 0; i < 9; i++) {
+            centrala.przeprowadzLosowanie();
+            gracz.odbierzWygrane();
+            gracz.kupKupon();
+        }
+
+        // then: ma wciąż tylko pierwszy kupon
+        assertEquals(1, gracz.getLiczbaKuponow());
+
+        // when: kończy się ostatnie losowanie kuponu
+        centrala.przeprowadzLosowanie();
+        gracz.odbierzWygrane();
+        gracz.kupKupon();
+
+        // then: pierwszy kupon jest zrealizowany, a gracz kupił następny
+        assertEquals(1, gracz.getLiczbaKuponow());
+        assertEquals(centrala.getNajblizszeLosowanie(), gracz.getKupony().get(0).getPierwszeLosowanie());
+    }
+
+    @Test
+    void testOdbierzWygrane_MagazynKolumnowyWidokiKuponow() {
+        // given: gracz pamiętający kupony kolektury z magazynem kolumnowym
+        Centrala centrala = new Centrala(1_000_000_000L, new BudzetPanstwa());
+        Kolektura kolektura = new Kolektura(1, centrala, RodzajMagazynu.KOLUMNOWY);
+        centrala.dodajKolekture(kolektura);
+        GraczMinimalista gracz = new GraczMinimalista("Jan", "Kowalski", "12345678901", 1_000_000L, kolektura);
+        Kupon sprzedany = kolektura.sprzedajKuponChybilTraf(2, 1, gracz);
+
+        // when
+        Kupon widok = gracz.getKupony().get(0);
+
+        // then: gracz zwraca widok odtworzony z kolumn magazynu
+        assertNotSame(sprzedany, widok);
+        assertEquals(sprzedany.getIdentyfikator(), widok.getIdentyfikator());
+        assertEquals(sprzedany.getZaklady(), widok.getZaklady());
+
+        // when: po losowaniu gracz odbiera wygrane
+        centrala.przeprowadzLosowanie();
+        gracz.odbierzWygrane();
+
+        // then: kupon jest zrealizowany w magazynie
+        assertTrue(gracz.getKupony().isEmpty());
+        assertTrue(kolektura.znajdzKupon(sprzedany.getId()).czyZrealizowany());
+    }
+}
@@ -0,0 +1,227 @@
+package totolotek.testy;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import totolotek.core.BazaWygranych;
+import totolotek.core.Centrala;
+import totolotek.core.HistoriaLosowan;
+import totolotek.core.Kolektura;
+import totolotek.finanse.BudzetPanstwa;
+import totolotek.gracz.GraczMinimalista;
+import totolotek.losowanie.ZrodloLosowosci;
+import totolotek.trwalosc.Dziennik;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistoriaLosowanTest {
+
+    @Test
+    void testStatystyki_ZgodneZPrzegladaniemHistorii() {
+        // given: historia 12 000 losowań
+        HistoriaLosowan historia = new HistoriaLosowan();
+        ZrodloLosowosci zrodlo = ZrodloLosowosci.zZiarnem(5);
+        long[] maski = new long[12_000];
+        for (int i = 0; i < maski.length; i++) {
+            maski[i] = zrodlo.losujMaske();
+            historia.dodajWynik(i + 1, maski[i]);
+        }
+
+        // when / then: statystyki są takie same jak po przejrzeniu wszystkich wyników
+        assertEquals(maski.length, historia.getLiczbaLosowan());
+        for (int a = 1; a <= 49; a++) {
+            long bitA = 1L << (a - 1);
+            int czestosc = 0, ostatnie = 0;
+            for (int i = 0; i < maski.length; i++) {
+                if ((maski[i] & bitA) != 0) {
+                    czestosc++;
+                    ostatnie = i + 1;
+                }
+            }
+            assertEquals(czestosc, historia.getCzestosc(a));
+            assertEquals(maski.length - ostatnie, historia.getLosowanOdWystapienia(a));
+            for (int b = a + 1; b <= 49; b++) {
+                long para = bitA | 1L << (b - 1);
+                int wspolne = 0;
+                for (long maska : maski) {
+                    if ((maska & para) == para) wspolne++;
+                }
+                assertEquals(wspolne, historia.getCzestoscPary(a, b));
+                assertEquals(wspolne, historia.getCzestoscPary(b, a));
+            }
+        }
+        assertEquals(maski[7_777], historia.getMaska(7_778));
+        assertNull(historia.getBazaWygranych(1));
+        assertThrows(IllegalStateException.class, () -> historia.dodajWynik(12_002, maski[0]));
+        assertThrows(IllegalArgumentException.class, () -> historia.getCzestoscPary(3, 3));
+    }
+
+    @Test
+    void testHistoriaWPliku_OdczytanaPoPonownymOtwarciu(@TempDir Path katalog) throws Exception {
+        // given: centrala zapisująca historię w pliku
+        Path plik = katalog.resolve("historia.bin");
+        Centrala centrala = new Centrala(1_000_000_000L, new BudzetPanstwa());
+        centrala.setZrodloLosowosci(ZrodloLosowosci.zZiarnem(9));
+        try (HistoriaLosowan historia = HistoriaLosowan.otworz(plik)) {
+            centrala.setHistoriaLosowan(historia);
+
+            // when: po losowaniach plik jest otwierany ponownie
+            for (int i = 0; i < 20_000; i++) {
+                centrala.przeprowadzLosowanie();
+            }
+        }
+        try (HistoriaLosowan odczytana = HistoriaLosowan.otworz(plik)) {
+            // then: wyniki, bazy wygranych i statystyki są takie same jak w centrali
+            HistoriaLosowan historia = centrala.getHistoriaLosowan();
+            assertEquals(20_000, odczytana.getLiczbaLosowan());
+            assertEquals(20_000, odczytana.getLiczbaRozliczonych());
+            for (int nr = 1; nr <= 20_000; nr += 997) {
+                assertEquals(centrala.getTabelaWygranych(nr).getMaskaWyniku(), odczytana.getMaska(nr));
+                BazaWygranych oczekiwana = centrala.getTabelaWygranych(nr).getBazaWygranych();
+                BazaWygranych baza = odczytana.getBazaWygranych(nr);
+                assertEquals(oczekiwana.getPulaI(), baza.getPulaI());
+                assertEquals(oczekiwana.getPulaIV(), baza.getPulaIV());
+                assertEquals(oczekiwana.getLiczbaIII(), baza.getLiczbaIII());
+            }
+            for (int liczba = 1; liczba <= 49; liczba++) {
+                assertEquals(historia.getCzestosc(liczba), odczytana.getCzestosc(liczba));
+                assertEquals(historia.getLosowanOdWystapienia(liczba), odczytana.getLosowanOdWystapienia(liczba));
+                int druga = liczba % 49 + 1;
+                assertEquals(historia.getCzestoscPary(liczba, druga), odczytana.getCzestoscPary(liczba, druga));
+            }
+            assertThrows(IllegalStateException.class, () -> centrala.setHistoriaLosowan(new HistoriaLosowan()));
+        }
+    }
+
+    @Test
+    void testHistoriaWPliku_PodlaczonaPrzyOdtwarzaniuZDziennika(@TempDir Path katalog) throws Exception {
+        // given: centrala z dziennikiem i historią w pliku po trzech losowaniach
+        Path plik = katalog.resolve("historia.bin");
+        Path dziennikKatalog = katalog.resolve("dziennik");
+        Centrala centrala = new Centrala(1_000_000_000L, new BudzetPanstwa());
+        centrala.setZrodloLosowosci(ZrodloLosowosci.zZiarnem(9));
+        Kolektura kolektura = new Kolektura(1, centrala);
+        centrala.dodajKolekture(kolektura);
+        GraczMinimalista gracz = new GraczMinimalista("Jan", "Kowalski", "12345678901", 10_000_000L, kolektura);
+        try (HistoriaLosowan historia = HistoriaLosowan.otworz(plik);
+             Dziennik dziennik = Dziennik.otworz(dziennikKatalog, false)) {
+            centrala.setHistoriaLosowan(historia);
+            centrala.setDziennik(dziennik);
+            for (int losowanie = 0; losowanie < 3; losowanie++) {
+                for (int i = 0; i < 100; i++) {
+                    kolektura.sprzedajKuponChybilTraf(4, 1, gracz);
+                }
+                centrala.przeprowadzLosowanie();
+            }
+        }
+
+        // when: nowa centrala podłącza ten sam plik historii, odtwarza stan z dziennika i losuje dalej
+        Centrala odtworzona = new Centrala(1_000_000_000L, new BudzetPanstwa());
+        odtworzona.dodajKolekture(new Kolektura(1, odtworzona));
+        long srodki;
+        int rozliczonePoOdtworzeniu;
+        try (HistoriaLosowan historia = HistoriaLosowan.otworz(plik);
+             Dziennik dziennik = Dziennik.otworz(dziennikKatalog, false)) {
+            odtworzona.setHistoriaLosowan(historia);
+            odtworzona.odtworzZDziennika(dziennik);
+            srodki = odtworzona.getSrodkiFinansowe();
+            rozliczonePoOdtworzeniu = odtworzona.getOstatnieRozliczoneLosowanie();
+            odtworzona.przeprowadzLosowanie();
+        }
+
+        // then: losowania z pliku nie zostały zdublowane, stan jest taki sam jak przed zamknięciem,
+        // a kolejne losowanie dopisano do pliku
+        assertEquals(centrala.getSrodkiFinansowe(), srodki);
+        assertEquals(3, rozliczonePoOdtworzeniu);
+        for (int nr = 1; nr <= 3; nr++) {
+            assertEquals(centrala.getTabelaWygranych(nr).getMaskaWyniku(), odtworzona.getTabelaWygranych(nr).getMaskaWyniku());
+        }
+        try (HistoriaLosowan odczytana = HistoriaLosowan.otworz(plik)) {
+            assertEquals(4, odczytana.getLiczbaRozliczonych());
+            assertEquals(odtworzona.getTabelaWygranych(4).getMaskaWyniku(), odczytana.getMaska(4));
+        }
+    }
+
+    @Test
+    void testHistoriaWPliku_NiezgodnaZDziennikiem(@TempDir Path katalog) throws Exception {
+        // given: dziennik centrali z dwoma losowaniami i plik historii innej centrali
+        Path dziennikKatalog = katalog.resolve("dziennik");
+        Centrala centrala = new Centrala(1_000_000_000L, new BudzetPanstwa());
+        centrala.setZrodloLosowosci(ZrodloLosowosci.zZiarnem(9));
+        try (Dziennik dziennik = Dziennik.otworz(dziennikKatalog, false)) {
+            centrala.setDziennik(dziennik);
+            centrala.przeprowadzLosowanie();
+            centrala.przeprowadzLosowanie();
+        }
+        Path plik = katalog.resolve("historia.bin");
+        Centrala inna = new Centrala(1_000_000_000L, new BudzetPanstwa());
+        inna.setZrodloLosowosci(ZrodloLosowosci.zZiarnem(10));
+        try (HistoriaLosowan historia = HistoriaLosowan.otworz(plik)) {
+            inna.setHistoriaLosowan(historia);
+            inna.przeprowadzLosowanie();
+        }
+
+        // when / then: odtwarzanie z podłączonym obcym plikiem historii jest odrzucane
+        Centrala odtworzona = new Centrala(1_000_000_000L, new BudzetPanstwa());
+        try (HistoriaLosowan historia = HistoriaLosowan.otworz(plik);
+             Dziennik dziennik = Dziennik.otworz(dziennikKatalog, false)) {
+            odtworzona.setHistoriaLosowan(historia);
+            assertThrows(IllegalStateException.class, () -> odtworzona.odtworzZDziennika(dziennik));
+        }
+    }
+
+    @Test
+    void testHistoriaWPliku_NierozliczoneLosowanieOdrzucone(@TempDir Path katalog) throws Exception {
+        // given: plik historii z rozliczonym losowaniem i wynikiem losowania przerwanego przed rozliczeniem
+        Path plik = katalog.resolve("historia.bin");
+        Centrala centrala = new Centrala(1_000_000_000L, new BudzetPanstwa());
+        long maska = 0b111111L << 10;
+        try (HistoriaLosowan historia = HistoriaLosowan.otworz(plik)) {
+            centrala.setHistoriaLosowan(historia);
+            centrala.przeprowadzLosowanie();
+            historia.dodajWynik(2, maska);
+        }
+
+        // when: plik jest podłączany do nowej centrali
+        Centrala odtworzona = new Centrala(1_000_000_000L, new BudzetPanstwa());
+        try (HistoriaLosowan historia = HistoriaLosowan.otworz(plik)) {
+            odtworzona.setHistoriaLosowan(historia);
+
+            // then: wynik przerwanego losowania i jego statystyki zostały usunięte
+            assertEquals(1, historia.getLiczbaLosowan());
+            for (int liczba = 11; liczba <= 16; liczba++) {
+                int oczekiwana = (centrala.getTabelaWygranych(1).getMaskaWyniku() & (1L << (liczba - 1))) != 0 ? 1 : 0;
+                assertEquals(oczekiwana, historia.getCzestosc(liczba));
+                assertEquals(oczekiwana == 1 ? 0 : -1, historia.getLosowanOdWystapienia(liczba));
+            }
+        }
+        try (HistoriaLosowan odczytana = HistoriaLosowan.otworz(plik)) {
+            assertEquals(1, odczytana.getLiczbaLosowan());
+        }
+    }
+
+    @Test
+    void testHistoriaWPliku_PoZamknieciuNieDopisuje(@TempDir Path katalog) throws Exception {
+        // given: zamknięta historia w pliku z jednym wynikiem bez bazy wygranych
+        Path plik = katalog.resolve("historia.bin");
+        HistoriaLosowan historia = HistoriaLosowan.otworz(plik);
+        historia.dodajWynik(1, 0b111111L);
+        historia.close();
+
+        // when / then: dopisanie wyniku i bazy jest odrzucane, a historia w pamięci się nie zmienia
+        assertThrows(IllegalStateException.class, () -> historia.dodajWynik(2, 0b111111L << 10));
+        assertThrows(IllegalStateException.class,
+                () -> historia.dodajBaze(1, new BazaWygranych(0, 0, 0, 0, 0, 0, 0, 0)));
+        assertEquals(1, historia.getLiczbaLosowan());
+        assertEquals(0, historia.getLiczbaRozliczonych());
+        assertEquals(0, historia.getCzestosc(11));
+        assertEquals(0b111111L, historia.getMaska(1));
+
+        // and: plik zgadza się z historią w pamięci
+        try (HistoriaLosowan odczytana = HistoriaLosowan.otworz(plik)) {
+            assertEquals(1, odczytana.getLiczbaLosowan());
+            assertEquals(0, odczytana.getLiczbaRozliczonych());
+        }
+    }
+}
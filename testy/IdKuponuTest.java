@@ -0,0 +1,57 @@
+package totolotek.testy;
+
+import org.junit.jupiter.api.Test;
+import totolotek.kupon.IdKuponu;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdKuponuTest {
+
+    @Test
+    void testUtworz_CzesciIdentyfikatora() {
+        // given & when: identyfikator kuponu nr 123 z kolektury 45 ze znacznikiem 678
+        long id = IdKuponu.utworz(45, 123, 678);
+
+        // then: wszystkie części można odczytać, a identyfikator jest poprawny
+        assertTrue(id > 0);
+        assertEquals(45, IdKuponu.getKolektura(id));
+        assertEquals(123, IdKuponu.getNumer(id));
+        assertEquals(678, IdKuponu.getZnacznik(id));
+        assertEquals(1 + 2 + 3 + 4 + 5 + 6 + 7 + 8, IdKuponu.getSumaKontrolna(id));
+        assertTrue(IdKuponu.czyPoprawny(id));
+    }
+
+    @Test
+    void testNapis_TamIZPowrotem() {
+        // given: identyfikator z najwyższymi wartościami części
+        long id = IdKuponu.utworz(IdKuponu.MAX_KOLEKTURA, IdKuponu.MAX_NUMER, IdKuponu.LICZBA_ZNACZNIKOW - 1);
+
+        // when: identyfikator zamieniany jest na napis i z powrotem
+        String napis = IdKuponu.naNapis(id);
+
+        // then: odczytany identyfikator jest taki sam
+        assertEquals(id, IdKuponu.zNapisu(napis));
+        assertEquals("7-1-00042-14", IdKuponu.naNapis(IdKuponu.utworz(1, 7, 42)));
+    }
+
+    @Test
+    void testZNapisu_BlednyNapis() {
+        // given: napis z błędną sumą kontrolną i napisy w innym formacie
+        String napis = IdKuponu.naNapis(IdKuponu.utworz(3, 10, 500));
+        String zlaSuma = napis.substring(0, napis.length() - 2) + "99";
+
+        // when & then: żaden nie daje identyfikatora
+        assertEquals(IdKuponu.BRAK, IdKuponu.zNapisu(zlaSuma));
+        assertEquals(IdKuponu.BRAK, IdKuponu.zNapisu("id"));
+        assertEquals(IdKuponu.BRAK, IdKuponu.zNapisu("1-1-1"));
+        assertEquals(IdKuponu.BRAK, IdKuponu.zNapisu(null));
+        assertFalse(IdKuponu.czyPoprawny(IdKuponu.BRAK));
+    }
+
+    @Test
+    void testUtworz_CzescSpozaZakresu() {
+        // when & then: za duży numer kolektury lub zerowy numer kuponu rzucają wyjątek
+        assertThrows(IllegalArgumentException.class, () -> IdKuponu.utworz(IdKuponu.MAX_KOLEKTURA + 1, 1, 0));
+        assertThrows(IllegalArgumentException.class, () -> IdKuponu.utworz(1, 0, 0));
+    }
+}
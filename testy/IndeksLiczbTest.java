@@ -0,0 +1,113 @@
+package totolotek.testy;
+
+import org.junit.jupiter.api.Test;
+import totolotek.core.Centrala;
+import totolotek.core.IndeksLiczb;
+import totolotek.core.Kolektura;
+import totolotek.core.RodzajRozliczen;
+import totolotek.finanse.BudzetPanstwa;
+import totolotek.gracz.GraczMinimalista;
+import totolotek.kupon.Kupon;
+import totolotek.kupon.Zaklad;
+import totolotek.losowanie.ZrodloLosowosci;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndeksLiczbTest {
+
+    @Test
+    void testIndeksLiczb_ZgodnyZPrzegladaniemKuponow() {
+        // given: centrala rozliczająca indeksem liczb i kupony na jedno losowanie,
+        // których zakłady zajmują ponad jeden blok indeksu
+        Centrala centrala = new Centrala(1_000_000_000L, new BudzetPanstwa());
+        centrala.setRodzajRozliczen(RodzajRozliczen.INDEKS_LICZB);
+        centrala.setZrodloLosowosci(ZrodloLosowosci.zZiarnem(3));
+        Kolektura kolektura = new Kolektura(1, centrala);
+        kolektura.setZrodloLosowosci(ZrodloLosowosci.zZiarnem(4));
+        centrala.dodajKolekture(kolektura);
+        GraczMinimalista gracz = new GraczMinimalista("Jan", "Kowalski", "12345678901", 10_000_000_000L, kolektura);
+        List<Kupon> kupony = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            kupony.add(kolektura.sprzedajKuponChybilTraf(1 + i % 8, 1, gracz));
+        }
+
+        // when: losowanie jest rozliczane
+        centrala.przeprowadzLosowanie();
+        IndeksLiczb indeks = centrala.getIndeksLiczb(1);
+        long wynik = centrala.getLosowania().get(1).getMaska();
+
+        // then: zwycięzcy i zakłady z liczbą 7 są takie same jak przy przeglądaniu kuponów
+        List<IndeksLiczb.PozycjaZakladu> zTrojka = new ArrayList<>();
+        List<IndeksLiczb.PozycjaZakladu> zSiodemka = new ArrayList<>();
+        long maskaSiodemki = 1L << (7 - Zaklad.MIN_LICZBA);
+        for (Kupon kupon : kupony) {
+            for (int j = 0; j < kupon.getIleZakladow(); j++) {
+                long maska = kupon.getZaklady().get(j).getMaska();
+                if (Zaklad.liczbaTrafien(maska, wynik) == 3) {
+                    zTrojka.add(new IndeksLiczb.PozycjaZakladu(kupon.getId(), j));
+                }
+                if ((maska & maskaSiodemki) != 0) {
+                    zSiodemka.add(new IndeksLiczb.PozycjaZakladu(kupon.getId(), j));
+                }
+            }
+        }
+        assertEquals(90_000, indeks.getLiczbaZakladow());
+        assertEquals(zTrojka, indeks.zakladyZTrafieniami(wynik, 3));
+        assertEquals(zTrojka.size(), indeks.histogramTrafien(wynik)[3]);
+        assertEquals(zTrojka.size(), centrala.getTabelaWygranych(1).getBazaWygranych().getLiczbaIV());
+        assertEquals(zSiodemka, indeks.zakladyZLiczbami(maskaSiodemki));
+        assertEquals(zSiodemka.size(), indeks.liczbaZakladowZLiczbami(maskaSiodemki));
+        long suma = 0;
+        for (long liczba : indeks.histogramTrafien(wynik)) suma += liczba;
+        assertEquals(90_000, suma);
+    }
+
+    @Test
+    void testZapytaniaWTrakcieSprzedazy_PoprawnePozycje() throws Exception {
+        // given: centrala rozliczająca indeksem liczb i cztery terminale sprzedające kupony
+        // po 8 zakładów, które razem zajmują kilka bloków indeksu
+        Centrala centrala = new Centrala(1_000_000_000L, new BudzetPanstwa());
+        centrala.setRodzajRozliczen(RodzajRozliczen.INDEKS_LICZB);
+        Kolektura kolektura = new Kolektura(1, centrala);
+        centrala.dodajKolekture(kolektura);
+        List<Kupon> sprzedane = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> terminale = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            GraczMinimalista gracz = new GraczMinimalista("Jan", "Kowalski", "12345678901", 10_000_000_000L, kolektura);
+            terminale.add(new Thread(() -> {
+                for (int i = 0; i < 3_000; i++) {
+                    sprzedane.add(kolektura.sprzedajKuponChybilTraf(8, 1, gracz));
+                    if (i % 64 == 0) Thread.yield();
+                }
+            }));
+        }
+
+        // when: w trakcie sprzedaży indeks jest wielokrotnie przeszukiwany
+        terminale.forEach(Thread::start);
+        long maskaSiodemki = 1L << (7 - Zaklad.MIN_LICZBA);
+        List<IndeksLiczb.PozycjaZakladu> bledne = new ArrayList<>();
+        while (terminale.stream().anyMatch(Thread::isAlive)) {
+            IndeksLiczb indeks = centrala.getIndeksLiczb(1);
+            if (indeks == null) continue;
+            for (IndeksLiczb.PozycjaZakladu pozycja : indeks.zakladyZLiczbami(maskaSiodemki)) {
+                if (pozycja.idKuponu() == 0 || pozycja.numerZakladu() >= 8) bledne.add(pozycja);
+            }
+            Thread.sleep(1);
+        }
+        for (Thread terminal : terminale) terminal.join();
+
+        // then: żadne zapytanie nie zwróciło niezapisanej pozycji, a po sprzedaży wynik jest pełny
+        assertEquals(List.of(), bledne);
+        long oczekiwane = 0;
+        for (Kupon kupon : sprzedane) {
+            for (Zaklad zaklad : kupon.getZaklady()) {
+                if ((zaklad.getMaska() & maskaSiodemki) != 0) oczekiwane++;
+            }
+        }
+        assertEquals(oczekiwane, centrala.getIndeksLiczb(1).zakladyZLiczbami(maskaSiodemki).size());
+    }
+}
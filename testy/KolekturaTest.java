@@ -3,9 +3,15 @@ package totolotek.testy;
 import org.junit.Test;
 import totolotek.core.Centrala;
 import totolotek.core.Kolektura;
+import totolotek.core.RodzajMagazynu;
 import totolotek.finanse.BudzetPanstwa;
 import totolotek.gracz.GraczMinimalista;
 import totolotek.kupon.Kupon;
+import totolotek.kupon.Zaklad;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -69,4 +75,169 @@ public class KolekturaTest {
 
         assertTrue(actualMessage.contains(expectedMessage));
     }
+
+    @Test
+    public void testKuponyNaLosowanie_TylkoWazneKupony() {
+        // given: kolektura i gracz kupujący kupon na 3 losowania
+        BudzetPanstwa budzet = new BudzetPanstwa();
+        Centrala centrala = new Centrala(1_000_000_000L, budzet);
+        Kolektura kolektura = new Kolektura(1, centrala);
+        centrala.dodajKolekture(kolektura);
+        GraczMinimalista gracz = new GraczMinimalista("Jan", "Kowalski", "12345678901", 100_000L, kolektura);
+        Kupon kupon = kolektura.sprzedajKuponChybilTraf(1, 3, gracz);
+
+        // when & then: kupon jest ważny na losowania 1..3, a po nich nie ma go w indeksie
+        for (int nr = 1; nr <= 3; nr++) {
+            assertEquals(1, kolektura.kuponyNaLosowanie(nr).size());
+            assertSame(kupon, kolektura.kuponyNaLosowanie(nr).get(0));
+            centrala.przeprowadzLosowanie();
+        }
+        assertTrue(kolektura.kuponyNaLosowanie(4).isEmpty());
+    }
+
+    @Test
+    public void testSprzedajKuponChybilTraf_WieleTerminali() {
+        // given: kolektura i 8 graczy, każdy obsługiwany przez osobny terminal (wątek)
+        BudzetPanstwa budzet = new BudzetPanstwa();
+        Centrala centrala = new Centrala(1_000_000_000L, budzet);
+        Kolektura kolektura = new Kolektura(1, centrala);
+        centrala.dodajKolekture(kolektura);
+        List<GraczMinimalista> gracze = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            gracze.add(new GraczMinimalista("Jan", "Kowalski", "1234567890" + i, 300L * 1_000, kolektura));
+        }
+
+        // when: każdy gracz równolegle próbuje kupić więcej kuponów, niż ma środków
+        gracze.parallelStream().forEach(gracz -> {
+            for (int i = 0; i < 1_500; i++) {
+                kolektura.sprzedajKuponChybilTraf(1, 1, gracz);
+            }
+        });
+
+        // then: sprzedano dokładnie tyle kuponów, na ile starczyło środków
+        assertEquals(8 * 1_000, kolektura.kuponyNaLosowanie(1).size());
+        gracze.forEach(gracz -> assertEquals(0L, gracz.getSrodki()));
+    }
+
+    @Test
+    public void testSprzedajKuponChybilTraf_WieleTerminaliJednegoGracza() {
+        // given: kolektura i jeden gracz obsługiwany równocześnie przez 8 terminali
+        BudzetPanstwa budzet = new BudzetPanstwa();
+        Centrala centrala = new Centrala(1_000_000_000L, budzet);
+        Kolektura kolektura = new Kolektura(1, centrala);
+        centrala.dodajKolekture(kolektura);
+        GraczMinimalista gracz = new GraczMinimalista("Jan", "Kowalski", "12345678901", 300L * 8_000, kolektura);
+
+        // when: terminale łącznie próbują sprzedać więcej kuponów, niż gracz ma środków
+        IntStream.range(0, 8).parallel().forEach(terminal -> {
+            for (int i = 0; i < 1_500; i++) {
+                kolektura.sprzedajKuponChybilTraf(1, 1, gracz);
+            }
+        });
+
+        // then: gracz ma dokładnie wszystkie sprzedane kupony, a jego środki się wyczerpały
+        assertEquals(8_000, kolektura.kuponyNaLosowanie(1).size());
+        assertEquals(8_000, gracz.getLiczbaKuponow());
+        assertEquals(8_000, gracz.getKupony().size());
+        assertEquals(0L, gracz.getSrodki());
+    }
+
+    @Test
+    public void testWyplacWygrane_Hurtowo() {
+        // given: gracz z dwoma kuponami po przeprowadzonym losowaniu
+        BudzetPanstwa budzet = new BudzetPanstwa();
+        Centrala centrala = new Centrala(1_000_000_000L, budzet);
+        Kolektura kolektura = new Kolektura(1, centrala);
+        centrala.dodajKolekture(kolektura);
+        GraczMinimalista gracz = new GraczMinimalista("Jan", "Kowalski", "12345678901", 10_000L, kolektura);
+        Kupon kupon1 = kolektura.sprzedajKuponChybilTraf(8, 1, gracz);
+        Kupon kupon2 = kolektura.sprzedajKuponChybilTraf(1, 1, gracz);
+        centrala.przeprowadzLosowanie();
+        long srodkiPrzed = gracz.getSrodki();
+
+        // when: gracz zgłasza oba kupony, w tym jeden dwukrotnie
+        long[] wynik = kolektura.wyplacWygrane(gracz, List.of(kupon1, kupon2, kupon1));
+
+        // then: powtórzony kupon jest odrzucony, a gracz dostał sumę wypłat netto
+        assertTrue(wynik[0] >= 0);
+        assertTrue(wynik[1] >= 0);
+        assertEquals(Kolektura.KUPON_ODRZUCONY, wynik[2]);
+        assertEquals(srodkiPrzed + wynik[0] + wynik[1], gracz.getSrodki());
+        assertTrue(kupon1.czyZrealizowany() && kupon2.czyZrealizowany());
+        assertEquals(Kolektura.KUPON_ODRZUCONY, kolektura.wyplacWygrane(gracz, List.of(kupon2))[0]);
+    }
+
+    @Test
+    public void testMagazynKolumnowy_SprzedazRozliczenieWyplata() {
+        // given: kolektura z magazynem kolumnowym i kupony na różne liczby losowań
+        BudzetPanstwa budzet = new BudzetPanstwa();
+        Centrala centrala = new Centrala(1_000_000_000L, budzet);
+        Kolektura kolektura = new Kolektura(1, centrala, RodzajMagazynu.KOLUMNOWY);
+        centrala.dodajKolekture(kolektura);
+        GraczMinimalista gracz = new GraczMinimalista("Jan", "Kowalski", "12345678901", 1_000_000L, kolektura);
+        List<Kupon> kupony = new ArrayList<>();
+        for (int i = 1; i <= 10; i++) {
+            kupony.add(kolektura.sprzedajKuponChybilTraf(1 + i % 8, i, gracz));
+        }
+
+        // when: odbywa się losowanie
+        List<Kupon> naPierwsze = kolektura.kuponyNaLosowanie(1);
+        centrala.przeprowadzLosowanie();
+
+        // then: widoki kuponów odpowiadają sprzedanym, a wypłata jest zgodna z tabelą wygranych
+        assertEquals(10, naPierwsze.size());
+        assertEquals(9, kolektura.kuponyNaLosowanie(2).size());
+        for (Kupon widok : naPierwsze) {
+            Kupon sprzedany = kupony.get(widok.getLiczbaLosowan() - 1);
+            assertEquals(sprzedany.getIdentyfikator(), widok.getIdentyfikator());
+            assertEquals(sprzedany.getZaklady(), widok.getZaklady());
+        }
+        Kupon kupon = kupony.get(0);
+        long oczekiwana = 0;
+        for (Zaklad zaklad : kupon.getZaklady()) {
+            long wygrana = centrala.getWygrana(zaklad, 1);
+            oczekiwana += wygrana >= 228000 ? wygrana * 9 / 10 : wygrana;
+        }
+        assertEquals(oczekiwana, kolektura.wyplacWygrane(gracz, List.of(kupon))[0]);
+        assertEquals(Kolektura.KUPON_ODRZUCONY, kolektura.wyplacWygrane(gracz, List.of(naPierwsze.get(0)))[0]);
+    }
+
+    @Test
+    public void testMagazynKolumnowy_OdrzucaPodrobionyKupon() {
+        // given: kolektura z magazynem kolumnowym i sprzedany kupon
+        BudzetPanstwa budzet = new BudzetPanstwa();
+        Centrala centrala = new Centrala(1_000_000_000L, budzet);
+        Kolektura kolektura = new Kolektura(1, centrala, RodzajMagazynu.KOLUMNOWY);
+        centrala.dodajKolekture(kolektura);
+        GraczMinimalista gracz = new GraczMinimalista("Jan", "Kowalski", "12345678901", 10_000L, kolektura);
+        Kupon kupon = kolektura.sprzedajKuponChybilTraf(1, 1, gracz);
+
+        // when: ktoś przedstawia kupon o tym samym identyfikatorze, lecz innych zakładach
+        long inna = kupon.getZaklady().get(0).getMaska() == 0b111111L ? 0b1111110L : 0b111111L;
+        Kupon podrobiony = new Kupon(kupon.getId(), List.of(new Zaklad(inna)), 1, 1, kolektura);
+
+        // then: tylko oryginał przechodzi weryfikację
+        assertFalse(kolektura.zweryfikujKupon(podrobiony));
+        assertTrue(kolektura.zweryfikujKupon(kupon));
+    }
+
+    @Test
+    public void testZnajdzKupon_PoIdentyfikatorzeZWydruku() {
+        // given: kolektury z magazynem obiektowym i kolumnowym, w każdej sprzedany kupon
+        BudzetPanstwa budzet = new BudzetPanstwa();
+        Centrala centrala = new Centrala(1_000_000_000L, budzet);
+        for (RodzajMagazynu rodzaj : RodzajMagazynu.values()) {
+            Kolektura kolektura = new Kolektura(3, centrala, rodzaj);
+            GraczMinimalista gracz = new GraczMinimalista("Jan", "Kowalski", "12345678901", 10_000L, kolektura);
+            Kupon kupon = kolektura.sprzedajKuponChybilTraf(2, 1, gracz);
+
+            // when: kupon wyszukiwany jest po napisie z wydruku
+            Kupon znaleziony = kolektura.znajdzKupon(kupon.getIdentyfikator());
+
+            // then: znaleziony kupon ma ten sam identyfikator i zakłady, a błędny napis nic nie znajduje
+            assertEquals(kupon.getId(), znaleziony.getId());
+            assertEquals(kupon.getZaklady(), znaleziony.getZaklady());
+            assertNull(kolektura.znajdzKupon("1-3-00000-00"));
+        }
+    }
 }
@@ -72,4 +72,14 @@ public class KuponTest {
         assertThrows(IllegalArgumentException.class,
                 () -> new Kupon("id", List.of(zaklad), List.of()));
     }
+
+    @Test
+    public void testKuponNiepoprawnyLosowaniaNieKolejne() {
+        // given
+        Zaklad zaklad = new Zaklad(new HashSet<>(Arrays.asList(1, 2, 3, 4, 5, 6)));
+
+        // when & then
+        assertThrows(IllegalArgumentException.class,
+                () -> new Kupon("id", List.of(zaklad), List.of(1, 3)));
+    }
 }
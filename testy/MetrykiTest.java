@@ -0,0 +1,99 @@
+package totolotek.testy;
+
+import org.junit.jupiter.api.Test;
+import totolotek.core.Centrala;
+import totolotek.core.Kolektura;
+import totolotek.finanse.BudzetPanstwa;
+import totolotek.gracz.GraczMinimalista;
+import totolotek.kupon.Kupon;
+import totolotek.metryki.HistogramCzasu;
+import totolotek.metryki.MetrykiKolektury;
+import totolotek.metryki.RejestrMetryk;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetrykiTest {
+
+    @Test
+    void testHistogramCzasu_PercentyleWPrzedzialachPotegDwojki() {
+        // given: 99 krótkich pomiarów (100 ns) i jeden długi (1 ms)
+        HistogramCzasu histogram = new HistogramCzasu();
+        for (int i = 0; i < 99; i++) {
+            histogram.zapisz(100);
+        }
+        histogram.zapisz(1_000_000);
+
+        // when & then: percentyle szacowane są górną granicą przedziału
+        assertEquals(100, histogram.getLiczba());
+        assertEquals(127, histogram.getPercentyl(0.5));
+        assertEquals(127, histogram.getPercentyl(0.99));
+        assertEquals(1_000_000, histogram.getPercentyl(1.0));
+        assertEquals(1_000_000, histogram.getMaksimum());
+        assertEquals((99 * 100 + 1_000_000) / 100, histogram.getSrednia());
+    }
+
+    @Test
+    void testMetryki_SprzedazLosowanieIWyplata() {
+        // given: kolektura, gracz ze środkami na 10 kuponów
+        Centrala centrala = new Centrala(0, new BudzetPanstwa());
+        Kolektura kolektura = new Kolektura(1, centrala);
+        centrala.dodajKolekture(kolektura);
+        GraczMinimalista gracz = new GraczMinimalista("Jan", "Kowalski", "12345678901", 10 * 2 * 300L, kolektura);
+
+        // when: gracz próbuje kupić 11 kuponów po 2 zakłady, odbywa się losowanie i wypłata
+        List<Kupon> kupony = new ArrayList<>();
+        for (int i = 0; i < 11; i++) {
+            Kupon kupon = kolektura.sprzedajKuponChybilTraf(2, 1, gracz);
+            if (kupon != null) kupony.add(kupon);
+        }
+        centrala.przeprowadzLosowanie();
+        kupony.add(kupony.get(0));
+        kolektura.wyplacWygrane(gracz, kupony);
+
+        // then: liczniki odpowiadają operacjom
+        MetrykiKolektury metryki = kolektura.getMetryki();
+        assertEquals(10, metryki.getSprzedaneKupony());
+        assertEquals(20, metryki.getSprzedaneZaklady());
+        assertEquals(1, metryki.getOdmowySprzedazy());
+        assertEquals(10, metryki.getCzasSprzedazy().getLiczba());
+        assertTrue(metryki.getCzasSprzedazyP99Ns() >= metryki.getCzasSprzedazyP50Ns());
+        assertEquals(10, metryki.getZrealizowaneKupony());
+        assertEquals(1, metryki.getOdrzuconeKupony());
+        assertEquals(1, centrala.getMetryki().getLiczbaLosowan());
+        assertEquals(20, centrala.getMetryki().getZakladyOstatniegoLosowania());
+        assertTrue(centrala.getMetryki().getCzasRozliczeniaOstatniegoNs() > 0);
+    }
+
+    @Test
+    void testRejestrMetryk_AtrybutyWidoczneWJmx() throws JMException {
+        // given: zarejestrowana centrala z dwiema kolekturami i jedną sprzedażą
+        Centrala centrala = new Centrala(5_000L, new BudzetPanstwa());
+        Kolektura pierwsza = new Kolektura(1, centrala);
+        centrala.dodajKolekture(pierwsza);
+        centrala.dodajKolekture(new Kolektura(2, centrala));
+        GraczMinimalista gracz = new GraczMinimalista("Jan", "Kowalski", "12345678901", 10_000L, pierwsza);
+        pierwsza.sprzedajKuponChybilTraf(1, 1, gracz);
+        MBeanServer serwer = ManagementFactory.getPlatformMBeanServer();
+        RejestrMetryk.zarejestruj(centrala, "test");
+        try {
+            // when: atrybuty odczytywane są przez serwer MBean
+            Object sprzedane = serwer.getAttribute(RejestrMetryk.nazwaKolektury("test", 1), "SprzedaneKupony");
+            Object srodki = serwer.getAttribute(RejestrMetryk.nazwaCentrali("test"), "SrodkiFinansowe");
+
+            // then: wartości pochodzą z obiektów centrali i kolektury
+            assertEquals(1L, sprzedane);
+            assertEquals(5_000L, srodki);
+            assertTrue(serwer.isRegistered(RejestrMetryk.nazwaKolektury("test", 2)));
+        } finally {
+            RejestrMetryk.wyrejestruj("test");
+        }
+        assertFalse(serwer.isRegistered(RejestrMetryk.nazwaCentrali("test")));
+        assertFalse(serwer.isRegistered(RejestrMetryk.nazwaKolektury("test", 1)));
+    }
+}
@@ -0,0 +1,166 @@
+package totolotek.testy;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import totolotek.core.Centrala;
+import totolotek.core.Kolektura;
+import totolotek.core.RodzajMagazynu;
+import totolotek.core.StrategiaNagrod;
+import totolotek.finanse.BudzetPanstwa;
+import totolotek.gracz.GraczMinimalista;
+import totolotek.kupon.Kupon;
+import totolotek.losowanie.ZrodloLosowosci;
+import totolotek.trwalosc.Dziennik;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MigawkaTest {
+
+    @Test
+    void testWczytajMigawkeIOgonDziennika_TenSamStan(@TempDir Path katalog) throws IOException {
+        for (RodzajMagazynu rodzaj : RodzajMagazynu.values()) {
+            // given: sprzedaż, losowania i wypłata przed migawką oraz dalsza sprzedaż i wypłata po niej
+            Path dziennikKatalog = katalog.resolve(rodzaj + "-dziennik");
+            Path plik = katalog.resolve(rodzaj + ".mig");
+            Centrala centrala = new Centrala(1_000_000_000L, new BudzetPanstwa());
+            centrala.setZrodloLosowosci(ZrodloLosowosci.zZiarnem(5));
+            Kolektura kolektura = new Kolektura(1, centrala, rodzaj);
+            centrala.dodajKolekture(kolektura);
+            GraczMinimalista gracz = new GraczMinimalista("Jan", "Kowalski", "12345678901", 100_000_000L, kolektura);
+            List<Kupon> kupony = new ArrayList<>();
+            long numerRekordu;
+            try (Dziennik dziennik = Dziennik.otworz(dziennikKatalog, false)) {
+                centrala.setDziennik(dziennik);
+                for (int losowanie = 0; losowanie < 12; losowanie++) {
+                    for (int i = 0; i < 50; i++) {
+                        kupony.add(kolektura.sprzedajKuponChybilTraf(1 + i % 8, 1 + i % 10, gracz));
+                    }
+                    centrala.przeprowadzLosowanie();
+                }
+                kolektura.wyplacWygrane(gracz, kupony.subList(0, 100));
+                numerRekordu = centrala.zapiszMigawke(plik);
+                for (int i = 0; i < 50; i++) {
+                    kupony.add(kolektura.sprzedajKuponChybilTraf(3, 2, gracz));
+                }
+                centrala.przeprowadzLosowanie();
+                kolektura.wyplacWygrane(gracz, kupony.subList(100, 300));
+            }
+
+            // when: migawka jest wczytywana w nowej centrali, a reszta odtwarzana z dziennika
+            Centrala odtworzona = new Centrala(0, new BudzetPanstwa());
+            Kolektura odtworzonaKolektura = new Kolektura(1, odtworzona, rodzaj);
+            odtworzona.dodajKolekture(odtworzonaKolektura);
+            assertEquals(numerRekordu, odtworzona.wczytajMigawke(plik));
+            try (Dziennik dziennik = Dziennik.otworz(dziennikKatalog, false)) {
+                odtworzona.odtworzZDziennika(dziennik, numerRekordu);
+            }
+
+            // then: stan jest taki sam jak przed zamknięciem
+            assertEquals(centrala.getSrodkiFinansowe(), odtworzona.getSrodkiFinansowe());
+            assertEquals(centrala.getKumulacjaIstopnia(), odtworzona.getKumulacjaIstopnia());
+            assertEquals(centrala.getBudzetPanstwa().getStan(), odtworzona.getBudzetPanstwa().getStan());
+            assertEquals(centrala.getNajblizszeLosowanie(), odtworzona.getNajblizszeLosowanie());
+            for (int nr = 1; nr <= 13; nr++) {
+                assertEquals(centrala.getLosowania().get(nr).getMaska(), odtworzona.getLosowania().get(nr).getMaska());
+                assertEquals(centrala.getTabelaWygranych(nr).getWygranaZaTrafienia(3),
+                        odtworzona.getTabelaWygranych(nr).getWygranaZaTrafienia(3));
+            }
+            assertEquals(kolektura.kuponyNaLosowanie(14).size(), odtworzonaKolektura.kuponyNaLosowanie(14).size());
+            for (int i = 0; i < kupony.size(); i++) {
+                Kupon oryginal = kupony.get(i);
+                Kupon kupon = odtworzonaKolektura.znajdzKupon(oryginal.getIdentyfikator());
+                if (i < 300) {
+                    // kupony zrealizowane przed migawką nie są w niej zapisywane
+                    assertTrue(kupon == null || kupon.czyZrealizowany());
+                } else {
+                    assertTrue(odtworzonaKolektura.zweryfikujKupon(kupon));
+                    assertEquals(oryginal.getZaklady(), kupon.getZaklady());
+                    assertEquals(oryginal.getNumeryLosowan(), kupon.getNumeryLosowan());
+                }
+            }
+            // kolejny kupon dostaje następny numer
+            Kupon nowy = odtworzonaKolektura.sprzedajKuponChybilTraf(1, 1, gracz);
+            assertTrue(nowy.getIdentyfikator().startsWith((kupony.size() + 1) + "-1-"));
+        }
+    }
+
+    @Test
+    void testWczytajMigawke_UszkodzonyPlik(@TempDir Path katalog) throws IOException {
+        // given: migawka z uszkodzonym bajtem
+        Centrala centrala = new Centrala(1_000_000L, new BudzetPanstwa());
+        Kolektura kolektura = new Kolektura(1, centrala);
+        centrala.dodajKolekture(kolektura);
+        GraczMinimalista gracz = new GraczMinimalista("Jan", "Kowalski", "12345678901", 100_000L, kolektura);
+        kolektura.sprzedajKuponChybilTraf(2, 1, gracz);
+        centrala.przeprowadzLosowanie();
+        Path plik = katalog.resolve("migawka");
+        centrala.zapiszMigawke(plik);
+        try (FileChannel kanal = FileChannel.open(plik, StandardOpenOption.WRITE)) {
+            kanal.write(ByteBuffer.wrap(new byte[]{42}), 40);
+        }
+
+        // when & then: wczytanie jest odrzucane
+        Centrala odtworzona = new Centrala(0, new BudzetPanstwa());
+        odtworzona.dodajKolekture(new Kolektura(1, odtworzona));
+        assertThrows(IOException.class, () -> odtworzona.wczytajMigawke(plik));
+    }
+
+    @Test
+    void testMigawkaWTrakcieLosowania_NieCzekaNaRozliczenie(@TempDir Path katalog) throws Exception {
+        // given: losowanie nr 2, które utknęło w ustalaniu bazy wygranych, po zliczeniu trafień
+        Centrala centrala = new Centrala(1_000_000_000L, new BudzetPanstwa());
+        Kolektura kolektura = new Kolektura(1, centrala);
+        centrala.dodajKolekture(kolektura);
+        GraczMinimalista gracz = new GraczMinimalista("Jan", "Kowalski", "12345678901", 100_000_000L, kolektura);
+        for (int i = 0; i < 100; i++) {
+            kolektura.sprzedajKuponChybilTraf(1 + i % 8, 1 + i % 3, gracz);
+        }
+        centrala.przeprowadzLosowanie();
+        CountDownLatch rozliczane = new CountDownLatch(1);
+        CountDownLatch zwolnij = new CountDownLatch(1);
+        StrategiaNagrod standardowa = StrategiaNagrod.standardowa();
+        centrala.setStrategiaNagrod((wplaty, podatek, kumulacja, wygrane) -> {
+            rozliczane.countDown();
+            try {
+                zwolnij.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return standardowa.ustalBazeWygranych(wplaty, podatek, kumulacja, wygrane);
+        });
+        Thread losowanie = new Thread(centrala::przeprowadzLosowanie);
+        losowanie.start();
+        assertTrue(rozliczane.await(10, TimeUnit.SECONDS));
+
+        // when: w trakcie rozliczania zapisywana jest migawka i sprzedawany kupon
+        Path plik = katalog.resolve("migawka");
+        Kupon nowy = assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            centrala.zapiszMigawke(plik);
+            return kolektura.sprzedajKuponChybilTraf(1, 1, gracz);
+        });
+        zwolnij.countDown();
+        losowanie.join();
+
+        // then: migawka kończy się na ostatnim zatwierdzonym losowaniu, a kupon jest już na następne
+        assertEquals(List.of(3), nowy.getNumeryLosowan());
+        assertEquals(2, centrala.getOstatnieRozliczoneLosowanie());
+        Centrala odtworzona = new Centrala(0, new BudzetPanstwa());
+        Kolektura odtworzonaKolektura = new Kolektura(1, odtworzona);
+        odtworzona.dodajKolekture(odtworzonaKolektura);
+        odtworzona.wczytajMigawke(plik);
+        assertEquals(1, odtworzona.getOstatnieRozliczoneLosowanie());
+        assertEquals(2, odtworzona.getNajblizszeLosowanie());
+        assertEquals(centrala.getTabelaWygranych(1).getMaskaWyniku(), odtworzona.getTabelaWygranych(1).getMaskaWyniku());
+    }
+}
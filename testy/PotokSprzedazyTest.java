@@ -0,0 +1,235 @@
+package totolotek.testy;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import totolotek.core.Centrala;
+import totolotek.core.Kolektura;
+import totolotek.core.PotokSprzedazy;
+import totolotek.finanse.BudzetPanstwa;
+import totolotek.gracz.GraczMinimalista;
+import totolotek.kupon.Kupon;
+import totolotek.trwalosc.Dziennik;
+
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PotokSprzedazyTest {
+
+    @Test
+    void testSprzedazAsynchroniczna_WszystkieZleceniaZrealizowane(@TempDir Path katalog) throws Exception {
+        // given: kolektura z dziennikiem i potokiem o czterech wątkach, cztery terminale jednego gracza
+        BudzetPanstwa budzet = new BudzetPanstwa();
+        Centrala centrala = new Centrala(1_000_000L, budzet);
+        Kolektura kolektura = new Kolektura(1, centrala);
+        centrala.dodajKolekture(kolektura);
+        try (Dziennik dziennik = Dziennik.otworz(katalog, false)) {
+            centrala.setDziennik(dziennik);
+            GraczMinimalista bogaty = new GraczMinimalista("Jan", "Kowalski", "12345678901", 1_000_000_000L, kolektura);
+            GraczMinimalista biedny = new GraczMinimalista("Anna", "Nowak", "10987654321", 100L, kolektura);
+            List<CompletableFuture<Kupon>> wyniki = new ArrayList<>();
+
+            // when: terminale zlecają sprzedaż równocześnie, a gracz w tym czasie przegląda swoje kupony
+            try (PotokSprzedazy potok = new PotokSprzedazy(kolektura, 1 << 16, 4, 4)) {
+                AtomicReference<Throwable> bladPrzegladania = new AtomicReference<>();
+                Thread przegladajacy = new Thread(() -> {
+                    try {
+                        while (bogaty.getLiczbaKuponow() < 8_000) {
+                            assertFalse(bogaty.getKupony().contains(null));
+                            bogaty.maAktywnyKupon();
+                        }
+                    } catch (Throwable t) {
+                        bladPrzegladania.set(t);
+                    }
+                });
+                przegladajacy.start();
+                List<Thread> terminale = new ArrayList<>();
+                for (int t = 0; t < 4; t++) {
+                    List<CompletableFuture<Kupon>> terminala = new ArrayList<>();
+                    Thread terminal = new Thread(() -> {
+                        for (int i = 0; i < 2_000; i++) {
+                            terminala.add(potok.sprzedajKuponChybilTraf(1 + i % 8, 1 + i % 3, bogaty));
+                        }
+                        synchronized (wyniki) {
+                            wyniki.addAll(terminala);
+                        }
+                    });
+                    terminale.add(terminal);
+                    terminal.start();
+                }
+                for (Thread terminal : terminale) {
+                    terminal.join();
+                }
+                for (CompletableFuture<Kupon> wynik : wyniki) {
+                    wynik.get(10, TimeUnit.SECONDS);
+                }
+                przegladajacy.join(10_000);
+                assertFalse(przegladajacy.isAlive());
+                assertNull(bladPrzegladania.get());
+                CompletableFuture<Kupon> odmowa = potok.sprzedajKuponChybilTraf(1, 1, biedny);
+                CompletableFuture<Kupon> bledny = potok.sprzedajKuponChybilTraf(9, 1, bogaty);
+
+                // then: brak środków daje null, błędne parametry – wyjątek
+                assertNull(odmowa.get(10, TimeUnit.SECONDS));
+                ExecutionException blad = assertThrows(ExecutionException.class, () -> bledny.get(10, TimeUnit.SECONDS));
+                assertInstanceOf(IllegalArgumentException.class, blad.getCause());
+            }
+
+            // and: każde zlecenie dało kupon, zarejestrowany, zapisany w dzienniku i opodatkowany
+            long zaklady = 0, podatek = 0;
+            for (CompletableFuture<Kupon> wynik : wyniki) {
+                Kupon kupon = wynik.get();
+                assertTrue(kolektura.zweryfikujKupon(kupon));
+                zaklady += (long) kupon.getIleZakladow() * kupon.getLiczbaLosowan();
+                podatek += kupon.getIleZakladow() * kupon.getLiczbaLosowan() * 60L;
+            }
+            assertEquals(8_000, wyniki.size());
+            assertEquals(8_000, kolektura.kuponyNaLosowanie(1).size());
+            assertEquals(8_000, dziennik.getLiczbaRekordow());
+            assertEquals(podatek, budzet.getPobranePodatki());
+            assertEquals(1_000_000_000L - zaklady * 300, bogaty.getSrodki());
+            assertEquals(8_000, bogaty.getLiczbaKuponow());
+            assertEquals(8_000, bogaty.getKupony().size());
+            assertEquals(8_000, kolektura.getMetryki().getSprzedaneKupony());
+        }
+    }
+
+    @Test
+    void testPelnyBufor_ZlecenieOdrzucone() throws Exception {
+        // given: potok z buforem na 4 zlecenia, którego jedyny wątek utknął na pierwszej sprzedaży
+        Centrala centrala = new Centrala(1_000_000L, new BudzetPanstwa());
+        Kolektura kolektura = new Kolektura(1, centrala);
+        CountDownLatch rozpoczeta = new CountDownLatch(1);
+        CountDownLatch zwolnij = new CountDownLatch(1);
+        GraczMinimalista gracz = new GraczMinimalista("Jan", "Kowalski", "12345678901", 1_000_000L, kolektura) {
+            @Override
+            public boolean pobierzSrodki(long kwota) {
+                rozpoczeta.countDown();
+                try {
+                    zwolnij.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.pobierzSrodki(kwota);
+            }
+        };
+
+        try (PotokSprzedazy potok = new PotokSprzedazy(kolektura, 4, 1, 1)) {
+            List<CompletableFuture<Kupon>> przyjete = new ArrayList<>();
+            przyjete.add(potok.sprzedajKuponChybilTraf(1, 1, gracz));
+            assertTrue(rozpoczeta.await(10, TimeUnit.SECONDS));
+
+            // when: zlecenia zapełniają bufor
+            for (int i = 0; i < 4; i++) {
+                przyjete.add(potok.sprzedajKuponChybilTraf(1, 1, gracz));
+            }
+            CompletableFuture<Kupon> nadmiarowe = potok.sprzedajKuponChybilTraf(1, 1, gracz);
+
+            // then: nadmiarowe zlecenie jest od razu odrzucone, a przyjęte realizowane po zwolnieniu
+            assertEquals(4, potok.getLiczbaOczekujacych());
+            ExecutionException blad = assertThrows(ExecutionException.class, nadmiarowe::get);
+            assertInstanceOf(RejectedExecutionException.class, blad.getCause());
+            zwolnij.countDown();
+            for (CompletableFuture<Kupon> wynik : przyjete) {
+                assertNotNull(wynik.get(10, TimeUnit.SECONDS));
+            }
+        }
+        assertEquals(5, kolektura.getMetryki().getSprzedaneKupony());
+    }
+
+    @Test
+    void testBladWTrakciePartii_SprzedaneKuponyZachowane(@TempDir Path katalog) throws Exception {
+        // given: dziennik z segmentami na 4 rekordy, którego katalog zniknie przed drugą partią,
+        // i potok, którego jedyny wątek utknął na pierwszej sprzedaży
+        BudzetPanstwa budzet = new BudzetPanstwa();
+        Centrala centrala = new Centrala(1_000_000L, budzet);
+        Kolektura kolektura = new Kolektura(1, centrala);
+        Path katalogDziennika = Files.createDirectory(katalog.resolve("dziennik"));
+        CountDownLatch rozpoczeta = new CountDownLatch(1);
+        CountDownLatch zwolnij = new CountDownLatch(1);
+        GraczMinimalista gracz = new GraczMinimalista("Jan", "Kowalski", "12345678901", 1_000_000L, kolektura) {
+            @Override
+            public boolean pobierzSrodki(long kwota) {
+                rozpoczeta.countDown();
+                try {
+                    zwolnij.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.pobierzSrodki(kwota);
+            }
+        };
+        try (Dziennik dziennik = Dziennik.otworz(katalogDziennika, false, 4);
+             PotokSprzedazy potok = new PotokSprzedazy(kolektura, 16, 16, 1)) {
+            centrala.setDziennik(dziennik);
+            GraczMinimalista inny = new GraczMinimalista("Anna", "Nowak", "10987654321", 1_000L, kolektura);
+            assertNotNull(kolektura.sprzedajKuponChybilTraf(1, 1, inny)); // rekord 0 tworzy pierwszy segment
+            CompletableFuture<Kupon> pierwsze = potok.sprzedajKuponChybilTraf(1, 1, gracz);
+            assertTrue(rozpoczeta.await(10, TimeUnit.SECONDS));
+            List<CompletableFuture<Kupon>> partia = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                partia.add(potok.sprzedajKuponChybilTraf(1, 1, gracz));
+            }
+            try (var pliki = Files.list(katalogDziennika)) {
+                for (Path plik : pliki.toList()) {
+                    Files.delete(plik);
+                }
+            }
+            Files.delete(katalogDziennika);
+
+            // when: trzeci rekord partii (piąty w dzienniku) wymaga nowego segmentu, którego nie da się utworzyć
+            zwolnij.countDown();
+
+            // then: kupony zarejestrowane przed błędem są wynikami swoich zleceń, reszta kończy się błędem
+            assertNotNull(pierwsze.get(10, TimeUnit.SECONDS));
+            for (int i = 0; i < 3; i++) {
+                assertNotNull(partia.get(i).get(10, TimeUnit.SECONDS));
+            }
+            for (int i = 3; i < 8; i++) {
+                int nr = i;
+                ExecutionException blad = assertThrows(ExecutionException.class,
+                        () -> partia.get(nr).get(10, TimeUnit.SECONDS));
+                assertInstanceOf(UncheckedIOException.class, blad.getCause());
+            }
+            assertEquals(4, gracz.getLiczbaKuponow());
+            assertEquals(1_000_000L - 4 * 300, gracz.getSrodki());
+            assertEquals(5 * 60, budzet.getPobranePodatki());
+        }
+    }
+
+    @Test
+    void testBezczynnyPotok_WatkiSpiaDoNadejsciaZlecenia() throws Exception {
+        // given: potok o dwóch wątkach bez zleceń
+        Centrala centrala = new Centrala(1_000_000L, new BudzetPanstwa());
+        Kolektura kolektura = new Kolektura(7, centrala);
+        centrala.dodajKolekture(kolektura);
+        GraczMinimalista gracz = new GraczMinimalista("Jan", "Kowalski", "12345678901", 1_000_000L, kolektura);
+        try (PotokSprzedazy potok = new PotokSprzedazy(kolektura, 64, 16, 2)) {
+            List<Thread> watki = Thread.getAllStackTraces().keySet().stream()
+                    .filter(t -> t.getName().startsWith("potok-sprzedazy-7-"))
+                    .toList();
+            assertEquals(2, watki.size());
+
+            // when: wątki potoku kończą oczekiwanie aktywne
+            long koniec = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (watki.stream().anyMatch(t -> t.getState() != Thread.State.WAITING) && System.nanoTime() < koniec) {
+                Thread.sleep(10);
+            }
+
+            // then: śpią bez limitu czasu, a zlecenie je budzi
+            watki.forEach(t -> assertEquals(Thread.State.WAITING, t.getState()));
+            Kupon kupon = potok.sprzedajKuponChybilTraf(1, 1, gracz).get(10, TimeUnit.SECONDS);
+            assertNotNull(kupon);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package totolotek.testy;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import totolotek.core.BazaWygranych;
+import totolotek.core.Centrala;
+import totolotek.core.Kolektura;
+import totolotek.finanse.BudzetPanstwa;
+import totolotek.gracz.GraczMinimalista;
+import totolotek.kupon.Kupon;
+import totolotek.losowanie.ZrodloLosowosci;
+import totolotek.raport.Raport;
+import totolotek.raport.RaportCsv;
+import totolotek.raport.RaportJsonLines;
+import totolotek.raport.RaportTekstowy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RaportTest {
+
+    private static Centrala centralaZLosowaniami(int liczbaLosowan) {
+        Centrala centrala = new Centrala(1_000_000_000L, new BudzetPanstwa());
+        centrala.setZrodloLosowosci(ZrodloLosowosci.zZiarnem(11));
+        Kolektura kolektura = new Kolektura(1, centrala);
+        centrala.dodajKolekture(kolektura);
+        GraczMinimalista gracz = new GraczMinimalista("Jan", "Kowalski", "12345678901", 100_000_000L, kolektura);
+        for (int i = 0; i < liczbaLosowan; i++) {
+            for (int j = 0; j < 100; j++) {
+                kolektura.sprzedajKuponChybilTraf(8, 1, gracz);
+            }
+            centrala.przeprowadzLosowanie();
+        }
+        return centrala;
+    }
+
+    @Test
+    void testRaportTekstowy_UkladJakDotychczasowyWydruk() {
+        // given: centrala z dwoma losowaniami
+        Centrala centrala = centralaZLosowaniami(2);
+
+        // when: wyniki wypisywane są do raportu tekstowego
+        StringWriter wynik = new StringWriter();
+        try (RaportTekstowy raport = new RaportTekstowy(wynik)) {
+            new Raport(centrala, raport).wypiszLosowania();
+        }
+
+        // then: tekst jest taki sam jak z formatowania printf
+        StringBuilder oczekiwany = new StringBuilder();
+        for (int nr = 1; nr <= 2; nr++) {
+            BazaWygranych b = centrala.getTabelaWygranych(nr).getBazaWygranych();
+            oczekiwany.append("Losowanie nr ").append(nr).append('\n').append("Wyniki: ");
+            centrala.getLosowania().get(nr).getWynik().forEach(l -> oczekiwany.append(String.format("%2d ", l)));
+            oczekiwany.append('\n').append("PULA NAGRÓD:\n");
+            oczekiwany.append(String.format("I stopień:   %d x %s (łączna pula: %s)\n", b.getLiczbaI(),
+                    b.getLiczbaI() > 0 ? kwota(b.getWygranaI()) : "---", kwota(b.getPulaI())));
+            oczekiwany.append(String.format("II stopień:  %d x %s (łączna pula: %s)\n", b.getLiczbaII(),
+                    b.getLiczbaII() > 0 ? kwota(b.getWygranaII()) : "---", kwota(b.getPulaII())));
+            oczekiwany.append(String.format("III stopień: %d x %s (łączna pula: %s)\n", b.getLiczbaIII(),
+                    b.getLiczbaIII() > 0 ? kwota(b.getWygranaIII()) : "---", kwota(b.getPulaIII())));
+            oczekiwany.append(String.format("IV stopień:  %d x %s (łączna pula: %s)\n", b.getLiczbaIV(),
+                    b.getLiczbaIV() > 0 ? kwota(b.getWygranaIV()) : "---", kwota(b.getPulaIV())));
+            oczekiwany.append('\n');
+        }
+        assertEquals(oczekiwany.toString(), wynik.toString());
+    }
+
+    @Test
+    void testWypiszNoweLosowania_TylkoOdPoprzedniegoRaportu() {
+        // given: raport CSV po wypisaniu dwóch losowań
+        Centrala centrala = centralaZLosowaniami(2);
+        StringWriter wynik = new StringWriter();
+        RaportCsv csv = new RaportCsv(wynik);
+        Raport raport = new Raport(centrala, csv);
+        assertEquals(2, raport.wypiszLosowania());
+
+        // when: odbyły się trzy kolejne losowania
+        centrala.przeprowadzLosowanie();
+        centrala.przeprowadzLosowanie();
+        centrala.przeprowadzLosowanie();
+        int nowe = raport.wypiszNoweLosowania();
+        csv.flush();
+
+        // then: wypisano tylko nowe losowania, a nagłówek pojawił się raz
+        assertEquals(3, nowe);
+        assertEquals(5, raport.getOstatnieWypisane());
+        assertEquals(0, raport.wypiszNoweLosowania());
+        String[] wiersze = wynik.toString().split("\n");
+        assertEquals(6, wiersze.length);
+        assertTrue(wiersze[0].startsWith("rodzaj,numer,wynik,pula_i"));
+        for (int nr = 1; nr <= 5; nr++) {
+            assertTrue(wiersze[nr].startsWith("losowanie," + nr + ","));
+            assertEquals(15, wiersze[nr].split(",").length);
+        }
+    }
+
+    @Test
+    void testRaportJsonLines_DoKanaluPlikuZeZnakamiSpecjalnymi(@TempDir Path katalog) throws IOException {
+        // given: gracz z cudzysłowem i polskimi znakami w nazwisku oraz jednym kuponem
+        Centrala centrala = centralaZLosowaniami(1);
+        Kolektura kolektura = new Kolektura(2, centrala);
+        centrala.dodajKolekture(kolektura);
+        GraczMinimalista gracz = new GraczMinimalista("Łucja", "Wąs \"Żuk\"", "12345678901", 10_000L, kolektura);
+        Kupon kupon = kolektura.sprzedajKuponChybilTraf(1, 1, gracz);
+        Path plik = katalog.resolve("raport.jsonl");
+
+        // when: raport zapisywany jest przez kanał pliku
+        try (RaportJsonLines json = new RaportJsonLines(FileChannel.open(plik,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE))) {
+            Raport raport = new Raport(centrala, json);
+            raport.wypiszStanFinansowy();
+            raport.wypiszGracza(gracz);
+        }
+
+        // then: plik ma poprawne wiersze JSON w UTF-8
+        String[] wiersze = Files.readString(plik, StandardCharsets.UTF_8).split("\n");
+        assertEquals(3, wiersze.length);
+        assertEquals("{\"rodzaj\":\"stan\",\"srodki\":" + centrala.getSrodkiFinansowe()
+                + ",\"kumulacja\":" + centrala.getKumulacjaIstopnia() + "}", wiersze[0]);
+        assertTrue(wiersze[1].startsWith("{\"rodzaj\":\"budzet\",\"podatkiOdSprzedazy\":"));
+        assertEquals("{\"rodzaj\":\"gracz\",\"nazwisko\":\"Wąs \\\"Żuk\\\"\",\"imie\":\"Łucja\",\"pesel\":\"12345678901\","
+                + "\"srodki\":" + gracz.getSrodki() + ",\"kupony\":[\"" + kupon.getIdentyfikator() + "\"]}", wiersze[2]);
+    }
+
+    @Test
+    void testRaportTekstowy_DoKanaluPlikuNiesparowanyZnakZastepczy(@TempDir Path katalog) throws IOException {
+        // given: gracz, którego imię kończy się niesparowanym znakiem zastępczym
+        Centrala centrala = centralaZLosowaniami(0);
+        Kolektura kolektura = centrala.getKolektury().get(0);
+        GraczMinimalista gracz = new GraczMinimalista("Jan\uD83D", "Nowak", "12345678901", 10_000L, kolektura);
+        Path plik = katalog.resolve("raport.txt");
+
+        // when: raport zapisywany jest przez kanał pliku
+        try (RaportTekstowy tekst = new RaportTekstowy(FileChannel.open(plik,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE))) {
+            new Raport(centrala, tekst).wypiszGracza(gracz);
+        }
+
+        // then: znak jest zastąpiony tak jak przez Writer, a reszta raportu zapisana w całości
+        assertEquals("Nowak Jan?, PESEL: 12345678901\nŚrodki: 100 zł 00 gr\nBrak kuponów.\n",
+                Files.readString(plik, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testWydrukiKonsolowe_TakieSameJakRaportTekstowy() {
+        // given: centrala z dwoma losowaniami i gracz z kuponem
+        Centrala centrala = centralaZLosowaniami(2);
+        Kolektura kolektura = new Kolektura(2, centrala);
+        centrala.dodajKolekture(kolektura);
+        GraczMinimalista gracz = new GraczMinimalista("Jan", "Nowak", "12345678901", 10_001L, kolektura);
+        kolektura.sprzedajKuponChybilTraf(1, 1, gracz);
+
+        // when: te same dane wypisywane są na standardowe wyjście i do raportu tekstowego
+        ByteArrayOutputStream konsola = new ByteArrayOutputStream();
+        PrintStream standardowe = System.out;
+        System.setOut(new PrintStream(konsola, true, StandardCharsets.UTF_8));
+        try {
+            centrala.wypiszWynikiLosowan();
+            centrala.wypiszStanFinansowy();
+            centrala.getBudzetPanstwa().wypiszStan();
+            gracz.wypiszInformacje();
+        } finally {
+            System.setOut(standardowe);
+        }
+        StringWriter wynik = new StringWriter();
+        try (RaportTekstowy tekstowy = new RaportTekstowy(wynik)) {
+            Raport raport = new Raport(centrala, tekstowy);
+            raport.wypiszLosowania();
+            raport.wypiszStanFinansowy();
+            raport.wypiszGracza(gracz);
+        }
+
+        // then: wydruki są identyczne
+        assertEquals(wynik.toString(), konsola.toString(StandardCharsets.UTF_8));
+    }
+
+    private static String kwota(long grosze) {
+        return String.format("%d zł %02d gr", grosze / 100, grosze % 100);
+    }
+}
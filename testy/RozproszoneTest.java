@@ -0,0 +1,244 @@
+package totolotek.testy;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import totolotek.core.BazaWygranych;
+import totolotek.core.Centrala;
+import totolotek.core.Kolektura;
+import totolotek.core.TabelaWygranych;
+import totolotek.finanse.BudzetPanstwa;
+import totolotek.gracz.GraczMinimalista;
+import totolotek.losowanie.ZrodloLosowosci;
+import totolotek.rozproszone.KoordynatorRozliczen;
+import totolotek.rozproszone.PracownikRozliczen;
+
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RozproszoneTest {
+    private static final long SRODKI = 1_000_000_000L;
+
+    @Test
+    void testRozliczenieRozproszone_ZgodneZJednaCentrala(@TempDir Path katalog) throws Exception {
+        // given: centrala koordynatora z kolekturą 1 i dwie centrale pracowników z kolekturami 2 i 3,
+        // oraz jedna centrala ze wszystkimi trzema kolekturami i tą samą sprzedażą
+        Centrala koordynatora = centrala();
+        Centrala pracownika1 = centrala();
+        Centrala pracownika2 = centrala();
+        Centrala jedna = centrala();
+        Kolektura[] rozproszone = {kolektura(1, koordynatora), kolektura(2, pracownika1), kolektura(3, pracownika2)};
+        Kolektura[] wspolne = {kolektura(1, jedna), kolektura(2, jedna), kolektura(3, jedna)};
+        Path gniazdo1 = katalog.resolve("pracownik1.sock");
+        Path gniazdo2 = katalog.resolve("pracownik2.sock");
+
+        try (PracownikRozliczen pracownik1 = new PracownikRozliczen(pracownika1, gniazdo1);
+             PracownikRozliczen pracownik2 = new PracownikRozliczen(pracownika2, gniazdo2)) {
+            pracownik1.start();
+            pracownik2.start();
+            try (KoordynatorRozliczen koordynator = new KoordynatorRozliczen(koordynatora, List.of(gniazdo1, gniazdo2))) {
+                // when: kilka losowań, przed każdym sprzedaż w każdej kolekturze
+                for (int losowanie = 1; losowanie <= 4; losowanie++) {
+                    for (int k = 0; k < 3; k++) {
+                        sprzedaj(rozproszone[k]);
+                        sprzedaj(wspolne[k]);
+                    }
+                    BazaWygranych baza = koordynator.przeprowadzLosowanie();
+                    jedna.przeprowadzLosowanie();
+
+                    // then: wszystkie centrale mają tę samą tabelę wygranych co jedna centrala
+                    TabelaWygranych oczekiwana = jedna.getTabelaWygranych(losowanie);
+                    assertTrue(takieSame(oczekiwana.getBazaWygranych(), baza));
+                    for (Centrala centrala : List.of(koordynatora, pracownika1, pracownika2)) {
+                        TabelaWygranych tabela = centrala.getTabelaWygranych(losowanie);
+                        assertEquals(oczekiwana.getMaskaWyniku(), tabela.getMaskaWyniku());
+                        assertTrue(takieSame(oczekiwana.getBazaWygranych(), tabela.getBazaWygranych()));
+                        assertEquals(jedna.getKumulacjaIstopnia(), centrala.getKumulacjaIstopnia());
+                    }
+                }
+            }
+        }
+
+        // and: wpłaty i podatki rozłożone między centrale sumują się do wpłat i podatków jednej centrali
+        long srodki = 0, podatki = 0;
+        for (Centrala centrala : List.of(koordynatora, pracownika1, pracownika2)) {
+            srodki += centrala.getSrodkiFinansowe() - SRODKI;
+            podatki += centrala.getBudzetPanstwa().getPobranePodatki();
+        }
+        assertEquals(jedna.getSrodkiFinansowe() - SRODKI, srodki);
+        assertEquals(jedna.getBudzetPanstwa().getPobranePodatki(), podatki);
+        assertTrue(jedna.getTabelaWygranych(4).getBazaWygranych().getLiczbaIV() > 0);
+    }
+
+    @Test
+    void testRozliczenieRozproszone_BladPracownikaZglaszanyKoordynatorowi(@TempDir Path katalog) throws Exception {
+        // given: pracownik, którego centrala przeprowadziła już losowanie samodzielnie
+        Centrala koordynatora = centrala();
+        Centrala pracownika = centrala();
+        pracownika.przeprowadzLosowanie();
+        Path gniazdo = katalog.resolve("pracownik.sock");
+
+        try (PracownikRozliczen pracownik = new PracownikRozliczen(pracownika, gniazdo)) {
+            pracownik.start();
+            try (KoordynatorRozliczen koordynator = new KoordynatorRozliczen(koordynatora, List.of(gniazdo))) {
+                // when / then: numery najbliższych losowań się różnią, więc pracownik zgłasza błąd,
+                // zanim centrala koordynatora rozpocznie losowanie
+                IllegalStateException blad = assertThrows(IllegalStateException.class, koordynator::przeprowadzLosowanie);
+                assertTrue(blad.getMessage().contains("Najbliższe losowanie ma numer 2"));
+                assertNull(koordynatora.getTabelaWygranych(1));
+                assertEquals(1, koordynatora.getNajblizszeLosowanie());
+
+                // and: po wyrównaniu numerów koordynator przeprowadza kolejne losowanie tymi samymi połączeniami
+                koordynatora.przeprowadzLosowanie();
+                BazaWygranych baza = koordynator.przeprowadzLosowanie();
+                assertTrue(takieSame(baza, pracownika.getTabelaWygranych(2).getBazaWygranych()));
+                assertEquals(3, koordynatora.getNajblizszeLosowanie());
+            }
+        }
+    }
+
+    @Test
+    void testRozliczenieRozproszone_BladPoRozpoczeciuZamykaPolaczenia(@TempDir Path katalog) throws Exception {
+        // given: pracownik, który potwierdza gotowość, ale zgłasza błąd przy zliczaniu trafień
+        Centrala koordynatora = centrala();
+        Path gniazdo = katalog.resolve("pracownik.sock");
+        try (ServerSocketChannel serwer = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            serwer.bind(UnixDomainSocketAddress.of(gniazdo));
+            Thread pracownik = new Thread(() -> {
+                try (SocketChannel kanal = serwer.accept()) {
+                    int numer = odbierzNaglowek(kanal)[2];
+                    wyslijRamke(kanal, 8, numer); // GOTOWY
+                    odbierzNaglowek(kanal);
+                    kanal.read(ByteBuffer.allocate(Long.BYTES));
+                    wyslijRamke(kanal, 5, numer); // BLAD
+                    while (kanal.read(ByteBuffer.allocate(64)) >= 0) {
+                        // czekamy na zamknięcie połączenia przez koordynatora
+                    }
+                } catch (IOException e) {
+                    // koniec testu
+                }
+            });
+            pracownik.start();
+            try (KoordynatorRozliczen koordynator = new KoordynatorRozliczen(koordynatora, List.of(gniazdo))) {
+                // when: błąd przychodzi po rozpoczęciu losowania u koordynatora
+                assertThrows(IllegalStateException.class, koordynator::przeprowadzLosowanie);
+
+                // then: koordynator zamknął połączenia i odrzuca kolejne losowania
+                IllegalStateException blad = assertThrows(IllegalStateException.class, koordynator::przeprowadzLosowanie);
+                assertTrue(blad.getMessage().contains("zamknął połączenia"));
+            }
+            pracownik.join(10_000);
+            assertFalse(pracownik.isAlive());
+        }
+
+        // and: centrala koordynatora przerwała losowanie i może je przeprowadzić ponownie
+        assertNull(koordynatora.getTabelaWygranych(1));
+        assertEquals(1, koordynatora.getKolejneLosowanie());
+        koordynatora.przeprowadzLosowanie();
+        assertNotNull(koordynatora.getTabelaWygranych(1));
+        assertEquals(2, koordynatora.getNajblizszeLosowanie());
+    }
+
+    @Test
+    void testRozliczenieRozproszone_RozlaczeniePrzedZatwierdzeniemPrzerywaLosowanie(@TempDir Path katalog) throws Exception {
+        // given: pracownik ze sprzedażą i koordynator, który rozłącza się po otrzymaniu wyniku częściowego
+        Centrala koordynatora = centrala();
+        Centrala pracownika = centrala();
+        sprzedaj(kolektura(1, koordynatora));
+        Kolektura kolekturaPracownika = kolektura(2, pracownika);
+        sprzedaj(kolekturaPracownika);
+        Path gniazdo = katalog.resolve("pracownik.sock");
+        long ujawnionaMaska = 0b111111L;
+
+        try (PracownikRozliczen pracownik = new PracownikRozliczen(pracownika, gniazdo)) {
+            pracownik.start();
+            try (SocketChannel kanal = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+                kanal.connect(UnixDomainSocketAddress.of(gniazdo));
+                wyslijRamke(kanal, 7, 1); // PRZYGOTOWANIE
+                assertEquals(8, odbierzNaglowek(kanal)[1]); // GOTOWY
+                ByteBuffer ramka = ByteBuffer.allocate(3 * Integer.BYTES + Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                ramka.putInt(Long.BYTES).putInt(1).putInt(1).putLong(ujawnionaMaska).flip(); // LOSOWANIE
+                while (ramka.hasRemaining()) {
+                    kanal.write(ramka);
+                }
+                assertEquals(2, odbierzNaglowek(kanal)[1]); // WYNIK
+            }
+            // sprzedaż po rozłączeniu trafia już na losowanie 2
+            sprzedaj(kolekturaPracownika);
+
+            // when: kolejny koordynator przeprowadza losowanie 1
+            BazaWygranych baza;
+            try (KoordynatorRozliczen koordynator = new KoordynatorRozliczen(koordynatora, List.of(gniazdo))) {
+                baza = koordynator.przeprowadzLosowanie();
+            }
+
+            // then: pracownik odrzucił przerwany wynik i zatwierdził losowanie z wynikiem koordynatora
+            TabelaWygranych oczekiwana = koordynatora.getTabelaWygranych(1);
+            TabelaWygranych tabela = pracownika.getTabelaWygranych(1);
+            assertNotEquals(ujawnionaMaska, tabela.getMaskaWyniku());
+            assertEquals(oczekiwana.getMaskaWyniku(), tabela.getMaskaWyniku());
+            assertTrue(takieSame(baza, tabela.getBazaWygranych()));
+            assertEquals(koordynatora.getKumulacjaIstopnia(), pracownika.getKumulacjaIstopnia());
+            assertEquals(2, pracownika.getNajblizszeLosowanie());
+
+            // and: zakłady sprzedane po rozłączeniu nie weszły do przerwanego losowania
+            Centrala jedna = centrala();
+            sprzedaj(kolektura(1, jedna));
+            sprzedaj(kolektura(2, jedna));
+            jedna.przeprowadzLosowanie();
+            assertTrue(takieSame(jedna.getTabelaWygranych(1).getBazaWygranych(), baza));
+        }
+    }
+
+    private static int[] odbierzNaglowek(SocketChannel kanal) throws IOException {
+        ByteBuffer naglowek = ByteBuffer.allocate(3 * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        while (naglowek.hasRemaining()) {
+            if (kanal.read(naglowek) < 0) throw new IOException("Połączenie zamknięte");
+        }
+        naglowek.flip();
+        return new int[]{naglowek.getInt(), naglowek.getInt(), naglowek.getInt()};
+    }
+
+    private static void wyslijRamke(SocketChannel kanal, int typ, int numer) throws IOException {
+        ByteBuffer ramka = ByteBuffer.allocate(3 * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        ramka.putInt(0).putInt(typ).putInt(numer).flip();
+        while (ramka.hasRemaining()) {
+            kanal.write(ramka);
+        }
+    }
+
+    private static Centrala centrala() {
+        Centrala centrala = new Centrala(SRODKI, new BudzetPanstwa());
+        centrala.setZrodloLosowosci(ZrodloLosowosci.zZiarnem(7));
+        return centrala;
+    }
+
+    private static Kolektura kolektura(int numer, Centrala centrala) {
+        Kolektura kolektura = new Kolektura(numer, centrala);
+        kolektura.setZrodloLosowosci(ZrodloLosowosci.zZiarnem(10 + numer));
+        centrala.dodajKolekture(kolektura);
+        return kolektura;
+    }
+
+    private static void sprzedaj(Kolektura kolektura) {
+        GraczMinimalista gracz = new GraczMinimalista("Jan", "Kowalski", "12345678901", 10_000_000_000L, kolektura);
+        for (int i = 0; i < 3_000; i++) {
+            kolektura.sprzedajKuponChybilTraf(1 + i % 8, 1, gracz);
+        }
+    }
+
+    private static boolean takieSame(BazaWygranych a, BazaWygranych b) {
+        return a.getPulaI() == b.getPulaI() && a.getPulaII() == b.getPulaII()
+                && a.getPulaIII() == b.getPulaIII() && a.getPulaIV() == b.getPulaIV()
+                && a.getLiczbaI() == b.getLiczbaI() && a.getLiczbaII() == b.getLiczbaII()
+                && a.getLiczbaIII() == b.getLiczbaIII() && a.getLiczbaIV() == b.getLiczbaIV();
+    }
+}
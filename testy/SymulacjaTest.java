@@ -0,0 +1,67 @@
+package totolotek.testy;
+
+import org.junit.jupiter.api.Test;
+import totolotek.core.Centrala;
+import totolotek.core.Kolektura;
+import totolotek.core.RodzajMagazynu;
+import totolotek.finanse.BudzetPanstwa;
+import totolotek.gracz.Gracz;
+import totolotek.gracz.GraczLosowy;
+import totolotek.gracz.GraczMinimalista;
+import totolotek.gracz.GraczStaloliczbowy;
+import totolotek.symulacja.RodzajWatkow;
+import totolotek.symulacja.Symulacja;
+import totolotek.symulacja.WynikRundy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SymulacjaTest {
+
+    private static List<WynikRundy> przebieg(long ziarno, RodzajWatkow rodzaj, int watki) {
+        Centrala centrala = new Centrala(1_000_000_000L, new BudzetPanstwa());
+        Kolektura[] kolektury = new Kolektura[4];
+        for (int i = 0; i < kolektury.length; i++) {
+            kolektury[i] = new Kolektura(i + 1, centrala, RodzajMagazynu.KOLUMNOWY);
+            centrala.dodajKolekture(kolektury[i]);
+        }
+        try (Symulacja symulacja = new Symulacja(centrala, ziarno)) {
+            symulacja.setRodzajWatkow(rodzaj, watki);
+            List<Gracz> gracze = new ArrayList<>();
+            for (int i = 0; i < 10_000; i++) {
+                gracze.add(new GraczMinimalista("Jan", "Kowalski", "M" + i, 10_000L, kolektury[i % 4]));
+            }
+            for (int i = 0; i < 200; i++) {
+                gracze.add(new GraczLosowy("Anna", "Nowak", "L" + i, Arrays.asList(kolektury),
+                        symulacja.getZrodloLosowosci()));
+                gracze.add(new GraczStaloliczbowy("Ewa", "Lis", "S" + i, 100_000L,
+                        List.of(kolektury[i % 4]), Set.of(1, 2, 3, 4, 5, 6)));
+            }
+            symulacja.dodajGraczy(gracze);
+            // 4 kolektury po 2500 minimalistów i 50 stałoliczbowych oraz jedna partia graczy losowych
+            assertEquals(5, symulacja.getLiczbaPartii());
+            return symulacja.uruchom(4);
+        }
+    }
+
+    @Test
+    void testUruchom_PowtarzalneNiezaleznieOdWatkow() {
+        // given & when: dwa przebiegi z tym samym ziarnem na różnych rodzajach wątków i trzeci z innym ziarnem
+        List<WynikRundy> wirtualne = przebieg(42, RodzajWatkow.WIRTUALNE, 1);
+        List<WynikRundy> pula = przebieg(42, RodzajWatkow.PULA_ZADAN, 3);
+        List<WynikRundy> inneZiarno = przebieg(43, RodzajWatkow.PULA_ZADAN, 3);
+
+        // then: wyniki finansowe przebiegów z tym samym ziarnem są identyczne w każdej rundzie
+        assertEquals(4, wirtualne.size());
+        for (int i = 0; i < 4; i++) {
+            assertEquals(i + 1, wirtualne.get(i).runda());
+            assertTrue(wirtualne.get(i).zgodnyFinansowo(pula.get(i)), wirtualne.get(i) + " != " + pula.get(i));
+            assertTrue(wirtualne.get(i).sprzedaneKupony() > 0);
+        }
+        assertFalse(wirtualne.get(3).zgodnyFinansowo(inneZiarno.get(3)));
+    }
+}
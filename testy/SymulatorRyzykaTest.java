@@ -0,0 +1,78 @@
+package totolotek.testy;
+
+import org.junit.jupiter.api.Test;
+import totolotek.core.BazaWygranych;
+import totolotek.core.StrategiaNagrod;
+import totolotek.ryzyko.SymulatorRyzyka;
+import totolotek.ryzyko.WynikRyzyka;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SymulatorRyzykaTest {
+
+    @Test
+    void testBezSprzedazy_KumulacjaRosnieBezSubwencji() {
+        // given: losowania bez sprzedanych zakładów
+        SymulatorRyzyka symulator = new SymulatorRyzyka(0, 0, 1);
+        symulator.setDlugoscSerii(5);
+
+        // when: symulacja strategii standardowej
+        WynikRyzyka wynik = symulator.symuluj(StrategiaNagrod.standardowa(), 10);
+
+        // then: nikt nie wygrywa, gwarantowana pula I stopnia kumuluje się co losowanie
+        assertEquals(50, wynik.liczbaLosowan());
+        assertEquals(0, wynik.czestoscSubwencji());
+        assertEquals(1.0, wynik.czestoscKumulacji());
+        assertEquals(5 * 2_000_000_00L, wynik.kumulacje().getMaksimum());
+        assertEquals(10, wynik.dlugosciKumulacji().getLiczba());
+        assertEquals(5, wynik.dlugosciKumulacji().getPercentyl(0.5));
+    }
+
+    @Test
+    void testWieleStrategii_PowtarzalneISrednieZgodneZRozkladem() {
+        // given: strategia standardowa, strategia zliczająca zwycięzców IV stopnia
+        // i strategia wypłacająca 10 000 zł za cztery trafienia
+        long liczbaZakladow = 1_000_000;
+        LongAdder zwyciezcyIV = new LongAdder();
+        StrategiaNagrod zliczajaca = (wplaty, podatek, kumulacja, liczba) -> {
+            zwyciezcyIV.add(liczba.get(3));
+            return StrategiaNagrod.standardowa().ustalBazeWygranych(wplaty, podatek, kumulacja, liczba);
+        };
+        StrategiaNagrod hojna = (wplaty, podatek, kumulacja, liczba) -> new BazaWygranych(
+                0, 0, liczba.get(4) * 10_000_00L, 0, liczba.get(6), liczba.get(5), liczba.get(4), liczba.get(3));
+        Map<String, StrategiaNagrod> strategie = new LinkedHashMap<>();
+        strategie.put("standardowa", StrategiaNagrod.standardowa());
+        strategie.put("zliczajaca", zliczajaca);
+        strategie.put("hojna", hojna);
+
+        // when: ta sama symulacja na jednym i na czterech wątkach
+        SymulatorRyzyka symulator = new SymulatorRyzyka(liczbaZakladow, 0, 7);
+        symulator.setDlugoscSerii(10);
+        symulator.setPoziomRownoleglosci(1);
+        Map<String, WynikRyzyka> jedenWatek = symulator.symuluj(strategie, 200);
+        symulator.setPoziomRownoleglosci(4);
+        Map<String, WynikRyzyka> czteryWatki = symulator.symuluj(strategie, 200);
+
+        // then: wyniki nie zależą od liczby wątków
+        for (String nazwa : strategie.keySet()) {
+            WynikRyzyka a = jedenWatek.get(nazwa), b = czteryWatki.get(nazwa);
+            assertEquals(a.subwencje().getSuma(), b.subwencje().getSuma());
+            assertEquals(a.kumulacje().getSuma(), b.kumulacje().getSuma());
+            assertEquals(a.dlugosciKumulacji().getLiczba(), b.dlugosciKumulacji().getLiczba());
+        }
+        // obie strategie oceniane są na tych samych liczbach zwycięzców
+        assertEquals(jedenWatek.get("standardowa").kumulacje().getSuma(),
+                jedenWatek.get("zliczajaca").kumulacje().getSuma());
+        // średnia liczba trzech trafień zgodna z rozkładem hipergeometrycznym (0,01765 na zakład)
+        double srednia = zwyciezcyIV.sum() / 2.0 / 2000 / liczbaZakladow;
+        assertEquals(0.017650, srednia, 0.0001);
+        // strategia wypłacająca więcej, niż wpłynęło, wymaga subwencji w każdym losowaniu,
+        // standardowa – tylko czasem, gdy gwarantowana pula I stopnia przewyższa zgromadzone środki
+        assertEquals(1.0, jedenWatek.get("hojna").czestoscSubwencji());
+        assertTrue(jedenWatek.get("standardowa").czestoscSubwencji() < 0.1);
+    }
+}
@@ -1,6 +1,7 @@
 package totolotek.testy;
 
 import org.junit.jupiter.api.Test;
+import totolotek.kupon.PoleBlankietu;
 import totolotek.kupon.Zaklad;
 
 import java.util.Set;
@@ -51,4 +52,50 @@ class ZakladTest {
         // then: wynik powinien być równy 3
         assertEquals(3, trafienia);
     }
+
+    @Test
+    void testMaskaIZbiorSaZgodne() {
+        // given: zakład utworzony ze zbioru liczb
+        Zaklad zaklad = new Zaklad(Set.of(1, 7, 13, 24, 42, 49));
+
+        // when: zakład odtwarzany jest z maski
+        Zaklad zMaski = new Zaklad(zaklad.getMaska());
+
+        // then: oba zakłady są równe i mają te same liczby
+        assertEquals(zaklad, zMaski);
+        assertEquals(zaklad.hashCode(), zMaski.hashCode());
+        assertEquals(Set.of(1, 7, 13, 24, 42, 49), zMaski.getLiczby());
+    }
+
+    @Test
+    void testLiczbaTrafienZMaski() {
+        // given: zakład oraz maska wylosowanych liczb
+        Zaklad zaklad = new Zaklad(Set.of(1, 2, 3, 4, 5, 6));
+        long wylosowane = Zaklad.maskaZbioru(Set.of(4, 5, 6, 7, 8, 9));
+
+        // when & then: liczba trafień równa 3
+        assertEquals(3, zaklad.liczbaTrafien(wylosowane));
+    }
+
+    @Test
+    void testZakladZNiepoprawnejMaski() {
+        // when & then: maska z 5 bitami lub spoza zakresu rzuca wyjątek
+        assertThrows(IllegalArgumentException.class, () -> new Zaklad(0b11111L));
+        assertThrows(IllegalArgumentException.class, () -> new Zaklad(0b11111L | (1L << 49)));
+    }
+
+    @Test
+    void testZMaski_WspolnyEgzemplarz() {
+        // given: ten sam zestaw liczb z dwóch różnych blankietów
+        long maska = Zaklad.maskaZbioru(Set.of(4, 8, 15, 16, 23, 42));
+        Zaklad zPola = new PoleBlankietu(Set.of(42, 23, 16, 15, 8, 4), false).generujZaklad();
+
+        // when: zakład jest pobierany z puli
+        Zaklad zPuli = Zaklad.zMaski(maska);
+
+        // then: oba pola dają ten sam egzemplarz, a niepoprawna maska jest odrzucana
+        assertSame(zPola, zPuli);
+        assertSame(zPuli, Zaklad.zMaski(maska));
+        assertThrows(IllegalArgumentException.class, () -> Zaklad.zMaski(maska | 1L << 49));
+    }
 }
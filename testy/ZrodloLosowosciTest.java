@@ -0,0 +1,68 @@
+package totolotek.testy;
+
+import org.junit.jupiter.api.Test;
+import totolotek.core.Centrala;
+import totolotek.finanse.BudzetPanstwa;
+import totolotek.kupon.Zaklad;
+import totolotek.losowanie.ZrodloLosowosci;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ZrodloLosowosciTest {
+
+    @Test
+    void testLosujMaski_PoprawneZaklady() {
+        // given: źródło z ziarnem i tablica na 10 000 zakładów
+        ZrodloLosowosci zrodlo = ZrodloLosowosci.zZiarnem(7);
+        long[] maski = new long[10_000];
+
+        // when: tablica wypełniana jest zakładami chybił-trafił
+        zrodlo.losujMaski(maski);
+
+        // then: każda maska koduje 6 liczb z zakresu 1-49, a każda liczba pojawia się
+        long wszystkie = 0L;
+        for (long maska : maski) {
+            assertEquals(Zaklad.LICZBA_TYPÓW, Long.bitCount(maska));
+            assertEquals(0L, maska & ~Zaklad.MASKA_ZAKRESU);
+            wszystkie |= maska;
+        }
+        assertEquals(Zaklad.MASKA_ZAKRESU, wszystkie);
+    }
+
+    @Test
+    void testZZiarnem_Powtarzalne() {
+        // given: dwa źródła z tym samym ziarnem
+        ZrodloLosowosci a = ZrodloLosowosci.zZiarnem(2024);
+        ZrodloLosowosci b = ZrodloLosowosci.zZiarnem(2024);
+
+        // when: z każdego wydzielany jest strumień, a potem losowane są zakłady
+        ZrodloLosowosci strumienA = a.rozdziel();
+        ZrodloLosowosci strumienB = b.rozdziel();
+
+        // then: wyniki są identyczne
+        for (int i = 0; i < 100; i++) {
+            assertEquals(a.losujMaske(), b.losujMaske());
+            assertEquals(Zaklad.chybilTraf(strumienA), Zaklad.chybilTraf(strumienB));
+        }
+    }
+
+    @Test
+    void testCentrala_PowtarzalneLosowania() {
+        // given: dwie centrale ze źródłami o tym samym ziarnie
+        Centrala c1 = new Centrala(1_000_000L, new BudzetPanstwa());
+        Centrala c2 = new Centrala(1_000_000L, new BudzetPanstwa());
+        c1.setZrodloLosowosci(ZrodloLosowosci.zZiarnem(5));
+        c2.setZrodloLosowosci(ZrodloLosowosci.zZiarnem(5));
+
+        // when: w obu przeprowadzane są trzy losowania
+        for (int i = 0; i < 3; i++) {
+            c1.przeprowadzLosowanie();
+            c2.przeprowadzLosowanie();
+        }
+
+        // then: wyniki losowań są takie same
+        for (int nr = 1; nr <= 3; nr++) {
+            assertEquals(c1.getLosowania().get(nr).getMaska(), c2.getLosowania().get(nr).getMaska());
+        }
+    }
+}
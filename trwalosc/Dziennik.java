@@ -0,0 +1,304 @@
+package totolotek.trwalosc;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Dziennik zapisu z wyprzedzeniem: ciąg rekordów o stałym rozmiarze ({@link RekordDziennika})
+ * w plikach segmentów odwzorowanych w pamięci.
+ *
+ * Rekord ma numer kolejny (LSN), który wyznacza jego położenie: segment {@code lsn / rekordowNaSegment},
+ * pozycję {@code lsn % rekordowNaSegment}. Wiele wątków dopisuje równocześnie – miejsce
+ * rezerwowane jest atomowym licznikiem, a pierwsze słowo rekordu (z typem) zapisywane jest
+ * na końcu z semantyką release, więc rekord z niezerowym typem jest kompletny.
+ *
+ * Zapis do odwzorowanej pamięci przetrwa awarię procesu. Trwałość na wypadek awarii systemu
+ * zapewnia {@link #zatwierdz(long)}: pierwszy oczekujący wątek utrwala na dysku cały gotowy
+ * przedrostek dziennika, a pozostali, których rekordy się w nim zmieściły, kończą bez
+ * własnej operacji wejścia-wyjścia (grupowe zatwierdzanie).
+ *
+ * Przy otwarciu istniejącego dziennika koniec wyznacza pierwszy rekord pusty lub z błędną
+ * sumą kontrolną; wszystko za nim jest usuwane.
+ */
+public final class Dziennik implements Closeable {
+    /** Domyślna liczba rekordów w segmencie (48 MiB) */
+    public static final int DOMYSLNIE_REKORDOW_NA_SEGMENT = 1 << 19;
+    private static final int MAKS_SEGMENTOW = 1 << 16;
+    /** Jak długo zatwierdzanie czeka na dokończenie zarezerwowanego rekordu (10 s) */
+    private static final long MAKS_OCZEKIWANIA_NA_REKORD_NS = 10_000_000_000L;
+
+    private static final VarHandle SLOWO = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final Path katalog;
+    private final boolean wymuszajZapisNaDysk;
+    private final int bityNaSegment;
+    private final AtomicReferenceArray<MappedByteBuffer> segmenty = new AtomicReferenceArray<>(MAKS_SEGMENTOW);
+    private final List<FileChannel> kanaly = new ArrayList<>();
+    /** Numer następnego rekordu do zarezerwowania */
+    private final AtomicLong nastepny;
+    /** Liczba rekordów utrwalonych na dysku; zmieniana pod blokadą utrwalania */
+    private volatile long utrwalone;
+    private final Object blokadaUtrwalania = new Object();
+    private final ThreadLocal<byte[]> bufory = ThreadLocal.withInitial(() -> new byte[RekordDziennika.ROZMIAR]);
+    private final ThreadLocal<CRC32C> sumy = ThreadLocal.withInitial(CRC32C::new);
+
+    private Dziennik(Path katalog, boolean wymuszajZapisNaDysk, int rekordowNaSegment) {
+        if (Integer.bitCount(rekordowNaSegment) != 1
+                || (long) rekordowNaSegment * RekordDziennika.ROZMIAR > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Liczba rekordów w segmencie musi być potęgą dwójki: " + rekordowNaSegment);
+        }
+        this.katalog = katalog;
+        this.wymuszajZapisNaDysk = wymuszajZapisNaDysk;
+        this.bityNaSegment = Integer.numberOfTrailingZeros(rekordowNaSegment);
+        this.nastepny = new AtomicLong();
+    }
+
+    /**
+     * Otwiera dziennik w katalogu (tworząc go w razie potrzeby) z domyślnym rozmiarem segmentu.
+     * @see #otworz(Path, boolean, int)
+     */
+    public static Dziennik otworz(Path katalog, boolean wymuszajZapisNaDysk) throws IOException {
+        return otworz(katalog, wymuszajZapisNaDysk, DOMYSLNIE_REKORDOW_NA_SEGMENT);
+    }
+
+    /**
+     * Otwiera dziennik w katalogu, tworząc go w razie potrzeby. Istniejące rekordy są zachowane,
+     * a nowe dopisywane są za ostatnim poprawnym.
+     * @param katalog katalog segmentów dziennika
+     * @param wymuszajZapisNaDysk czy {@link #zatwierdz(long)} ma utrwalać dane na dysku
+     * @param rekordowNaSegment liczba rekordów w segmencie (potęga dwójki); musi być taka sama przy każdym otwarciu
+     * @return otwarty dziennik
+     * @throws IOException jeśli nie można odczytać lub utworzyć plików
+     */
+    public static Dziennik otworz(Path katalog, boolean wymuszajZapisNaDysk, int rekordowNaSegment) throws IOException {
+        Files.createDirectories(katalog);
+        Dziennik dziennik = new Dziennik(katalog, wymuszajZapisNaDysk, rekordowNaSegment);
+        dziennik.odzyskajKoniec();
+        return dziennik;
+    }
+
+    /**
+     * Dopisuje rekord na koniec dziennika. Bezpieczne dla wielu wątków.
+     * @param rekord rekord do zapisania (jego suma kontrolna jest wyliczana tutaj)
+     * @return numer zapisanego rekordu (LSN)
+     * @throws UncheckedIOException jeśli nie można utworzyć kolejnego segmentu
+     */
+    public long zapisz(RekordDziennika rekord) {
+        if (rekord.getTyp() == 0) {
+            throw new IllegalArgumentException("Rekord bez typu");
+        }
+        byte[] bajty = bufory.get();
+        System.arraycopy(rekord.bufor.array(), 0, bajty, 0, RekordDziennika.ROZMIAR);
+        CRC32C crc = sumy.get();
+        crc.reset();
+        crc.update(bajty, 0, RekordDziennika.POZYCJA_SUMY);
+        int suma = (int) crc.getValue();
+        for (int i = 0; i < Integer.BYTES; i++) {
+            bajty[RekordDziennika.POZYCJA_SUMY + i] = (byte) (suma >>> (8 * i));
+        }
+
+        long lsn = nastepny.getAndIncrement();
+        MappedByteBuffer segment = segment(numerSegmentu(lsn));
+        int pozycja = pozycjaWSegmencie(lsn);
+        segment.put(pozycja + Integer.BYTES, bajty, Integer.BYTES, RekordDziennika.ROZMIAR - Integer.BYTES);
+        SLOWO.setRelease(segment, pozycja, rekord.bufor.getInt(0));
+        return lsn;
+    }
+
+    /**
+     * Czeka, aż rekord o podanym numerze i wszystkie wcześniejsze zostaną utrwalone.
+     * Jeśli dziennik nie wymusza zapisu na dysk, wraca od razu.
+     * @param lsn numer rekordu zwrócony przez {@link #zapisz(RekordDziennika)}
+     * @throws UncheckedIOException jeśli utrwalenie się nie powiodło lub któryś z wcześniejszych
+     *         rekordów nie został dokończony w rozsądnym czasie (np. jego wątek zginął w trakcie zapisu)
+     */
+    public void zatwierdz(long lsn) {
+        if (!wymuszajZapisNaDysk || lsn < utrwalone) {
+            return;
+        }
+        synchronized (blokadaUtrwalania) {
+            long od = utrwalone;
+            if (lsn < od) {
+                return; // rekord utrwalił inny wątek w tej samej grupie
+            }
+            long doRekordu = Math.max(gotowyPrzedrostek(od), lsn + 1);
+            for (long i = od; i < doRekordu; i++) {
+                czekajNaRekord(i);
+            }
+            for (long poczatek = od; poczatek < doRekordu; ) {
+                int nrSegmentu = numerSegmentu(poczatek);
+                long koniec = Math.min(doRekordu, ((long) nrSegmentu + 1) << bityNaSegment);
+                segment(nrSegmentu).force(pozycjaWSegmencie(poczatek),
+                        (int) (koniec - poczatek) * RekordDziennika.ROZMIAR);
+                poczatek = koniec;
+            }
+            utrwalone = doRekordu;
+        }
+    }
+
+    /**
+     * @return liczba rekordów w dzienniku (numer następnego rekordu)
+     */
+    public long getLiczbaRekordow() {
+        return nastepny.get();
+    }
+
+    /**
+     * Przekazuje kolejno rekordy od podanego numeru do końca dziennika.
+     * Przeznaczone do odtwarzania stanu – nie należy równocześnie dopisywać rekordów.
+     * @param od numer pierwszego rekordu
+     * @param odbiorca odbiorca rekordów; przekazywany obiekt jest używany ponownie
+     */
+    public void odczytaj(long od, Consumer<RekordDziennika> odbiorca) {
+        RekordDziennika rekord = new RekordDziennika();
+        long koniec = nastepny.get();
+        for (long lsn = od; lsn < koniec; lsn++) {
+            segment(numerSegmentu(lsn)).get(pozycjaWSegmencie(lsn), rekord.bufor.array(), 0, RekordDziennika.ROZMIAR);
+            odbiorca.accept(rekord);
+        }
+    }
+
+    /**
+     * Utrwala wszystkie rekordy i zamyka pliki segmentów.
+     */
+    @Override
+    public void close() throws IOException {
+        long ostatni = nastepny.get() - 1;
+        if (ostatni >= 0) {
+            zatwierdz(ostatni);
+        }
+        synchronized (kanaly) {
+            for (FileChannel kanal : kanaly) {
+                kanal.close();
+            }
+            kanaly.clear();
+        }
+    }
+
+    /**
+     * Czeka, aż rekord zarezerwowany przez inny wątek zostanie dokończony. Oczekiwanie jest
+     * ograniczone: rekord, którego wątek zginął w trakcie zapisu, nigdy nie zostanie dokończony,
+     * a bez ograniczenia wszyscy kolejni zatwierdzający czekaliby w nieskończoność.
+     */
+    private void czekajNaRekord(long lsn) {
+        MappedByteBuffer segment = segment(numerSegmentu(lsn));
+        int pozycja = pozycjaWSegmencie(lsn);
+        long poczatek = System.nanoTime();
+        for (int proba = 0; (int) SLOWO.getAcquire(segment, pozycja) == 0; proba++) {
+            if (proba < 1_000) {
+                Thread.onSpinWait(); // rekord zarezerwowany, lecz jeszcze zapisywany
+            } else if (System.nanoTime() - poczatek > MAKS_OCZEKIWANIA_NA_REKORD_NS) {
+                throw new UncheckedIOException(new IOException("Rekord dziennika " + lsn + " nie został dokończony"));
+            } else {
+                LockSupport.parkNanos(100_000L);
+            }
+        }
+    }
+
+    /**
+     * Wyznacza liczbę kolejnych kompletnych rekordów od podanego numeru.
+     */
+    private long gotowyPrzedrostek(long od) {
+        long koniec = nastepny.get();
+        long i = od;
+        while (i < koniec && (int) SLOWO.getAcquire(segment(numerSegmentu(i)), pozycjaWSegmencie(i)) != 0) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Znajduje koniec poprawnej części dziennika, zeruje resztę ostatniego segmentu
+     * i usuwa segmenty położone dalej.
+     */
+    private void odzyskajKoniec() throws IOException {
+        byte[] bajty = new byte[RekordDziennika.ROZMIAR];
+        CRC32C crc = new CRC32C();
+        long lsn = 0;
+        while (Files.exists(sciezkaSegmentu(numerSegmentu(lsn)))) {
+            MappedByteBuffer segment = segment(numerSegmentu(lsn));
+            segment.get(pozycjaWSegmencie(lsn), bajty, 0, RekordDziennika.ROZMIAR);
+            crc.reset();
+            crc.update(bajty, 0, RekordDziennika.POZYCJA_SUMY);
+            int suma = 0;
+            for (int i = 0; i < Integer.BYTES; i++) {
+                suma |= (bajty[RekordDziennika.POZYCJA_SUMY + i] & 0xFF) << (8 * i);
+            }
+            if (bajty[0] == 0 || suma != (int) crc.getValue()) {
+                break;
+            }
+            lsn++;
+        }
+        if (Files.exists(sciezkaSegmentu(numerSegmentu(lsn)))) {
+            MappedByteBuffer segment = segment(numerSegmentu(lsn));
+            byte[] zera = new byte[RekordDziennika.ROZMIAR];
+            for (int p = pozycjaWSegmencie(lsn); p < segment.capacity(); p += RekordDziennika.ROZMIAR) {
+                segment.put(p, zera);
+            }
+            segment.force();
+        }
+        for (int nr = numerSegmentu(lsn) + 1; Files.exists(sciezkaSegmentu(nr)); nr++) {
+            Files.delete(sciezkaSegmentu(nr));
+        }
+        nastepny.set(lsn);
+        utrwalone = lsn;
+    }
+
+    private MappedByteBuffer segment(int nr) {
+        MappedByteBuffer segment = segmenty.get(nr);
+        if (segment == null) {
+            synchronized (kanaly) {
+                segment = segmenty.get(nr);
+                if (segment == null) {
+                    segment = mapujSegment(nr);
+                    segmenty.set(nr, segment);
+                }
+            }
+        }
+        return segment;
+    }
+
+    private MappedByteBuffer mapujSegment(int nr) {
+        long rozmiar = (long) RekordDziennika.ROZMIAR << bityNaSegment;
+        try {
+            FileChannel kanal = FileChannel.open(sciezkaSegmentu(nr),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            kanaly.add(kanal);
+            return kanal.map(FileChannel.MapMode.READ_WRITE, 0, rozmiar);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Nie można odwzorować segmentu dziennika " + nr, e);
+        }
+    }
+
+    private Path sciezkaSegmentu(int nr) {
+        return katalog.resolve(String.format("dziennik-%06d.seg", nr));
+    }
+
+    private int numerSegmentu(long lsn) {
+        long nr = lsn >>> bityNaSegment;
+        if (nr >= MAKS_SEGMENTOW) {
+            throw new IllegalStateException("Przekroczono pojemność dziennika");
+        }
+        return (int) nr;
+    }
+
+    private int pozycjaWSegmencie(long lsn) {
+        return (int) (lsn & ((1L << bityNaSegment) - 1)) * RekordDziennika.ROZMIAR;
+    }
+}
@@ -0,0 +1,111 @@
+package totolotek.trwalosc;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Rekord dziennika o stałym rozmiarze {@value #ROZMIAR} bajtów.
+ * Układ (little-endian):
+ * <pre>
+ *   0      typ (1..255)         1..3   bajty dodatkowe
+ *   4      numer (int)          8..87  {@value #LICZBA_POL} pól typu long
+ *   88     liczba dodatkowa     92     suma kontrolna CRC32C bajtów 0..91
+ * </pre>
+ * Znaczenie pól zależy od typu i ustala je piszący. Obiekt jest wielokrotnego użytku
+ * i nie jest bezpieczny dla wielu wątków.
+ */
+public final class RekordDziennika {
+    /** Rozmiar rekordu w bajtach */
+    public static final int ROZMIAR = 96;
+    /** Liczba pól typu long */
+    public static final int LICZBA_POL = 10;
+
+    static final int POZYCJA_SUMY = 92;
+    private static final int POZYCJA_NUMERU = 4;
+    private static final int POZYCJA_POL = 8;
+    private static final int POZYCJA_DODATKOWEJ = 88;
+
+    final ByteBuffer bufor = ByteBuffer.allocate(ROZMIAR).order(ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * Zeruje rekord i ustawia jego typ.
+     * @param typ typ rekordu (1..255)
+     * @return ten rekord
+     */
+    public RekordDziennika nowy(int typ) {
+        if (typ < 1 || typ > 255) {
+            throw new IllegalArgumentException("Typ rekordu spoza zakresu 1..255: " + typ);
+        }
+        Arrays.fill(bufor.array(), (byte) 0);
+        bufor.put(0, (byte) typ);
+        return this;
+    }
+
+    public int getTyp() {
+        return Byte.toUnsignedInt(bufor.get(0));
+    }
+
+    /**
+     * @param i numer bajtu dodatkowego (1..3)
+     */
+    public int getBajt(int i) {
+        return Byte.toUnsignedInt(bufor.get(indeksBajtu(i)));
+    }
+
+    /**
+     * @param i numer bajtu dodatkowego (1..3)
+     * @param wartosc wartość 0..255
+     */
+    public RekordDziennika setBajt(int i, int wartosc) {
+        bufor.put(indeksBajtu(i), (byte) wartosc);
+        return this;
+    }
+
+    public int getNumer() {
+        return bufor.getInt(POZYCJA_NUMERU);
+    }
+
+    public RekordDziennika setNumer(int numer) {
+        bufor.putInt(POZYCJA_NUMERU, numer);
+        return this;
+    }
+
+    /**
+     * @param i numer pola (0..{@value #LICZBA_POL}-1)
+     */
+    public long getPole(int i) {
+        return bufor.getLong(pozycjaPola(i));
+    }
+
+    /**
+     * @param i numer pola (0..{@value #LICZBA_POL}-1)
+     */
+    public RekordDziennika setPole(int i, long wartosc) {
+        bufor.putLong(pozycjaPola(i), wartosc);
+        return this;
+    }
+
+    public int getDodatkowa() {
+        return bufor.getInt(POZYCJA_DODATKOWEJ);
+    }
+
+    public RekordDziennika setDodatkowa(int wartosc) {
+        bufor.putInt(POZYCJA_DODATKOWEJ, wartosc);
+        return this;
+    }
+
+    private static int indeksBajtu(int i) {
+        if (i < 1 || i > 3) {
+            throw new IndexOutOfBoundsException(i);
+        }
+        return i;
+    }
+
+    private static int pozycjaPola(int i) {
+        if (i < 0 || i >= LICZBA_POL) {
+            throw new IndexOutOfBoundsException(i);
+        }
+        return POZYCJA_POL + i * Long.BYTES;
+    }
+}